@@ -38,6 +38,7 @@ import net.sf.jasperreports.engine.JRExpression;
 import net.sf.jasperreports.engine.JRPropertiesUtil;
 import net.sf.jasperreports.engine.JRRewindableDataSource;
 import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.fill.DataSourcePrefetcher;
 import net.sf.jasperreports.engine.fill.FillDatasetPosition;
 import net.sf.jasperreports.engine.fill.JRFillCloneFactory;
 import net.sf.jasperreports.engine.fill.JRFillDataset;
@@ -130,6 +131,14 @@ public class FillDatasetRun extends JRFillDatasetRun
 			{
 				dataSource = (JRDataSource) expressionEvaluator.evaluate(
 						dataSourceExpression, evaluation);
+				
+				if (dataSource != null 
+						&& filler.getPropertiesUtil().getBooleanProperty(DataSourcePrefetcher.PROPERTY_DATA_SOURCE_PREFETCH, false, 
+								this, filler.getMainDataset()))
+				{
+					dataSource = DataSourcePrefetcher.getInstance(filler.getFillContext()).prefetch(
+							dataSource, dataset.getFields());
+				}
 			}
 		}
 		else if (connectionExpression != null)
@@ -23,6 +23,7 @@
  */
 package net.sf.jasperreports.crosstabs.fill.calculation;
 
+import java.math.BigInteger;
 import java.util.Comparator;
 
 import net.sf.jasperreports.crosstabs.fill.BucketOrderer;
@@ -84,6 +85,10 @@ public class BucketDefinition
 	
 	private boolean computeTotal;
 	
+	private final boolean orderConsistentWithEquals;
+	
+	private final Class<?> reusableValueClass;
+	
 	/**
 	 * Creates a bucket.
 	 * 
@@ -140,6 +145,26 @@ public class BucketDefinition
 		
 		this.totalPosition = totalPosition;
 		computeTotal = totalPosition != CrosstabTotalPositionEnum.NONE || orderer != null;
+		
+		this.orderConsistentWithEquals = bucketValueComparator == null
+				|| ((orderer != null || comparator == null) && isNaturalOrderConsistentWithEquals(valueClass));
+		this.reusableValueClass = isNaturalOrderConsistentWithEquals(valueClass) ? valueClass : null;
+	}
+	
+	protected static boolean isNaturalOrderConsistentWithEquals(Class<?> valueClass)
+	{
+		return String.class.equals(valueClass)
+				|| Integer.class.equals(valueClass)
+				|| Long.class.equals(valueClass)
+				|| Short.class.equals(valueClass)
+				|| Byte.class.equals(valueClass)
+				|| Double.class.equals(valueClass)
+				|| Float.class.equals(valueClass)
+				|| BigInteger.class.equals(valueClass)
+				|| Boolean.class.equals(valueClass)
+				|| Character.class.equals(valueClass)
+				|| java.util.Date.class.equals(valueClass)
+				|| java.sql.Date.class.equals(valueClass);
 	}
 
 	
@@ -187,6 +212,32 @@ public class BucketDefinition
 		return bucketValueComparator != null;
 	}
 	
+	/**
+	 * Determines whether bucket values that are equal according to the bucket order
+	 * are also equal according to {@link Object#equals(Object)}.
+	 * 
+	 * @return whether the bucket order is consistent with equals
+	 */
+	public boolean isOrderConsistentWithEquals()
+	{
+		return orderConsistentWithEquals;
+	}
+	
+	/**
+	 * Determines whether the bucket created for a value can be reused for other values
+	 * that are equal to it.
+	 * <p>
+	 * This is the case for values of common types such as strings, numbers and dates,
+	 * which have well defined {@link Object#equals(Object) equals} and {@link Object#hashCode() hashCode} methods.
+	 * 
+	 * @param value the bucket value
+	 * @return whether the bucket for the value can be reused
+	 */
+	public boolean isReusableValue(Object value)
+	{
+		return value != null && value.getClass() == reusableValueClass;
+	}
+	
 	/**
 	 * Whether this bucket needs total calculation.
 	 * 
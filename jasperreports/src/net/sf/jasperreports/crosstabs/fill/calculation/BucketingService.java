@@ -24,6 +24,9 @@
 package net.sf.jasperreports.crosstabs.fill.calculation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -31,6 +34,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 
 import net.sf.jasperreports.annotations.properties.Property;
 import net.sf.jasperreports.annotations.properties.PropertyScope;
@@ -51,6 +61,8 @@ import net.sf.jasperreports.properties.PropertyConstants;
 public abstract class BucketingService
 {
 	
+	private static final Log log = LogFactory.getLog(BucketingService.class);
+	
 	public static final String EXCEPTION_MESSAGE_KEY_BUCKET_MEASURE_LIMIT = "crosstabs.bucket.measure.limit";
 	public static final String EXCEPTION_MESSAGE_KEY_BUCKET_DATA_PROCESSED = "crosstabs.bucket.data.processed";
 	
@@ -62,6 +74,37 @@ public abstract class BucketingService
 			sinceVersion = PropertyConstants.VERSION_1_3_4
 			)
 	public static final String PROPERTY_BUCKET_MEASURE_LIMIT = JRPropertiesUtil.PROPERTY_PREFIX + "crosstab.bucket.measure.limit";
+
+	/**
+	 * Property that specifies the number of partitions in which crosstab data is accumulated in parallel.
+	 * 
+	 * <p>
+	 * Input records are distributed to the partitions based on their bucket values,
+	 * and each partition accumulates the measure values of its cells in a separate thread.
+	 * The partitions are merged before the totals are computed, the results being identical to
+	 * the ones produced by serial accumulation.
+	 * </p>
+	 * 
+	 * <p>
+	 * Parallel accumulation is not used for presorted data and for buckets that use
+	 * comparators which are not consistent with equals.
+	 * A value of 0 or 1 disables parallel accumulation.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_CROSSTAB,
+			valueType = Integer.class,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0
+			)
+	public static final String PROPERTY_BUCKETING_PARALLELISM = JRPropertiesUtil.PROPERTY_PREFIX + "crosstab.bucketing.parallelism";
+	
+	private static final int PARALLEL_BATCH_SIZE = 1024;
+	private static final int PARALLEL_MAX_PENDING_BATCHES = 4;
+	
+	// maximum number of reusable buckets kept for a bucket level
+	private static final int REUSABLE_BUCKETS_MAX_SIZE = 1024;
 	
 	protected static final byte DIMENSION_ROW = 0;
 
@@ -100,6 +143,11 @@ public abstract class BucketingService
 	private final int bucketMeasureLimit;
 	private int runningBucketMeasureCount;
 	
+	private final ParallelBucketing parallelBucketing;
+	
+	private final Bucket[] bucketValuesBuffer;
+	private final List<Map<Object, Bucket>> reusableBuckets;
+	
 	/**
 	 * Creates a crosstab bucketing engine.
 	 * 
@@ -159,10 +207,42 @@ public abstract class BucketingService
 		bucketValueMap = createBucketMap(0);
 		columnBucketMap = createBucketMapMap(rowBucketCount);
 		
+		bucketValuesBuffer = new Bucket[allBuckets.length];
+		reusableBuckets = new ArrayList<Map<Object, Bucket>>(allBuckets.length);
+		for (int i = 0; i < allBuckets.length; ++i)
+		{
+			reusableBuckets.add(new HashMap<Object, Bucket>());
+		}
+		
 		zeroMeasureValues = initMeasureValues();
 		zeroUserMeasureValues = initUserMeasureValues();
 		
-		bucketMeasureLimit = JRPropertiesUtil.getInstance(serviceContext.getJasperReportsContext()).getIntegerProperty(PROPERTY_BUCKET_MEASURE_LIMIT, 0);
+		JRPropertiesUtil propertiesUtil = JRPropertiesUtil.getInstance(serviceContext.getJasperReportsContext());
+		bucketMeasureLimit = propertiesUtil.getIntegerProperty(PROPERTY_BUCKET_MEASURE_LIMIT, 0);
+		
+		int parallelism = propertiesUtil.getIntegerProperty(PROPERTY_BUCKETING_PARALLELISM, 0);
+		parallelBucketing = parallelism > 1 && isParallelBucketingSupported() ? new ParallelBucketing(parallelism) : null;
+	}
+	
+	protected boolean isParallelBucketingSupported()
+	{
+		if (sorted)
+		{
+			return false;
+		}
+		
+		for (BucketDefinition bucket : allBuckets)
+		{
+			if (!bucket.isOrderConsistentWithEquals())
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("bucket order not consistent with equals, not using parallel bucketing");
+				}
+				return false;
+			}
+		}
+		return true;
 	}
 
 
@@ -243,8 +323,17 @@ public abstract class BucketingService
 	 */
 	public void clear()
 	{
+		if (parallelBucketing != null)
+		{
+			parallelBucketing.clear();
+		}
+		
 		bucketValueMap.clear();
 		columnBucketMap.clear();
+		for (Map<Object, Bucket> valueBuckets : reusableBuckets)
+		{
+			valueBuckets.clear();
+		}
 		processed = false;
 		dataCount = 0;
 		runningBucketMeasureCount = 0;
@@ -334,7 +423,15 @@ public abstract class BucketingService
 		
 		++dataCount;
 		
-		Bucket[] bucketVals = getBucketValues(bucketValues);
+		if (parallelBucketing != null)
+		{
+			parallelBucketing.addData(getBucketValues(bucketValues), measureValues);
+			return;
+		}
+		
+		// the bucket maps do not retain the array, we can reuse it for every row
+		Bucket[] bucketVals = bucketValuesBuffer;
+		fillBucketValues(bucketValues, bucketVals);
 
 		MeasureValue[] values = bucketValueMap.insertMeasureValues(bucketVals, true, 0);
 		for (int i = 0; i < measures.length; ++i)
@@ -357,15 +454,38 @@ public abstract class BucketingService
 	protected Bucket[] getBucketValues(Object[] bucketValues)
 	{
 		Bucket[] bucketVals = new Bucket[allBuckets.length];
+		fillBucketValues(bucketValues, bucketVals);
+		return bucketVals;
+	}
 
+	protected void fillBucketValues(Object[] bucketValues, Bucket[] bucketVals)
+	{
 		for (int i = 0; i < allBuckets.length; ++i)
 		{
 			BucketDefinition bucket = allBuckets[i];
 			Object value = bucketValues[i];
-			bucketVals[i] = bucket.create(value);
+			if (bucket.isReusableValue(value))
+			{
+				Map<Object, Bucket> valueBuckets = reusableBuckets.get(i);
+				Bucket valueBucket = valueBuckets.get(value);
+				if (valueBucket == null)
+				{
+					if (valueBuckets.size() >= REUSABLE_BUCKETS_MAX_SIZE)
+					{
+						// high cardinality level, starting over so that we only keep the recent values
+						valueBuckets.clear();
+					}
+					
+					valueBucket = bucket.create(value);
+					valueBuckets.put(value, valueBucket);
+				}
+				bucketVals[i] = valueBucket;
+			}
+			else
+			{
+				bucketVals[i] = bucket.create(value);
+			}
 		}
-		
-		return bucketVals;
 	}
 
 	protected MeasureValue[] initMeasureValues()
@@ -376,7 +496,7 @@ public abstract class BucketingService
 		for (int i = 0; i < measures.length; ++i)
 		{
 			MeasureDefinition measure = measures[i];
-			values[i] = measure.new MeasureValue();
+			values[i] = measure.createMeasureValue();
 
 			switch (measure.getCalculation())
 			{
@@ -408,7 +528,7 @@ public abstract class BucketingService
 		{
 			if (!measures[i].isSystemDefined())
 			{
-				vals[c] = measures[i].new MeasureValue();
+				vals[c] = measures[i].createMeasureValue();
 				++c;
 			}
 		}
@@ -429,6 +549,11 @@ public abstract class BucketingService
 	{
 		if (!processed)
 		{
+			if (parallelBucketing != null)
+			{
+				parallelBucketing.merge();
+			}
+			
 			if (dataCount > 0)
 			{
 				if (allBuckets[rowBucketCount - 1].computeTotal() || allBuckets[allBuckets.length - 1].computeTotal())
@@ -716,8 +841,7 @@ public abstract class BucketingService
 			return map.get(key);
 		}
 
-		@Override
-		MeasureValue[] insertMeasureValues(Bucket[] bucketValues, boolean createValues, int offset)
+		BucketMapMap insertLastLevelMap(Bucket[] bucketValues, int offset)
 		{
 			BucketMapMap levelMap = this;
 			for (int i = offset; i < bucketValues.length - 1; i++)
@@ -731,6 +855,13 @@ public abstract class BucketingService
 
 				levelMap = nextMap;
 			}
+			return levelMap;
+		}
+
+		@Override
+		MeasureValue[] insertMeasureValues(Bucket[] bucketValues, boolean createValues, int offset)
+		{
+			BucketMapMap levelMap = insertLastLevelMap(bucketValues, offset);
 
 			MeasureValue[] values = (MeasureValue[]) levelMap.get(bucketValues[bucketValues.length - 1]);
 			if (values == null)
@@ -751,6 +882,24 @@ public abstract class BucketingService
 			return values;
 		}
 
+		void addMeasureValues(Bucket[] bucketValues, MeasureValue[] values) throws JRException
+		{
+			BucketMapMap levelMap = insertLastLevelMap(bucketValues, 0);
+			
+			Bucket lastBucket = bucketValues[bucketValues.length - 1];
+			MeasureValue[] existingValues = (MeasureValue[]) levelMap.get(lastBucket);
+			if (existingValues == null)
+			{
+				levelMap.map.put(lastBucket, values);
+				bucketMeasuresCreated();
+			}
+			else
+			{
+				// different bucket values that are equal according to the bucket order
+				sumVals(existingValues, values);
+			}
+		}
+
 		@Override
 		public int size()
 		{
@@ -990,4 +1139,293 @@ public abstract class BucketingService
 	{
 		return buckets[DIMENSION_ROW];
 	}
+	
+	/**
+	 * Accumulates crosstab cells in partitions processed by worker threads.
+	 * 
+	 * <p>
+	 * Each cell is accumulated by a single partition, in the order in which the records were received,
+	 * and the cells are added to the bucket maps in the order of their first records.
+	 * The partitions share a count of the created cell measures so that the bucket measure limit
+	 * is enforced while the data is accumulated.
+	 * </p>
+	 */
+	protected class ParallelBucketing
+	{
+		private final Partition[] partitions;
+		private final AtomicInteger measureCount;
+		private long recordIndex;
+		
+		protected ParallelBucketing(int parallelism)
+		{
+			measureCount = new AtomicInteger();
+			partitions = new Partition[parallelism];
+			for (int i = 0; i < parallelism; i++)
+			{
+				partitions[i] = new Partition(measureCount);
+			}
+			
+			if (log.isDebugEnabled())
+			{
+				log.debug("using " + parallelism + " partitions for parallel bucketing");
+			}
+		}
+		
+		protected void addData(Bucket[] bucketValues, Object[] measureValues) throws JRException
+		{
+			CellKey key = new CellKey(bucketValues);
+			Partition partition = partitions[(key.hash & 0x7fffffff) % partitions.length];
+			// the measure values array is reused by the caller
+			partition.add(key, recordIndex++, measureValues.clone());
+		}
+		
+		protected void merge() throws JRException
+		{
+			List<CellValues> cells = new ArrayList<CellValues>();
+			for (Partition partition : partitions)
+			{
+				partition.flush();
+			}
+			for (Partition partition : partitions)
+			{
+				partition.await();
+				partition.checkError();
+				cells.addAll(partition.cells.values());
+			}
+			
+			Collections.sort(cells, new Comparator<CellValues>()
+			{
+				@Override
+				public int compare(CellValues o1, CellValues o2)
+				{
+					return Long.compare(o1.firstRecordIndex, o2.firstRecordIndex);
+				}
+			});
+			
+			BucketMapMap valueMap = (BucketMapMap) bucketValueMap;
+			for (CellValues cell : cells)
+			{
+				valueMap.addMeasureValues(cell.key.buckets, cell.values);
+				
+				// collect column bucket values
+				columnBucketMap.insertMeasureValues(cell.key.buckets, false, rowBucketCount);
+			}
+			
+			clear();
+		}
+		
+		protected void clear()
+		{
+			for (Partition partition : partitions)
+			{
+				partition.await();
+				partition.clear();
+			}
+			recordIndex = 0;
+			measureCount.set(0);
+		}
+	}
+	
+	protected static class CellKey
+	{
+		final Bucket[] buckets;
+		final int hash;
+		
+		CellKey(Bucket[] buckets)
+		{
+			this.buckets = buckets;
+			this.hash = Arrays.hashCode(buckets);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (obj == this)
+			{
+				return true;
+			}
+			
+			CellKey key = (CellKey) obj;
+			return hash == key.hash && Arrays.equals(buckets, key.buckets);
+		}
+	}
+	
+	protected static class CellValues
+	{
+		final CellKey key;
+		final long firstRecordIndex;
+		final MeasureValue[] values;
+		
+		CellValues(CellKey key, long firstRecordIndex, MeasureValue[] values)
+		{
+			this.key = key;
+			this.firstRecordIndex = firstRecordIndex;
+			this.values = values;
+		}
+	}
+	
+	protected class Partition
+	{
+		private final Map<CellKey, CellValues> cells = new HashMap<CellKey, CellValues>();
+		private final AtomicInteger measureCount;
+		private final Semaphore pendingBatches = new Semaphore(PARALLEL_MAX_PENDING_BATCHES);
+		private CompletableFuture<Void> lastBatch = CompletableFuture.completedFuture(null);
+		private volatile Throwable error;
+		
+		private CellKey[] keys;
+		private long[] recordIndexes;
+		private Object[][] values;
+		private int count;
+		
+		protected Partition(AtomicInteger measureCount)
+		{
+			this.measureCount = measureCount;
+			newBatch();
+		}
+		
+		private void newBatch()
+		{
+			keys = new CellKey[PARALLEL_BATCH_SIZE];
+			recordIndexes = new long[PARALLEL_BATCH_SIZE];
+			values = new Object[PARALLEL_BATCH_SIZE][];
+			count = 0;
+		}
+		
+		protected void add(CellKey key, long recordIndex, Object[] measureValues) throws JRException
+		{
+			keys[count] = key;
+			recordIndexes[count] = recordIndex;
+			values[count] = measureValues;
+			++count;
+			
+			if (count == PARALLEL_BATCH_SIZE)
+			{
+				submit();
+			}
+		}
+		
+		protected void flush() throws JRException
+		{
+			if (count > 0)
+			{
+				submit();
+			}
+		}
+		
+		private void submit() throws JRException
+		{
+			try
+			{
+				pendingBatches.acquire();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new JRException(e);
+			}
+			
+			try
+			{
+				// failing early if a previous batch failed, e.g. when the bucket measure limit was exceeded
+				checkError();
+			}
+			catch (JRException | RuntimeException | Error e)
+			{
+				pendingBatches.release();
+				throw e;
+			}
+			
+			final CellKey[] batchKeys = keys;
+			final long[] batchRecordIndexes = recordIndexes;
+			final Object[][] batchValues = values;
+			final int batchCount = count;
+			newBatch();
+			
+			lastBatch = lastBatch.thenRunAsync(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					try
+					{
+						if (error == null)
+						{
+							process(batchKeys, batchRecordIndexes, batchValues, batchCount);
+						}
+					}
+					catch (Throwable e)
+					{
+						// not letting the batch complete exceptionally, as the next batches would
+						// be skipped without releasing their permits
+						error = e;
+					}
+					finally
+					{
+						pendingBatches.release();
+					}
+				}
+			}, ForkJoinPool.commonPool());
+		}
+		
+		protected void process(CellKey[] batchKeys, long[] batchRecordIndexes, Object[][] batchValues, int batchCount) throws JRException
+		{
+			for (int row = 0; row < batchCount; ++row)
+			{
+				CellKey key = batchKeys[row];
+				CellValues cell = cells.get(key);
+				if (cell == null)
+				{
+					checkBucketMeasureCount(measureCount.addAndGet(origMeasureCount));
+					
+					cell = new CellValues(key, batchRecordIndexes[row], initMeasureValues());
+					cells.put(key, cell);
+				}
+				
+				Object[] rowValues = batchValues[row];
+				for (int i = 0; i < measures.length; ++i)
+				{
+					cell.values[i].addValue(rowValues[measureIndexes[i]]);
+				}
+			}
+		}
+		
+		protected void await()
+		{
+			lastBatch.join();
+		}
+		
+		protected void checkError() throws JRException
+		{
+			Throwable e = error;
+			if (e instanceof JRException)
+			{
+				throw (JRException) e;
+			}
+			if (e instanceof RuntimeException)
+			{
+				throw (RuntimeException) e;
+			}
+			if (e instanceof Error)
+			{
+				throw (Error) e;
+			}
+			if (e != null)
+			{
+				throw new JRException(e);
+			}
+		}
+		
+		protected void clear()
+		{
+			cells.clear();
+			error = null;
+			newBatch();
+		}
+	}
 }
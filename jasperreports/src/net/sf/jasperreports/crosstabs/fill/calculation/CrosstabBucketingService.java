@@ -23,7 +23,9 @@
  */
 package net.sf.jasperreports.crosstabs.fill.calculation;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -31,24 +33,93 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
 import net.sf.jasperreports.crosstabs.fill.BucketOrderer;
 import net.sf.jasperreports.crosstabs.fill.calculation.BucketDefinition.Bucket;
 import net.sf.jasperreports.crosstabs.fill.calculation.BucketValueOrderDecorator.OrderPosition;
 import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition.MeasureValue;
 import net.sf.jasperreports.crosstabs.type.CrosstabTotalPositionEnum;
 import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
 import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.properties.PropertyConstants;
 
 /**
  * @author Lucian Chirita (lucianc@users.sourceforge.net)
  */
 public class CrosstabBucketingService extends BucketingService implements BucketingData
 {
+	private static final Log log = LogFactory.getLog(CrosstabBucketingService.class);
+	
 	public static final String EXCEPTION_MESSAGE_KEY_DATA_NOT_PROCESSED = "crosstabs.calculation.data.not.processed";
 	
+	/**
+	 * Property that specifies the number of crosstab records above which the crosstab data is 
+	 * bucketed externally, using temporary files.
+	 * 
+	 * <p>
+	 * When the number of records exceeds the threshold, the records are partitioned by the value 
+	 * of the first row group into temporary files.
+	 * The partitions are then bucketed one at a time, and the resulting crosstab cells are written to 
+	 * a temporary file from which they are read when the crosstab is filled.
+	 * The threshold thus limits the amount of data kept in memory during bucketing, 
+	 * while the row headers are still kept in memory.
+	 * </p>
+	 * 
+	 * <p>
+	 * The memory budget is expressed as a number of records and not as a number of bytes,
+	 * as the heap size of the group and measure values depends on their classes and is not known
+	 * while the records are accumulated.
+	 * The threshold should therefore be chosen based on the number and types of the crosstab
+	 * groups and measures.
+	 * </p>
+	 * 
+	 * <p>
+	 * External bucketing only applies when the first row group is ordered by its bucket values
+	 * and the crosstab groups do not have order by expressions.
+	 * The property can be set globally, at report level or at crosstab level.
+	 * A value of 0 (which is the default) disables external bucketing.
+	 * </p>
+	 * 
+	 * @see #PROPERTY_EXTERNAL_BUCKETING_DIRECTORY
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_CROSSTAB,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT, PropertyScope.CROSSTAB},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_EXTERNAL_BUCKETING_RECORD_THRESHOLD = JRPropertiesUtil.PROPERTY_PREFIX + "crosstab.external.bucketing.record.threshold";
+	
+	/**
+	 * Property that specifies the directory in which the temporary files used for external crosstab bucketing are created.
+	 * 
+	 * <p>
+	 * If not set, the default temporary directory is used.
+	 * </p>
+	 * 
+	 * @see #PROPERTY_EXTERNAL_BUCKETING_RECORD_THRESHOLD
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_CROSSTAB,
+			defaultValue = "System property java.io.tmpdir",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT, PropertyScope.CROSSTAB},
+			sinceVersion = PropertyConstants.VERSION_6_8_0
+			)
+	public static final String PROPERTY_EXTERNAL_BUCKETING_DIRECTORY = JRPropertiesUtil.PROPERTY_PREFIX + "crosstab.external.bucketing.directory";
+	
 	protected HeaderCell[][] colHeaders;
 	protected HeaderCell[][] rowHeaders;
 	protected CrosstabCell[][] cells;
+	
+	private int externalRecordThreshold;
+	private File externalDirectory;
+	private ExternalCrosstabBucketing externalBucketing;
 
 	public CrosstabBucketingService(BucketingServiceContext serviceContext,
 			List<BucketDefinition> rowBuckets,
@@ -60,6 +131,148 @@ public class CrosstabBucketingService extends BucketingService implements Bucket
 				sorted, retrieveTotal);
 	}
 	
+	/**
+	 * Enables external bucketing for the crosstab data.
+	 * <p>
+	 * External bucketing is only used if the buckets support it, and only when 
+	 * the number of records exceeds the threshold.
+	 * 
+	 * @param recordThreshold the number of records above which the data is bucketed externally
+	 * @param directory the directory in which the temporary files are created, 
+	 * <code>null</code> for the default temporary directory
+	 * @see #PROPERTY_EXTERNAL_BUCKETING_RECORD_THRESHOLD
+	 */
+	public void setExternalBucketing(int recordThreshold, File directory)
+	{
+		if (recordThreshold > 0 && !isExternalBucketingSupported())
+		{
+			recordThreshold = 0;
+		}
+		
+		this.externalRecordThreshold = recordThreshold;
+		this.externalDirectory = directory;
+	}
+	
+	protected boolean isExternalBucketingSupported()
+	{
+		if (sorted)
+		{
+			return false;
+		}
+		
+		// the partitions are merged by the values of the first row group
+		BucketDefinition firstBucket = allBuckets[0];
+		if (!firstBucket.isSorted() || !firstBucket.isOrderConsistentWithEquals())
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("first row group order does not support external bucketing");
+			}
+			return false;
+		}
+		
+		// orderers need the totals of all the data
+		for (BucketDefinition bucket : allBuckets)
+		{
+			if (bucket.getOrderer() != null)
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("bucket orderers do not support external bucketing");
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public void clear()
+	{
+		disposeExternalBucketing();
+		
+		super.clear();
+	}
+	
+	/**
+	 * Releases the temporary files used for external bucketing.
+	 */
+	public void disposeExternalBucketing()
+	{
+		if (externalBucketing != null)
+		{
+			externalBucketing.dispose();
+			externalBucketing = null;
+		}
+	}
+	
+	@Override
+	public void addData(Object[] bucketValues, Object[] measureValues) throws JRException
+	{
+		if (externalRecordThreshold > 0 && !processed)
+		{
+			if (externalBucketing == null)
+			{
+				externalBucketing = new ExternalCrosstabBucketing(this, externalRecordThreshold, externalDirectory);
+			}
+			
+			externalBucketing.addData(bucketValues, measureValues);
+			return;
+		}
+		
+		super.addData(bucketValues, measureValues);
+	}
+	
+	protected void addInMemoryData(Object[] bucketValues, Object[] measureValues) throws JRException
+	{
+		super.addData(bucketValues, measureValues);
+	}
+	
+	/**
+	 * Accumulates a record as part of the totals over all rows.
+	 * <p>
+	 * The row bucket values are replaced by nulls, so that only a single row is accumulated
+	 * for every combination of column bucket values.
+	 */
+	protected void addRowTotalsData(Object[] bucketValues, Object[] measureValues) throws JRException
+	{
+		Object[] totalsBucketValues = Arrays.copyOf(bucketValues, allBuckets.length);
+		Arrays.fill(totalsBucketValues, 0, rowBucketCount, null);
+		super.addData(totalsBucketValues, measureValues);
+	}
+	
+	@Override
+	public void processData() throws JRException
+	{
+		if (externalBucketing != null && !processed)
+		{
+			boolean external = externalBucketing.endData();
+			if (!external)
+			{
+				// the data fit in memory
+				disposeExternalBucketing();
+			}
+		}
+		
+		super.processData();
+	}
+	
+	protected CrosstabBucketingService createPartitionService()
+	{
+		List<MeasureDefinition> userMeasures = new ArrayList<MeasureDefinition>(origMeasureCount);
+		for (MeasureDefinition measure : measures)
+		{
+			if (!measure.isSystemDefined())
+			{
+				userMeasures.add(measure);
+			}
+		}
+		
+		return new CrosstabBucketingService(serviceContext, 
+				Arrays.asList(buckets[DIMENSION_ROW]), Arrays.asList(buckets[DIMENSION_COLUMN]), 
+				userMeasures, false, retrieveTotal);
+	}
+	
 	public void createCrosstab() throws JRException
 	{
 		if (!processed)
@@ -76,6 +289,25 @@ public class CrosstabBucketingService extends BucketingService implements Bucket
 			return;
 		}
 		
+		if (externalBucketing != null)
+		{
+			externalBucketing.createCrosstab();
+			return;
+		}
+		
+		createInMemoryCrosstab(null);
+	}
+	
+	/**
+	 * Creates the crosstab headers and cells from the accumulated data.
+	 * 
+	 * @param columnHeaders the collected column headers to use, 
+	 * if <code>null</code> the column headers are collected from the accumulated data
+	 * @return the collected column headers
+	 * @throws JRException
+	 */
+	protected CollectedList createInMemoryCrosstab(CollectedList columnHeaders) throws JRException
+	{
 		CollectedList[] collectedHeaders = new CollectedList[BucketingService.DIMENSIONS];
 		collectedHeaders[DIMENSION_ROW] = createHeadersList(DIMENSION_ROW, bucketValueMap, 0, false);
 		
@@ -89,10 +321,11 @@ public class CrosstabBucketingService extends BucketingService implements Bucket
 			}
 		}
 		
-		collectedHeaders[DIMENSION_COLUMN] = createHeadersList(DIMENSION_COLUMN,
-				// using column totals for sorting if needed
-				columnTotalsMap == null ? columnBucketMap : columnTotalsMap, 
-				0, false);
+		collectedHeaders[DIMENSION_COLUMN] = columnHeaders != null ? columnHeaders 
+				: createHeadersList(DIMENSION_COLUMN,
+					// using column totals for sorting if needed
+					columnTotalsMap == null ? columnBucketMap : columnTotalsMap, 
+					0, false);
 		
 		int rowBuckets = collectedHeaders[BucketingService.DIMENSION_ROW].span;
 		int colBuckets = collectedHeaders[BucketingService.DIMENSION_COLUMN].span;
@@ -105,6 +338,8 @@ public class CrosstabBucketingService extends BucketingService implements Bucket
 		
 		cells = new CrosstabCell[rowBuckets][colBuckets];
 		fillCells(collectedHeaders, bucketValueMap, 0, new int[]{0, 0}, new ArrayList<Bucket>(), new ArrayList<BucketMap>());
+		
+		return collectedHeaders[DIMENSION_COLUMN];
 	}
 
 	protected HeaderCell[][] createHeaders(byte dimension, CollectedList[] headersLists, BucketMap totalsMap)
@@ -490,14 +725,36 @@ public class CrosstabBucketingService extends BucketingService implements Bucket
 	 * Returns the crosstab data cells.
 	 * <p>
 	 * {@link #processData() processData()} has to be called before this.
+	 * When the data has been bucketed externally, the cells are not kept in memory and
+	 * this method returns <code>null</code>.
 	 * 
 	 * @return the crosstab data cells
+	 * @see #getCrosstabCellRow(int)
 	 */
 	public CrosstabCell[][] getCrosstabCells()
 	{
 		return cells;
 	}
 	
+	/**
+	 * Returns a row of crosstab data cells.
+	 * <p>
+	 * {@link #processData() processData()} has to be called before this.
+	 * 
+	 * @param rowIndex the row index
+	 * @return the data cells on the row
+	 * @throws JRException
+	 */
+	public CrosstabCell[] getCrosstabCellRow(int rowIndex) throws JRException
+	{
+		if (externalBucketing != null)
+		{
+			return externalBucketing.getCellRow(rowIndex);
+		}
+		
+		return cells[rowIndex];
+	}
+	
 	protected static abstract class CollectedList
 	{
 		int span;
@@ -0,0 +1,857 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.crosstabs.fill.calculation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.crosstabs.fill.calculation.BucketDefinition.Bucket;
+import net.sf.jasperreports.crosstabs.fill.calculation.CrosstabBucketingService.CollectedList;
+import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition.MeasureValue;
+import net.sf.jasperreports.crosstabs.type.CrosstabTotalPositionEnum;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.virtualization.VirtualizationInput;
+import net.sf.jasperreports.engine.virtualization.VirtualizationOutput;
+
+/**
+ * Crosstab bucketing that keeps the crosstab data in temporary files.
+ * 
+ * <p>
+ * The records are buffered in memory until their number exceeds a threshold.
+ * After that, the records are partitioned by the value of the first row group into temporary files,
+ * while the totals over all rows are accumulated in memory by the bucketing service.
+ * Each partition contains complete first level row groups and is bucketed separately,
+ * the resulting cell rows being written to a temporary file.
+ * The row groups of all the partitions are then merged according to the order of the first row group.
+ * </p>
+ * 
+ * @see CrosstabBucketingService#PROPERTY_EXTERNAL_BUCKETING_RECORD_THRESHOLD
+ */
+public class ExternalCrosstabBucketing
+{
+	private static final Log log = LogFactory.getLog(ExternalCrosstabBucketing.class);
+	
+	private static final int PARTITION_COUNT = 16;
+	
+	/**
+	 * Maximum number of times a partition that exceeds the record threshold is split.
+	 */
+	private static final int MAX_PARTITION_DEPTH = 3;
+	
+	/**
+	 * Number of records after which the object stream handle table is reset.
+	 */
+	private static final int OUTPUT_RESET_INTERVAL = 1000;
+	
+	private final CrosstabBucketingService service;
+	private final int recordThreshold;
+	private final File directory;
+	private final int bucketCount;
+	private final int measureCount;
+	private final MeasureDefinition[] userMeasures;
+	
+	private List<Object[]> bufferedRecords;
+	private List<Partition> partitions;
+	private CellRowStore cellRows;
+	private int[] rowIndexes;
+	
+	/**
+	 * Creates an external bucketing instance for a crosstab bucketing service.
+	 * 
+	 * @param service the bucketing service
+	 * @param recordThreshold the number of records above which the data is written to temporary files
+	 * @param directory the directory in which the temporary files are created, 
+	 * <code>null</code> for the default temporary directory
+	 */
+	public ExternalCrosstabBucketing(CrosstabBucketingService service, int recordThreshold, File directory)
+	{
+		this.service = service;
+		this.recordThreshold = recordThreshold;
+		this.directory = directory;
+		this.bucketCount = service.allBuckets.length;
+		this.measureCount = service.origMeasureCount;
+		
+		this.userMeasures = new MeasureDefinition[measureCount];
+		for (int c = 0, i = 0; i < service.measures.length; ++i)
+		{
+			if (!service.measures[i].isSystemDefined())
+			{
+				userMeasures[c] = service.measures[i];
+				++c;
+			}
+		}
+		
+		this.bufferedRecords = new ArrayList<Object[]>();
+	}
+	
+	/**
+	 * Adds a crosstab record.
+	 * 
+	 * @param bucketValues the bucket values
+	 * @param measureValues the measure values
+	 * @throws JRException
+	 */
+	public void addData(Object[] bucketValues, Object[] measureValues) throws JRException
+	{
+		if (partitions == null)
+		{
+			Object[] record = new Object[bucketCount + measureCount];
+			System.arraycopy(bucketValues, 0, record, 0, bucketCount);
+			System.arraycopy(measureValues, 0, record, bucketCount, measureCount);
+			bufferedRecords.add(record);
+			
+			if (bufferedRecords.size() > recordThreshold)
+			{
+				spill();
+			}
+		}
+		else
+		{
+			writeRecord(bucketValues, measureValues);
+		}
+	}
+	
+	protected void spill() throws JRException
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("crosstab records exceeded " + recordThreshold + ", bucketing externally");
+		}
+		
+		try
+		{
+			partitions = createPartitions(0);
+		}
+		catch (IOException e)
+		{
+			throw new JRException(e);
+		}
+		
+		List<Object[]> records = bufferedRecords;
+		bufferedRecords = null;
+		for (Object[] record : records)
+		{
+			writeRecord(Arrays.copyOfRange(record, 0, bucketCount), 
+					Arrays.copyOfRange(record, bucketCount, record.length));
+		}
+	}
+	
+	protected void writeRecord(Object[] bucketValues, Object[] measureValues) throws JRException
+	{
+		Partition partition = partitions.get(getPartitionIndex(bucketValues[0], 0));
+		try
+		{
+			partition.write(bucketValues, measureValues);
+		}
+		catch (IOException e)
+		{
+			throw new JRException(e);
+		}
+		
+		service.addRowTotalsData(bucketValues, measureValues);
+	}
+	
+	protected int getPartitionIndex(Object value, int depth)
+	{
+		int hash = value == null ? 0 : value.hashCode();
+		// mixing the hash differently on each level so that split partitions are distributed
+		hash ^= depth * 0x9E3779B9;
+		hash ^= hash >>> 16;
+		hash *= 0x85EBCA6B;
+		hash ^= hash >>> 13;
+		return (hash & 0x7FFFFFFF) % PARTITION_COUNT;
+	}
+	
+	protected List<Partition> createPartitions(int depth) throws IOException
+	{
+		List<Partition> partitionList = new ArrayList<Partition>(PARTITION_COUNT);
+		try
+		{
+			for (int i = 0; i < PARTITION_COUNT; i++)
+			{
+				partitionList.add(new Partition(depth));
+			}
+		}
+		catch (IOException e)
+		{
+			for (Partition partition : partitionList)
+			{
+				partition.delete();
+			}
+			throw e;
+		}
+		return partitionList;
+	}
+	
+	/**
+	 * Called after all the records have been added.
+	 * 
+	 * <p>
+	 * If the records did not exceed the threshold, they are added to the bucketing service
+	 * to be bucketed in memory.
+	 * </p>
+	 * 
+	 * @return whether the data is bucketed externally
+	 * @throws JRException
+	 */
+	public boolean endData() throws JRException
+	{
+		if (partitions == null)
+		{
+			List<Object[]> records = bufferedRecords;
+			bufferedRecords = null;
+			for (Object[] record : records)
+			{
+				service.addInMemoryData(Arrays.copyOfRange(record, 0, bucketCount), 
+						Arrays.copyOfRange(record, bucketCount, record.length));
+			}
+			return false;
+		}
+		
+		try
+		{
+			for (Partition partition : partitions)
+			{
+				partition.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new JRException(e);
+		}
+		return true;
+	}
+	
+	/**
+	 * Buckets the partitions and sets the crosstab headers in the bucketing service.
+	 * 
+	 * @throws JRException
+	 */
+	public void createCrosstab() throws JRException
+	{
+		if (cellRows != null)
+		{
+			// already created
+			return;
+		}
+		
+		// the service has accumulated the totals over all rows
+		CollectedList columnHeaders = service.createInMemoryCrosstab(null);
+		HeaderCell[][] totalHeaders = service.rowHeaders;
+		CrosstabCell[][] totalCells = service.cells;
+		service.cells = null;
+		
+		int columnCount = totalCells[0].length;
+		Bucket[][] columnBucketValues = new Bucket[columnCount][];
+		MeasureValue[][][] columnTotals = new MeasureValue[columnCount][][];
+		for (int col = 0; col < columnCount; col++)
+		{
+			columnBucketValues[col] = totalCells[0][col].getColumnBucketValues();
+			columnTotals[col] = totalCells[0][col].getTotals()[0];
+		}
+		MeasureValue[] grandTotals = totalHeaders[0][0].getTotals()[0];
+		
+		int totalRow = -1;
+		for (int row = 0; row < totalCells.length; row++)
+		{
+			if (totalCells[row][0].getRowBucketValues()[0].isTotal())
+			{
+				totalRow = row;
+			}
+		}
+		
+		List<RowGroup> groups = new ArrayList<RowGroup>();
+		try
+		{
+			cellRows = new CellRowStore(columnBucketValues);
+			
+			List<Partition> partitionList = partitions;
+			partitions = null;
+			for (Partition partition : partitionList)
+			{
+				bucketPartition(partition, columnHeaders, columnTotals, grandTotals, groups);
+			}
+		}
+		catch (IOException e)
+		{
+			throw new JRException(e);
+		}
+		
+		Collections.sort(groups, new Comparator<RowGroup>()
+		{
+			@Override
+			public int compare(RowGroup group1, RowGroup group2)
+			{
+				return group1.key.compareTo(group2.key);
+			}
+		});
+		
+		int rowCount = totalRow < 0 ? 0 : 1;
+		for (RowGroup group : groups)
+		{
+			rowCount += group.headers.size();
+		}
+		
+		HeaderCell[][] rowHeaders = new HeaderCell[service.rowBucketCount][rowCount];
+		rowIndexes = new int[rowCount];
+		int row = 0;
+		
+		int totalStoreRow = -1;
+		boolean totalFirst = service.allBuckets[0].getTotalPosition() == CrosstabTotalPositionEnum.START;
+		if (totalRow >= 0)
+		{
+			try
+			{
+				totalStoreRow = cellRows.write(totalCells[totalRow]);
+			}
+			catch (IOException e)
+			{
+				throw new JRException(e);
+			}
+			
+			if (totalFirst)
+			{
+				setRow(rowHeaders, row++, totalStoreRow, getRowHeaders(totalHeaders, totalRow));
+			}
+		}
+		
+		for (RowGroup group : groups)
+		{
+			for (int i = 0; i < group.headers.size(); i++)
+			{
+				setRow(rowHeaders, row++, group.firstStoreRow + i, group.headers.get(i));
+			}
+		}
+		
+		if (totalRow >= 0 && !totalFirst)
+		{
+			setRow(rowHeaders, row++, totalStoreRow, getRowHeaders(totalHeaders, totalRow));
+		}
+		
+		service.rowHeaders = rowHeaders;
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("created " + rowCount + " crosstab rows from " + groups.size() + " external row groups");
+		}
+	}
+	
+	protected HeaderCell[] getRowHeaders(HeaderCell[][] headers, int row)
+	{
+		HeaderCell[] rowHeaders = new HeaderCell[headers.length];
+		for (int level = 0; level < headers.length; level++)
+		{
+			rowHeaders[level] = headers[level][row];
+		}
+		return rowHeaders;
+	}
+	
+	protected void setRow(HeaderCell[][] headers, int row, int storeRow, HeaderCell[] rowHeaders)
+	{
+		rowIndexes[row] = storeRow;
+		for (int level = 0; level < rowHeaders.length; level++)
+		{
+			headers[level][row] = rowHeaders[level];
+		}
+	}
+	
+	protected void bucketPartition(Partition partition, CollectedList columnHeaders, 
+			MeasureValue[][][] columnTotals, MeasureValue[] grandTotals, List<RowGroup> groups) throws JRException, IOException
+	{
+		if (partition.recordCount == 0)
+		{
+			partition.delete();
+			return;
+		}
+		
+		if (partition.recordCount > recordThreshold && partition.depth < MAX_PARTITION_DEPTH)
+		{
+			for (Partition subpartition : splitPartition(partition))
+			{
+				bucketPartition(subpartition, columnHeaders, columnTotals, grandTotals, groups);
+			}
+			return;
+		}
+		
+		CrosstabBucketingService partitionService = service.createPartitionService();
+		PartitionReader reader = new PartitionReader(partition);
+		try
+		{
+			while (reader.next())
+			{
+				partitionService.addData(reader.bucketValues, reader.measureValues);
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		partition.delete();
+		
+		partitionService.processData();
+		partitionService.createInMemoryCrosstab(columnHeaders);
+		
+		HeaderCell[][] headers = partitionService.rowHeaders;
+		CrosstabCell[][] cells = partitionService.cells;
+		RowGroup group = null;
+		for (int row = 0; row < cells.length; row++)
+		{
+			CrosstabCell[] cellRow = cells[row];
+			Bucket groupKey = cellRow[0].getRowBucketValues()[0];
+			if (groupKey.isTotal())
+			{
+				// the totals over all rows are computed by the service
+				continue;
+			}
+			
+			// the partition totals over all rows are replaced by the global ones
+			for (int col = 0; col < cellRow.length; col++)
+			{
+				cellRow[col].getTotals()[0] = columnTotals[col];
+			}
+			
+			HeaderCell[] rowHeaders = getRowHeaders(headers, row);
+			for (HeaderCell header : rowHeaders)
+			{
+				if (header != null)
+				{
+					header.getTotals()[0] = grandTotals;
+				}
+			}
+			
+			int storeRow = cellRows.write(cellRow);
+			if (group == null || !group.key.equals(groupKey))
+			{
+				group = new RowGroup(groupKey, storeRow);
+				groups.add(group);
+			}
+			group.headers.add(rowHeaders);
+		}
+	}
+	
+	protected List<Partition> splitPartition(Partition partition) throws IOException
+	{
+		int depth = partition.depth + 1;
+		if (log.isDebugEnabled())
+		{
+			log.debug("splitting partition of " + partition.recordCount + " records at depth " + depth);
+		}
+		
+		List<Partition> subpartitions = createPartitions(depth);
+		PartitionReader reader = new PartitionReader(partition);
+		try
+		{
+			while (reader.next())
+			{
+				Partition subpartition = subpartitions.get(getPartitionIndex(reader.bucketValues[0], depth));
+				subpartition.write(reader.bucketValues, reader.measureValues);
+			}
+			
+			for (Partition subpartition : subpartitions)
+			{
+				subpartition.close();
+			}
+		}
+		catch (IOException e)
+		{
+			for (Partition subpartition : subpartitions)
+			{
+				subpartition.delete();
+			}
+			throw e;
+		}
+		finally
+		{
+			reader.close();
+		}
+		
+		partition.delete();
+		return subpartitions;
+	}
+	
+	/**
+	 * Returns a row of crosstab cells, reading it from the temporary file.
+	 * 
+	 * @param row the row index
+	 * @return the row cells
+	 * @throws JRException
+	 */
+	public CrosstabCell[] getCellRow(int row) throws JRException
+	{
+		try
+		{
+			return cellRows.read(rowIndexes[row]);
+		}
+		catch (IOException e)
+		{
+			throw new JRException(e);
+		}
+	}
+	
+	/**
+	 * Deletes the temporary files.
+	 */
+	public void dispose()
+	{
+		bufferedRecords = null;
+		
+		if (partitions != null)
+		{
+			for (Partition partition : partitions)
+			{
+				partition.delete();
+			}
+			partitions = null;
+		}
+		
+		if (cellRows != null)
+		{
+			cellRows.delete();
+			cellRows = null;
+		}
+	}
+	
+	protected static void deleteFile(File file)
+	{
+		if (!file.delete())
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Could not delete crosstab bucketing file " + file);
+			}
+		}
+	}
+	
+	protected static class RowGroup
+	{
+		private final Bucket key;
+		private final int firstStoreRow;
+		private final List<HeaderCell[]> headers = new ArrayList<HeaderCell[]>();
+		
+		public RowGroup(Bucket key, int firstStoreRow)
+		{
+			this.key = key;
+			this.firstStoreRow = firstStoreRow;
+		}
+	}
+	
+	protected class Partition
+	{
+		private final int depth;
+		private final File file;
+		private VirtualizationOutput out;
+		private int recordCount;
+		
+		public Partition(int depth) throws IOException
+		{
+			this.depth = depth;
+			this.file = File.createTempFile("crosstab_partition", ".tmp", directory);
+			try
+			{
+				this.out = new VirtualizationOutput(
+						new BufferedOutputStream(new FileOutputStream(file)), null);
+			}
+			catch (IOException e)
+			{
+				deleteFile(file);
+				throw e;
+			}
+		}
+		
+		public void write(Object[] bucketValues, Object[] measureValues) throws IOException
+		{
+			// not using references so that the written objects are not kept in memory
+			for (int i = 0; i < bucketCount; i++)
+			{
+				out.writeJRObject(bucketValues[i], false, false);
+			}
+			for (int i = 0; i < measureCount; i++)
+			{
+				out.writeJRObject(measureValues[i], false, false);
+			}
+			
+			++recordCount;
+			if (recordCount % OUTPUT_RESET_INTERVAL == 0)
+			{
+				out.reset();
+			}
+		}
+		
+		public void close() throws IOException
+		{
+			if (out != null)
+			{
+				out.close();
+				out = null;
+			}
+		}
+		
+		public void delete()
+		{
+			try
+			{
+				close();
+			}
+			catch (IOException e)
+			{
+				log.warn("Error closing crosstab partition file", e);
+			}
+			deleteFile(file);
+		}
+	}
+	
+	protected class PartitionReader
+	{
+		private final VirtualizationInput in;
+		private int remaining;
+		private final Object[] bucketValues;
+		private final Object[] measureValues;
+		
+		public PartitionReader(Partition partition) throws IOException
+		{
+			this.in = new VirtualizationInput(
+					new BufferedInputStream(new FileInputStream(partition.file)), null);
+			this.remaining = partition.recordCount;
+			this.bucketValues = new Object[bucketCount];
+			this.measureValues = new Object[measureCount];
+		}
+		
+		public boolean next() throws IOException
+		{
+			if (remaining == 0)
+			{
+				return false;
+			}
+			
+			for (int i = 0; i < bucketCount; i++)
+			{
+				bucketValues[i] = in.readJRObject(false);
+			}
+			for (int i = 0; i < measureCount; i++)
+			{
+				measureValues[i] = in.readJRObject(false);
+			}
+			--remaining;
+			return true;
+		}
+		
+		public void close()
+		{
+			try
+			{
+				in.close();
+			}
+			catch (IOException e)
+			{
+				log.warn("Error closing crosstab partition file", e);
+			}
+		}
+	}
+	
+	protected class CellRowStore
+	{
+		private final File file;
+		private final RandomAccessFile data;
+		private final Bucket[][] columnBucketValues;
+		private long[] offsets;
+		private int rowCount;
+		private long length;
+		
+		private int cachedIndex = -1;
+		private CrosstabCell[] cachedRow;
+		
+		public CellRowStore(Bucket[][] columnBucketValues) throws IOException
+		{
+			this.columnBucketValues = columnBucketValues;
+			this.file = File.createTempFile("crosstab_cells", ".tmp", directory);
+			try
+			{
+				this.data = new RandomAccessFile(file, "rw");
+			}
+			catch (IOException e)
+			{
+				deleteFile(file);
+				throw e;
+			}
+			this.offsets = new long[1024];
+		}
+		
+		public int write(CrosstabCell[] row) throws IOException
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			VirtualizationOutput out = new VirtualizationOutput(bytes, null);
+			
+			Bucket[] rowValues = row[0].getRowBucketValues();
+			for (Bucket bucket : rowValues)
+			{
+				out.writeBoolean(bucket.isTotal());
+				if (!bucket.isTotal())
+				{
+					out.writeJRObject(bucket.getValue(), false, false);
+				}
+			}
+			
+			for (CrosstabCell cell : row)
+			{
+				writeValues(out, cell.getMesureValues());
+				
+				MeasureValue[][][] totals = cell.getTotals();
+				for (int i = 0; i < totals.length; i++)
+				{
+					for (int j = 0; j < totals[i].length; j++)
+					{
+						writeValues(out, totals[i][j]);
+					}
+				}
+			}
+			out.close();
+			
+			if (rowCount == offsets.length)
+			{
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+			}
+			offsets[rowCount] = length;
+			
+			byte[] rowData = bytes.toByteArray();
+			data.seek(length);
+			data.write(rowData);
+			length += rowData.length;
+			
+			return rowCount++;
+		}
+		
+		protected void writeValues(VirtualizationOutput out, MeasureValue[] values) throws IOException
+		{
+			out.writeBoolean(values != null);
+			if (values != null)
+			{
+				for (MeasureValue value : values)
+				{
+					out.writeJRObject(value.getValue(), false, false);
+					out.writeBoolean(value.isInitialized());
+				}
+			}
+		}
+		
+		public CrosstabCell[] read(int index) throws IOException
+		{
+			if (index == cachedIndex)
+			{
+				return cachedRow;
+			}
+			
+			long offset = offsets[index];
+			long end = index + 1 < rowCount ? offsets[index + 1] : length;
+			byte[] rowData = new byte[(int) (end - offset)];
+			data.seek(offset);
+			data.readFully(rowData);
+			
+			VirtualizationInput in = new VirtualizationInput(new ByteArrayInputStream(rowData), null);
+			
+			Bucket[] rowValues = new Bucket[service.rowBucketCount];
+			for (int level = 0; level < rowValues.length; level++)
+			{
+				BucketDefinition bucket = service.allBuckets[level];
+				if (in.readBoolean())
+				{
+					rowValues[level] = bucket.VALUE_TOTAL;
+				}
+				else
+				{
+					Object value = in.readJRObject(false);
+					rowValues[level] = value == null ? bucket.VALUE_NULL : bucket.create(value);
+				}
+			}
+			
+			CrosstabCell[] row = new CrosstabCell[columnBucketValues.length];
+			for (int col = 0; col < row.length; col++)
+			{
+				MeasureValue[] values = readValues(in);
+				
+				MeasureValue[][][] totals = new MeasureValue[service.rowBucketCount + 1][service.colBucketCount + 1][];
+				for (int i = 0; i < totals.length; i++)
+				{
+					for (int j = 0; j < totals[i].length; j++)
+					{
+						totals[i][j] = readValues(in);
+					}
+				}
+				
+				row[col] = new CrosstabCell(rowValues, columnBucketValues[col], values, totals);
+			}
+			in.close();
+			
+			cachedIndex = index;
+			cachedRow = row;
+			return row;
+		}
+		
+		protected MeasureValue[] readValues(VirtualizationInput in) throws IOException
+		{
+			if (!in.readBoolean())
+			{
+				return null;
+			}
+			
+			MeasureValue[] values = new MeasureValue[measureCount];
+			for (int i = 0; i < measureCount; i++)
+			{
+				MeasureValue value = userMeasures[i].new MeasureValue();
+				value.setValue(in.readJRObject(false));
+				value.setInitialized(in.readBoolean());
+				values[i] = value;
+			}
+			return values;
+		}
+		
+		public void delete()
+		{
+			cachedRow = null;
+			try
+			{
+				data.close();
+			}
+			catch (IOException e)
+			{
+				log.warn("Error closing crosstab cells file", e);
+			}
+			deleteFile(file);
+		}
+	}
+}
@@ -27,8 +27,11 @@ import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.fill.AbstractValueProvider;
 import net.sf.jasperreports.engine.fill.JRCalculable;
 import net.sf.jasperreports.engine.fill.JRDistinctCountExtendedIncrementerFactory;
+import net.sf.jasperreports.engine.fill.JRDoubleIncrementerFactory;
 import net.sf.jasperreports.engine.fill.JRExtendedIncrementer;
 import net.sf.jasperreports.engine.fill.JRExtendedIncrementerFactory;
+import net.sf.jasperreports.engine.fill.JRIntegerIncrementerFactory;
+import net.sf.jasperreports.engine.fill.JRLongIncrementerFactory;
 import net.sf.jasperreports.engine.type.CalculationEnum;
 
 /**
@@ -38,10 +41,31 @@ import net.sf.jasperreports.engine.type.CalculationEnum;
  */
 public class MeasureDefinition
 {
+	/**
+	 * Accumulator type used for measures that are accumulated by the generic incrementer.
+	 */
+	protected static final byte ACCUMULATOR_NONE = 0;
+	
+	/**
+	 * Accumulator type used for <code>java.lang.Integer</code> sums and counts.
+	 */
+	protected static final byte ACCUMULATOR_INTEGER = 1;
+	
+	/**
+	 * Accumulator type used for <code>java.lang.Long</code> sums and counts.
+	 */
+	protected static final byte ACCUMULATOR_LONG = 2;
+	
+	/**
+	 * Accumulator type used for <code>java.lang.Double</code> sums and counts.
+	 */
+	protected static final byte ACCUMULATOR_DOUBLE = 3;
+	
 	protected CalculationEnum calculation;
 	protected final JRExtendedIncrementerFactory incrementerFactory;
 	protected final Class<?> valueClass;
 	protected final boolean isSystemDefined;
+	protected final byte accumulatorType;
 	
 	
 	/**
@@ -69,6 +93,30 @@ public class MeasureDefinition
 		this.calculation = calculation;
 		this.incrementerFactory = incrementerFactory;
 		this.isSystemDefined = isSystemDefined;
+		this.accumulatorType = resolveAccumulatorType();
+	}
+	
+	protected byte resolveAccumulatorType()
+	{
+		if (calculation != CalculationEnum.SUM && calculation != CalculationEnum.COUNT)
+		{
+			return ACCUMULATOR_NONE;
+		}
+		
+		// only the built-in incrementers are known to do plain primitive arithmetic
+		if (incrementerFactory == JRIntegerIncrementerFactory.getInstance())
+		{
+			return ACCUMULATOR_INTEGER;
+		}
+		if (incrementerFactory == JRLongIncrementerFactory.getInstance())
+		{
+			return ACCUMULATOR_LONG;
+		}
+		if (incrementerFactory == JRDoubleIncrementerFactory.getInstance())
+		{
+			return ACCUMULATOR_DOUBLE;
+		}
+		return ACCUMULATOR_NONE;
 	}
 	
 	
@@ -135,6 +183,21 @@ public class MeasureDefinition
 	}
 	
 	
+	/**
+	 * Creates a value that accumulates this measure.
+	 * <p>
+	 * Sums and counts computed by the built-in <code>Integer</code>, <code>Long</code>
+	 * and <code>Double</code> incrementers are accumulated in primitive fields,
+	 * the value object being only created when the value is read.
+	 * 
+	 * @return a new measure value
+	 */
+	public MeasureValue createMeasureValue()
+	{
+		return accumulatorType == ACCUMULATOR_NONE ? new MeasureValue() : new PrimitiveMeasureValue();
+	}
+	
+	
 	/**
 	 * Returns the measure value class.
 	 * 
@@ -230,6 +293,11 @@ public class MeasureDefinition
 			return value;
 		}
 		
+		protected void setValue(Object value)
+		{
+			this.value = value;
+		}
+		
 		@Override
 		public String toString()
 		{
@@ -276,4 +344,91 @@ public class MeasureDefinition
 		}
 	}
 
+	
+	/**
+	 * Measure value that accumulates a sum or a count in a primitive field.
+	 * <p>
+	 * The arithmetic matches the one done by the built-in incrementers, so the values
+	 * are identical to the ones produced by {@link MeasureValue}.
+	 */
+	protected class PrimitiveMeasureValue extends MeasureValue
+	{
+		private long longValue;
+		private double doubleValue;
+		private boolean pending;
+		
+		@Override
+		public void addValue(Object addValue) throws JRException
+		{
+			// sums and counts ignore null values
+			if (addValue == null)
+			{
+				return;
+			}
+			
+			if (isInitialized())
+			{
+				longValue = 0;
+				doubleValue = 0;
+				setInitialized(false);
+			}
+			
+			boolean count = calculation == CalculationEnum.COUNT;
+			switch (accumulatorType)
+			{
+				case ACCUMULATOR_INTEGER:
+					longValue = (int) longValue + (count ? 1 : ((Number) addValue).intValue());
+					break;
+				case ACCUMULATOR_LONG:
+					longValue = longValue + (count ? 1 : ((Number) addValue).longValue());
+					break;
+				case ACCUMULATOR_DOUBLE:
+				default:
+					doubleValue = doubleValue + (count ? 1 : ((Number) addValue).doubleValue());
+					break;
+			}
+			pending = true;
+		}
+		
+		@Override
+		public void addValue(MeasureValue measureValue) throws JRException
+		{
+			getValue();
+			super.addValue(measureValue);
+			
+			Number value = (Number) super.getValue();
+			longValue = value == null ? 0 : value.longValue();
+			doubleValue = value == null ? 0 : value.doubleValue();
+		}
+		
+		@Override
+		public Object getValue()
+		{
+			if (pending)
+			{
+				switch (accumulatorType)
+				{
+					case ACCUMULATOR_INTEGER:
+						setValue((int) longValue);
+						break;
+					case ACCUMULATOR_LONG:
+						setValue(longValue);
+						break;
+					case ACCUMULATOR_DOUBLE:
+					default:
+						setValue(doubleValue);
+						break;
+				}
+				pending = false;
+			}
+			return super.getValue();
+		}
+		
+		@Override
+		public Object getIncrementedValue()
+		{
+			return getValue();
+		}
+	}
+
 }
@@ -71,6 +71,16 @@ public class BigDecimalValues implements ColumnValues, Serializable
 		return unscaledValues.size();
 	}
 
+	public ColumnValues getUnscaledValues()
+	{
+		return unscaledValues;
+	}
+
+	public ColumnValues getScaleValues()
+	{
+		return scaleValues;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
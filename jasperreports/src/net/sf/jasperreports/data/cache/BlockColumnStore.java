@@ -50,6 +50,11 @@ public class BlockColumnStore implements ColumnStore
 		return bufferStore.getBaseValuesType();
 	}
 
+	public BufferColumnStore getBufferStore()
+	{
+		return bufferStore;
+	}
+
 	protected void preAdd()
 	{
 		if (bufferStore.full())
@@ -80,6 +80,11 @@ public class BlockColumnValues implements ColumnValues, Serializable
 		return size;
 	}
 
+	public ColumnValues[] getBlocks()
+	{
+		return blocks;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
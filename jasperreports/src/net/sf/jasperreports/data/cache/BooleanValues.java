@@ -63,6 +63,11 @@ public class BooleanValues implements ColumnValues, Serializable
 		return size;
 	}
 
+	public ColumnValues getLongValues()
+	{
+		return longValues;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
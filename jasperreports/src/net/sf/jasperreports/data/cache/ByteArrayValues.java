@@ -78,6 +78,21 @@ public class ByteArrayValues implements ColumnValues, Serializable
 		return values.length;
 	}
 
+	public byte[] getValues()
+	{
+		return values;
+	}
+
+	public long getLinearFactor()
+	{
+		return linearFactor;
+	}
+
+	public long getLinearOffset()
+	{
+		return linearOffset;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
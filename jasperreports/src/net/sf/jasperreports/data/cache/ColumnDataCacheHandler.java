@@ -46,11 +46,13 @@ public class ColumnDataCacheHandler implements DataCacheHandler
 	private static final Log log = LogFactory.getLog(ColumnDataCacheHandler.class);
 
 	private final static int DEFAULT_BUFFER_STORE_SIZE = 4096;
+	private final static int DEFAULT_DICTIONARY_MAX_SIZE = 1024;
 	
 	private boolean recordingEnabled;
 
 	private volatile DataSnapshot snapshot;
 	private int bufferStoreSize = DEFAULT_BUFFER_STORE_SIZE;
+	private int dictionaryMaxSize = DEFAULT_DICTIONARY_MAX_SIZE;
 	
 	public ColumnDataCacheHandler()
 	{
@@ -101,6 +103,21 @@ public class ColumnDataCacheHandler implements DataCacheHandler
 		return snapshot != null;
 	}
 	
+	public int getDictionaryMaxSize()
+	{
+		return dictionaryMaxSize;
+	}
+
+	/**
+	 * Sets the maximum number of distinct values for which string columns are dictionary encoded.
+	 * 
+	 * @param dictionaryMaxSize the maximum dictionary size, 0 to disable dictionary encoding
+	 */
+	public void setDictionaryMaxSize(int dictionaryMaxSize)
+	{
+		this.dictionaryMaxSize = dictionaryMaxSize;
+	}
+	
 	protected ColumnStore createColumnStore(JRField field)
 	{
 		return new TypedColumnStore(this, field.getValueClass());
@@ -139,7 +156,7 @@ public class ColumnDataCacheHandler implements DataCacheHandler
 		}
 		else if (String.class.equals(type))
 		{
-			bufferStore = new ObjectArrayStore<String>(String.class, bufferStoreSize); 
+			bufferStore = new ObjectArrayStore<String>(String.class, bufferStoreSize, dictionaryMaxSize); 
 		}
 		else if (java.sql.Date.class.isAssignableFrom(type))//allow subclasses
 		{
@@ -371,12 +388,38 @@ public class ColumnDataCacheHandler implements DataCacheHandler
 			for (int i = 0; i < columns.length; i++)
 			{
 				values[i] = columns[i].createValues();
+				
+				if (log.isDebugEnabled())
+				{
+					logStatistics(fieldNames[i], columns[i]);
+				}
 			}
 			
 			StandardColumnCacheData data = new StandardColumnCacheData(fieldNames, size, values, parameters);
 			return data;
 		}
 
+		protected void logStatistics(String fieldName, ColumnStore column)
+		{
+			ColumnStore valueStore = column instanceof TypedColumnStore 
+					? ((TypedColumnStore) column).getValueStore() : column;
+			if (valueStore instanceof BlockColumnStore)
+			{
+				valueStore = ((BlockColumnStore) valueStore).getBufferStore();
+			}
+			
+			if (valueStore instanceof ObjectArrayStore)
+			{
+				ObjectArrayStore<?> objectStore = (ObjectArrayStore<?>) valueStore;
+				log.debug("Field " + fieldName + ": " + objectStore.getValueCount() + " values, "
+						+ objectStore.getDictionarySize() + " dictionary values, "
+						+ objectStore.getEncodedValueCount() + " values encoded in " 
+						+ objectStore.getEncodedCodeBytes() + " bytes"
+						+ (objectStore.getDictionarySize() > 0 && !objectStore.isDictionaryEncoding() 
+								? ", dictionary dropped" : ""));
+			}
+		}
+
 		@Override
 		public boolean hasEnded()
 		{
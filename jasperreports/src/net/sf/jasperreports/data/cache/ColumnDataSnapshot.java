@@ -113,6 +113,16 @@ public class ColumnDataSnapshot implements DataSnapshot, Serializable
 		cachedData.put(key, data);
 	}
 
+	/**
+	 * Returns the cached data of the snapshot, mapped by key.
+	 * 
+	 * @return the cached data map
+	 */
+	public Map<Object, ColumnCacheData> getCachedDataMap()
+	{
+		return cachedData;
+	}
+
 	@Override
 	public boolean isPersistable()
 	{
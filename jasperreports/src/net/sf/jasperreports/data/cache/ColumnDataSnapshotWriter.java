@@ -0,0 +1,459 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Writes column data snapshots to files that can be loaded as {@link MappedColumnDataSnapshot}.
+ * 
+ * <p>
+ * The file starts with a header containing the file format version and the position of the index.
+ * The header is followed by the column data regions and by the index which describes the cached 
+ * datasets and the structure of their columns.
+ * Column data regions do not span across segment boundaries so that the file can be mapped 
+ * in memory one segment at a time.
+ * </p>
+ * 
+ * <p>
+ * Number columns are written as arrays of primitive values of the size used in memory, 
+ * and string columns are written as sequences of length prefixed UTF-8 values, so that the 
+ * values can be read directly from the mapped file.
+ * Composite values such as nullable, run length encoded or decimal values are described 
+ * by nodes in the index that reference the regions of their components.
+ * Value dictionaries shared by the blocks of a column are written once in the index,
+ * the column blocks only containing the dictionary codes.
+ * Other values are written as serialized objects.
+ * </p>
+ * 
+ * @see MappedColumnDataSnapshot
+ */
+public class ColumnDataSnapshotWriter
+{
+
+	private static final Log log = LogFactory.getLog(ColumnDataSnapshotWriter.class);
+	
+	public static final String EXCEPTION_MESSAGE_KEY_UNSUPPORTED_CACHED_DATA = "data.cache.snapshot.file.unsupported.cached.data";
+	public static final String EXCEPTION_MESSAGE_KEY_REGION_TOO_LARGE = "data.cache.snapshot.file.region.too.large";
+	
+	protected static final int FILE_MAGIC = 0x4A524353;
+	protected static final short FILE_VERSION = 2;
+	protected static final int HEADER_SIZE = 18;
+	
+	protected static final byte NODE_DATA = 1;
+	protected static final byte NODE_BLOCKS = 2;
+	protected static final byte NODE_NULLABLE = 3;
+	protected static final byte NODE_NUMBERS = 4;
+	protected static final byte NODE_DOUBLES = 5;
+	protected static final byte NODE_FLOATS = 6;
+	protected static final byte NODE_STRINGS = 7;
+	protected static final byte NODE_BOOLEANS = 8;
+	protected static final byte NODE_TRANSFORMED = 9;
+	protected static final byte NODE_RUN_LENGTH = 10;
+	protected static final byte NODE_BIG_DECIMALS = 11;
+	protected static final byte NODE_TIMESTAMPS = 12;
+	protected static final byte NODE_CONSTANT = 13;
+	protected static final byte NODE_SINGLE = 14;
+	protected static final byte NODE_EMPTY = 15;
+	protected static final byte NODE_DICTIONARY = 16;
+	
+	protected static final Charset STRING_CHARSET = Charset.forName("UTF-8");
+	protected static final int NULL_STRING_LENGTH = -1;
+	
+	public static final int DEFAULT_SEGMENT_SIZE = 1 << 30;
+	
+	private final int segmentSize;
+	
+	public ColumnDataSnapshotWriter()
+	{
+		this(DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Creates a snapshot writer.
+	 * 
+	 * @param segmentSize the size of the file segments, column data regions are not allowed to
+	 * span across segments
+	 */
+	public ColumnDataSnapshotWriter(int segmentSize)
+	{
+		if (segmentSize <= 0)
+		{
+			throw new IllegalArgumentException("Invalid segment size " + segmentSize);
+		}
+		
+		this.segmentSize = segmentSize;
+	}
+	
+	/**
+	 * Writes a data snapshot to a file.
+	 * 
+	 * @param snapshot the data snapshot
+	 * @param file the file to write the snapshot to, overwritten if it exists
+	 * @throws DataSnapshotException
+	 */
+	public void write(ColumnDataSnapshot snapshot, File file) throws DataSnapshotException
+	{
+		if (!snapshot.isPersistable())
+		{
+			throw 
+				new DataSnapshotException(
+					ColumnDataSnapshot.EXCEPTION_MESSAGE_KEY_SNAPSHOT_CANNOT_BE_PERSISTED,
+					(Object[])null);
+		}
+		
+		try
+		{
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+			try
+			{
+				randomAccessFile.setLength(0);
+				FileOutput output = new FileOutput(randomAccessFile.getChannel());
+				writeSnapshot(snapshot, output);
+			}
+			finally
+			{
+				randomAccessFile.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new DataSnapshotException(e);
+		}
+	}
+	
+	protected void writeSnapshot(ColumnDataSnapshot snapshot, FileOutput output) throws IOException, DataSnapshotException
+	{
+		Map<Object, ColumnCacheData> cachedData = snapshot.getCachedDataMap();
+		
+		ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+		ObjectOutputStream index = new ObjectOutputStream(indexBytes);
+		index.writeInt(cachedData.size());
+		for (Map.Entry<Object, ColumnCacheData> entry : cachedData.entrySet())
+		{
+			if (!(entry.getValue() instanceof StandardColumnCacheData))
+			{
+				throw 
+					new DataSnapshotException(
+						EXCEPTION_MESSAGE_KEY_UNSUPPORTED_CACHED_DATA,
+						new Object[]{entry.getValue().getClass().getName()});
+			}
+			
+			StandardColumnCacheData data = (StandardColumnCacheData) entry.getValue();
+			Map<String, Object> parameters = data.getParameters();
+			
+			index.writeObject(entry.getKey());
+			index.writeObject(parameters == null ? null : new LinkedHashMap<String, Object>(parameters));
+			index.writeInt(data.size());
+			
+			String[] fieldNames = data.getFieldNames();
+			ColumnValues[] values = data.getValues();
+			index.writeInt(fieldNames.length);
+			for (int i = 0; i < fieldNames.length; i++)
+			{
+				index.writeObject(fieldNames[i]);
+				writeValues(values[i], index, output);
+			}
+		}
+		index.close();
+		
+		long indexOffset = output.position;
+		output.write(ByteBuffer.wrap(indexBytes.toByteArray()), indexOffset);
+		
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(FILE_MAGIC);
+		header.putShort(FILE_VERSION);
+		header.putInt(segmentSize);
+		header.putLong(indexOffset);
+		header.flip();
+		output.write(header, 0);
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("wrote snapshot of " + cachedData.size() + " datasets, index at " + indexOffset);
+		}
+	}
+	
+	protected void writeValues(ColumnValues values, ObjectOutputStream index, 
+			FileOutput output) throws IOException, DataSnapshotException
+	{
+		if (values instanceof BlockColumnValues)
+		{
+			// writing blocks separately so that they can be read one at a time
+			ColumnValues[] blocks = ((BlockColumnValues) values).getBlocks();
+			index.writeByte(NODE_BLOCKS);
+			index.writeInt(blocks.length);
+			for (ColumnValues block : blocks)
+			{
+				writeValues(block, index, output);
+			}
+		}
+		else if (values instanceof NullableValues)
+		{
+			NullableValues nullableValues = (NullableValues) values;
+			index.writeByte(NODE_NULLABLE);
+			writeValues(nullableValues.getNullValues(), index, output);
+			writeValues(nullableValues.getValues(), index, output);
+		}
+		else if (values instanceof ByteArrayValues)
+		{
+			ByteArrayValues byteValues = (ByteArrayValues) values;
+			byte[] array = byteValues.getValues();
+			ByteBuffer data = ByteBuffer.wrap(array);
+			writeNumbers(array.length, 1, byteValues.getLinearFactor(), byteValues.getLinearOffset(), 
+					data, index, output);
+		}
+		else if (values instanceof ShortArrayValues)
+		{
+			ShortArrayValues shortValues = (ShortArrayValues) values;
+			short[] array = shortValues.getValues();
+			ByteBuffer data = ByteBuffer.allocate(array.length * 2);
+			data.asShortBuffer().put(array);
+			writeNumbers(array.length, 2, shortValues.getLinearFactor(), shortValues.getLinearOffset(), 
+					data, index, output);
+		}
+		else if (values instanceof IntArrayValues)
+		{
+			IntArrayValues intValues = (IntArrayValues) values;
+			int[] array = intValues.getValues();
+			ByteBuffer data = ByteBuffer.allocate(array.length * 4);
+			data.asIntBuffer().put(array);
+			writeNumbers(array.length, 4, intValues.getLinearFactor(), intValues.getLinearOffset(), 
+					data, index, output);
+		}
+		else if (values instanceof LongArrayValues)
+		{
+			LongArrayValues longValues = (LongArrayValues) values;
+			long[] array = longValues.getValues();
+			ByteBuffer data = ByteBuffer.allocate(array.length * 8);
+			data.asLongBuffer().put(array);
+			writeNumbers(array.length, 8, longValues.getLinearFactor(), longValues.getLinearOffset(), 
+					data, index, output);
+		}
+		else if (values instanceof DoubleArrayValues)
+		{
+			double[] array = ((DoubleArrayValues) values).getValues();
+			ByteBuffer data = ByteBuffer.allocate(array.length * 8);
+			data.asDoubleBuffer().put(array);
+			
+			long offset = output.writeRegion(data);
+			index.writeByte(NODE_DOUBLES);
+			index.writeInt(array.length);
+			index.writeLong(offset);
+		}
+		else if (values instanceof FloatArrayValues)
+		{
+			float[] array = ((FloatArrayValues) values).getValues();
+			ByteBuffer data = ByteBuffer.allocate(array.length * 4);
+			data.asFloatBuffer().put(array);
+			
+			long offset = output.writeRegion(data);
+			index.writeByte(NODE_FLOATS);
+			index.writeInt(array.length);
+			index.writeLong(offset);
+		}
+		else if (values instanceof ObjectArrayValues && isStringArray(((ObjectArrayValues) values).getValues()))
+		{
+			Object[] array = ((ObjectArrayValues) values).getValues();
+			ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+			DataOutputStream dataOut = new DataOutputStream(dataBytes);
+			for (Object value : array)
+			{
+				if (value == null)
+				{
+					dataOut.writeInt(NULL_STRING_LENGTH);
+				}
+				else
+				{
+					byte[] bytes = ((String) value).getBytes(STRING_CHARSET);
+					dataOut.writeInt(bytes.length);
+					dataOut.write(bytes);
+				}
+			}
+			dataOut.close();
+			
+			int length = dataBytes.size();
+			long offset = output.writeRegion(ByteBuffer.wrap(dataBytes.toByteArray()));
+			index.writeByte(NODE_STRINGS);
+			index.writeInt(array.length);
+			index.writeLong(offset);
+			index.writeInt(length);
+		}
+		else if (values instanceof DictionaryValues)
+		{
+			DictionaryValues dictionaryValues = (DictionaryValues) values;
+			index.writeByte(NODE_DICTIONARY);
+			// the index stream writes the dictionary on first use and back references it for the next blocks
+			index.writeObject(dictionaryValues.getDictionary());
+			writeValues(dictionaryValues.getCodes(), index, output);
+		}
+		else if (values instanceof BooleanValues)
+		{
+			index.writeByte(NODE_BOOLEANS);
+			index.writeInt(values.size());
+			writeValues(((BooleanValues) values).getLongValues(), index, output);
+		}
+		else if (values instanceof TransformedColumnValues)
+		{
+			TransformedColumnValues transformedValues = (TransformedColumnValues) values;
+			index.writeByte(NODE_TRANSFORMED);
+			index.writeObject(transformedValues.getTransformer());
+			writeValues(transformedValues.getRawValues(), index, output);
+		}
+		else if (values instanceof RunLengthColumnValues)
+		{
+			RunLengthColumnValues runLengthValues = (RunLengthColumnValues) values;
+			index.writeByte(NODE_RUN_LENGTH);
+			index.writeInt(values.size());
+			writeValues(runLengthValues.getValues(), index, output);
+			writeValues(runLengthValues.getRunLengths(), index, output);
+		}
+		else if (values instanceof BigDecimalValues)
+		{
+			BigDecimalValues decimalValues = (BigDecimalValues) values;
+			index.writeByte(NODE_BIG_DECIMALS);
+			writeValues(decimalValues.getUnscaledValues(), index, output);
+			writeValues(decimalValues.getScaleValues(), index, output);
+		}
+		else if (values instanceof TimestampValues)
+		{
+			TimestampValues timestampValues = (TimestampValues) values;
+			index.writeByte(NODE_TIMESTAMPS);
+			writeValues(timestampValues.getTimeValues(), index, output);
+			writeValues(timestampValues.getNanoValues(), index, output);
+		}
+		else if (values instanceof ConstantColumnValue)
+		{
+			index.writeByte(NODE_CONSTANT);
+			index.writeInt(values.size());
+			index.writeObject(((ConstantColumnValue) values).getValue());
+		}
+		else if (values instanceof SingleObjectValue)
+		{
+			index.writeByte(NODE_SINGLE);
+			index.writeObject(((SingleObjectValue) values).getValue());
+		}
+		else if (values instanceof EmptyColumnValues)
+		{
+			index.writeByte(NODE_EMPTY);
+		}
+		else
+		{
+			ByteArrayOutputStream dataBytes = new ByteArrayOutputStream();
+			ObjectOutputStream dataOut = new ObjectOutputStream(dataBytes);
+			dataOut.writeObject(values);
+			dataOut.close();
+			
+			int length = dataBytes.size();
+			long offset = output.writeRegion(ByteBuffer.wrap(dataBytes.toByteArray()));
+			
+			index.writeByte(NODE_DATA);
+			index.writeInt(values.size());
+			index.writeLong(offset);
+			index.writeInt(length);
+		}
+	}
+	
+	protected void writeNumbers(int size, int valueSize, long linearFactor, long linearOffset,
+			ByteBuffer data, ObjectOutputStream index, FileOutput output) throws IOException, DataSnapshotException
+	{
+		long offset = output.writeRegion(data);
+		index.writeByte(NODE_NUMBERS);
+		index.writeInt(size);
+		index.writeByte(valueSize);
+		index.writeLong(linearFactor);
+		index.writeLong(linearOffset);
+		index.writeLong(offset);
+	}
+	
+	protected boolean isStringArray(Object[] values)
+	{
+		for (Object value : values)
+		{
+			if (value != null && value.getClass() != String.class)
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	protected class FileOutput
+	{
+		private final FileChannel channel;
+		private long position;
+		
+		public FileOutput(FileChannel channel)
+		{
+			this.channel = channel;
+			this.position = HEADER_SIZE;
+		}
+		
+		public long writeRegion(ByteBuffer data) throws IOException, DataSnapshotException
+		{
+			int length = data.remaining();
+			if (length > segmentSize)
+			{
+				throw 
+					new DataSnapshotException(
+						EXCEPTION_MESSAGE_KEY_REGION_TOO_LARGE,
+						new Object[]{length, segmentSize});
+			}
+			
+			long segmentEnd = (position / segmentSize + 1) * segmentSize;
+			if (position + length > segmentEnd)
+			{
+				// moving to the next segment
+				position = segmentEnd;
+			}
+			
+			long offset = position;
+			write(data, offset);
+			position += length;
+			return offset;
+		}
+		
+		public void write(ByteBuffer buffer, long offset) throws IOException
+		{
+			long writePosition = offset;
+			while (buffer.hasRemaining())
+			{
+				writePosition += channel.write(buffer, writePosition);
+			}
+		}
+	}
+}
@@ -63,6 +63,11 @@ public class ConstantColumnValue implements ColumnValues, Serializable
 		return size;
 	}
 
+	public Object getValue()
+	{
+		return value;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
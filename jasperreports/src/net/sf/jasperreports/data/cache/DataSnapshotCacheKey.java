@@ -0,0 +1,295 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JRQuery;
+import net.sf.jasperreports.engine.JasperReport;
+
+/**
+ * Key of a data snapshot kept in a {@link SharedDataSnapshotCache}.
+ * 
+ * <p>
+ * The key consists of the report UUID, the main dataset query and the values of the
+ * report parameters.
+ * </p>
+ */
+public final class DataSnapshotCacheKey
+{
+
+	private final UUID reportUUID;
+	private final String queryLanguage;
+	private final String queryText;
+	private final Map<String, Object> parameterValues;
+	private final int hash;
+	
+	public DataSnapshotCacheKey(UUID reportUUID, String queryLanguage, String queryText, 
+			Map<String, Object> parameterValues)
+	{
+		this.reportUUID = reportUUID;
+		this.queryLanguage = queryLanguage;
+		this.queryText = queryText;
+		if (parameterValues == null || parameterValues.isEmpty())
+		{
+			this.parameterValues = Collections.<String, Object>emptyMap();
+		}
+		else
+		{
+			Map<String, Object> keyValues = new HashMap<String, Object>(parameterValues.size() * 4 / 3 + 1);
+			for (Map.Entry<String, Object> entry : parameterValues.entrySet())
+			{
+				keyValues.put(entry.getKey(), toKeyValue(entry.getValue()));
+			}
+			this.parameterValues = Collections.unmodifiableMap(keyValues);
+		}
+		this.hash = computeHash();
+	}
+
+	/**
+	 * Creates a key for a report fill.
+	 * 
+	 * <p>
+	 * Built-in parameters are only included when their values can be compared by value.
+	 * No key is created when the report receives a data source, or when a user defined parameter
+	 * has a value that cannot be compared by value.
+	 * </p>
+	 * 
+	 * @param report the report being filled
+	 * @param parameterValues the fill parameter values
+	 * @return the key, or <code>null</code> if the fill data cannot be shared
+	 */
+	public static DataSnapshotCacheKey create(JasperReport report, Map<String, Object> parameterValues)
+	{
+		Map<String, Object> keyValues = new HashMap<String, Object>();
+		JRParameter[] parameters = report.getParameters();
+		if (parameters != null && parameterValues != null)
+		{
+			for (JRParameter parameter : parameters)
+			{
+				String name = parameter.getName();
+				if (!parameterValues.containsKey(name))
+				{
+					continue;
+				}
+				
+				Object value = parameterValues.get(name);
+				if (parameter.isSystemDefined())
+				{
+					if (JRParameter.REPORT_DATA_SOURCE.equals(name) && value != null)
+					{
+						return null;
+					}
+					
+					if (isKeyValue(value))
+					{
+						keyValues.put(name, value);
+					}
+				}
+				else
+				{
+					if (!isKeyValue(value))
+					{
+						return null;
+					}
+					
+					keyValues.put(name, value);
+				}
+			}
+		}
+		
+		JRQuery query = report.getQuery();
+		return new DataSnapshotCacheKey(report.getUUID(), 
+				query == null ? null : query.getLanguage(), 
+				query == null ? null : query.getText(), 
+				keyValues);
+	}
+	
+	protected static boolean isKeyValue(Object value)
+	{
+		if (value == null
+				|| value instanceof String
+				|| value instanceof Number
+				|| value instanceof Boolean
+				|| value instanceof Character
+				|| value instanceof Date
+				|| value instanceof Enum
+				|| value instanceof Locale
+				|| value instanceof TimeZone
+				|| value instanceof UUID)
+		{
+			return true;
+		}
+		
+		if (value instanceof Collection)
+		{
+			for (Object element : (Collection<?>) value)
+			{
+				if (!isKeyValue(element))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		if (value.getClass().isArray())
+		{
+			int length = Array.getLength(value);
+			for (int i = 0; i < length; i++)
+			{
+				if (!isKeyValue(Array.get(value, i)))
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		return false;
+	}
+	
+	protected static Object toKeyValue(Object value)
+	{
+		if (value instanceof Set)
+		{
+			Set<Object> set = new HashSet<Object>();
+			for (Object element : (Set<?>) value)
+			{
+				set.add(toKeyValue(element));
+			}
+			return set;
+		}
+		
+		if (value instanceof Collection)
+		{
+			List<Object> list = new ArrayList<Object>(((Collection<?>) value).size());
+			for (Object element : (Collection<?>) value)
+			{
+				list.add(toKeyValue(element));
+			}
+			return list;
+		}
+		
+		if (value instanceof Date)
+		{
+			// copying mutable dates
+			return ((Date) value).clone();
+		}
+		
+		if (value != null && value.getClass().isArray())
+		{
+			int length = Array.getLength(value);
+			List<Object> list = new ArrayList<Object>(length);
+			for (int i = 0; i < length; i++)
+			{
+				list.add(toKeyValue(Array.get(value, i)));
+			}
+			return list;
+		}
+		
+		return value;
+	}
+	
+	private int computeHash()
+	{
+		int hashCode = reportUUID == null ? 0 : reportUUID.hashCode();
+		hashCode = 31 * hashCode + (queryLanguage == null ? 0 : queryLanguage.hashCode());
+		hashCode = 31 * hashCode + (queryText == null ? 0 : queryText.hashCode());
+		hashCode = 31 * hashCode + parameterValues.hashCode();
+		return hashCode;
+	}
+
+	public UUID getReportUUID()
+	{
+		return reportUUID;
+	}
+
+	public String getQueryLanguage()
+	{
+		return queryLanguage;
+	}
+
+	public String getQueryText()
+	{
+		return queryText;
+	}
+
+	public Map<String, Object> getParameterValues()
+	{
+		return parameterValues;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		
+		if (!(obj instanceof DataSnapshotCacheKey))
+		{
+			return false;
+		}
+		
+		DataSnapshotCacheKey key = (DataSnapshotCacheKey) obj;
+		return hash == key.hash
+				&& equals(reportUUID, key.reportUUID)
+				&& equals(queryLanguage, key.queryLanguage)
+				&& equals(queryText, key.queryText)
+				&& parameterValues.equals(key.parameterValues);
+	}
+	
+	private static boolean equals(Object o1, Object o2)
+	{
+		return o1 == null ? o2 == null : o1.equals(o2);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "{report: " + reportUUID + ", query: " + queryText + ", parameters: " + parameterValues + "}";
+	}
+	
+}
@@ -69,6 +69,11 @@ public class DoubleArrayValues implements ColumnValues, Serializable
 		return values.length;
 	}
 
+	public double[] getValues()
+	{
+		return values;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
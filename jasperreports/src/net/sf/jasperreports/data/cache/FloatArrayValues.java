@@ -69,6 +69,11 @@ public class FloatArrayValues implements ColumnValues, Serializable
 		return values.length;
 	}
 
+	public float[] getValues()
+	{
+		return values;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
@@ -79,6 +79,21 @@ public class IntArrayValues implements ColumnValues, Serializable
 		return values.length;
 	}
 
+	public int[] getValues()
+	{
+		return values;
+	}
+
+	public long getLinearFactor()
+	{
+		return linearFactor;
+	}
+
+	public long getLinearOffset()
+	{
+		return linearOffset;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
@@ -79,6 +79,21 @@ public class LongArrayValues implements ColumnValues, Serializable
 		return values.length;
 	}
 
+	public long[] getValues()
+	{
+		return values;
+	}
+
+	public long getLinearFactor()
+	{
+		return linearFactor;
+	}
+
+	public long getLinearOffset()
+	{
+		return linearOffset;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
@@ -0,0 +1,755 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.data.IndexedDataSource;
+import net.sf.jasperreports.engine.util.ContextClassLoaderObjectInputStream;
+
+/**
+ * Data snapshot loaded from a file written by {@link ColumnDataSnapshotWriter}.
+ * 
+ * <p>
+ * The column data regions of the file are mapped in memory.
+ * Number and string values are read directly from the mapped regions while iterating a data 
+ * source created for the cached data, without loading column blocks on the heap.
+ * Values of other types are deserialized when their block is reached, and deserialized 
+ * blocks are softly referenced so that they can be reused by subsequent iterations.
+ * </p>
+ * 
+ * <p>
+ * The snapshot can be used to fill reports by setting a {@link PopulatedSnapshotCacheHandler}
+ * in the report context.
+ * </p>
+ */
+public class MappedColumnDataSnapshot implements DataSnapshot
+{
+
+	private static final Log log = LogFactory.getLog(MappedColumnDataSnapshot.class);
+	
+	public static final String EXCEPTION_MESSAGE_KEY_INVALID_FILE = "data.cache.snapshot.file.invalid";
+	
+	private final JasperReportsContext jasperReportsContext;
+	private final File file;
+	private int segmentSize;
+	private MappedByteBuffer[] segments;
+	private final Map<Object, MappedCacheData> cachedData;
+	
+	/**
+	 * Loads a data snapshot from a file.
+	 * 
+	 * @param jasperReportsContext the context used to resolve classes when reading values
+	 * @param file the snapshot file
+	 * @throws DataSnapshotException
+	 */
+	public MappedColumnDataSnapshot(JasperReportsContext jasperReportsContext, File file) throws DataSnapshotException
+	{
+		this.jasperReportsContext = jasperReportsContext;
+		this.file = file;
+		this.cachedData = new LinkedHashMap<Object, MappedCacheData>();
+		
+		try
+		{
+			RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+			try
+			{
+				load(randomAccessFile.getChannel());
+			}
+			finally
+			{
+				// the mapped buffers remain valid after the channel is closed
+				randomAccessFile.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new DataSnapshotException(e);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new DataSnapshotException(e);
+		}
+	}
+	
+	protected void load(FileChannel channel) throws IOException, ClassNotFoundException, DataSnapshotException
+	{
+		long fileSize = channel.size();
+		ByteBuffer header = ByteBuffer.allocate(ColumnDataSnapshotWriter.HEADER_SIZE);
+		while (header.hasRemaining() && channel.read(header, header.position()) >= 0)
+		{
+			//NOP
+		}
+		header.flip();
+		
+		if (header.remaining() < ColumnDataSnapshotWriter.HEADER_SIZE
+				|| header.getInt() != ColumnDataSnapshotWriter.FILE_MAGIC
+				|| header.getShort() != ColumnDataSnapshotWriter.FILE_VERSION)
+		{
+			throw invalidFile();
+		}
+		
+		segmentSize = header.getInt();
+		long indexOffset = header.getLong();
+		if (segmentSize <= 0 || indexOffset < ColumnDataSnapshotWriter.HEADER_SIZE || indexOffset > fileSize)
+		{
+			throw invalidFile();
+		}
+		
+		int segmentCount = (int) ((indexOffset + segmentSize - 1) / segmentSize);
+		segments = new MappedByteBuffer[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			long segmentStart = (long) i * segmentSize;
+			long segmentLength = Math.min(segmentSize, indexOffset - segmentStart);
+			segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentLength);
+		}
+		
+		channel.position(indexOffset);
+		ObjectInputStream index = new ContextClassLoaderObjectInputStream(jasperReportsContext,
+				new BufferedInputStream(Channels.newInputStream(channel)));
+		int dataCount = index.readInt();
+		for (int i = 0; i < dataCount; i++)
+		{
+			Object key = index.readObject();
+			@SuppressWarnings("unchecked")
+			Map<String, Object> parameters = (Map<String, Object>) index.readObject();
+			int size = index.readInt();
+			
+			int fieldCount = index.readInt();
+			String[] fieldNames = new String[fieldCount];
+			ColumnValues[] values = new ColumnValues[fieldCount];
+			for (int j = 0; j < fieldCount; j++)
+			{
+				fieldNames[j] = (String) index.readObject();
+				values[j] = readValues(index);
+			}
+			
+			cachedData.put(key, new MappedCacheData(fieldNames, size, values, parameters));
+		}
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("loaded snapshot of " + dataCount + " datasets from " + file 
+					+ ", " + segmentCount + " segments mapped");
+		}
+	}
+	
+	protected ColumnValues readValues(ObjectInputStream index) 
+			throws IOException, ClassNotFoundException, DataSnapshotException
+	{
+		byte type = index.readByte();
+		switch (type)
+		{
+		case ColumnDataSnapshotWriter.NODE_BLOCKS:
+		{
+			int blockCount = index.readInt();
+			List<ColumnValues> blocks = new ArrayList<ColumnValues>(blockCount);
+			for (int i = 0; i < blockCount; i++)
+			{
+				blocks.add(readValues(index));
+			}
+			return new BlockColumnValues(blocks);
+		}
+		case ColumnDataSnapshotWriter.NODE_NULLABLE:
+		{
+			ColumnValues nullValues = readValues(index);
+			ColumnValues values = readValues(index);
+			return new NullableValues(nullValues, values);
+		}
+		case ColumnDataSnapshotWriter.NODE_NUMBERS:
+		{
+			int size = index.readInt();
+			byte valueSize = index.readByte();
+			long linearFactor = index.readLong();
+			long linearOffset = index.readLong();
+			long offset = index.readLong();
+			if (valueSize != 1 && valueSize != 2 && valueSize != 4 && valueSize != 8)
+			{
+				throw invalidFile();
+			}
+			
+			ByteBuffer buffer = region(offset, (long) size * valueSize);
+			return new MappedNumberValues(size, valueSize, linearFactor, linearOffset, buffer);
+		}
+		case ColumnDataSnapshotWriter.NODE_DOUBLES:
+		{
+			int size = index.readInt();
+			long offset = index.readLong();
+			ByteBuffer buffer = region(offset, (long) size * 8);
+			return new MappedDoubleValues(size, buffer);
+		}
+		case ColumnDataSnapshotWriter.NODE_FLOATS:
+		{
+			int size = index.readInt();
+			long offset = index.readLong();
+			ByteBuffer buffer = region(offset, (long) size * 4);
+			return new MappedFloatValues(size, buffer);
+		}
+		case ColumnDataSnapshotWriter.NODE_STRINGS:
+		{
+			int size = index.readInt();
+			long offset = index.readLong();
+			int length = index.readInt();
+			ByteBuffer buffer = region(offset, length);
+			return new MappedStringValues(size, buffer);
+		}
+		case ColumnDataSnapshotWriter.NODE_DICTIONARY:
+		{
+			// the same dictionary instance is read for all the blocks of the column
+			ValueDictionary dictionary = (ValueDictionary) index.readObject();
+			ColumnValues codes = readValues(index);
+			return new DictionaryValues(dictionary, codes);
+		}
+		case ColumnDataSnapshotWriter.NODE_BOOLEANS:
+		{
+			int size = index.readInt();
+			ColumnValues longValues = readValues(index);
+			return new BooleanValues(size, longValues);
+		}
+		case ColumnDataSnapshotWriter.NODE_TRANSFORMED:
+		{
+			ValueTransformer transformer = (ValueTransformer) index.readObject();
+			ColumnValues rawValues = readValues(index);
+			return new TransformedColumnValues(rawValues, transformer);
+		}
+		case ColumnDataSnapshotWriter.NODE_RUN_LENGTH:
+		{
+			int size = index.readInt();
+			ColumnValues values = readValues(index);
+			ColumnValues runLengths = readValues(index);
+			return new RunLengthColumnValues(size, values, runLengths);
+		}
+		case ColumnDataSnapshotWriter.NODE_BIG_DECIMALS:
+		{
+			ColumnValues unscaledValues = readValues(index);
+			ColumnValues scaleValues = readValues(index);
+			return new BigDecimalValues(unscaledValues, scaleValues);
+		}
+		case ColumnDataSnapshotWriter.NODE_TIMESTAMPS:
+		{
+			ColumnValues timeValues = readValues(index);
+			ColumnValues nanoValues = readValues(index);
+			return new TimestampValues(timeValues, nanoValues);
+		}
+		case ColumnDataSnapshotWriter.NODE_CONSTANT:
+		{
+			int size = index.readInt();
+			Object value = index.readObject();
+			return new ConstantColumnValue(size, value);
+		}
+		case ColumnDataSnapshotWriter.NODE_SINGLE:
+		{
+			Object value = index.readObject();
+			return new SingleObjectValue(value);
+		}
+		case ColumnDataSnapshotWriter.NODE_EMPTY:
+		{
+			return EmptyColumnValues.instance();
+		}
+		case ColumnDataSnapshotWriter.NODE_DATA:
+		{
+			int size = index.readInt();
+			long offset = index.readLong();
+			int length = index.readInt();
+			
+			int segmentIndex = (int) (offset / segmentSize);
+			int segmentOffset = (int) (offset % segmentSize);
+			if (segmentIndex >= segments.length || segmentOffset + length > segments[segmentIndex].capacity())
+			{
+				throw invalidFile();
+			}
+			return new MappedColumnValues(size, segmentIndex, segmentOffset, length);
+		}
+		default:
+			throw invalidFile();
+		}
+	}
+	
+	protected ByteBuffer region(long offset, long length) throws DataSnapshotException
+	{
+		if (offset < 0 || length < 0)
+		{
+			throw invalidFile();
+		}
+		
+		int segmentIndex = (int) (offset / segmentSize);
+		int segmentOffset = (int) (offset % segmentSize);
+		if (segmentIndex >= segments.length || segmentOffset + length > segments[segmentIndex].capacity())
+		{
+			throw invalidFile();
+		}
+		
+		ByteBuffer buffer = segments[segmentIndex].duplicate();
+		buffer.position(segmentOffset);
+		buffer.limit(segmentOffset + (int) length);
+		return buffer.slice();
+	}
+	
+	protected DataSnapshotException invalidFile()
+	{
+		return new DataSnapshotException(EXCEPTION_MESSAGE_KEY_INVALID_FILE, new Object[]{file});
+	}
+
+	@Override
+	public boolean hasCachedData(Object key)
+	{
+		return cachedData.containsKey(key);
+	}
+
+	@Override
+	public CachedDataset getCachedData(Object key) throws DataSnapshotException
+	{
+		MappedCacheData data = cachedData.get(key);
+		if (data == null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("No cached data exists for " + key);
+			}
+			
+			return null;
+		}
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("Found mapped cached data source of " + data.size() + " records for " + key);
+		}
+		
+		IndexedDataSource dataSource = data.createDataSource();
+		return new StandardCachedDataset(dataSource, data.getParameters());
+	}
+
+	/**
+	 * Returns <code>false</code> as the snapshot is backed by mapped file data.
+	 * The snapshot file can be shared instead.
+	 */
+	@Override
+	public boolean isPersistable()
+	{
+		return false;
+	}
+	
+	public File getFile()
+	{
+		return file;
+	}
+	
+	protected ColumnValues readRegion(int segmentIndex, int segmentOffset, int length)
+	{
+		ByteBuffer buffer = segments[segmentIndex].duplicate();
+		buffer.position(segmentOffset);
+		buffer.limit(segmentOffset + length);
+		
+		try
+		{
+			ObjectInputStream in = new ContextClassLoaderObjectInputStream(jasperReportsContext, 
+					new ByteBufferInputStream(buffer));
+			return (ColumnValues) in.readObject();
+		}
+		catch (IOException e)
+		{
+			throw new JRRuntimeException(e);
+		}
+		catch (ClassNotFoundException e)
+		{
+			throw new JRRuntimeException(e);
+		}
+	}
+	
+	protected static class MappedCacheData implements ColumnCacheData
+	{
+		private final String[] fieldNames;
+		private final int size;
+		private final ColumnValues[] values;
+		private final Map<String, Object> parameters;
+		
+		public MappedCacheData(String[] fieldNames, int size, ColumnValues[] values,
+				Map<String, Object> parameters)
+		{
+			this.fieldNames = fieldNames;
+			this.size = size;
+			this.values = values;
+			this.parameters = parameters;
+		}
+
+		@Override
+		public boolean isSerializable()
+		{
+			return false;
+		}
+
+		@Override
+		public Map<String, Object> getParameters()
+		{
+			return parameters;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public IndexedDataSource createDataSource()
+		{
+			return new ColumnValuesDataSource(fieldNames, size, values);
+		}
+	}
+	
+	protected class MappedColumnValues implements ColumnValues
+	{
+		private final int size;
+		private final int segmentIndex;
+		private final int segmentOffset;
+		private final int length;
+		private SoftReference<ColumnValues> loadedValues;
+		
+		public MappedColumnValues(int size, int segmentIndex, int segmentOffset, int length)
+		{
+			this.size = size;
+			this.segmentIndex = segmentIndex;
+			this.segmentOffset = segmentOffset;
+			this.length = length;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public ColumnValuesIterator iterator()
+		{
+			return new MappedValuesIterator(this);
+		}
+		
+		protected synchronized ColumnValues load()
+		{
+			ColumnValues values = loadedValues == null ? null : loadedValues.get();
+			if (values == null)
+			{
+				values = readRegion(segmentIndex, segmentOffset, length);
+				loadedValues = new SoftReference<ColumnValues>(values);
+			}
+			return values;
+		}
+	}
+	
+	protected static class MappedValuesIterator implements ColumnValuesIterator
+	{
+		private final MappedColumnValues values;
+		private ColumnValuesIterator iterator;
+		
+		public MappedValuesIterator(MappedColumnValues values)
+		{
+			this.values = values;
+		}
+
+		@Override
+		public void moveFirst()
+		{
+			if (iterator != null)
+			{
+				iterator.moveFirst();
+			}
+		}
+
+		@Override
+		public boolean next()
+		{
+			if (iterator == null)
+			{
+				// deserializing the values when first needed
+				iterator = values.load().iterator();
+			}
+			return iterator.next();
+		}
+
+		@Override
+		public Object get()
+		{
+			if (iterator == null)
+			{
+				throw new IllegalStateException();
+			}
+			return iterator.get();
+		}
+	}
+	
+	protected static class MappedNumberValues implements ColumnValues
+	{
+		private final int size;
+		private final int valueSize;
+		private final long linearFactor;
+		private final long linearOffset;
+		private final ByteBuffer buffer;
+		
+		public MappedNumberValues(int size, int valueSize, long linearFactor, long linearOffset, 
+				ByteBuffer buffer)
+		{
+			this.size = size;
+			this.valueSize = valueSize;
+			this.linearFactor = linearFactor;
+			this.linearOffset = linearOffset;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public ColumnValuesIterator iterator()
+		{
+			return new IndexColumnValueIterator(size)
+			{
+				@Override
+				public Object get()
+				{
+					// same conversion as in ByteArrayValues, ShortArrayValues, IntArrayValues and LongArrayValues
+					long value;
+					switch (valueSize)
+					{
+					case 1:
+						value = buffer.get(currentIndex) & 0xFF;
+						break;
+					case 2:
+						value = buffer.getShort(currentIndex * 2) & 0xFFFF;
+						break;
+					case 4:
+						value = buffer.getInt(currentIndex * 4) & 0xFFFFFFFFL;
+						break;
+					default:
+						value = buffer.getLong(currentIndex * 8);
+						break;
+					}
+					return value * linearFactor + linearOffset;
+				}
+			};
+		}
+	}
+	
+	protected static class MappedDoubleValues implements ColumnValues
+	{
+		private final int size;
+		private final ByteBuffer buffer;
+		
+		public MappedDoubleValues(int size, ByteBuffer buffer)
+		{
+			this.size = size;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public ColumnValuesIterator iterator()
+		{
+			return new IndexColumnValueIterator(size)
+			{
+				@Override
+				public Object get()
+				{
+					return buffer.getDouble(currentIndex * 8);
+				}
+			};
+		}
+	}
+	
+	protected static class MappedFloatValues implements ColumnValues
+	{
+		private final int size;
+		private final ByteBuffer buffer;
+		
+		public MappedFloatValues(int size, ByteBuffer buffer)
+		{
+			this.size = size;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public ColumnValuesIterator iterator()
+		{
+			return new IndexColumnValueIterator(size)
+			{
+				@Override
+				public Object get()
+				{
+					return buffer.getFloat(currentIndex * 4);
+				}
+			};
+		}
+	}
+	
+	protected static class MappedStringValues implements ColumnValues
+	{
+		private final int size;
+		private final ByteBuffer buffer;
+		
+		public MappedStringValues(int size, ByteBuffer buffer)
+		{
+			this.size = size;
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int size()
+		{
+			return size;
+		}
+
+		@Override
+		public ColumnValuesIterator iterator()
+		{
+			return new MappedStringIterator(size, buffer);
+		}
+	}
+	
+	protected static class MappedStringIterator extends IndexColumnValueIterator
+	{
+		private final ByteBuffer buffer;
+		private int position;
+		private int length;
+		
+		public MappedStringIterator(int size, ByteBuffer buffer)
+		{
+			super(size);
+			this.buffer = buffer;
+		}
+
+		@Override
+		public void moveFirst()
+		{
+			super.moveFirst();
+			position = 0;
+			length = 0;
+		}
+
+		@Override
+		public boolean next()
+		{
+			if (currentIndex >= 0)
+			{
+				// skipping the current value
+				position += 4 + Math.max(length, 0);
+			}
+			
+			if (!super.next())
+			{
+				return false;
+			}
+			
+			length = buffer.getInt(position);
+			return true;
+		}
+
+		@Override
+		public Object get()
+		{
+			if (length == ColumnDataSnapshotWriter.NULL_STRING_LENGTH)
+			{
+				return null;
+			}
+			
+			ByteBuffer value = buffer.duplicate();
+			value.position(position + 4);
+			value.limit(position + 4 + length);
+			return ColumnDataSnapshotWriter.STRING_CHARSET.decode(value).toString();
+		}
+	}
+	
+	protected static class ByteBufferInputStream extends InputStream
+	{
+		private final ByteBuffer buffer;
+		
+		public ByteBufferInputStream(ByteBuffer buffer)
+		{
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read()
+		{
+			return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len)
+		{
+			if (len == 0)
+			{
+				return 0;
+			}
+			
+			if (!buffer.hasRemaining())
+			{
+				return -1;
+			}
+			
+			int count = Math.min(len, buffer.remaining());
+			buffer.get(b, off, count);
+			return count;
+		}
+
+		@Override
+		public int available()
+		{
+			return buffer.remaining();
+		}
+	}
+}
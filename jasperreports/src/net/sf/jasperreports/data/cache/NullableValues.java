@@ -63,6 +63,16 @@ public class NullableValues implements ColumnValues, Serializable
 		return nullValues.size();
 	}
 
+	public ColumnValues getNullValues()
+	{
+		return nullValues;
+	}
+
+	public ColumnValues getValues()
+	{
+		return values;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
@@ -23,6 +23,9 @@
  */
 package net.sf.jasperreports.data.cache;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -42,11 +45,47 @@ public class ObjectArrayStore<T> implements BufferColumnStore, ArrayStore
 	
 	private RunLengthStore runLengthStore;
 	
+	private final int dictionaryMaxSize;
+	private ValueDictionary dictionary;
+	private Map<Object, Integer> dictionaryCodes;
+	private int dictionarySize;
+	
+	private int valueCount;
+	private int encodedValueCount;
+	private long encodedCodeBytes;
+	
 	public ObjectArrayStore(Class<T> valuesType, int size)
+	{
+		this(valuesType, size, 0);
+	}
+	
+	/**
+	 * Creates a store that can use dictionary encoding for the values.
+	 * 
+	 * <p>
+	 * The values are stored as codes from a dictionary shared by all the column blocks
+	 * as long as the number of distinct values does not exceed the maximum dictionary size.
+	 * When the limit is exceeded, the store reverts to object arrays for the subsequent blocks.
+	 * </p>
+	 * 
+	 * @param valuesType the values type
+	 * @param size the buffer size
+	 * @param dictionaryMaxSize the maximum number of distinct values for which dictionary 
+	 * encoding is used, 0 if dictionary encoding should not be used
+	 */
+	public ObjectArrayStore(Class<T> valuesType, int size, int dictionaryMaxSize)
 	{
 		this.valuesType = valuesType;
 		this.values = new Object[size];
 		this.runLengthStore = new RunLengthStore(this);
+		
+		this.dictionaryMaxSize = dictionaryMaxSize;
+		if (dictionaryMaxSize > 0)
+		{
+			dictionary = new ValueDictionary();
+			dictionaryCodes = new HashMap<Object, Integer>();
+		}
+		
 		reset();
 	}
 	
@@ -101,6 +140,27 @@ public class ObjectArrayStore<T> implements BufferColumnStore, ArrayStore
 	{
 		values[count] = object;
 		++count;
+		++valueCount;
+		
+		if (dictionaryCodes != null && !dictionaryCodes.containsKey(object))
+		{
+			if (dictionary.size() >= dictionaryMaxSize)
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug(this + ": more than " + dictionaryMaxSize + " distinct values, not using dictionary");
+				}
+				
+				// blocks already created keep referencing the dictionary
+				dictionary = null;
+				dictionaryCodes = null;
+			}
+			else
+			{
+				dictionaryCodes.put(object, dictionary.add(object));
+				dictionarySize = dictionary.size();
+			}
+		}
 		
 		runLengthStore.valueAdded();
 	}
@@ -159,9 +219,17 @@ public class ObjectArrayStore<T> implements BufferColumnStore, ArrayStore
 			log.debug(this + ": creating values of size " + count);
 		}
 		
-		Object[] objectValues = new Object[count];
-		System.arraycopy(values, 0, objectValues, 0, count);
-		ObjectArrayValues colValues = new ObjectArrayValues(objectValues);
+		ColumnValues colValues;
+		if (dictionaryCodes != null)
+		{
+			colValues = createDictionaryValues();
+		}
+		else
+		{
+			Object[] objectValues = new Object[count];
+			System.arraycopy(values, 0, objectValues, 0, count);
+			colValues = new ObjectArrayValues(objectValues);
+		}
 		
 		ColumnValues finalValues;
 		if (runLengthValues == null)
@@ -175,6 +243,69 @@ public class ObjectArrayStore<T> implements BufferColumnStore, ArrayStore
 		return finalValues;
 	}
 
+	protected ColumnValues createDictionaryValues()
+	{
+		long[] codes = new long[count];
+		for (int i = 0; i < count; i++)
+		{
+			codes[i] = dictionaryCodes.get(values[i]);
+		}
+		
+		ValueLength codeLength = ValueLength.getNumberLength(dictionary.size() - 1);
+		ColumnValues codeValues = NumberValuesUtils.instance().toValues(count, codes, codeLength, 1, 0);
+		
+		encodedValueCount += count;
+		encodedCodeBytes += (long) count * codeLength.byteLength();
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug(this + ": dictionary of size " + dictionary.size() + ", code length " + codeLength);
+		}
+		
+		return new DictionaryValues(dictionary, codeValues);
+	}
+
+	/**
+	 * Returns the total number of values added to the store.
+	 */
+	public int getValueCount()
+	{
+		return valueCount;
+	}
+
+	/**
+	 * Returns the number of values (after applying run lengths) stored as dictionary codes.
+	 */
+	public int getEncodedValueCount()
+	{
+		return encodedValueCount;
+	}
+
+	/**
+	 * Returns the size of the dictionary codes.
+	 */
+	public long getEncodedCodeBytes()
+	{
+		return encodedCodeBytes;
+	}
+
+	/**
+	 * Returns the number of distinct values in the dictionary, 
+	 * or the number reached before the dictionary was dropped.
+	 */
+	public int getDictionarySize()
+	{
+		return dictionarySize;
+	}
+
+	/**
+	 * Determines whether the store still uses dictionary encoding.
+	 */
+	public boolean isDictionaryEncoding()
+	{
+		return dictionaryCodes != null;
+	}
+
 	@Override
 	public String toString()
 	{
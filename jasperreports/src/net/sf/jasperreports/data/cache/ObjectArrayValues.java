@@ -69,6 +69,11 @@ public class ObjectArrayValues implements ColumnValues, Serializable
 		return values.length;
 	}
 
+	public Object[] getValues()
+	{
+		return values;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
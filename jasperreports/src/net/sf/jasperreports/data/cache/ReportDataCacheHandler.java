@@ -0,0 +1,55 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.util.Map;
+
+import net.sf.jasperreports.engine.JasperReport;
+
+/**
+ * Data cache handler that is notified when a report fill starts and ends.
+ * 
+ * <p>
+ * The fill start notification is received before the handler is asked for a data snapshot
+ * or for a data recorder, so that the handler can select the snapshot based on the report
+ * and on the fill parameter values.
+ * </p>
+ */
+public interface ReportDataCacheHandler extends DataCacheHandler
+{
+
+	/**
+	 * Called when a report fill that uses the handler starts.
+	 * 
+	 * @param report the report being filled
+	 * @param parameterValues the fill parameter values
+	 */
+	void fillStarted(JasperReport report, Map<String, Object> parameterValues);
+
+	/**
+	 * Called when the report fill ends, whether successful or not.
+	 */
+	void fillEnded();
+	
+}
@@ -74,6 +74,16 @@ public class RunLengthColumnValues implements ColumnValues, Serializable
 		return size;
 	}
 
+	public ColumnValues getValues()
+	{
+		return values;
+	}
+
+	public ColumnValues getRunLengths()
+	{
+		return runLengths;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
@@ -0,0 +1,153 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.engine.JasperReport;
+
+/**
+ * Data cache handler that shares data snapshots between report fills via a {@link SharedDataSnapshotCache}.
+ * 
+ * <p>
+ * Fills of the same report with the same parameter values use the snapshot recorded by
+ * the first fill.
+ * All fills sharing a cache are expected to read the data from the same sources, as
+ * connections and other parameters that cannot be compared by value are not part of the key.
+ * </p>
+ * 
+ * <p>
+ * The handler keeps the state of a single fill, a new instance should be used for each fill.
+ * </p>
+ */
+public class SharedDataCacheHandler implements ReportDataCacheHandler
+{
+	
+	private static final Log log = LogFactory.getLog(SharedDataCacheHandler.class);
+
+	private final SharedDataSnapshotCache cache;
+	
+	private DataSnapshot snapshot;
+	private SharedDataSnapshotCache.Population population;
+	private RecordingHandler recordingHandler;
+	
+	public SharedDataCacheHandler()
+	{
+		this(SharedDataSnapshotCache.getDefaultInstance());
+	}
+	
+	public SharedDataCacheHandler(SharedDataSnapshotCache cache)
+	{
+		this.cache = cache;
+	}
+
+	@Override
+	public void fillStarted(JasperReport report, Map<String, Object> parameterValues)
+	{
+		DataSnapshotCacheKey key = DataSnapshotCacheKey.create(report, parameterValues);
+		if (key == null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("fill of report " + report.getName() + " does not use the shared data cache");
+			}
+			return;
+		}
+		
+		fillStarted(cache.lookup(key));
+	}
+	
+	protected void fillStarted(SharedDataSnapshotCache.Lookup lookup)
+	{
+		snapshot = lookup.getSnapshot();
+		population = lookup.getPopulation();
+		if (population != null)
+		{
+			recordingHandler = new RecordingHandler();
+		}
+	}
+
+	@Override
+	public void fillEnded()
+	{
+		if (population != null)
+		{
+			cache.release(population);
+			population = null;
+		}
+	}
+
+	@Override
+	public boolean isRecordingEnabled()
+	{
+		return recordingHandler != null && recordingHandler.isRecordingEnabled();
+	}
+
+	@Override
+	public DataRecorder createDataRecorder()
+	{
+		if (recordingHandler == null)
+		{
+			throw new UnsupportedOperationException();
+		}
+		
+		return recordingHandler.createDataRecorder();
+	}
+
+	@Override
+	public boolean isSnapshotPopulated()
+	{
+		return snapshot != null;
+	}
+
+	@Override
+	public DataSnapshot getDataSnapshot()
+	{
+		return snapshot;
+	}
+	
+	public SharedDataSnapshotCache getCache()
+	{
+		return cache;
+	}
+	
+	protected class RecordingHandler extends ColumnDataCacheHandler
+	{
+		@Override
+		protected void setDataSnapshot(DataSnapshot dataSnapshot)
+		{
+			super.setDataSnapshot(dataSnapshot);
+			
+			if (population != null)
+			{
+				cache.publish(population, dataSnapshot);
+				population = null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,538 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.JRPropertiesMap;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
+import net.sf.jasperreports.properties.PropertyConstants;
+
+/**
+ * Process wide cache of data snapshots shared by report fills.
+ * 
+ * <p>
+ * The cache holds a limited number of snapshots, evicting the least recently used ones,
+ * and discards snapshots older than a configured time to live.
+ * Concurrent fills that look up the same key while the data is being recorded wait for
+ * the snapshot produced by the first fill instead of running the same queries.
+ * If the first fill fails or does not end within the configured wait timeout,
+ * the waiting fills run without cached data.
+ * </p>
+ * 
+ * @see SharedDataCacheHandler
+ */
+public class SharedDataSnapshotCache
+{
+	
+	private static final Log log = LogFactory.getLog(SharedDataSnapshotCache.class);
+
+	/**
+	 * Property that specifies the maximum number of data snapshots kept by the default shared cache.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_DATA_CACHE,
+			defaultValue = "100",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_MAX_ENTRIES = JRPropertiesUtil.PROPERTY_PREFIX + "data.cache.shared.max.entries";
+
+	/**
+	 * Property that specifies the time in milliseconds after which data snapshots are discarded
+	 * from the default shared cache.
+	 * 
+	 * <p>
+	 * A value of 0 indicates that snapshots do not expire.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_DATA_CACHE,
+			defaultValue = "600000",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Long.class
+			)
+	public static final String PROPERTY_TIME_TO_LIVE = JRPropertiesUtil.PROPERTY_PREFIX + "data.cache.shared.ttl";
+
+	/**
+	 * Property that specifies the time in milliseconds that a fill waits for the snapshot
+	 * recorded by a concurrent fill of the same report before running without cached data.
+	 * 
+	 * <p>
+	 * A value of 0 indicates that fills do not wait for concurrent fills.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_DATA_CACHE,
+			defaultValue = "60000",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Long.class
+			)
+	public static final String PROPERTY_WAIT_TIMEOUT = JRPropertiesUtil.PROPERTY_PREFIX + "data.cache.shared.wait.timeout";
+	
+	private static final int DEFAULT_MAX_ENTRIES = 100;
+	private static final long DEFAULT_TIME_TO_LIVE = 600000L;
+	private static final long DEFAULT_WAIT_TIMEOUT = 60000L;
+	
+	private static volatile SharedDataSnapshotCache defaultInstance;
+	
+	/**
+	 * Returns the default shared cache, created on first use based on the properties of the
+	 * default JasperReports context.
+	 * 
+	 * @return the default shared cache
+	 */
+	public static SharedDataSnapshotCache getDefaultInstance()
+	{
+		SharedDataSnapshotCache cache = defaultInstance;
+		if (cache == null)
+		{
+			synchronized (SharedDataSnapshotCache.class)
+			{
+				cache = defaultInstance;
+				if (cache == null)
+				{
+					JRPropertiesUtil properties = JRPropertiesUtil.getInstance(DefaultJasperReportsContext.getInstance());
+					int maxEntries = properties.getIntegerProperty(PROPERTY_MAX_ENTRIES, DEFAULT_MAX_ENTRIES);
+					long timeToLive = properties.getLongProperty((JRPropertiesMap) null, 
+							PROPERTY_TIME_TO_LIVE, DEFAULT_TIME_TO_LIVE);
+					long waitTimeout = properties.getLongProperty((JRPropertiesMap) null, 
+							PROPERTY_WAIT_TIMEOUT, DEFAULT_WAIT_TIMEOUT);
+					cache = new SharedDataSnapshotCache(maxEntries, timeToLive, waitTimeout);
+					defaultInstance = cache;
+				}
+			}
+		}
+		return cache;
+	}
+	
+	private final int maxEntries;
+	private final long timeToLive;
+	private final long waitTimeout;
+	
+	private final LinkedHashMap<DataSnapshotCacheKey, Entry> entries;
+	private final Map<DataSnapshotCacheKey, Population> populations;
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong waitCount = new AtomicLong();
+	private final AtomicLong waitTimeoutCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong expirationCount = new AtomicLong();
+	
+	/**
+	 * Creates a shared cache.
+	 * 
+	 * @param maxEntries the maximum number of snapshots kept in the cache
+	 * @param timeToLive the time in milliseconds after which snapshots are discarded, 0 for no expiration
+	 */
+	public SharedDataSnapshotCache(int maxEntries, long timeToLive)
+	{
+		this(maxEntries, timeToLive, DEFAULT_WAIT_TIMEOUT);
+	}
+	
+	/**
+	 * Creates a shared cache.
+	 * 
+	 * @param maxEntries the maximum number of snapshots kept in the cache
+	 * @param timeToLive the time in milliseconds after which snapshots are discarded, 0 for no expiration
+	 * @param waitTimeout the time in milliseconds that lookups wait for a snapshot recorded by
+	 * a concurrent fill, 0 for not waiting
+	 */
+	public SharedDataSnapshotCache(int maxEntries, long timeToLive, long waitTimeout)
+	{
+		this.maxEntries = maxEntries;
+		this.timeToLive = timeToLive;
+		this.waitTimeout = waitTimeout;
+		
+		this.entries = new LinkedHashMap<DataSnapshotCacheKey, Entry>(16, 0.75f, true);
+		this.populations = new LinkedHashMap<DataSnapshotCacheKey, Population>();
+	}
+	
+	/**
+	 * Looks up a snapshot in the cache.
+	 * 
+	 * <p>
+	 * If the snapshot is not found and no other fill is recording data for the key, the caller becomes
+	 * responsible for populating the snapshot via {@link #publish(Population, DataSnapshot)} or
+	 * {@link #release(Population)}.
+	 * If another fill is recording data for the key, the method waits for it to end, for at most
+	 * the wait timeout.
+	 * If the other fill fails or does not end in time, the result contains neither a snapshot
+	 * nor a population, and the caller is expected to fill the report without cached data.
+	 * </p>
+	 * 
+	 * @param key the snapshot key
+	 * @return the lookup result
+	 */
+	public Lookup lookup(DataSnapshotCacheKey key)
+	{
+		Population population;
+		synchronized (this)
+		{
+			Entry entry = entries.get(key);
+			if (entry != null)
+			{
+				if (isExpired(entry))
+				{
+					entries.remove(key);
+					expirationCount.incrementAndGet();
+					
+					if (log.isDebugEnabled())
+					{
+						log.debug("snapshot expired for " + key);
+					}
+				}
+				else
+				{
+					hitCount.incrementAndGet();
+					return new Lookup(entry.snapshot, null);
+				}
+			}
+			
+			population = populations.get(key);
+			if (population == null)
+			{
+				missCount.incrementAndGet();
+				
+				population = new Population(key);
+				populations.put(key, population);
+				
+				if (log.isDebugEnabled())
+				{
+					log.debug("populating snapshot for " + key);
+				}
+				
+				return new Lookup(null, population);
+			}
+		}
+		
+		waitCount.incrementAndGet();
+		if (log.isDebugEnabled())
+		{
+			log.debug("waiting for snapshot of " + key);
+		}
+		
+		DataSnapshot snapshot = null;
+		if (population.await(waitTimeout))
+		{
+			snapshot = population.getSnapshot();
+		}
+		else
+		{
+			waitTimeoutCount.incrementAndGet();
+			
+			if (log.isDebugEnabled())
+			{
+				log.debug("timed out waiting for snapshot of " + key);
+			}
+		}
+		
+		if (snapshot == null)
+		{
+			// the population failed or is taking too long, not caching data for this fill
+			missCount.incrementAndGet();
+		}
+		return new Lookup(snapshot, null);
+	}
+	
+	/**
+	 * Adds a snapshot recorded by a fill to the cache, and passes it to the fills that wait for it.
+	 * 
+	 * @param population the population obtained from {@link #lookup(DataSnapshotCacheKey)}
+	 * @param snapshot the recorded snapshot
+	 */
+	public void publish(Population population, DataSnapshot snapshot)
+	{
+		synchronized (this)
+		{
+			if (populations.get(population.key) == population)
+			{
+				populations.remove(population.key);
+				
+				if (snapshot != null && maxEntries > 0)
+				{
+					entries.put(population.key, new Entry(snapshot, System.currentTimeMillis()));
+					evict();
+				}
+			}
+		}
+		
+		population.complete(snapshot);
+	}
+	
+	/**
+	 * Ends a population that did not produce a snapshot.
+	 * 
+	 * @param population the population obtained from {@link #lookup(DataSnapshotCacheKey)}
+	 */
+	public void release(Population population)
+	{
+		if (!population.isCompleted())
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("snapshot not populated for " + population.key);
+			}
+			
+			publish(population, null);
+		}
+	}
+	
+	protected void evict()
+	{
+		for (Iterator<Map.Entry<DataSnapshotCacheKey, Entry>> it = entries.entrySet().iterator(); 
+				it.hasNext() && entries.size() > maxEntries;)
+		{
+			Map.Entry<DataSnapshotCacheKey, Entry> eldest = it.next();
+			it.remove();
+			evictionCount.incrementAndGet();
+			
+			if (log.isDebugEnabled())
+			{
+				log.debug("evicted snapshot for " + eldest.getKey());
+			}
+		}
+	}
+	
+	protected boolean isExpired(Entry entry)
+	{
+		return timeToLive > 0 && System.currentTimeMillis() - entry.created > timeToLive;
+	}
+	
+	/**
+	 * Removes the snapshot for a key.
+	 * 
+	 * @param key the snapshot key
+	 */
+	public synchronized void invalidate(DataSnapshotCacheKey key)
+	{
+		entries.remove(key);
+	}
+	
+	/**
+	 * Removes all the snapshots recorded for a report.
+	 * 
+	 * @param reportUUID the report UUID
+	 */
+	public synchronized void invalidateReport(UUID reportUUID)
+	{
+		for (Iterator<DataSnapshotCacheKey> it = entries.keySet().iterator(); it.hasNext();)
+		{
+			DataSnapshotCacheKey key = it.next();
+			if (reportUUID.equals(key.getReportUUID()))
+			{
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Removes all the snapshots from the cache.
+	 */
+	public synchronized void invalidateAll()
+	{
+		entries.clear();
+	}
+	
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+	
+	public int getMaxEntries()
+	{
+		return maxEntries;
+	}
+
+	public long getTimeToLive()
+	{
+		return timeToLive;
+	}
+
+	public long getWaitTimeout()
+	{
+		return waitTimeout;
+	}
+
+	/**
+	 * Returns the number of lookups that found a snapshot in the cache.
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of lookups that did not produce a snapshot.
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	/**
+	 * Returns the number of lookups that waited for a snapshot recorded by a concurrent fill.
+	 */
+	public long getWaitCount()
+	{
+		return waitCount.get();
+	}
+
+	/**
+	 * Returns the number of lookups that stopped waiting for a concurrent fill after the wait timeout.
+	 */
+	public long getWaitTimeoutCount()
+	{
+		return waitTimeoutCount.get();
+	}
+
+	public long getEvictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	public long getExpirationCount()
+	{
+		return expirationCount.get();
+	}
+	
+	protected static class Entry
+	{
+		private final DataSnapshot snapshot;
+		private final long created;
+		
+		public Entry(DataSnapshot snapshot, long created)
+		{
+			this.snapshot = snapshot;
+			this.created = created;
+		}
+	}
+	
+	/**
+	 * Result of a cache lookup.
+	 */
+	public static class Lookup
+	{
+		private final DataSnapshot snapshot;
+		private final Population population;
+		
+		protected Lookup(DataSnapshot snapshot, Population population)
+		{
+			this.snapshot = snapshot;
+			this.population = population;
+		}
+
+		/**
+		 * Returns the cached snapshot, if found.
+		 */
+		public DataSnapshot getSnapshot()
+		{
+			return snapshot;
+		}
+
+		/**
+		 * Returns the population that the caller is responsible for, if the snapshot was not found.
+		 */
+		public Population getPopulation()
+		{
+			return population;
+		}
+	}
+	
+	/**
+	 * Snapshot being recorded by a fill.
+	 */
+	public static class Population
+	{
+		private final DataSnapshotCacheKey key;
+		private final CountDownLatch latch;
+		private volatile DataSnapshot snapshot;
+		
+		protected Population(DataSnapshotCacheKey key)
+		{
+			this.key = key;
+			this.latch = new CountDownLatch(1);
+		}
+		
+		public DataSnapshotCacheKey getKey()
+		{
+			return key;
+		}
+		
+		protected void complete(DataSnapshot snapshot)
+		{
+			if (latch.getCount() > 0)
+			{
+				this.snapshot = snapshot;
+				latch.countDown();
+			}
+		}
+		
+		protected boolean isCompleted()
+		{
+			return latch.getCount() == 0;
+		}
+		
+		/**
+		 * Waits for the population to end.
+		 * 
+		 * @param timeout the maximum time to wait in milliseconds
+		 * @return whether the population ended
+		 */
+		protected boolean await(long timeout)
+		{
+			try
+			{
+				return latch.await(timeout, TimeUnit.MILLISECONDS);
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		
+		protected DataSnapshot getSnapshot()
+		{
+			return snapshot;
+		}
+	}
+
+}
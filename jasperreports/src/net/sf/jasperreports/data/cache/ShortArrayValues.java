@@ -79,6 +79,21 @@ public class ShortArrayValues implements ColumnValues, Serializable
 		return values.length;
 	}
 
+	public short[] getValues()
+	{
+		return values;
+	}
+
+	public long getLinearFactor()
+	{
+		return linearFactor;
+	}
+
+	public long getLinearOffset()
+	{
+		return linearOffset;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
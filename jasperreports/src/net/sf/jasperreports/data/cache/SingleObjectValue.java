@@ -59,6 +59,11 @@ public class SingleObjectValue implements ColumnValues, Serializable
 		return 1;
 	}
 
+	public Object getValue()
+	{
+		return value;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
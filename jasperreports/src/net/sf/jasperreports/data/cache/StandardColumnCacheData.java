@@ -157,6 +157,16 @@ public class StandardColumnCacheData implements Serializable, ColumnCacheData
 		return size;
 	}
 
+	public String[] getFieldNames()
+	{
+		return fieldNames;
+	}
+
+	public ColumnValues[] getValues()
+	{
+		return values;
+	}
+
 	/* (non-Javadoc)
 	 * @see net.sf.jasperreports.data.cache.ColumnCacheData#getParameters()
 	 */
@@ -69,6 +69,16 @@ public class TimestampValues implements ColumnValues, Serializable
 		return timeValues.size();
 	}
 
+	public ColumnValues getTimeValues()
+	{
+		return timeValues;
+	}
+
+	public ColumnValues getNanoValues()
+	{
+		return nanoValues;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
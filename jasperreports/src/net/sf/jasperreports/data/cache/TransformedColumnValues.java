@@ -65,6 +65,16 @@ public class TransformedColumnValues implements ColumnValues, Serializable
 		return rawValues.size();
 	}
 
+	public ColumnValues getRawValues()
+	{
+		return rawValues;
+	}
+
+	public ValueTransformer getTransformer()
+	{
+		return transformer;
+	}
+
 	@Override
 	public ColumnValuesIterator iterator()
 	{
@@ -54,6 +54,11 @@ public class TypedColumnStore implements ColumnStore
 	{
 		return baseType;
 	}
+
+	public ColumnStore getValueStore()
+	{
+		return valueStore;
+	}
 	
 	@Override
 	public void addValue(Object value)
@@ -0,0 +1,93 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jasperreports.engine.JRConstants;
+
+/**
+ * List of distinct column values, referenced by codes in {@link DictionaryValues}.
+ * 
+ * <p>
+ * A dictionary is shared by all the blocks of a column, values are only appended to it
+ * so that the codes used by previous blocks remain valid.
+ * </p>
+ */
+public class ValueDictionary implements Serializable
+{
+
+	private static final long serialVersionUID = JRConstants.SERIAL_VERSION_UID;
+	
+	private List<Object> values;
+	
+	public ValueDictionary()
+	{
+		this.values = new ArrayList<Object>();
+	}
+	
+	private void writeObject(java.io.ObjectOutputStream out) throws IOException
+	{
+		out.writeInt(values.size());
+		for (Object value : values)
+		{
+			out.writeObject(value);
+		}
+	}
+	
+	private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException
+	{
+		int size = in.readInt();
+		values = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++)
+		{
+			values.add(in.readObject());
+		}
+	}
+	
+	/**
+	 * Appends a value to the dictionary.
+	 * 
+	 * @param value the value
+	 * @return the code of the value
+	 */
+	public int add(Object value)
+	{
+		values.add(value);
+		return values.size() - 1;
+	}
+	
+	public Object get(int code)
+	{
+		return values.get(code);
+	}
+	
+	public int size()
+	{
+		return values.size();
+	}
+}
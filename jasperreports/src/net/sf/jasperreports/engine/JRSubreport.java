@@ -212,10 +212,12 @@ import net.sf.jasperreports.engine.type.OverflowType;
  * should point to a
  * {@link net.sf.jasperreports.engine.fill.JRSubreportRunnerFactory}
  * implementation able to produce the needed {@link net.sf.jasperreports.engine.fill.JRSubreportRunnable} 
- * objects at runtime. That could be one of the following two:
+ * objects at runtime. That could be one of the following:
  * <ul>
  * <li>{@link net.sf.jasperreports.engine.fill.JRContinuationSubreportRunnerFactory}</li>
  * <li>{@link net.sf.jasperreports.engine.fill.JRThreadSubreportRunnerFactory}</li>
+ * <li>{@link net.sf.jasperreports.engine.fill.VirtualThreadSubreportRunnerFactory} - fills
+ * subreports on virtual threads when running on Java 21 or newer</li>
  * </ul>
  * <p/>
  * The default value for the factory configuration property is
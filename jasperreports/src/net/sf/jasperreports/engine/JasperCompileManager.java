@@ -24,11 +24,23 @@
 package net.sf.jasperreports.engine;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
 
 import net.sf.jasperreports.crosstabs.JRCrosstab;
 import net.sf.jasperreports.engine.design.JRCompiler;
@@ -45,6 +57,7 @@ import net.sf.jasperreports.engine.util.JRLoader;
 import net.sf.jasperreports.engine.util.JRSaver;
 import net.sf.jasperreports.engine.xml.JRXmlLoader;
 import net.sf.jasperreports.engine.xml.JRXmlWriter;
+import net.sf.jasperreports.properties.PropertyConstants;
 
 
 /**
@@ -181,6 +194,28 @@ public final class JasperCompileManager
 	public static final String EXCEPTION_MESSAGE_KEY_REPORT_COMPILER_CLASS_NOT_FOUND = "engine.report.compiler.class.not.found";
 	public static final String EXCEPTION_MESSAGE_KEY_REPORT_COMPILER_NOT_SET = "engine.report.compiler.not.set";
 	
+	/**
+	 * Property that specifies the number of threads used by batch report compilation.
+	 * 
+	 * <p>
+	 * If the property is not set or has a value that is not positive,
+	 * the number of available processors is used.
+	 * </p>
+	 * 
+	 * @see #compileAll(Collection)
+	 * @see #compileFiles(Collection)
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_COMPILE,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_BATCH_PARALLELISM = JRPropertiesUtil.PROPERTY_PREFIX + "compiler.batch.parallelism";
+	
+	protected static final String JRXML_EXTENSION = ".jrxml";
+	
 	private JasperReportsContext jasperReportsContext;
 
 
@@ -373,6 +408,199 @@ public final class JasperCompileManager
 	}
 
 
+	/**
+	 * Compiles several report design objects in parallel.
+	 * <p>
+	 * The designs are verified and compiled on the threads of a fork-join pool
+	 * whose size is given by {@link #PROPERTY_BATCH_PARALLELISM}.
+	 * Errors do not stop the batch, they are reported in the result of each design.
+	 * </p>
+	 *
+	 * @param jasperDesigns report design objects
+	 * @return compilation results, in the order of the designs
+	 */
+	public List<ReportCompileResult> compileAll(Collection<JasperDesign> jasperDesigns)
+	{
+		List<Callable<ReportCompileResult>> tasks = new ArrayList<Callable<ReportCompileResult>>(jasperDesigns.size());
+		for (final JasperDesign jasperDesign : jasperDesigns)
+		{
+			tasks.add(new Callable<ReportCompileResult>()
+			{
+				@Override
+				public ReportCompileResult call()
+				{
+					ReportCompileResult result = new ReportCompileResult(jasperDesign.getName());
+					result.setDesign(jasperDesign);
+					compileDesign(result);
+					return result;
+				}
+			});
+		}
+		return compileBatch(tasks);
+	}
+
+
+	/**
+	 * Parses and compiles several JRXML files in parallel.
+	 * <p>
+	 * Parsing, verification and compilation of each file are done on the threads of a fork-join pool
+	 * whose size is given by {@link #PROPERTY_BATCH_PARALLELISM}.
+	 * Errors do not stop the batch, they are reported in the result of each file.
+	 * </p>
+	 *
+	 * @param sourceFiles JRXML files
+	 * @return compilation results, in the order of the files
+	 */
+	public List<ReportCompileResult> compileFiles(Collection<File> sourceFiles)
+	{
+		List<Callable<ReportCompileResult>> tasks = new ArrayList<Callable<ReportCompileResult>>(sourceFiles.size());
+		for (final File sourceFile : sourceFiles)
+		{
+			tasks.add(new Callable<ReportCompileResult>()
+			{
+				@Override
+				public ReportCompileResult call()
+				{
+					ReportCompileResult result = new ReportCompileResult(sourceFile.getPath());
+					long start = System.nanoTime();
+					try
+					{
+						result.setDesign(JRXmlLoader.load(jasperReportsContext, sourceFile));
+					}
+					catch (JRException | RuntimeException e)
+					{
+						result.setError(e);
+					}
+					result.setParseNanos(System.nanoTime() - start);
+					
+					if (result.getDesign() != null)
+					{
+						compileDesign(result);
+					}
+					return result;
+				}
+			});
+		}
+		return compileBatch(tasks);
+	}
+
+
+	/**
+	 * Parses and compiles in parallel all the JRXML files in a directory.
+	 * <p>
+	 * Subdirectories are not included.
+	 * When a {@link net.sf.jasperreports.engine.design.CompiledReportCache compiled report cache}
+	 * is configured, this can be used to populate the cache with a set of report templates.
+	 * </p>
+	 *
+	 * @param sourceDir the directory containing the JRXML files
+	 * @return compilation results, in the order of the file names
+	 * @see #compileFiles(Collection)
+	 */
+	public List<ReportCompileResult> compileDirectory(File sourceDir)
+	{
+		File[] sourceFiles = sourceDir.listFiles(new FileFilter()
+		{
+			@Override
+			public boolean accept(File file)
+			{
+				return file.isFile() && file.getName().endsWith(JRXML_EXTENSION);
+			}
+		});
+		
+		if (sourceFiles == null)
+		{
+			return new ArrayList<ReportCompileResult>();
+		}
+		
+		Arrays.sort(sourceFiles);
+		return compileFiles(Arrays.asList(sourceFiles));
+	}
+	
+	
+	protected void compileDesign(ReportCompileResult result)
+	{
+		long start = System.nanoTime();
+		try
+		{
+			result.setReport(compile(result.getDesign()));
+		}
+		catch (JRException | RuntimeException e)
+		{
+			result.setError(e);
+		}
+		result.setCompileNanos(System.nanoTime() - start);
+	}
+	
+	
+	protected List<ReportCompileResult> compileBatch(List<Callable<ReportCompileResult>> tasks)
+	{
+		List<ReportCompileResult> results = new ArrayList<ReportCompileResult>(tasks.size());
+		if (tasks.isEmpty())
+		{
+			return results;
+		}
+		
+		int parallelism = JRPropertiesUtil.getInstance(jasperReportsContext).getIntegerProperty(PROPERTY_BATCH_PARALLELISM, 0);
+		if (parallelism <= 0)
+		{
+			parallelism = Runtime.getRuntime().availableProcessors();
+		}
+		parallelism = Math.min(parallelism, tasks.size());
+		
+		ForkJoinPool pool = new ForkJoinPool(parallelism, 
+				new BatchCompileThreadFactory(Thread.currentThread().getContextClassLoader()), 
+				null, false);
+		try
+		{
+			List<ForkJoinTask<ReportCompileResult>> futures = new ArrayList<ForkJoinTask<ReportCompileResult>>(tasks.size());
+			for (Callable<ReportCompileResult> task : tasks)
+			{
+				futures.add(pool.submit(task));
+			}
+			
+			for (ForkJoinTask<ReportCompileResult> future : futures)
+			{
+				results.add(future.join());
+			}
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+		return results;
+	}
+	
+	
+	/**
+	 * Creates batch compilation threads that use the class loader of the calling thread,
+	 * as report compilers load classes through the context class loader.
+	 */
+	protected static class BatchCompileThreadFactory implements ForkJoinPool.ForkJoinWorkerThreadFactory
+	{
+		private final ClassLoader contextClassLoader;
+		private final AtomicInteger threadCount;
+		
+		public BatchCompileThreadFactory(ClassLoader contextClassLoader)
+		{
+			this.contextClassLoader = contextClassLoader;
+			this.threadCount = new AtomicInteger();
+		}
+
+		@Override
+		public ForkJoinWorkerThread newThread(ForkJoinPool pool)
+		{
+			ForkJoinWorkerThread thread = new ForkJoinWorkerThread(pool)
+			{
+			};
+			thread.setName("report compile #" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setContextClassLoader(contextClassLoader);
+			return thread;
+		}
+	}
+
+
 	/**
 	 * 
 	 */
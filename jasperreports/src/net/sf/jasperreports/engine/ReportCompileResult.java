@@ -0,0 +1,125 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine;
+
+import net.sf.jasperreports.engine.design.JasperDesign;
+
+/**
+ * Outcome of compiling one report in a batch compilation.
+ * 
+ * @see JasperCompileManager#compileAll(java.util.Collection)
+ */
+public class ReportCompileResult
+{
+	private final String source;
+	private JasperDesign design;
+	private JasperReport report;
+	private Exception error;
+	private long parseNanos;
+	private long compileNanos;
+	
+	public ReportCompileResult(String source)
+	{
+		this.source = source;
+	}
+
+	/**
+	 * Returns a description of the report source, either the JRXML file path or the report name.
+	 */
+	public String getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * Returns the report design, or <code>null</code> if the JRXML could not be parsed.
+	 */
+	public JasperDesign getDesign()
+	{
+		return design;
+	}
+
+	public void setDesign(JasperDesign design)
+	{
+		this.design = design;
+	}
+
+	/**
+	 * Returns the compiled report, or <code>null</code> if the report could not be compiled.
+	 */
+	public JasperReport getReport()
+	{
+		return report;
+	}
+
+	public void setReport(JasperReport report)
+	{
+		this.report = report;
+	}
+
+	/**
+	 * Returns the exception raised while parsing or compiling the report, if any.
+	 */
+	public Exception getError()
+	{
+		return error;
+	}
+
+	public void setError(Exception error)
+	{
+		this.error = error;
+	}
+	
+	public boolean isSuccessful()
+	{
+		return report != null;
+	}
+
+	/**
+	 * Returns the time spent parsing the JRXML, in nanoseconds.
+	 */
+	public long getParseNanos()
+	{
+		return parseNanos;
+	}
+
+	public void setParseNanos(long parseNanos)
+	{
+		this.parseNanos = parseNanos;
+	}
+
+	/**
+	 * Returns the time spent verifying and compiling the design, in nanoseconds.
+	 */
+	public long getCompileNanos()
+	{
+		return compileNanos;
+	}
+
+	public void setCompileNanos(long compileNanos)
+	{
+		this.compileNanos = compileNanos;
+	}
+	
+}
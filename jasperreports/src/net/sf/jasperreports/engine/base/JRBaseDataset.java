@@ -181,6 +181,16 @@ public class JRBaseDataset implements JRDataset, Serializable, JRChangeEventsSup
 		return uuid;
 	}
 	
+	/**
+	 * Sets the unique identifier of the dataset.
+	 * 
+	 * @param uuid the identifier
+	 */
+	public void setUUID(UUID uuid)
+	{
+		this.uuid = uuid;
+	}
+	
 	@Override
 	public String getName()
 	{
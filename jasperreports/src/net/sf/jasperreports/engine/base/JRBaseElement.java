@@ -208,6 +208,16 @@ public abstract class JRBaseElement implements JRElement, Serializable, JRChange
 		return uuid;
 	}
 
+	/**
+	 * Sets the unique identifier of the element.
+	 * 
+	 * @param uuid the identifier
+	 */
+	public void setUUID(UUID uuid)
+	{
+		this.uuid = uuid;
+	}
+
 	@Override
 	public String getKey()
 	{
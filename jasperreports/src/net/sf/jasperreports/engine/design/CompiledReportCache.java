@@ -0,0 +1,501 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.design;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
+import net.sf.jasperreports.engine.JRConstants;
+import net.sf.jasperreports.engine.JRDataset;
+import net.sf.jasperreports.engine.JRElement;
+import net.sf.jasperreports.engine.JRElementGroup;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
+import net.sf.jasperreports.engine.JRPropertiesUtil.PropertySuffix;
+import net.sf.jasperreports.engine.JRReport;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.base.JRBaseDataset;
+import net.sf.jasperreports.engine.base.JRBaseElement;
+import net.sf.jasperreports.engine.util.DigestUtils;
+import net.sf.jasperreports.engine.util.JRElementsVisitor;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.util.JRSaver;
+import net.sf.jasperreports.engine.util.UniformElementVisitor;
+import net.sf.jasperreports.engine.xml.JRXmlWriter;
+import net.sf.jasperreports.properties.PropertyConstants;
+
+/**
+ * On-disk store of compiled reports, keyed by the content of the report design.
+ * <p>
+ * The key of a compiled report is a digest of the design JRXML, of the report compiler class,
+ * of the compiler properties set in the context, of the classpath and of the
+ * JasperReports version.
+ * UUIDs are not part of the key, as designs loaded from JRXML files without UUIDs get
+ * random ones on every load.
+ * Instead, the element and dataset UUIDs of the design are set on the report loaded
+ * from the cache; dataset run UUIDs are the ones of the design that was first compiled.
+ * Compiled reports are saved as serialized objects in the directory set by
+ * {@link #PROPERTY_CACHE_DIR}, which can be shared by several processes as entries
+ * are written to temporary files and then moved to their final location.
+ * The number of entries is limited by {@link #PROPERTY_MAX_ENTRIES}.
+ * </p>
+ * 
+ * @see JRAbstractCompiler#compileReport(JasperDesign)
+ */
+public class CompiledReportCache
+{
+	private static final Log log = LogFactory.getLog(CompiledReportCache.class);
+	
+	public static final String EXCEPTION_MESSAGE_KEY_CACHE_DIR_NOT_FOUND = "compilers.cache.dir.not.found";
+
+	/**
+	 * Directory in which compiled reports are cached.
+	 * <p>
+	 * If set, report compilers that extend {@link JRAbstractCompiler} look up compiled reports
+	 * in the directory before compiling a report design, and store the reports they compile.
+	 * The directory is created if it does not exist.
+	 * </p>
+	 * <p>
+	 * No default value, compiled reports are not cached.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_COMPILE,
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0
+			)
+	public static final String PROPERTY_CACHE_DIR = JRPropertiesUtil.PROPERTY_PREFIX + "compiler.cache.dir";
+	
+	/**
+	 * The maximum number of compiled reports kept in the cache directory.
+	 * <p>
+	 * When a report is stored and the limit is exceeded, the least recently used entries
+	 * are deleted.
+	 * A value of 0 or less means no limit.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_COMPILE,
+			defaultValue = "1000",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_MAX_ENTRIES = JRPropertiesUtil.PROPERTY_PREFIX + "compiler.cache.max.entries";
+	
+	protected static final String FILE_EXTENSION = ".jasper";
+	
+	protected static final String COMPILER_PROPERTIES_PREFIX = JRPropertiesUtil.PROPERTY_PREFIX + "compiler.";
+	
+	private static final String CONTEXT_KEY_CACHE = CompiledReportCache.class.getName() + ".cache";
+	
+	/**
+	 * Returns the compiled report cache configured in a context.
+	 * 
+	 * @param jasperReportsContext the context
+	 * @return the cache, or <code>null</code> if {@link #PROPERTY_CACHE_DIR} is not set
+	 * @throws JRException if the cache directory cannot be created
+	 */
+	public static CompiledReportCache getInstance(JasperReportsContext jasperReportsContext) throws JRException
+	{
+		String cacheDir = JRPropertiesUtil.getInstance(jasperReportsContext).getProperty(PROPERTY_CACHE_DIR);
+		if (cacheDir == null || cacheDir.trim().isEmpty())
+		{
+			return null;
+		}
+		
+		File directory = new File(cacheDir.trim());
+		CompiledReportCache cache = (CompiledReportCache) jasperReportsContext.getOwnValue(CONTEXT_KEY_CACHE);
+		if (cache == null || !cache.getDirectory().equals(directory))
+		{
+			synchronized (jasperReportsContext)
+			{
+				cache = (CompiledReportCache) jasperReportsContext.getOwnValue(CONTEXT_KEY_CACHE);
+				if (cache == null || !cache.getDirectory().equals(directory))
+				{
+					if (log.isDebugEnabled())
+					{
+						log.debug("creating compiled report cache in " + directory + " for " + jasperReportsContext);
+					}
+					
+					cache = new CompiledReportCache(jasperReportsContext, directory);
+					jasperReportsContext.setValue(CONTEXT_KEY_CACHE, cache);
+				}
+			}
+		}
+		return cache;
+	}
+	
+	private final JasperReportsContext jasperReportsContext;
+	private final File directory;
+	
+	public CompiledReportCache(JasperReportsContext jasperReportsContext, File directory) throws JRException
+	{
+		this.jasperReportsContext = jasperReportsContext;
+		this.directory = directory;
+		
+		if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory())
+		{
+			throw 
+				new JRException(
+					EXCEPTION_MESSAGE_KEY_CACHE_DIR_NOT_FOUND,
+					new Object[]{directory});
+		}
+	}
+
+	public File getDirectory()
+	{
+		return directory;
+	}
+	
+	/**
+	 * Computes the cache key of a report design.
+	 * 
+	 * @param jasperDesign the report design
+	 * @param compilerClass the name of the class that compiles the design
+	 * @return the cache key, or <code>null</code> if the design could not be written as JRXML
+	 */
+	public String getKey(JasperDesign jasperDesign, String compilerClass)
+	{
+		String jrxml;
+		try
+		{
+			JRXmlWriter writer = new JRXmlWriter(jasperReportsContext);
+			// UUIDs are set on the loaded report, see setUUIDs
+			writer.setExcludeUuids(true);
+			jrxml = writer.write(jasperDesign, "UTF-8");
+		}
+		catch (RuntimeException e)
+		{
+			if (log.isWarnEnabled())
+			{
+				log.warn("Failed to write report " + jasperDesign.getName() + " for the compiled report cache", e);
+			}
+			return null;
+		}
+		
+		StringBuilder keyText = new StringBuilder(jrxml.length() + 128);
+		keyText.append(getVersion()).append('\n');
+		keyText.append(compilerClass).append('\n');
+		appendCompilerProperties(keyText);
+		keyText.append(System.getProperty("java.class.path")).append('\n');
+		keyText.append(jrxml);
+		return DigestUtils.instance().sha256Hex(keyText.toString());
+	}
+	
+	protected void appendCompilerProperties(StringBuilder keyText)
+	{
+		JRPropertiesUtil propertiesUtil = JRPropertiesUtil.getInstance(jasperReportsContext);
+		
+		// sorted so that the key does not depend on the order of the context properties
+		TreeMap<String, String> compilerProperties = new TreeMap<String, String>();
+		List<PropertySuffix> properties = propertiesUtil.getProperties(COMPILER_PROPERTIES_PREFIX);
+		for (PropertySuffix property : properties)
+		{
+			compilerProperties.put(property.getKey(), property.getValue());
+		}
+		// the cache settings do not affect compilation
+		compilerProperties.remove(PROPERTY_CACHE_DIR);
+		compilerProperties.remove(PROPERTY_MAX_ENTRIES);
+		
+		// explicitly including the properties that affect the generated expression classes
+		compilerProperties.put(JRClassGenerator.PROPERTY_MAX_METHOD_SIZE, 
+				propertiesUtil.getProperty(JRClassGenerator.PROPERTY_MAX_METHOD_SIZE));
+		compilerProperties.put(JRClassGenerator.PROPERTY_EXPRESSION_METHODS, 
+				propertiesUtil.getProperty(JRClassGenerator.PROPERTY_EXPRESSION_METHODS));
+		compilerProperties.put(JRCompiler.COMPILER_CLASSPATH, 
+				propertiesUtil.getProperty(JRCompiler.COMPILER_CLASSPATH));
+		
+		for (Map.Entry<String, String> entry : compilerProperties.entrySet())
+		{
+			keyText.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		}
+	}
+	
+	protected String getVersion()
+	{
+		Package enginePackage = JasperReport.class.getPackage();
+		String version = enginePackage == null ? null : enginePackage.getImplementationVersion();
+		return version + "/" + JRConstants.SERIAL_VERSION_UID;
+	}
+
+	protected File getFile(String key)
+	{
+		return new File(directory, key + FILE_EXTENSION);
+	}
+	
+	/**
+	 * Loads a cached compiled report.
+	 * <p>
+	 * The element and dataset UUIDs of the design are set on the loaded report.
+	 * </p>
+	 * 
+	 * @param key the cache key
+	 * @param jasperDesign the design for which the report is loaded
+	 * @return the cached report, or <code>null</code> if not found
+	 */
+	public JasperReport load(String key, JasperDesign jasperDesign)
+	{
+		File file = getFile(key);
+		if (!file.isFile())
+		{
+			return null;
+		}
+		
+		try
+		{
+			JasperReport report = (JasperReport) JRLoader.loadObject(file);
+			if (!setUUIDs(jasperDesign, report))
+			{
+				if (log.isWarnEnabled())
+				{
+					log.warn("Cached compiled report " + file + " does not match the design " 
+							+ jasperDesign.getName() + ", discarding");
+				}
+				
+				file.delete();
+				return null;
+			}
+			
+			// marking the entry as recently used
+			file.setLastModified(System.currentTimeMillis());
+			
+			if (log.isDebugEnabled())
+			{
+				log.debug("loaded compiled report " + report.getName() + " from " + file);
+			}
+			return report;
+		}
+		catch (JRException | RuntimeException e)
+		{
+			// an entry written by an incompatible version or a truncated file
+			if (log.isWarnEnabled())
+			{
+				log.warn("Failed to load cached compiled report " + file + ", discarding", e);
+			}
+			
+			file.delete();
+			return null;
+		}
+	}
+	
+	/**
+	 * Sets the element and dataset UUIDs of a design on a report loaded from the cache.
+	 * 
+	 * @return whether the report has the same elements and datasets as the design
+	 */
+	protected boolean setUUIDs(JasperDesign jasperDesign, JasperReport report)
+	{
+		List<JRElement> designElements = collectElements(jasperDesign);
+		List<JRElement> reportElements = collectElements(report);
+		if (designElements.size() != reportElements.size())
+		{
+			return false;
+		}
+		
+		JRDataset[] designDatasets = jasperDesign.getDatasets();
+		JRDataset[] reportDatasets = report.getDatasets();
+		int datasetCount = designDatasets == null ? 0 : designDatasets.length;
+		if (datasetCount != (reportDatasets == null ? 0 : reportDatasets.length))
+		{
+			return false;
+		}
+		
+		for (int i = 0; i < reportElements.size(); i++)
+		{
+			JRElement reportElement = reportElements.get(i);
+			if (!(reportElement instanceof JRBaseElement))
+			{
+				return false;
+			}
+			((JRBaseElement) reportElement).setUUID(designElements.get(i).getUUID());
+		}
+		
+		if (!setUUID(jasperDesign.getMainDataset(), report.getMainDataset()))
+		{
+			return false;
+		}
+		for (int i = 0; i < datasetCount; i++)
+		{
+			if (!setUUID(designDatasets[i], reportDatasets[i]))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	protected boolean setUUID(JRDataset designDataset, JRDataset reportDataset)
+	{
+		if (!(reportDataset instanceof JRBaseDataset)
+				|| !designDataset.getName().equals(reportDataset.getName()))
+		{
+			return false;
+		}
+		((JRBaseDataset) reportDataset).setUUID(designDataset.getUUID());
+		return true;
+	}
+	
+	protected List<JRElement> collectElements(JRReport report)
+	{
+		final List<JRElement> elements = new ArrayList<JRElement>();
+		JRElementsVisitor.visitReport(report, new UniformElementVisitor()
+		{
+			@Override
+			public void visitElementGroup(JRElementGroup elementGroup)
+			{
+				//NOP
+			}
+			
+			@Override
+			protected void visitElement(JRElement element)
+			{
+				elements.add(element);
+			}
+		});
+		return elements;
+	}
+	
+	/**
+	 * Saves a compiled report in the cache.
+	 * <p>
+	 * Failures are logged and do not affect the caller.
+	 * </p>
+	 * 
+	 * @param key the cache key
+	 * @param report the compiled report
+	 */
+	public void store(String key, JasperReport report)
+	{
+		File file = getFile(key);
+		File tempFile = null;
+		try
+		{
+			tempFile = File.createTempFile(key, ".tmp", directory);
+			JRSaver.saveObject(report, tempFile);
+			
+			try
+			{
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e)
+			{
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			tempFile = null;
+			
+			if (log.isDebugEnabled())
+			{
+				log.debug("saved compiled report " + report.getName() + " to " + file);
+			}
+			
+			evictEntries();
+		}
+		catch (JRException | IOException e)
+		{
+			if (log.isWarnEnabled())
+			{
+				log.warn("Failed to save compiled report " + report.getName() + " to " + file, e);
+			}
+		}
+		finally
+		{
+			if (tempFile != null)
+			{
+				tempFile.delete();
+			}
+		}
+	}
+	
+	/**
+	 * Deletes the least recently used entries when the cache holds more than 
+	 * {@link #PROPERTY_MAX_ENTRIES} reports.
+	 */
+	protected void evictEntries()
+	{
+		int maxEntries = JRPropertiesUtil.getInstance(jasperReportsContext).getIntegerProperty(PROPERTY_MAX_ENTRIES, 0);
+		if (maxEntries <= 0)
+		{
+			return;
+		}
+		
+		File[] files = directory.listFiles();
+		if (files == null)
+		{
+			return;
+		}
+		
+		// last modified times are read once as entries can be touched by other threads while sorting
+		final Map<File, Long> entries = new HashMap<File, Long>();
+		for (File file : files)
+		{
+			if (file.getName().endsWith(FILE_EXTENSION))
+			{
+				entries.put(file, file.lastModified());
+			}
+		}
+		if (entries.size() <= maxEntries)
+		{
+			return;
+		}
+		
+		List<File> sortedEntries = new ArrayList<File>(entries.keySet());
+		Collections.sort(sortedEntries, new Comparator<File>()
+		{
+			@Override
+			public int compare(File file1, File file2)
+			{
+				return Long.compare(entries.get(file1), entries.get(file2));
+			}
+		});
+		
+		for (int i = 0; i < sortedEntries.size() - maxEntries; i++)
+		{
+			File entry = sortedEntries.get(i);
+			if (log.isDebugEnabled())
+			{
+				log.debug("evicting compiled report " + entry);
+			}
+			
+			entry.delete();
+		}
+	}
+	
+}
@@ -139,8 +139,36 @@ public abstract class JRAbstractCompiler implements JRCompiler
 		return JRStringUtil.getJavaIdentifier(report.getName()) + "_CROSSTAB" + crosstabId + nameSuffix;
 	}
 	
+	/**
+	 * Compiles a report design.
+	 * <p>
+	 * If a {@link CompiledReportCache compiled report cache} is configured, the report is
+	 * looked up in the cache before compiling the design and stored in the cache after compilation.
+	 * </p>
+	 */
 	@Override
 	public final JasperReport compileReport(JasperDesign jasperDesign) throws JRException
+	{
+		CompiledReportCache cache = CompiledReportCache.getInstance(jasperReportsContext);
+		if (cache == null)
+		{
+			return compileDesign(jasperDesign);
+		}
+		
+		String cacheKey = cache.getKey(jasperDesign, getCompilerClass());
+		JasperReport jasperReport = cacheKey == null ? null : cache.load(cacheKey, jasperDesign);
+		if (jasperReport == null)
+		{
+			jasperReport = compileDesign(jasperDesign);
+			if (cacheKey != null)
+			{
+				cache.store(cacheKey, jasperReport);
+			}
+		}
+		return jasperReport;
+	}
+	
+	private JasperReport compileDesign(JasperDesign jasperDesign) throws JRException
 	{
 		// check if the language is supported by the compiler
 		checkLanguage(jasperDesign.getLanguage());
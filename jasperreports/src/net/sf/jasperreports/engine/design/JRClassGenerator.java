@@ -42,6 +42,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
 
 import net.sf.jasperreports.annotations.properties.Property;
 import net.sf.jasperreports.annotations.properties.PropertyScope;
@@ -73,6 +74,28 @@ public class JRClassGenerator
 			)
 	public static final String PROPERTY_MAX_METHOD_SIZE = JRPropertiesUtil.PROPERTY_PREFIX + "compiler.max.java.method.size";
 	
+	/**
+	 * Property that determines whether each report expression is generated as a separate method
+	 * of the expression evaluator class.
+	 * 
+	 * <p>
+	 * By default the expressions are evaluated inline in large <code>switch</code> statements,
+	 * which for reports with many expressions produce methods that exceed the size limits
+	 * up to which the JIT compiler compiles or inlines methods.
+	 * When the property is set, each expression is evaluated by a small method, and the
+	 * <code>evaluate</code> methods only dispatch to these methods in two steps,
+	 * first by groups of expression ids and then by the expression id.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_COMPILE,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_EXPRESSION_METHODS = JRPropertiesUtil.PROPERTY_PREFIX + "compiler.java.expression.methods";
+	
 	
 	/**
 	 *
@@ -108,6 +131,7 @@ public class JRClassGenerator
 	protected final JRSourceCompileTask sourceTask;
 
 	private final int maxMethodSize;
+	private final boolean expressionMethods;
 	
 	protected Map<String, ? extends JRParameter> parametersMap;
 	protected Map<String,JRField> fieldsMap;
@@ -125,6 +149,7 @@ public class JRClassGenerator
 		
 		JRPropertiesUtil properties = JRPropertiesUtil.getInstance(sourceTask.getJasperReportsContext());
 		maxMethodSize = properties.getIntegerProperty(PROPERTY_MAX_METHOD_SIZE, Integer.MAX_VALUE);
+		expressionMethods = properties.getBooleanProperty(PROPERTY_EXPRESSION_METHODS, false);
 	}
 
 	
@@ -475,7 +500,14 @@ public class JRClassGenerator
 
 		if (expressionsList.size() > 0)
 		{
-			sb.append(generateMethod(expressionsList.listIterator(), evaluationType));
+			if (expressionMethods)
+			{
+				sb.append(generateExpressionMethods(expressionsList, evaluationType));
+			}
+			else
+			{
+				sb.append(generateMethod(expressionsList.listIterator(), evaluationType));
+			}
 		}
 		else
 		{
@@ -539,6 +571,102 @@ public class JRClassGenerator
 		return sb.toString();
 	}
 
+	/**
+	 *
+	 */
+	private String generateExpressionMethods(List<JRExpression> expressionsList, byte evaluationType)
+	{
+		// grouping the expressions by id so that the dispatch methods stay small
+		Map<Integer, List<JRExpression>> expressionGroups = new TreeMap<Integer, List<JRExpression>>();
+		for (JRExpression expression : expressionsList)
+		{
+			Integer groupIndex = sourceTask.getExpressionId(expression) / EXPR_MAX_COUNT_PER_METHOD;
+			List<JRExpression> groupExpressions = expressionGroups.get(groupIndex);
+			if (groupExpressions == null)
+			{
+				groupExpressions = new ArrayList<JRExpression>();
+				expressionGroups.put(groupIndex, groupExpressions);
+			}
+			groupExpressions.add(expression);
+		}
+		
+		String methodSuffix = methodSuffixMap.get(evaluationType);
+		StringBuilder sb = new StringBuilder();
+		
+		sb.append("    /**\n");
+		sb.append("     *\n");
+		sb.append("     */\n");
+		sb.append("    public Object evaluate");
+		sb.append(methodSuffix);
+		sb.append("(int id) throws Throwable\n");
+		sb.append("    {\n");
+		sb.append("        switch (id / ");
+		sb.append(EXPR_MAX_COUNT_PER_METHOD);
+		sb.append(")\n");
+		sb.append("        {\n");
+		for (Integer groupIndex : expressionGroups.keySet())
+		{
+			sb.append("            case ");
+			sb.append(groupIndex);
+			sb.append(" : return evaluate");
+			sb.append(methodSuffix);
+			sb.append(groupIndex);
+			sb.append("(id);\n");
+		}
+		sb.append("            default : return null;\n");
+		sb.append("        }\n");
+		sb.append("    }\n");
+		sb.append("\n");
+		sb.append("\n");
+		
+		for (Map.Entry<Integer, List<JRExpression>> groupEntry : expressionGroups.entrySet())
+		{
+			sb.append("    /**\n");
+			sb.append("     *\n");
+			sb.append("     */\n");
+			sb.append("    private Object evaluate");
+			sb.append(methodSuffix);
+			sb.append(groupEntry.getKey());
+			sb.append("(int id) throws Throwable\n");
+			sb.append("    {\n");
+			sb.append("        switch (id)\n");
+			sb.append("        {\n");
+			for (JRExpression expression : groupEntry.getValue())
+			{
+				Integer expressionId = sourceTask.getExpressionId(expression);
+				sb.append("            case ");
+				sb.append(expressionId);
+				sb.append(" : return expression");
+				sb.append(expressionId);
+				sb.append(methodSuffix);
+				sb.append("();\n");
+			}
+			sb.append("            default : return null;\n");
+			sb.append("        }\n");
+			sb.append("    }\n");
+			sb.append("\n");
+			sb.append("\n");
+		}
+		
+		for (JRExpression expression : expressionsList)
+		{
+			sb.append("    private Object expression");
+			sb.append(sourceTask.getExpressionId(expression));
+			sb.append(methodSuffix);
+			sb.append("() throws Throwable\n");
+			sb.append("    {\n");
+			sb.append("        return ");
+			sb.append(this.generateExpression(expression, evaluationType));
+			sb.append(";");
+			appendExpressionComment(sb, expression);
+			sb.append("\n");
+			sb.append("    }\n");
+			sb.append("\n");
+		}
+		
+		return sb.toString();
+	}
+
 	protected void writeMethodStart(StringBuilder sb, byte evaluationType, int methodIndex)
 	{
 		sb.append("    /**\n");
@@ -41,13 +41,14 @@ import net.sf.jasperreports.engine.util.SortedIntList;
  */
 public class CutsInfo
 {
-	private final SortedIntList cutOffsets = new SortedIntList();
+	private final SortedIntList cutOffsets;
 	private Cut[] cuts;
 	
 	private Map<String, Object> propertiesMap;
 	
 	public CutsInfo()
 	{
+		cutOffsets = new SortedIntList();
 		propertiesMap = new HashMap<String, Object>();
 		addCutOffset(0);
 	}
@@ -58,6 +59,18 @@ public class CutsInfo
 		addCutOffset(lastCutOffset);
 	}
 	
+	/**
+	 * Creates a cuts list with a set of cut offsets.
+	 * 
+	 * @param cutOffsets distinct cut offsets sorted in ascending order
+	 * @see #getCutOffsets()
+	 */
+	public CutsInfo(int[] cutOffsets)
+	{
+		propertiesMap = new HashMap<String, Object>();
+		this.cutOffsets = new SortedIntList(cutOffsets);
+	}
+	
 	public int size()
 	{
 		return cutOffsets.size();
@@ -110,6 +123,11 @@ public class CutsInfo
 		return cutOffsets.indexOf(cutOffset);
 	}
 
+	public int[] getCutOffsets()
+	{
+		return cutOffsets.toArray();
+	}
+
 	public boolean hasCuts()
 	{
 		return !cutOffsets.isEmpty();
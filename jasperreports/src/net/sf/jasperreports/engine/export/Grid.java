@@ -39,6 +39,18 @@ public class Grid
 		this.columnCount = columnCount;
 		this.cells = new JRExporterGridCell[rowCount * columnCount];
 	}
+	
+	/**
+	 * Creates a copy of a grid, the cells being shared with the original grid.
+	 * 
+	 * @param grid the grid to copy
+	 */
+	public Grid(Grid grid)
+	{
+		this.rowCount = grid.rowCount;
+		this.columnCount = grid.columnCount;
+		this.cells = grid.cells.clone();
+	}
 
 	public int getRowCount()
 	{
@@ -0,0 +1,248 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.export;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
+import net.sf.jasperreports.engine.JRPropertiesHolder;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
+import net.sf.jasperreports.properties.PropertyConstants;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Cache of grid layouts shared by the pages of a report exported by a grid exporter.
+ * 
+ * <p>
+ * The cut offsets and the grid of empty cells computed for a page are kept in the cache 
+ * and reused for pages that have the same structure, that is pages whose exported
+ * elements have the same positions and sizes.
+ * This is typically the case for reports that repeat bands of fixed height on each page.
+ * </p>
+ * 
+ * <p>
+ * A cache instance is meant to be used for a single exporter nature, 
+ * it can be shared by threads that lay out pages concurrently.
+ * </p>
+ * 
+ * @see JRGridLayout
+ * @see #PROPERTY_CACHE_SIZE
+ */
+public class GridLayoutCache
+{
+	
+	private static final Log log = LogFactory.getLog(GridLayoutCache.class);
+
+	/**
+	 * Property that specifies the maximum number of page layouts kept in the cache of a grid exporter.
+	 * 
+	 * <p>
+	 * A value of 0 disables the cache.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = "16",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_CACHE_SIZE = JRPropertiesUtil.PROPERTY_PREFIX + "export.grid.layout.cache.size";
+	
+	public static final int DEFAULT_CACHE_SIZE = 16;
+	
+	/**
+	 * Creates a cache for a report if enabled by {@link #PROPERTY_CACHE_SIZE}.
+	 * 
+	 * @param propertiesUtil the properties utility of the exporter
+	 * @param propertiesHolder the exported report
+	 * @return a layout cache, or <code>null</code> if the cache is not enabled
+	 */
+	public static GridLayoutCache createCache(JRPropertiesUtil propertiesUtil, JRPropertiesHolder propertiesHolder)
+	{
+		int size = propertiesUtil.getIntegerProperty(propertiesHolder, PROPERTY_CACHE_SIZE, DEFAULT_CACHE_SIZE);
+		return size > 0 ? new GridLayoutCache(size) : null;
+	}
+	
+	private final Map<LayoutKey, CachedLayout> layouts;
+	
+	private int hitCount;
+	private int missCount;
+	
+	public GridLayoutCache(final int maxSize)
+	{
+		// creating a LRU map
+		this.layouts = new LinkedHashMap<LayoutKey, CachedLayout>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<LayoutKey, CachedLayout> eldest)
+			{
+				return size() > maxSize;
+			}
+		};
+	}
+
+	protected synchronized CachedLayout getLayout(LayoutKey key)
+	{
+		CachedLayout layout = layouts.get(key);
+		if (layout == null)
+		{
+			++missCount;
+		}
+		else
+		{
+			++hitCount;
+		}
+		
+		if (log.isTraceEnabled())
+		{
+			log.trace("layout cache " + (layout == null ? "miss" : "hit") 
+					+ ", hits " + hitCount + ", misses " + missCount);
+		}
+		return layout;
+	}
+	
+	protected synchronized void putLayout(LayoutKey key, CachedLayout layout)
+	{
+		layouts.put(key, layout);
+	}
+
+	public synchronized int getHitCount()
+	{
+		return hitCount;
+	}
+
+	public synchronized int getMissCount()
+	{
+		return missCount;
+	}
+	
+	/**
+	 * Key that identifies the structure of a page.
+	 */
+	protected static class LayoutKey
+	{
+		private final int width;
+		private final int height;
+		private final int offsetX;
+		private final int offsetY;
+		private final CutsInfo xCuts;
+		private final int[] elementBounds;
+		private final int hashCode;
+		
+		/**
+		 * @param xCuts the pre-calculated X cuts used for the layout, compared by identity
+		 * @param elementBounds the nesting level and the bounds of the exported elements
+		 */
+		public LayoutKey(int width, int height, int offsetX, int offsetY, CutsInfo xCuts, int[] elementBounds)
+		{
+			this.width = width;
+			this.height = height;
+			this.offsetX = offsetX;
+			this.offsetY = offsetY;
+			this.xCuts = xCuts;
+			this.elementBounds = elementBounds;
+			
+			int hash = width;
+			hash = 31*hash + height;
+			hash = 31*hash + offsetX;
+			hash = 31*hash + offsetY;
+			hash = 31*hash + System.identityHashCode(xCuts);
+			hash = 31*hash + Arrays.hashCode(elementBounds);
+			this.hashCode = hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (obj == this)
+			{
+				return true;
+			}
+			
+			if (!(obj instanceof LayoutKey))
+			{
+				return false;
+			}
+			
+			LayoutKey key = (LayoutKey) obj;
+			return hashCode == key.hashCode
+					&& width == key.width && height == key.height
+					&& offsetX == key.offsetX && offsetY == key.offsetY
+					&& xCuts == key.xCuts
+					&& Arrays.equals(elementBounds, key.elementBounds);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+	}
+	
+	/**
+	 * Cut offsets and empty grid computed for a page structure.
+	 */
+	protected static class CachedLayout
+	{
+		private final int[] xCutOffsets;
+		private final int[] yCutOffsets;
+		private final Grid emptyGrid;
+		
+		public CachedLayout(int[] xCutOffsets, int[] yCutOffsets, Grid emptyGrid)
+		{
+			this.xCutOffsets = xCutOffsets;
+			this.yCutOffsets = yCutOffsets;
+			this.emptyGrid = emptyGrid;
+		}
+
+		/**
+		 * Returns the X cut offsets, or <code>null</code> if the layout used pre-calculated X cuts.
+		 */
+		public int[] getXCutOffsets()
+		{
+			return xCutOffsets;
+		}
+
+		public int[] getYCutOffsets()
+		{
+			return yCutOffsets;
+		}
+
+		/**
+		 * Returns the grid filled with empty cells, which needs to be copied before being populated.
+		 */
+		public Grid getEmptyGrid()
+		{
+			return emptyGrid;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.export;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.export.ExportInterruptedException;
+
+/**
+ * Lays out the following pages on a thread pool while a grid exporter writes the current page.
+ * <p>
+ * The layouts are created by tasks provided by the exporter and are retrieved in page order.
+ * The number of pending layouts is bounded by the look-ahead window, so that the memory used
+ * by the layouts that have not yet been written is limited.
+ * </p>
+ * 
+ * @see net.sf.jasperreports.export.XlsExporterConfiguration#getParallelSheets()
+ */
+public class GridLayoutPrefetcher
+{
+	private final ExecutorService executor;
+	private final int lookAhead;
+	
+	private final Map<Integer, Future<JRGridLayout>> layouts;
+	private int nextPageIndex;
+	private int prefetchedLayoutCount;
+
+	/**
+	 * Creates a layout prefetcher for a report.
+	 * 
+	 * @param executor the executor used to lay out pages
+	 * @param lookAhead the number of pages after the current page that are laid out in advance
+	 */
+	public GridLayoutPrefetcher(ExecutorService executor, int lookAhead)
+	{
+		this.executor = executor;
+		this.lookAhead = lookAhead;
+		
+		this.layouts = new HashMap<Integer, Future<JRGridLayout>>();
+	}
+	
+	/**
+	 * Creates an executor that can be used to lay out pages.
+	 * 
+	 * @param threads the number of threads, the number of available processors if not positive
+	 * @return an executor that uses daemon threads
+	 */
+	public static ExecutorService createExecutor(int threads)
+	{
+		int threadCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		return Executors.newFixedThreadPool(threadCount, new LayoutThreadFactory());
+	}
+	
+	/**
+	 * Submits the layouts of the pages in the look-ahead window of a page.
+	 * 
+	 * @param pageIndex the index of the page about to be exported
+	 * @param endPageIndex the index of the last page that will be exported
+	 * @param taskFactory creates the layout tasks, called on the exporting thread
+	 */
+	public void prefetch(int pageIndex, int endPageIndex, LayoutTaskFactory taskFactory)
+	{
+		int lastPageIndex = Math.min(endPageIndex, pageIndex + lookAhead);
+		for (int index = Math.max(nextPageIndex, pageIndex); index <= lastPageIndex; ++index)
+		{
+			layouts.put(index, executor.submit(taskFactory.createLayoutTask(index)));
+		}
+		nextPageIndex = Math.max(nextPageIndex, lastPageIndex + 1);
+	}
+	
+	/**
+	 * Returns the layout of a page, waiting for it if needed.
+	 * The layout is removed from the prefetcher.
+	 * 
+	 * @param pageIndex the page index
+	 * @return the page layout, or <code>null</code> if the page has not been submitted
+	 * @throws ExportInterruptedException if the thread is interrupted while waiting for the layout
+	 */
+	public JRGridLayout getLayout(int pageIndex) throws ExportInterruptedException
+	{
+		Future<JRGridLayout> future = layouts.remove(pageIndex);
+		if (future == null)
+		{
+			return null;
+		}
+		
+		try
+		{
+			JRGridLayout layout = future.get();
+			++prefetchedLayoutCount;
+			return layout;
+		}
+		catch (InterruptedException e)
+		{
+			throw new ExportInterruptedException();
+		}
+		catch (ExecutionException e)
+		{
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException)
+			{
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error)
+			{
+				throw (Error) cause;
+			}
+			throw new JRRuntimeException(cause);
+		}
+	}
+	
+	/**
+	 * Returns the number of layouts created in advance that were retrieved by {@link #getLayout(int)}.
+	 * 
+	 * @return the number of prefetched layouts
+	 */
+	public int getPrefetchedLayoutCount()
+	{
+		return prefetchedLayoutCount;
+	}
+	
+	/**
+	 * Cancels the pending layouts.
+	 */
+	public void dispose()
+	{
+		for (Iterator<Future<JRGridLayout>> it = layouts.values().iterator(); it.hasNext();)
+		{
+			it.next().cancel(true);
+			it.remove();
+		}
+	}
+	
+	/**
+	 * Creates the tasks that lay out pages.
+	 */
+	public interface LayoutTaskFactory
+	{
+		/**
+		 * Creates the task that lays out a page.
+		 * 
+		 * @param pageIndex the page index
+		 * @return a task that returns the page layout
+		 */
+		Callable<JRGridLayout> createLayoutTask(int pageIndex);
+	}
+	
+	protected static class LayoutThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger threadCount = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "Grid layout #" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
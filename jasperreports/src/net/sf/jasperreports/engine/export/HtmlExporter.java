@@ -31,6 +31,7 @@ import java.awt.geom.Dimension2D;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.text.AttributedCharacterIterator;
 import java.text.AttributedCharacterIterator.Attribute;
@@ -44,6 +45,7 @@ import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -102,6 +104,7 @@ import net.sf.jasperreports.engine.type.RotationEnum;
 import net.sf.jasperreports.engine.type.RunDirectionEnum;
 import net.sf.jasperreports.engine.type.ScaleImageEnum;
 import net.sf.jasperreports.engine.type.VerticalImageAlignEnum;
+import net.sf.jasperreports.engine.util.DigestUtils;
 import net.sf.jasperreports.engine.util.HyperlinkData;
 import net.sf.jasperreports.engine.util.ImageUtil;
 import net.sf.jasperreports.engine.util.JRCloneUtils;
@@ -175,11 +178,26 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 			)
 	public static final String PROPERTY_HTML_ID = HTML_EXPORTER_PROPERTIES_PREFIX + "id";
 
+	/**
+	 * The prefix of the CSS classes created for cell styles when {@link HtmlExporterConfiguration#isUseStyleClasses()} is set.
+	 * <p>
+	 * The prefix is followed by a random token generated for each export, so that the classes
+	 * of reports exported in the same HTML document do not clash.
+	 * </p>
+	 */
+	public static final String STYLE_CLASS_PREFIX = "jrs";
+
 	protected JRHyperlinkTargetProducerFactory targetProducerFactory;		
 	
 	protected Map<String,String> rendererToImagePathMap;
 	protected Map<Pair<String, Rectangle>,String> imageMaps;
 	protected RenderersCache renderersCache;
+	protected Map<String,String> imageDataToPathMap;
+	
+	protected Map<String,String> styleClasses;
+	protected StringBuilder pendingStyleClasses;
+	protected String styleClassPrefix;
+	protected boolean cellClassWritten;
 
 	protected Writer writer;
 	protected int reportIndex;
@@ -227,6 +245,21 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 		rendererToImagePathMap = new HashMap<String,String>();
 		imageMaps = new HashMap<Pair<String, Rectangle>,String>();
 		renderersCache = new RenderersCache(getJasperReportsContext());
+		
+		HtmlExporterConfiguration exporterConfiguration = getCurrentConfiguration();
+		imageDataToPathMap = exporterConfiguration.isDeduplicateImages() ? new HashMap<String,String>() : null;
+		if (exporterConfiguration.isUseStyleClasses())
+		{
+			styleClasses = new HashMap<String,String>();
+			pendingStyleClasses = new StringBuilder();
+			styleClassPrefix = STYLE_CLASS_PREFIX + Integer.toHexString(ThreadLocalRandom.current().nextInt()) + "_";
+		}
+		else
+		{
+			styleClasses = null;
+			pendingStyleClasses = null;
+			styleClassPrefix = null;
+		}
 
 		fontsToProcess = new HashMap<String, HtmlFontFamily>();
 		
@@ -328,6 +361,7 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 		String betweenPagesHtml = configuration.getBetweenPagesHtml();
 		String htmlFooter = configuration.getHtmlFooter();
 		boolean flushOutput = configuration.isFlushOutput();//FIXMEEXPORT maybe move flush flag to output
+		boolean flushPages = configuration.isFlushPages();
 
 		if (htmlHeader == null)
 		{
@@ -379,8 +413,29 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 
 					writer.write("<a name=\"" + JR_PAGE_ANCHOR_PREFIX + reportIndex + "_" + (pageIndex + 1) + "\"></a>\n");
 
-					/*   */
-					exportPage(page);
+					if (styleClasses == null)
+					{
+						/*   */
+						exportPage(page);
+					}
+					else
+					{
+						// the page is buffered so that the style classes it creates can be declared before it
+						Writer outputWriter = writer;
+						StringWriter pageWriter = new StringWriter();
+						writer = pageWriter;
+						try
+						{
+							exportPage(page);
+						}
+						finally
+						{
+							writer = outputWriter;
+						}
+						
+						writePendingStyleClasses();
+						writer.write(pageWriter.toString());
+					}
 
 					if (reportIndex < items.size() - 1 || pageIndex < endPageIndex)
 					{
@@ -395,6 +450,11 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 					}
 
 					writer.write("\n");
+					
+					if (flushPages)
+					{
+						writer.flush();
+					}
 				}
 			}
 		}
@@ -1480,11 +1540,26 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 								? RendererUtil.SVG_FILE_EXTENSION
 								: JRTypeSniffer.getImageTypeValue(imageData).getFileExtension();
 
-							String imageName = getImageName(getElementIndex(cell), fileExtension);
-
-							imageHandler.handleResource(imageName, imageData);
+							String imageDataKey = null;
+							if (imageDataToPathMap != null)
+							{
+								imageDataKey = DigestUtils.instance().sha256Hex(imageData);
+								imageSource = imageDataToPathMap.get(imageDataKey);
+							}
 							
-							imageSource = imageHandler.getResourcePath(imageName);
+							if (imageSource == null)
+							{
+								String imageName = getImageName(getElementIndex(cell), fileExtension);
+
+								imageHandler.handleResource(imageName, imageData);
+								
+								imageSource = imageHandler.getResourcePath(imageName);
+								
+								if (imageDataKey != null)
+								{
+									imageDataToPathMap.put(imageDataKey, imageSource);
+								}
+							}
 
 							if (dataRenderer == renderer)
 							{
@@ -1914,6 +1989,8 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 		if (dataAttr != null)
 		{
 			writer.write(dataAttr);
+			// the cell style is written inline when the cell already has a class attribute
+			cellClassWritten = dataAttr.contains(" class=\"");
 		}
 	}
 	
@@ -1998,6 +2075,8 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 
 	protected void startCell(int colSpan, int rowSpan) throws IOException
 	{
+		cellClassWritten = false;
+		
 		writer.write("<td");
 		if (colSpan > 1)
 		{
@@ -2048,9 +2127,47 @@ public class HtmlExporter extends AbstractHtmlExporter<HtmlReportConfiguration,
 	{
 		if (styleBuffer.length() > 0)
 		{
-			writer.write(" style=\"");
-			writer.write(styleBuffer.toString());
-			writer.write("\"");
+			if (styleClasses != null && !cellClassWritten)
+			{
+				writer.write(" class=\"");
+				writer.write(getStyleClass(styleBuffer.toString()));
+				writer.write("\"");
+			}
+			else
+			{
+				writer.write(" style=\"");
+				writer.write(styleBuffer.toString());
+				writer.write("\"");
+			}
+		}
+	}
+	
+	protected String getStyleClass(String style)
+	{
+		String styleClass = styleClasses.get(style);
+		if (styleClass == null)
+		{
+			styleClass = styleClassPrefix + styleClasses.size();
+			styleClasses.put(style, styleClass);
+			
+			pendingStyleClasses.append('.');
+			pendingStyleClasses.append(styleClass);
+			pendingStyleClasses.append(" {");
+			pendingStyleClasses.append(style);
+			pendingStyleClasses.append("}\n");
+		}
+		return styleClass;
+	}
+	
+	protected void writePendingStyleClasses() throws IOException
+	{
+		if (pendingStyleClasses.length() > 0)
+		{
+			writer.write("<style type=\"text/css\">\n");
+			writer.write(pendingStyleClasses.toString());
+			writer.write("</style>\n");
+			
+			pendingStyleClasses.setLength(0);
 		}
 	}
 	
@@ -30,6 +30,7 @@
 package net.sf.jasperreports.engine.export;
 
 import java.awt.Color;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -60,6 +61,7 @@ public class JRGridLayout
 	
 	private final ExporterNature nature;
 	private final List<JRPrintElement> elementList;
+	private final GridLayoutCache layoutCache;
 	
 	private final Map<GridCellSize, GridCellSize> cellSizes;
 	private final Map<GridCellStyle, GridCellStyle> cellStyles;
@@ -82,6 +84,9 @@ public class JRGridLayout
 	
 	private boolean isNested;
 	
+	private int[] elementBounds;
+	private int elementBoundsSize;
+	
 	/**
 	 * Constructor.
 	 *
@@ -130,9 +135,44 @@ public class JRGridLayout
 		int offsetY,
 		CutsInfo xCuts
 		)
+	{
+		this(
+			nature,
+			elements,
+			width,
+			height,
+			offsetX,
+			offsetY,
+			xCuts,
+			null //layoutCache
+			);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param elements the elements that should arranged in a grid
+	 * @param width the width available for the grid
+	 * @param height the height available for the grid
+	 * @param offsetX horizontal element position offset
+	 * @param offsetY vertical element position offset
+	 * @param xCuts An optional list of pre-calculated X cuts.
+	 * @param layoutCache An optional cache shared by the layouts of the pages of a report.
+	 */
+	public JRGridLayout(
+		ExporterNature nature,
+		List<JRPrintElement> elements,
+		int width,
+		int height,
+		int offsetX,
+		int offsetY,
+		CutsInfo xCuts,
+		GridLayoutCache layoutCache
+		)
 	{
 		this.nature = nature;
 		this.elementList = elements;
+		this.layoutCache = layoutCache;
 		
 		// TODO lucianc cache these across report pages?
 		this.cellSizes = new HashMap<GridCellSize, GridCellSize>();
@@ -170,6 +210,8 @@ public class JRGridLayout
 	{
 		this.nature = parent.nature;
 		this.elementList = parent.elementList;
+		// nested layouts are not cached
+		this.layoutCache = null;
 		
 		this.cellSizes = parent.cellSizes;
 		this.cellStyles = parent.cellStyles;
@@ -210,9 +252,58 @@ public class JRGridLayout
 	 */
 	protected void layoutGrid(PrintElementIndex parentElementIndex, List<JRPrintElement> elements)
 	{
-
 		boolean createXCuts = (xCuts == null);
 
+		GridLayoutCache.LayoutKey layoutKey = null;
+		GridLayoutCache.CachedLayout cachedLayout = null;
+		if (layoutCache != null && !isNested)
+		{
+			layoutKey = createLayoutKey(elements, createXCuts ? null : xCuts);
+			cachedLayout = layoutCache.getLayout(layoutKey);
+		}
+		
+		if (cachedLayout == null)
+		{
+			createEmptyGrid(elements, createXCuts);
+			
+			if (layoutKey != null)
+			{
+				layoutCache.putLayout(layoutKey, 
+						new GridLayoutCache.CachedLayout(
+							createXCuts ? xCuts.getCutOffsets() : null, 
+							yCuts.getCutOffsets(), 
+							new Grid(grid)
+							));
+			}
+		}
+		else
+		{
+			// same page structure as a previous page, reusing the cuts and the empty cells
+			if (createXCuts)
+			{
+				xCuts = new CutsInfo(cachedLayout.getXCutOffsets());
+			}
+			yCuts = new CutsInfo(cachedLayout.getYCutOffsets());
+			
+			xCuts.use();
+			yCuts.use();
+			
+			grid = new Grid(cachedLayout.getEmptyGrid());
+		}
+
+		setGridElements(parentElementIndex, elements, 
+				offsetX, offsetY,
+				0, 0, grid.getRowCount(), grid.getColumnCount());
+
+		width = xCuts.getTotalLength();
+		height = yCuts.getTotalLength();
+	}
+	
+	/**
+	 * Computes the cuts and creates the grid filled with empty cells.
+	 */
+	protected void createEmptyGrid(List<JRPrintElement> elements, boolean createXCuts)
+	{
 		xCuts = createXCuts ? new CutsInfo() : xCuts;
 		yCuts = nature.isIgnoreLastRow() ? new CutsInfo(0) : new CutsInfo(height);
 
@@ -271,13 +362,59 @@ public class JRGridLayout
 				grid.set(row, col, emptyCell(size, null));
 			}
 		}
+	}
+	
+	/**
+	 * Creates a key that identifies the structure of the page, consisting of the positions and
+	 * sizes of the exported elements.
+	 */
+	protected GridLayoutCache.LayoutKey createLayoutKey(List<JRPrintElement> elements, CutsInfo fixedXCuts)
+	{
+		elementBounds = new int[5 * Math.max(elements.size(), 16)];
+		elementBoundsSize = 0;
+		
+		collectElementBounds(elements, offsetX, offsetY, 0);
+		
+		int[] bounds = Arrays.copyOf(elementBounds, elementBoundsSize);
+		elementBounds = null;
+		
+		return new GridLayoutCache.LayoutKey(width, height, offsetX, offsetY, fixedXCuts, bounds);
+	}
 
-		setGridElements(parentElementIndex, elements, 
-				offsetX, offsetY,
-				0, 0, rowCount, colCount);
-
-		width = xCuts.getTotalLength();
-		height = yCuts.getTotalLength();
+	protected void collectElementBounds(List<JRPrintElement> elements, int elementOffsetX, int elementOffsetY, int level)
+	{
+		for (Iterator<JRPrintElement> it = elements.iterator(); it.hasNext();)
+		{
+			JRPrintElement element = it.next();
+			if (nature.isToExport(element))
+			{
+				int x = element.getX() + elementOffsetX;
+				int y = element.getY() + elementOffsetY;
+				
+				if (elementBoundsSize + 5 > elementBounds.length)
+				{
+					elementBounds = Arrays.copyOf(elementBounds, elementBounds.length * 2);
+				}
+				
+				// the level is needed because only the top level elements determine the margins
+				elementBounds[elementBoundsSize++] = level;
+				elementBounds[elementBoundsSize++] = x;
+				elementBounds[elementBoundsSize++] = y;
+				elementBounds[elementBoundsSize++] = x + element.getWidth();
+				elementBounds[elementBoundsSize++] = y + element.getHeight();
+				
+				JRPrintFrame frame = element instanceof JRPrintFrame ? (JRPrintFrame)element : null;
+				if (frame != null && nature.isDeep(frame))
+				{
+					collectElementBounds(
+						frame.getElements(),
+						x + frame.getLineBox().getLeftPadding(),
+						y + frame.getLineBox().getTopPadding(),
+						level + 1
+						);
+				}
+			}
+		}
 	}
 	
 	protected GridCellSize cellSize(int width, int height, int colSpan, int rowSpan)
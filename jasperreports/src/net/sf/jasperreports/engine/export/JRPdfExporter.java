@@ -56,6 +56,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -437,6 +438,7 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 	protected RenderersCache renderersCache;
 	protected Map<String,Image> loadedImagesMap;
 	protected Image pxImage;
+	protected PdfImagePrefetcher imagePrefetcher;
 
 	private BookmarkStack bookmarkStack;
 
@@ -677,9 +679,18 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 				)
 			);
 
+		int imagePrefetchPages = configuration.getImagePrefetchPages() == null ? 0 : configuration.getImagePrefetchPages();
+		ExecutorService imagePrefetchExecutor = null;
+		
 		boolean closeDocuments = true;
 		try
 		{
+			if (imagePrefetchPages > 0)
+			{
+				imagePrefetchExecutor = PdfImagePrefetcher.createExecutor(
+						configuration.getImagePrefetchThreads() == null ? 0 : configuration.getImagePrefetchThreads());
+			}
+			
 			pdfWriter = PdfWriter.getInstance(document, os);
 			pdfWriter.setCloseStream(false);
 
@@ -897,6 +908,12 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 					int startPageIndex = (pageRange == null || pageRange.getStartPageIndex() == null) ? 0 : pageRange.getStartPageIndex();
 					int endPageIndex = (pageRange == null || pageRange.getEndPageIndex() == null) ? (pages.size() - 1) : pageRange.getEndPageIndex();
 
+					if (imagePrefetchExecutor != null)
+					{
+						imagePrefetcher = new PdfImagePrefetcher(getJasperReportsContext(), renderersCache, 
+								imagePrefetchExecutor, imagePrefetchPages);
+					}
+					
 					for (int pageIndex = startPageIndex; pageIndex <= endPageIndex; pageIndex++)
 					{
 						if (Thread.interrupted())
@@ -904,6 +921,11 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 							throw new ExportInterruptedException();
 						}
 
+						if (imagePrefetcher != null)
+						{
+							imagePrefetcher.prefetch(pages, pageIndex, endPageIndex);
+						}
+						
 						JRPrintPage page = pages.get(pageIndex);
 
 						pageFormat = jasperPrint.getPageFormat(pageIndex);
@@ -926,8 +948,15 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 						/*   */
 						exportPage(page);
 						
+						if (imagePrefetcher != null)
+						{
+							imagePrefetcher.pageExported(pageIndex);
+						}
+						
 						oldPageFormat = pageFormat;
 					}
+					
+					disposeImagePrefetcher();
 				}
 				else
 				{
@@ -959,6 +988,12 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 		}
 		finally
 		{
+			disposeImagePrefetcher();
+			if (imagePrefetchExecutor != null)
+			{
+				imagePrefetchExecutor.shutdownNow();
+			}
+			
 			if (closeDocuments) //only on exception
 			{
 				try
@@ -985,6 +1020,16 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 	}
 
 
+	protected void disposeImagePrefetcher()
+	{
+		if (imagePrefetcher != null)
+		{
+			imagePrefetcher.dispose();
+			imagePrefetcher = null;
+		}
+	}
+
+
 	protected void writePageAnchor(int pageIndex) throws DocumentException 
 	{
 		Map<Attribute,Object> attributes = new HashMap<Attribute,Object>();
@@ -1477,12 +1522,18 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 		{
 			InternalImageProcessorResult imageProcessorResult = null;
 			
+			if (imagePrefetcher != null)
+			{
+				imageProcessor.preparedImage = imagePrefetcher.getImage(printImage);
+			}
+			
 			try
 			{
 				imageProcessorResult = imageProcessor.process(renderer);
 			}
 			catch (Exception e)
 			{
+				imageProcessor.preparedImage = null;
 				Renderable onErrorRenderer = getRendererUtil().handleImageError(e, printImage.getOnErrorTypeValue());
 				if (onErrorRenderer != null)
 				{
@@ -1552,6 +1603,8 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 		private final int availableImageWidth;
 		private final int availableImageHeight;
 		
+		private Image preparedImage;
+		
 		private InternalImageProcessor(JRPrintImage printImage)
 		{
 			this.printImage = printImage;
@@ -1713,7 +1766,7 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 			{
 				try
 				{
-					image = Image.getInstance(renderer.getData(jasperReportsContext));
+					image = preparedImage == null ? Image.getInstance(renderer.getData(jasperReportsContext)) : preparedImage;
 					imageTesterPdfContentByte.addImage(image, 10, 0, 0, 10, 0, 0);
 				}
 				catch (Exception e)
@@ -1751,7 +1804,7 @@ public class JRPdfExporter extends JRAbstractExporter<PdfReportConfiguration, Pd
 			{
 				try
 				{
-					image = Image.getInstance(renderer.getData(jasperReportsContext));
+					image = preparedImage == null ? Image.getInstance(renderer.getData(jasperReportsContext)) : preparedImage;
 					imageTesterPdfContentByte.addImage(image, 10, 0, 0, 10, 0, 0);
 				}
 				catch (Exception e)
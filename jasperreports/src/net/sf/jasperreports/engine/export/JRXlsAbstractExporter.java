@@ -40,6 +40,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import net.sf.jasperreports.annotations.properties.Property;
 import net.sf.jasperreports.annotations.properties.PropertyScope;
@@ -63,6 +65,7 @@ import net.sf.jasperreports.engine.JRPropertiesUtil;
 import net.sf.jasperreports.engine.JRPropertiesUtil.PropertySuffix;
 import net.sf.jasperreports.engine.JRRuntimeException;
 import net.sf.jasperreports.engine.JRStyledTextAttributeSelector;
+import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperReportsContext;
 import net.sf.jasperreports.engine.PrintPageFormat;
 import net.sf.jasperreports.engine.base.JRBasePrintPage;
@@ -536,6 +539,9 @@ public abstract class JRXlsAbstractExporter<RC extends XlsReportConfiguration, C
 	protected int sheetsBeforeCurrentReport;
 	protected Map<Integer, Integer> sheetsBeforeCurrentReportMap = new HashMap<Integer, Integer>();
 	protected RenderersCache renderersCache;
+	protected GridLayoutCache gridLayoutCache;
+	protected ExecutorService layoutExecutor;
+	protected GridLayoutPrefetcher layoutPrefetcher;
 	
 
 	/**
@@ -874,6 +880,13 @@ public abstract class JRXlsAbstractExporter<RC extends XlsReportConfiguration, C
 		
 		OutputStream outputStream = getExporterOutput().getOutputStream();
 
+		Integer parallelSheets = getCurrentConfiguration().getParallelSheets();
+		if (parallelSheets != null && parallelSheets > 0)
+		{
+			Integer parallelSheetsThreads = getCurrentConfiguration().getParallelSheetsThreads();
+			layoutExecutor = GridLayoutPrefetcher.createExecutor(parallelSheetsThreads == null ? 0 : parallelSheetsThreads);
+		}
+
 		try
 		{
 			exportReportToStream(outputStream);
@@ -884,6 +897,13 @@ public abstract class JRXlsAbstractExporter<RC extends XlsReportConfiguration, C
 		}
 		finally
 		{
+			disposeLayoutPrefetcher();
+			if (layoutExecutor != null)
+			{
+				layoutExecutor.shutdownNow();
+				layoutExecutor = null;
+			}
+			
 			getExporterOutput().close();
 			resetExportContext();
 		}
@@ -950,6 +970,7 @@ public abstract class JRXlsAbstractExporter<RC extends XlsReportConfiguration, C
 		}
 
 		renderersCache = new RenderersCache(getJasperReportsContext());
+		gridLayoutCache = GridLayoutCache.createCache(getPropertiesUtil(), jasperPrint);
 	}
 	
 	protected void exportReportToStream(OutputStream os) throws JRException, IOException
@@ -986,23 +1007,43 @@ public abstract class JRXlsAbstractExporter<RC extends XlsReportConfiguration, C
 
 				if (configuration.isOnePagePerSheet())
 				{
-					for (pageIndex = startPageIndex; pageIndex <= endPageIndex; pageIndex++)
+					GridLayoutPrefetcher.LayoutTaskFactory layoutTaskFactory = null;
+					if (layoutExecutor != null && filter == null)
 					{
-						if (Thread.interrupted())
+						layoutPrefetcher = new GridLayoutPrefetcher(layoutExecutor, getCurrentConfiguration().getParallelSheets());
+						layoutTaskFactory = createLayoutTaskFactory(configuration);
+					}
+					
+					try
+					{
+						for (pageIndex = startPageIndex; pageIndex <= endPageIndex; pageIndex++)
 						{
-							throw new ExportInterruptedException();
-						}
+							if (Thread.interrupted())
+							{
+								throw new ExportInterruptedException();
+							}
 
-						JRPrintPage page = pages.get(pageIndex);
-						
-						pageFormat = jasperPrint.getPageFormat(pageIndex);
-						
-						/*   */
-						exportPage(page, /*xCuts*/null, /*startRow*/0, /*defaultSheetName*/null);
+							if (layoutPrefetcher != null)
+							{
+								layoutPrefetcher.prefetch(pageIndex, endPageIndex, layoutTaskFactory);
+							}
+							
+							JRPrintPage page = pages.get(pageIndex);
+							
+							pageFormat = jasperPrint.getPageFormat(pageIndex);
+							
+							/*   */
+							exportPage(page, /*xCuts*/null, /*startRow*/0, /*defaultSheetName*/null);
+						}
+					}
+					finally
+					{
+						disposeLayoutPrefetcher();
 					}
 				}
 				else
 				{
+					// pages are not laid out in advance as their layouts update the shared X cuts
 					/*
 					 * Make a pass and calculate the X cuts for all pages on this sheet.
 					 * The Y cuts can be calculated as each page is exported.
@@ -1044,6 +1085,55 @@ public abstract class JRXlsAbstractExporter<RC extends XlsReportConfiguration, C
 		closeWorkbook(os);
 	}
 
+	/**
+	 * Creates the factory of the tasks that lay out pages of the current report in advance.
+	 * The page data is collected on the exporting thread, the tasks only create the grid layouts.
+	 */
+	protected GridLayoutPrefetcher.LayoutTaskFactory createLayoutTaskFactory(XlsReportConfiguration configuration)
+	{
+		final ExporterNature layoutNature = getNature();
+		final int offsetX = configuration.getOffsetX() == null ? 0 : configuration.getOffsetX();
+		final int offsetY = configuration.getOffsetY() == null ? 0 : configuration.getOffsetY();
+		final GridLayoutCache layoutCache = gridLayoutCache;
+		final JasperPrint layoutPrint = jasperPrint;
+		
+		return new GridLayoutPrefetcher.LayoutTaskFactory()
+		{
+			@Override
+			public Callable<JRGridLayout> createLayoutTask(int layoutPageIndex)
+			{
+				final List<JRPrintElement> elements = layoutPrint.getPages().get(layoutPageIndex).getElements();
+				final PrintPageFormat layoutPageFormat = layoutPrint.getPageFormat(layoutPageIndex);
+				return new Callable<JRGridLayout>()
+				{
+					@Override
+					public JRGridLayout call()
+					{
+						return new JRGridLayout(
+							layoutNature,
+							elements,
+							layoutPageFormat.getPageWidth(),
+							layoutPageFormat.getPageHeight(),
+							offsetX, 
+							offsetY,
+							null,
+							layoutCache
+							);
+					}
+				};
+			}
+		};
+	}
+	
+	protected void disposeLayoutPrefetcher()
+	{
+		if (layoutPrefetcher != null)
+		{
+			layoutPrefetcher.dispose();
+			layoutPrefetcher = null;
+		}
+	}
+
 	/**
 	 *
 	 * @return the number of rows added.
@@ -1057,16 +1147,23 @@ public abstract class JRXlsAbstractExporter<RC extends XlsReportConfiguration, C
 		boolean isRemoveEmptySpaceBetweenColumns = configuration.isRemoveEmptySpaceBetweenColumns();
 		boolean isCollapseRowSpan = configuration.isCollapseRowSpan();
 		
-		JRGridLayout layout =
-			new JRGridLayout(
-				getNature(),
-				page.getElements(),
-				pageFormat.getPageWidth(),
-				pageFormat.getPageHeight(),
-				configuration.getOffsetX() == null ? 0 : configuration.getOffsetX(), 
-				configuration.getOffsetY() == null ? 0 : configuration.getOffsetY(),
-				xCuts
-				);
+		JRGridLayout layout = xCuts == null && layoutPrefetcher != null
+			? layoutPrefetcher.getLayout(pageIndex)
+			: null;
+		if (layout == null)
+		{
+			layout =
+				new JRGridLayout(
+					getNature(),
+					page.getElements(),
+					pageFormat.getPageWidth(),
+					pageFormat.getPageHeight(),
+					configuration.getOffsetX() == null ? 0 : configuration.getOffsetX(), 
+					configuration.getOffsetY() == null ? 0 : configuration.getOffsetY(),
+					xCuts,
+					gridLayoutCache
+					);
+		}
 
 		Grid grid = layout.getGrid();
 
@@ -0,0 +1,304 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.export;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.lowagie.text.Image;
+
+import net.sf.jasperreports.engine.JRPrintElement;
+import net.sf.jasperreports.engine.JRPrintFrame;
+import net.sf.jasperreports.engine.JRPrintImage;
+import net.sf.jasperreports.engine.JRPrintPage;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.type.ScaleImageEnum;
+import net.sf.jasperreports.renderers.DataRenderable;
+import net.sf.jasperreports.renderers.Renderable;
+import net.sf.jasperreports.renderers.RenderersCache;
+import net.sf.jasperreports.renderers.ResourceRenderer;
+import net.sf.jasperreports.renderers.util.RendererUtil;
+
+/**
+ * Prepares the raster images of the following pages on a thread pool while the PDF exporter
+ * writes the current page.
+ * <p>
+ * The pages are read by the exporting thread, the worker threads only load image resources
+ * and decode image data into iText images.
+ * Only images that use the renderers cache are prepared, as the exporter loads the other
+ * images separately for each element.
+ * An image is kept until the last page that uses it within the look-ahead window has been exported.
+ * Images that cannot be prepared are left for the exporter, which reports errors as usual.
+ * </p>
+ * 
+ * @see net.sf.jasperreports.export.PdfExporterConfiguration#getImagePrefetchPages()
+ */
+public class PdfImagePrefetcher
+{
+	private static final Log log = LogFactory.getLog(PdfImagePrefetcher.class);
+
+	private final JasperReportsContext jasperReportsContext;
+	private final RendererUtil rendererUtil;
+	private final RenderersCache renderersCache;
+	private final ExecutorService executor;
+	private final int lookAhead;
+	
+	private final Map<String, PrefetchedImage> images;
+	private int nextPageIndex;
+
+	/**
+	 * Creates an image prefetcher for a report.
+	 * 
+	 * @param jasperReportsContext the context
+	 * @param renderersCache the renderers cache used by the exporter for the report
+	 * @param executor the executor used to prepare images
+	 * @param lookAhead the number of pages after the current page for which images are prepared
+	 */
+	public PdfImagePrefetcher(JasperReportsContext jasperReportsContext, RenderersCache renderersCache,
+			ExecutorService executor, int lookAhead)
+	{
+		this.jasperReportsContext = jasperReportsContext;
+		this.rendererUtil = RendererUtil.getInstance(jasperReportsContext);
+		this.renderersCache = renderersCache;
+		this.executor = executor;
+		this.lookAhead = lookAhead;
+		
+		this.images = new HashMap<String, PrefetchedImage>();
+	}
+	
+	/**
+	 * Creates an executor that can be used to prepare images.
+	 * 
+	 * @param threads the number of threads, the number of available processors if not positive
+	 * @return an executor that uses daemon threads
+	 */
+	public static ExecutorService createExecutor(int threads)
+	{
+		int threadCount = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		return Executors.newFixedThreadPool(threadCount, new PrefetchThreadFactory());
+	}
+
+	/**
+	 * Starts preparing the images for the pages in the look-ahead window of a page.
+	 * 
+	 * @param pages the report pages
+	 * @param pageIndex the index of the page about to be exported
+	 * @param endPageIndex the index of the last page that will be exported
+	 */
+	public void prefetch(List<JRPrintPage> pages, int pageIndex, int endPageIndex)
+	{
+		int lastPageIndex = Math.min(endPageIndex, pageIndex + lookAhead);
+		for (int index = Math.max(nextPageIndex, pageIndex); index <= lastPageIndex; ++index)
+		{
+			prefetchElements(pages.get(index).getElements(), index);
+		}
+		nextPageIndex = Math.max(nextPageIndex, lastPageIndex + 1);
+	}
+
+	protected void prefetchElements(Collection<JRPrintElement> elements, int pageIndex)
+	{
+		for (JRPrintElement element : elements)
+		{
+			if (element instanceof JRPrintFrame)
+			{
+				prefetchElements(((JRPrintFrame) element).getElements(), pageIndex);
+			}
+			else if (element instanceof JRPrintImage)
+			{
+				prefetchImage((JRPrintImage) element, pageIndex);
+			}
+		}
+	}
+	
+	protected void prefetchImage(final JRPrintImage printImage, int pageIndex)
+	{
+		if (!printImage.isUsingCache())
+		{
+			// the exporter loads such images separately for each element
+			return;
+		}
+		
+		final Renderable renderer = printImage.getRenderer();
+		if (renderer == null 
+				|| !(renderer instanceof ResourceRenderer || renderer instanceof DataRenderable)
+				|| printImage.getScaleImageValue() == ScaleImageEnum.CLIP)
+		{
+			// clipped images and Graphics2D renderers are drawn by the exporter
+			return;
+		}
+		
+		String rendererId = renderer.getId();
+		PrefetchedImage prefetchedImage = images.get(rendererId);
+		if (prefetchedImage == null)
+		{
+			Future<Image> future = executor.submit(new Callable<Image>()
+			{
+				@Override
+				public Image call()
+				{
+					return prepareImage(renderer);
+				}
+			});
+			prefetchedImage = new PrefetchedImage(future);
+			images.put(rendererId, prefetchedImage);
+		}
+		prefetchedImage.lastPageIndex = pageIndex;
+	}
+	
+	protected Image prepareImage(Renderable renderer)
+	{
+		try
+		{
+			Renderable loadedRenderer = renderer;
+			if (renderer instanceof ResourceRenderer)
+			{
+				loadedRenderer = renderersCache.getLoadedRenderer((ResourceRenderer) renderer);
+			}
+			
+			if (!(loadedRenderer instanceof DataRenderable))
+			{
+				return null;
+			}
+			
+			DataRenderable dataRenderer = (DataRenderable) loadedRenderer;
+			if (rendererUtil.isSvgData(dataRenderer))
+			{
+				return null;
+			}
+			
+			return Image.getInstance(dataRenderer.getData(jasperReportsContext));
+		}
+		catch (Exception e)
+		{
+			// leaving it to the exporter to handle the error
+			if (log.isDebugEnabled())
+			{
+				log.debug("failed to prefetch image " + renderer.getId(), e);
+			}
+			return null;
+		}
+	}
+	
+	/**
+	 * Returns the image prepared for an image element, waiting for it if needed.
+	 * 
+	 * @param printImage the image element
+	 * @return the prepared image, or <code>null</code> if the image has not been prepared
+	 */
+	public Image getImage(JRPrintImage printImage)
+	{
+		Renderable renderer = printImage.getRenderer();
+		if (!printImage.isUsingCache() || renderer == null)
+		{
+			return null;
+		}
+		
+		PrefetchedImage prefetchedImage = images.get(renderer.getId());
+		if (prefetchedImage == null)
+		{
+			return null;
+		}
+		
+		try
+		{
+			return prefetchedImage.future.get();
+		}
+		catch (InterruptedException e)
+		{
+			// the exporter checks the interrupted flag for each page
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch (ExecutionException e)
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Discards the images that are not used by pages after a page.
+	 * 
+	 * @param pageIndex the index of the page that has been exported
+	 */
+	public void pageExported(int pageIndex)
+	{
+		for (Iterator<PrefetchedImage> it = images.values().iterator(); it.hasNext();)
+		{
+			PrefetchedImage prefetchedImage = it.next();
+			if (prefetchedImage.lastPageIndex <= pageIndex)
+			{
+				it.remove();
+			}
+		}
+	}
+	
+	/**
+	 * Cancels the pending image preparations and discards the prepared images.
+	 */
+	public void dispose()
+	{
+		for (PrefetchedImage prefetchedImage : images.values())
+		{
+			prefetchedImage.future.cancel(false);
+		}
+		images.clear();
+	}
+	
+	protected static class PrefetchedImage
+	{
+		private final Future<Image> future;
+		private int lastPageIndex;
+		
+		public PrefetchedImage(Future<Image> future)
+		{
+			this.future = future;
+		}
+	}
+	
+	protected static class PrefetchThreadFactory implements ThreadFactory
+	{
+		private final AtomicInteger threadCount = new AtomicInteger();
+		
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "PDF image prefetch #" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -67,6 +67,7 @@ import net.sf.jasperreports.engine.export.ElementGridCell;
 import net.sf.jasperreports.engine.export.ExporterNature;
 import net.sf.jasperreports.engine.export.GenericElementHandlerEnviroment;
 import net.sf.jasperreports.engine.export.Grid;
+import net.sf.jasperreports.engine.export.GridLayoutCache;
 import net.sf.jasperreports.engine.export.GridRow;
 import net.sf.jasperreports.engine.export.JRExportProgressMonitor;
 import net.sf.jasperreports.engine.export.JRExporterGridCell;
@@ -229,6 +230,7 @@ public class JROdtExporter extends JRAbstractExporter<OdtReportConfiguration, Od
 	protected StyleCache styleCache;
 
 	protected ExporterNature nature;
+	protected GridLayoutCache gridLayoutCache;
 
 	protected Map<Integer, String> rowStyles = new HashMap<Integer, String>();
 	protected Map<Integer, String> columnStyles = new HashMap<Integer, String>();
@@ -335,6 +337,7 @@ public class JROdtExporter extends JRAbstractExporter<OdtReportConfiguration, Od
 		}
 
 		nature = new JROdtExporterNature(getJasperReportsContext(), filter);
+		gridLayoutCache = GridLayoutCache.createCache(getPropertiesUtil(), jasperPrint);
 	}
 
 	
@@ -456,7 +459,8 @@ public class JROdtExporter extends JRAbstractExporter<OdtReportConfiguration, Od
 				pageFormat.getPageHeight(),
 				configuration.getOffsetX() == null ? 0 : configuration.getOffsetX(), 
 				configuration.getOffsetY() == null ? 0 : configuration.getOffsetY(),
-				null //address
+				null, //address
+				gridLayoutCache
 				);
 
 		exportGrid(layout, null);
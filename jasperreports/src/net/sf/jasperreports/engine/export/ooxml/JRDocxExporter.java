@@ -71,6 +71,7 @@ import net.sf.jasperreports.engine.export.ElementGridCell;
 import net.sf.jasperreports.engine.export.ExporterNature;
 import net.sf.jasperreports.engine.export.GenericElementHandlerEnviroment;
 import net.sf.jasperreports.engine.export.Grid;
+import net.sf.jasperreports.engine.export.GridLayoutCache;
 import net.sf.jasperreports.engine.export.GridRow;
 import net.sf.jasperreports.engine.export.HyperlinkUtil;
 import net.sf.jasperreports.engine.export.JRExportProgressMonitor;
@@ -192,6 +193,7 @@ public class JRDocxExporter extends JRAbstractExporter<DocxReportConfiguration,
 	protected String invalidCharReplacement;
 	protected PrintPageFormat pageFormat;
 	protected JRGridLayout pageGridLayout;
+	protected GridLayoutCache gridLayoutCache;
 
 	protected LinkedList<Color> backcolorStack = new LinkedList<Color>();
 	protected Color backcolor;
@@ -343,6 +345,7 @@ public class JRDocxExporter extends JRAbstractExporter<DocxReportConfiguration,
 				);
 
 		renderersCache = new RenderersCache(getJasperReportsContext());
+		gridLayoutCache = GridLayoutCache.createCache(getPropertiesUtil(), jasperPrint);
 	}
 
 	
@@ -513,7 +516,8 @@ public class JRDocxExporter extends JRAbstractExporter<DocxReportConfiguration,
 				pageFormat.getPageHeight(),
 				configuration.getOffsetX() == null ? 0 : configuration.getOffsetX(), 
 				configuration.getOffsetY() == null ? 0 : configuration.getOffsetY(),
-				null //address
+				null, //address
+				gridLayoutCache
 				);
 
 		exportGrid(pageGridLayout, null);
@@ -159,6 +159,7 @@ public class JRXlsxExporter extends JRXlsAbstractExporter<XlsxReportConfiguratio
 	protected XlsxDrawingHelper drawingHelper;
 	protected XlsxDrawingRelsHelper drawingRelsHelper;
 	protected XlsxStyleHelper styleHelper;
+	protected XlsxSharedStringsHelper sharedStringsHelper;
 	protected XlsxCellHelper cellHelper;//FIXMEXLSX maybe cell helper should be part of sheet helper, just like in table helper
 	protected StringBuilder definedNames;
 	protected String firstSheetName;
@@ -658,6 +659,12 @@ public class JRXlsxExporter extends JRXlsAbstractExporter<XlsxReportConfiguratio
 		styleHelper.export();
 		
 		styleHelper.close();
+		
+		if (sharedStringsHelper != null)
+		{
+			sharedStringsHelper.exportFooter();
+			sharedStringsHelper.close();
+		}
 
 		try
 		{
@@ -1438,6 +1445,19 @@ public class JRXlsxExporter extends JRXlsAbstractExporter<XlsxReportConfiguratio
 		
 		//FIXME: use localized pattern symbols similar to XLS export (via DateFormatConverter class)
 		final String convertedPattern = getConvertedPattern(text, pattern);
+		
+		String textFormula = getFormula(text);
+		
+		String markup = text.getMarkup();
+		final boolean isStyledText = markup != null && !JRCommonText.MARKUP_NONE.equals(markup) && !isIgnoreTextFormatting(text);
+		
+		// plain strings are written once in the shared strings table and referenced by index from the cells
+		final boolean isSharedString = 
+			sharedStringsHelper != null
+			&& (textValue == null || textValue instanceof StringTextValue)
+			&& textFormula == null
+			&& !isStyledText
+			&& textStr != null && textStr.length() > 0;
 				
 		cellHelper.exportHeader(
 			gridCell, rowIndex, colIndex, maxColumnIndex, textValue, 
@@ -1449,11 +1469,12 @@ public class JRXlsxExporter extends JRXlsAbstractExporter<XlsxReportConfiguratio
 			isShrinkToFit(gridCell.getElement()), 
 			isIgnoreTextFormatting(text),
 			text.getRotationValue(),
-			sheetInfo
+			sheetInfo,
+			null,
+			isSharedString
 			);
 		sheetHelper.exportMergedCells(rowIndex, colIndex, maxColumnIndex, gridCell.getRowSpan(), gridCell.getColSpan());
 
-		String textFormula = getFormula(text);
 		if (textFormula != null)
 		{
 			sheetHelper.write("<f>" + textFormula + "</f>\n");
@@ -1551,11 +1572,13 @@ public class JRXlsxExporter extends JRXlsAbstractExporter<XlsxReportConfiguratio
 				
 				private void writeText() throws JRException 
 				{	
-					if (textStr != null && textStr.length() > 0)
+					if (isSharedString)
+					{
+						sheetHelper.write("<v>" + sharedStringsHelper.getStringIndex(textStr, invalidCharReplacement) + "</v>");
+					}
+					else if (textStr != null && textStr.length() > 0)
 					{
 						sheetHelper.write("<is>");	//FIXMENOW make writer util; check everywhere
-						String markup = text.getMarkup();
-						boolean isStyledText = markup != null && !JRCommonText.MARKUP_NONE.equals(markup) && !isIgnoreTextFormatting(text);
 						exportStyledText(text.getStyle(), styledText, getTextLocale(text), isStyledText);
 						sheetHelper.write("</is>");
 					}
@@ -1638,6 +1661,21 @@ public class JRXlsxExporter extends JRXlsAbstractExporter<XlsxReportConfiguratio
 				relsHelper.setContainsMacro(true);
 				ctHelper.setContainsMacro(true);
 			}
+			
+			if (configuration.isStreamSheets())
+			{
+				xlsxZip.startStreaming(os);
+			}
+			
+			sharedStringsHelper = null;
+			if (configuration.isUseSharedStrings())
+			{
+				sharedStringsHelper = new XlsxSharedStringsHelper(jasperReportsContext, xlsxZip.addSharedStrings().getWriter());
+				sharedStringsHelper.exportHeader();
+				relsHelper.setContainsSharedStrings(true);
+				ctHelper.setContainsSharedStrings(true);
+			}
+			
 			relsHelper.exportHeader();
 			ctHelper.exportHeader();
 
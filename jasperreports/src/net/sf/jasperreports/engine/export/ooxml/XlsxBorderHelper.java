@@ -40,7 +40,7 @@ import net.sf.jasperreports.engine.type.LineDirectionEnum;
  */
 public class XlsxBorderHelper extends BaseHelper
 {
-	private Map<String,Integer> borderCache = new HashMap<String,Integer>();//FIXMEXLSX use soft cache? check other exporter caches as well
+	private Map<XlsxBorderInfo,Integer> borderCache = new HashMap<XlsxBorderInfo,Integer>();
 	
 	/**
 	 *
@@ -61,12 +61,12 @@ public class XlsxBorderHelper extends BaseHelper
 		}
 
 		XlsxBorderInfo borderInfo = new XlsxBorderInfo(gridCell.getBox(), direction);
-		Integer borderIndex = borderCache.get(borderInfo.getId());
+		Integer borderIndex = borderCache.get(borderInfo);
 		if (borderIndex == null)
 		{
 			borderIndex = borderCache.size();
 			export(borderInfo);
-			borderCache.put(borderInfo.getId(), borderIndex);
+			borderCache.put(borderInfo, borderIndex);
 		}
 		return borderIndex;
 	}
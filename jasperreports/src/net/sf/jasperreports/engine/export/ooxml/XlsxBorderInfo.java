@@ -23,11 +23,14 @@
  */
 package net.sf.jasperreports.engine.export.ooxml;
 
+import java.util.Arrays;
+
 import net.sf.jasperreports.engine.JRLineBox;
 import net.sf.jasperreports.engine.JRPen;
 import net.sf.jasperreports.engine.export.LengthUtil;
 import net.sf.jasperreports.engine.type.LineDirectionEnum;
 import net.sf.jasperreports.engine.util.JRColorUtil;
+import net.sf.jasperreports.engine.util.ObjectUtils;
 
 
 /**
@@ -113,6 +116,36 @@ public class XlsxBorderInfo
 			+ "|" + direction;
 	}
 
+	@Override
+	public int hashCode()
+	{
+		ObjectUtils.HashCode hash = ObjectUtils.hash();
+		hash.add(Arrays.hashCode(borderStyle));
+		hash.add(Arrays.hashCode(borderColor));
+		hash.add(direction);
+		return hash.getHashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		
+		if (!(obj instanceof XlsxBorderInfo))
+		{
+			return false;
+		}
+		
+		// padding is not part of the exported border, see getId()
+		XlsxBorderInfo info = (XlsxBorderInfo) obj;
+		return Arrays.equals(borderStyle, info.borderStyle)
+				&& Arrays.equals(borderColor, info.borderColor)
+				&& direction == info.direction;
+	}
+
 	public LineDirectionEnum getDirection() 
 	{
 		return this.direction;
@@ -197,6 +197,49 @@ public class XlsxCellHelper extends BaseHelper
 		JRXlsAbstractExporter.SheetInfo sheetInfo,
 		LineDirectionEnum direction
 		) 
+	{
+		exportHeader(
+				gridCell,
+				rowIndex,
+				colIndex, 
+				maxColIndex, 
+				textValue,
+				pattern,
+				locale,
+				isWrapText,
+				isHidden,
+				isLocked,
+				isShrinkToFit,
+				isIgnoreTextFormatting, 
+				rotation,
+				sheetInfo,
+				direction,
+				false
+				);
+	}
+
+	/**
+	 * Exports the cell start tag, the cell type being set to shared string when the value 
+	 * is to be written as an index in the shared strings table.
+	 */
+	public void exportHeader(
+		JRExporterGridCell gridCell,
+		int rowIndex,
+		int colIndex, 
+		int maxColIndex, 
+		TextValue textValue,
+		String pattern,
+		Locale locale,
+		boolean isWrapText,
+		boolean isHidden,
+		boolean isLocked,
+		boolean isShrinkToFit,
+		boolean isIgnoreTextFormatting, 
+		RotationEnum rotation,
+		JRXlsAbstractExporter.SheetInfo sheetInfo,
+		LineDirectionEnum direction,
+		boolean isSharedString
+		) 
 	{
 		try
 		{
@@ -251,7 +294,7 @@ public class XlsxCellHelper extends BaseHelper
 			+ (rowIndex + 1) 
 			+ "\" s=\"" + styleIndex + "\""
 			);
-		String type = textValueHandler.getType();
+		String type = isSharedString ? "s" : textValueHandler.getType();
 		if (type != null)
 		{
 			write(" t=\"" + type + "\"");
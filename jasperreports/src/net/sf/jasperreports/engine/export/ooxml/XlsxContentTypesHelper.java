@@ -34,6 +34,7 @@ import net.sf.jasperreports.engine.JasperReportsContext;
 public class XlsxContentTypesHelper extends BaseHelper
 {
 	private boolean containsMacro;
+	private boolean containsSharedStrings;
 	
 	/**
 	 * 
@@ -51,6 +52,14 @@ public class XlsxContentTypesHelper extends BaseHelper
 		this.containsMacro = containsMacro;
 	}
 
+	/**
+	 *
+	 */
+	public void setContainsSharedStrings(boolean containsSharedStrings)
+	{
+		this.containsSharedStrings = containsSharedStrings;
+	}
+
 	/**
 	 *
 	 */
@@ -72,6 +81,10 @@ public class XlsxContentTypesHelper extends BaseHelper
 		write("  <Override PartName=\"/docProps/app.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.extended-properties+xml\"/>\n");
 		write("  <Override PartName=\"/docProps/core.xml\" ContentType=\"application/vnd.openxmlformats-package.core-properties+xml\"/>\n");
 		write("  <Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>\n");
+		if (containsSharedStrings)
+		{
+			write("  <Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>\n");
+		}
 		if (containsMacro)
 		{
 			write("  <Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.ms-excel.sheet.macroEnabled.main+xml\"/>\n");
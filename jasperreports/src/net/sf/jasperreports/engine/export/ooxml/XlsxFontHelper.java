@@ -39,7 +39,7 @@ import net.sf.jasperreports.export.XlsReportConfiguration;
  */
 public class XlsxFontHelper extends BaseHelper
 {
-	private Map<String,Integer> fontCache = new HashMap<String,Integer>();//FIXMEXLSX use soft cache? check other exporter caches as well
+	private Map<XlsxFontInfo,Integer> fontCache = new HashMap<XlsxFontInfo,Integer>();
 	
 	private String exporterKey;
 	private XlsReportConfiguration configuration;
@@ -80,12 +80,12 @@ public class XlsxFontHelper extends BaseHelper
 		String fontName = fontUtil.getExportFontFamily(font.getFontName(), locale, exporterKey);
 		
 		XlsxFontInfo xlsxFontInfo = new XlsxFontInfo(gridCell, fontName, configuration.isFontSizeFixEnabled());
-		Integer fontIndex = fontCache.get(xlsxFontInfo.getId());
+		Integer fontIndex = fontCache.get(xlsxFontInfo);
 		if (fontIndex == null)
 		{
 			fontIndex = fontCache.size();
 			export(xlsxFontInfo);
-			fontCache.put(xlsxFontInfo.getId(), fontIndex);
+			fontCache.put(xlsxFontInfo, fontIndex);
 		}
 		return fontIndex;
 	}
@@ -27,6 +27,7 @@ import net.sf.jasperreports.engine.JRFont;
 import net.sf.jasperreports.engine.JRPrintElement;
 import net.sf.jasperreports.engine.export.JRExporterGridCell;
 import net.sf.jasperreports.engine.util.JRColorUtil;
+import net.sf.jasperreports.engine.util.ObjectUtils;
 
 
 /**
@@ -77,4 +78,41 @@ public class XlsxFontInfo
 			+ "|" + isUnderline + "|"+ isStrikeThrough
 			+ "|" + color; 
 	}
+
+	@Override
+	public int hashCode()
+	{
+		ObjectUtils.HashCode hash = ObjectUtils.hash();
+		hash.add(fontName);
+		hash.add(Float.floatToIntBits(fontSize));
+		hash.add(isBold);
+		hash.add(isItalic);
+		hash.add(isUnderline);
+		hash.add(isStrikeThrough);
+		hash.add(color);
+		return hash.getHashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		
+		if (!(obj instanceof XlsxFontInfo))
+		{
+			return false;
+		}
+		
+		XlsxFontInfo info = (XlsxFontInfo) obj;
+		return ObjectUtils.equals(fontName, info.fontName)
+				&& Float.floatToIntBits(fontSize) == Float.floatToIntBits(info.fontSize)
+				&& isBold == info.isBold
+				&& isItalic == info.isItalic
+				&& isUnderline == info.isUnderline
+				&& isStrikeThrough == info.isStrikeThrough
+				&& ObjectUtils.equals(color, info.color);
+	}
 }
@@ -34,6 +34,7 @@ import net.sf.jasperreports.engine.JasperReportsContext;
 public class XlsxRelsHelper extends BaseHelper
 {
 	private boolean containsMacro;
+	private boolean containsSharedStrings;
 	
 	/**
 	 * 
@@ -51,6 +52,14 @@ public class XlsxRelsHelper extends BaseHelper
 		this.containsMacro = containsMacro;
 	}
 
+	/**
+	 *
+	 */
+	public void setContainsSharedStrings(boolean containsSharedStrings)
+	{
+		this.containsSharedStrings = containsSharedStrings;
+	}
+
 	/**
 	 * 
 	 */
@@ -64,7 +73,10 @@ public class XlsxRelsHelper extends BaseHelper
 			write(" <Relationship Id=\"rIdMc\" Type=\"http://schemas.microsoft.com/office/2006/relationships/vbaProject\" Target=\"vbaProject.bin\"/>\n");
 		}
 //		write(" <Relationship Id=\"rIdCa\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/calcChain\" Target=\"calcChain.xml\"/>\n");
-//		write(" <Relationship Id=\"rIdSh\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings\" Target=\"sharedStrings.xml\"/>\n");
+		if (containsSharedStrings)
+		{
+			write(" <Relationship Id=\"rIdSh\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/sharedStrings\" Target=\"sharedStrings.xml\"/>\n");
+		}
 	}
 	
 	/**
@@ -0,0 +1,84 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.export.ooxml;
+
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.util.JRStringUtil;
+
+
+/**
+ * Writes the shared strings table of a workbook, each distinct string being written once.
+ */
+public class XlsxSharedStringsHelper extends BaseHelper
+{
+	private final Map<String,Integer> stringIndexes = new HashMap<String,Integer>();
+	
+	/**
+	 * 
+	 */
+	public XlsxSharedStringsHelper(JasperReportsContext jasperReportsContext, Writer writer)
+	{
+		super(jasperReportsContext, writer);
+	}
+
+	/**
+	 * 
+	 */
+	public void exportHeader()
+	{
+		write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		write("<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">\n");
+	}
+	
+	/**
+	 * Returns the index of a string in the shared strings table, adding the string to the table if not already present.
+	 */
+	public int getStringIndex(String text, String invalidCharReplacement)
+	{
+		Integer index = stringIndexes.get(text);
+		if (index == null)
+		{
+			index = stringIndexes.size();
+			stringIndexes.put(text, index);
+			
+			write("<si><t xml:space=\"preserve\">");
+			write(JRStringUtil.xmlEncode(text, invalidCharReplacement));
+			write("</t></si>\n");
+		}
+		return index;
+	}
+	
+	/**
+	 * 
+	 */
+	public void exportFooter()
+	{
+		write("</sst>\n");
+	}
+	
+}
@@ -53,7 +53,7 @@ public class XlsxStyleHelper extends BaseHelper
 	private FileBufferedWriter bordersWriter = new FileBufferedWriter();
 	private FileBufferedWriter cellXfsWriter = new FileBufferedWriter();
 	
-	private Map<String,Integer> styleCache = new HashMap<String,Integer>();//FIXMEXLSX use soft cache? check other exporter caches as well
+	private Map<XlsxStyleInfo,Integer> styleCache = new HashMap<XlsxStyleInfo,Integer>();
 	
 	private XlsxFormatHelper formatHelper;
 	private XlsxFontHelper fontHelper;
@@ -117,12 +117,12 @@ public class XlsxStyleHelper extends BaseHelper
 				sheetInfo,
 				direction
 				);
-		Integer styleIndex = styleCache.get(styleInfo.getId());
+		Integer styleIndex = styleCache.get(styleInfo);
 		if (styleIndex == null)
 		{
 			styleIndex = styleCache.size() + 1;
 			exportCellStyle(gridCell, styleInfo, styleIndex, sheetInfo);
-			styleCache.put(styleInfo.getId(), styleIndex);
+			styleCache.put(styleInfo, styleIndex);
 		}
 		return styleIndex;
 	}
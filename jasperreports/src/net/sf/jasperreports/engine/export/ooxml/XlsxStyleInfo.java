@@ -32,6 +32,7 @@ import net.sf.jasperreports.engine.type.LineDirectionEnum;
 import net.sf.jasperreports.engine.type.ModeEnum;
 import net.sf.jasperreports.engine.type.VerticalTextAlignEnum;
 import net.sf.jasperreports.engine.util.JRColorUtil;
+import net.sf.jasperreports.engine.util.ObjectUtils;
 
 
 /**
@@ -261,4 +262,58 @@ public class XlsxStyleInfo
 		+ "|" + isWrapText + "|" + isHidden + "|" + isLocked + "|" + isShrinkToFit + "|" + rotation + "|" + whitePageBackground 
 		+ "|" + ignoreCellBackground + "|" + ignoreCellBorder + "|" + direction;
 	}
+
+	@Override
+	public int hashCode()
+	{
+		ObjectUtils.HashCode hash = ObjectUtils.hash();
+		hash.add(formatIndex);
+		hash.add(fontIndex);
+		hash.add(borderIndex);
+		hash.add(backcolor);
+		hash.add(horizontalAlign);
+		hash.add(verticalAlign);
+		hash.add(isWrapText);
+		hash.add(isHidden);
+		hash.add(isLocked);
+		hash.add(isShrinkToFit);
+		hash.add(rotation);
+		hash.add(whitePageBackground);
+		hash.add(ignoreCellBackground);
+		hash.add(ignoreCellBorder);
+		hash.add(direction);
+		return hash.getHashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj)
+	{
+		if (obj == this)
+		{
+			return true;
+		}
+		
+		if (!(obj instanceof XlsxStyleInfo))
+		{
+			return false;
+		}
+		
+		// comparing the same fields that make up getId()
+		XlsxStyleInfo info = (XlsxStyleInfo) obj;
+		return formatIndex == info.formatIndex
+				&& fontIndex == info.fontIndex
+				&& borderIndex == info.borderIndex
+				&& ObjectUtils.equals(backcolor, info.backcolor)
+				&& ObjectUtils.equals(horizontalAlign, info.horizontalAlign)
+				&& ObjectUtils.equals(verticalAlign, info.verticalAlign)
+				&& isWrapText == info.isWrapText
+				&& isHidden == info.isHidden
+				&& isLocked == info.isLocked
+				&& isShrinkToFit == info.isShrinkToFit
+				&& rotation == info.rotation
+				&& whitePageBackground == info.whitePageBackground
+				&& ignoreCellBackground == info.ignoreCellBackground
+				&& ignoreCellBorder == info.ignoreCellBorder
+				&& direction == info.direction;
+	}
 }
@@ -157,13 +157,32 @@ public class XlsxZip extends FileBufferedZip
 	 */
 	public ExportZipEntry addSheet(int index)
 	{
-		ExportZipEntry sheetEntry = createEntry("xl/worksheets/sheet" + index + ".xml");
+		String sheetName = "xl/worksheets/sheet" + index + ".xml";
+		if (isStreaming())
+		{
+			// written directly to the output, the writer needs to be closed before the next sheet is added
+			return createStreamingEntry(sheetName);
+		}
+		
+		ExportZipEntry sheetEntry = createEntry(sheetName);
 
 		exportZipEntries.add(sheetEntry);
 
 		return sheetEntry;
 	}
 	
+	/**
+	 * 
+	 */
+	public ExportZipEntry addSharedStrings()
+	{
+		ExportZipEntry sharedStringsEntry = createEntry("xl/sharedStrings.xml");
+
+		exportZipEntries.add(sharedStringsEntry);
+
+		return sharedStringsEntry;
+	}
+	
 	/**
 	 * 
 	 */
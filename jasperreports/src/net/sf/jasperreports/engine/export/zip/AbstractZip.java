@@ -41,6 +41,11 @@ public abstract class AbstractZip
 	 * 
 	 */
 	protected List<ExportZipEntry> exportZipEntries = new ArrayList<ExportZipEntry>();
+	
+	/**
+	 * 
+	 */
+	protected ZipOutputStream streamingZipOutput;
 
 	/**
 	 *
@@ -55,13 +60,45 @@ public abstract class AbstractZip
 		exportZipEntries.add(entry);
 	}
 	
+	/**
+	 * Opens the zip stream so that entries created by {@link #createStreamingEntry(String)}
+	 * can be written directly to the output.
+	 * The buffered entries are written to the same stream by {@link #zipEntries(OutputStream)}.
+	 */
+	public void startStreaming(OutputStream os)
+	{
+		streamingZipOutput = new ZipOutputStream(os);
+		streamingZipOutput.setMethod(ZipOutputStream.DEFLATED);
+	}
+	
+	/**
+	 *
+	 */
+	public boolean isStreaming()
+	{
+		return streamingZipOutput != null;
+	}
+	
+	/**
+	 * Starts an entry that is written directly to the zip stream opened by {@link #startStreaming(OutputStream)}.
+	 * The entry needs to be closed before any other entry is created or the buffered entries are written.
+	 */
+	public ExportZipEntry createStreamingEntry(String name)
+	{
+		return new StreamingZipEntry(name, streamingZipOutput);
+	}
+	
 	/**
 	 *
 	 */
 	public void zipEntries(OutputStream os) throws IOException
 	{
-		ZipOutputStream zipos = new ZipOutputStream(os);
-		zipos.setMethod(ZipOutputStream.DEFLATED);
+		ZipOutputStream zipos = streamingZipOutput;
+		if (zipos == null)
+		{
+			zipos = new ZipOutputStream(os);
+			zipos.setMethod(ZipOutputStream.DEFLATED);
+		}
 		
 		for (int i = 0; i < exportZipEntries.size(); i++) 
 		{
@@ -0,0 +1,143 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.export.zip;
+
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import net.sf.jasperreports.engine.JRRuntimeException;
+
+
+/**
+ * Zip entry whose content is written directly to the zip output stream.
+ * <p>
+ * The entry is started in the zip stream when created and finished when its writer or output stream
+ * is closed, therefore no other entry can be written to the zip stream while the entry is open.
+ * </p>
+ * 
+ * @see AbstractZip#createStreamingEntry(String)
+ */
+public class StreamingZipEntry implements ExportZipEntry 
+{
+	private final String name;
+	private final EntryOutputStream entryOutput;
+	private Writer writer;
+	
+	public StreamingZipEntry(String name, ZipOutputStream zipOutput)
+	{
+		this.name = name;
+		
+		try
+		{
+			zipOutput.putNextEntry(new ZipEntry(name));
+		}
+		catch (IOException e)
+		{
+			throw new JRRuntimeException(e);
+		}
+		
+		this.entryOutput = new EntryOutputStream(zipOutput);
+	}
+	
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+	
+	@Override
+	public Writer getWriter()
+	{
+		if (writer == null)
+		{
+			try
+			{
+				writer = new BufferedWriter(new OutputStreamWriter(entryOutput, "UTF-8"));
+			}
+			catch (IOException e)
+			{
+				throw new JRRuntimeException(e);
+			}
+		}
+		
+		return writer;
+	}
+
+	@Override
+	public OutputStream getOutputStream()
+	{
+		return entryOutput;
+	}
+
+	@Override
+	public void writeData(OutputStream os) throws IOException
+	{
+		// the data has already been written to the zip stream
+	}
+
+	@Override
+	public void dispose()
+	{
+		// nothing to dispose
+	}
+	
+	/**
+	 * Output stream that closes the zip entry instead of the zip stream.
+	 */
+	protected static class EntryOutputStream extends FilterOutputStream
+	{
+		private final ZipOutputStream zipOutput;
+		private boolean closed;
+		
+		public EntryOutputStream(ZipOutputStream zipOutput)
+		{
+			super(zipOutput);
+			
+			this.zipOutput = zipOutput;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			zipOutput.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (!closed)
+			{
+				closed = true;
+				zipOutput.closeEntry();
+			}
+		}
+	}
+	
+}
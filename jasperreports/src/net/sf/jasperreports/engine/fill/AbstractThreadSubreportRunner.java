@@ -218,15 +218,16 @@ public abstract class AbstractThreadSubreportRunner extends JRSubreportRunnable
 	@Override
 	public void run()
 	{
-		super.run();
-
-		if (log.isDebugEnabled())
-		{
-			log.debug("Fill " + subreportFiller.fillerId + ": notifying of completion");
-		}
-
 		synchronized (subreportFiller)
 		{
+			// the subreport fill waits on the subreport filler monitor when suspended
+			super.run();
+
+			if (log.isDebugEnabled())
+			{
+				log.debug("Fill " + subreportFiller.fillerId + ": notifying of completion");
+			}
+
 			//main filler notified that the subreport has finished
 			subreportFiller.notifyAll();
 		}
@@ -449,7 +449,7 @@ public abstract class BaseReportFiller implements ReportFiller
 		if (parent == null)
 		{
 			ReportContext reportContext = (ReportContext) parameterValues.get(JRParameter.REPORT_CONTEXT);
-			fillContext.setReportContext(reportContext);
+			fillContext.setReportContext(reportContext, parameterValues);
 		}
 
 		mainDataset.setParameterValues(parameterValues);
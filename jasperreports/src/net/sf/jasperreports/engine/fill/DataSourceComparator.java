@@ -0,0 +1,104 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import net.sf.jasperreports.engine.fill.DatasetSortInfo.SortFieldInfo;
+
+
+/**
+ *
+ */
+class DataSourceComparator implements Comparator<Integer>
+{
+	private final Collator collator;
+	private final List<SortFieldInfo> sortFields;
+	private final List<SortedDataSource.SortRecord> records;
+
+	public DataSourceComparator(DatasetSortInfo sortFieldInfo, Locale locale, 
+			List<SortedDataSource.SortRecord> records)
+	{
+		this.collator = Collator.getInstance(locale);
+		this.sortFields = sortFieldInfo.getSortFields();
+		this.records = records;
+	}
+
+	@Override
+	public int compare(Integer idx1, Integer idx2)
+	{
+		// assuming random access records list
+		Object[] record1 = records.get(idx1).getValues();
+		Object[] record2 = records.get(idx2).getValues();
+		
+		return compareValues(record1, record2);
+	}
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public int compareValues(Object[] record1, Object[] record2)
+	{
+		int ret = 0;
+
+		for (SortFieldInfo info : sortFields)
+		{
+			Comparable field1 = (Comparable)record1[info.getRecordIndex()];
+			Comparable field2 = (Comparable)record2[info.getRecordIndex()];
+
+			if (field1 == null)
+			{
+				ret = (field2 == null) ? 0 : -1;
+			}
+			else if (field2 == null)
+			{
+				ret = 1;
+			}
+			else
+			{
+				if (info.useCollator())
+				{
+					ret = collator.compare(field1, field2);
+				}
+				else
+				{
+					ret = field1.compareTo(field2);
+				}
+			}
+
+			if (ret != 0)
+			{
+				if (info.isDescending())
+				{
+					ret = -ret;
+				}
+				
+				return ret;
+			}
+		}
+
+		return ret;
+	}
+}
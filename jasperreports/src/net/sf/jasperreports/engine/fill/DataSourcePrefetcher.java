@@ -0,0 +1,498 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
+import net.sf.jasperreports.engine.JRRewindableDataSource;
+import net.sf.jasperreports.properties.PropertyConstants;
+
+/**
+ * Reads the data sources of subreports and list components ahead, on the threads of a bounded pool.
+ * 
+ * <p>
+ * When prefetching is enabled, a data source is read on a pool thread as soon as the
+ * data source expression of the subreport or list is evaluated.
+ * The data of the independent subreports and lists in a band is thus retrieved concurrently
+ * while the band is being laid out by the fill thread.
+ * </p>
+ * 
+ * <p>
+ * The records are handed to the fill thread in their original order through a bounded buffer,
+ * so the filled output is identical to the output produced without prefetching.
+ * If the fill thread needs a data source before its prefetch task has started, 
+ * it reads the data source directly.
+ * Data sources that depend on the fill thread (e.g. via thread local values) should not be prefetched.
+ * </p>
+ * 
+ * <p>
+ * A data source instance that is returned again by an expression before being fully read
+ * is not prefetched twice, the remaining records are returned as they would be without prefetching.
+ * The threads that prefetch data sources which end up not being read are stopped when the fill ends.
+ * </p>
+ * 
+ * @see #PROPERTY_DATA_SOURCE_PREFETCH
+ */
+public class DataSourcePrefetcher implements JRFillContext.FillCacheDisposable
+{
+	private static final Log log = LogFactory.getLog(DataSourcePrefetcher.class);
+	
+	public static final String EXCEPTION_MESSAGE_KEY_PREFETCH_INTERRUPTED = "fill.data.source.prefetch.interrupted";
+	
+	/**
+	 * Property that enables prefetching of subreport and list data sources.
+	 * 
+	 * <p>
+	 * The property applies to data sources produced by data source expressions,
+	 * it does not apply to subreports and lists that use connections.
+	 * The property can be set globally, at report level, at subreport level and for
+	 * the dataset runs of list components.
+	 * </p>
+	 * 
+	 * @see #PROPERTY_DATA_SOURCE_PREFETCH_THREADS
+	 * @see #PROPERTY_DATA_SOURCE_PREFETCH_BUFFER_SIZE
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT, PropertyScope.SUBREPORT, PropertyScope.SUBDATASET_RUN},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_DATA_SOURCE_PREFETCH = JRPropertiesUtil.PROPERTY_PREFIX + "fill.data.source.prefetch";
+	
+	/**
+	 * Property that specifies the maximum number of threads used to prefetch data sources during a report fill.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = "4",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_DATA_SOURCE_PREFETCH_THREADS = JRPropertiesUtil.PROPERTY_PREFIX + "fill.data.source.prefetch.threads";
+	
+	/**
+	 * Property that specifies the maximum number of records that are read ahead for a data source.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = "1000",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_DATA_SOURCE_PREFETCH_BUFFER_SIZE = JRPropertiesUtil.PROPERTY_PREFIX + "fill.data.source.prefetch.buffer.size";
+	
+	protected static final String FILL_CACHE_KEY_DATA_SOURCE_PREFETCHER = DataSourcePrefetcher.class.getName();
+	
+	private static final int DEFAULT_THREADS = 4;
+	private static final int DEFAULT_BUFFER_SIZE = 1000;
+	
+	private static final Object[] END_RECORD = new Object[0];
+	
+	private static final int STATE_PENDING = 0;
+	private static final int STATE_PREFETCHING = 1;
+	private static final int STATE_DIRECT = 2;
+	
+	/**
+	 * Returns the prefetcher of a report fill, creating it if needed.
+	 * 
+	 * @param fillContext the fill context
+	 * @return the data source prefetcher
+	 */
+	public static DataSourcePrefetcher getInstance(JRFillContext fillContext)
+	{
+		synchronized (fillContext)
+		{
+			DataSourcePrefetcher prefetcher = (DataSourcePrefetcher) fillContext.getFillCache(FILL_CACHE_KEY_DATA_SOURCE_PREFETCHER);
+			if (prefetcher == null)
+			{
+				JRPropertiesUtil propertiesUtil = fillContext.getMasterFiller().getPropertiesUtil();
+				prefetcher = new DataSourcePrefetcher(
+						propertiesUtil.getIntegerProperty(PROPERTY_DATA_SOURCE_PREFETCH_THREADS, DEFAULT_THREADS), 
+						propertiesUtil.getIntegerProperty(PROPERTY_DATA_SOURCE_PREFETCH_BUFFER_SIZE, DEFAULT_BUFFER_SIZE), 
+						new PrefetchThreadFactory(fillContext));
+				fillContext.setFillCache(FILL_CACHE_KEY_DATA_SOURCE_PREFETCHER, prefetcher);
+			}
+			return prefetcher;
+		}
+	}
+	
+	private final ThreadPoolExecutor executor;
+	private final int bufferSize;
+	private final Map<JRDataSource, PrefetchedDataSource> activeDataSources;
+	
+	/**
+	 * Creates a prefetcher that is not associated with a report fill.
+	 * The prefetcher needs to be disposed by the caller.
+	 * 
+	 * @param threads the maximum number of prefetch threads
+	 * @param bufferSize the maximum number of records read ahead for a data source
+	 */
+	public DataSourcePrefetcher(int threads, int bufferSize)
+	{
+		this(threads, bufferSize, Executors.defaultThreadFactory());
+	}
+	
+	protected DataSourcePrefetcher(int threads, int bufferSize, ThreadFactory threadFactory)
+	{
+		threads = Math.max(1, threads);
+		this.bufferSize = Math.max(1, bufferSize);
+		this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, 
+				new LinkedBlockingQueue<Runnable>(), threadFactory);
+		this.activeDataSources = new IdentityHashMap<JRDataSource, PrefetchedDataSource>();
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("created data source prefetcher with " + threads + " threads and buffer size " + this.bufferSize);
+		}
+	}
+	
+	/**
+	 * Starts reading a data source ahead.
+	 * 
+	 * @param dataSource the data source
+	 * @param fields the fields whose values are read for each record
+	 * @return a data source that returns the prefetched records
+	 */
+	public JRDataSource prefetch(JRDataSource dataSource, JRField[] fields)
+	{
+		if (dataSource == null || dataSource instanceof PrefetchedDataSource)
+		{
+			return dataSource;
+		}
+		
+		PrefetchedDataSource prefetched;
+		synchronized (activeDataSources)
+		{
+			prefetched = activeDataSources.get(dataSource);
+			if (prefetched != null)
+			{
+				// the same data source instance has not been fully read yet,
+				// continuing with the remaining records as it would happen without prefetching
+				return prefetched;
+			}
+			
+			prefetched = dataSource instanceof JRRewindableDataSource 
+					? new RewindablePrefetchedDataSource((JRRewindableDataSource) dataSource, fields)
+					: new PrefetchedDataSource(dataSource, fields);
+			activeDataSources.put(dataSource, prefetched);
+		}
+		
+		prefetched.submit();
+		return prefetched;
+	}
+	
+	protected void ended(PrefetchedDataSource prefetched)
+	{
+		synchronized (activeDataSources)
+		{
+			if (activeDataSources.get(prefetched.dataSource) == prefetched)
+			{
+				activeDataSources.remove(prefetched.dataSource);
+			}
+		}
+	}
+
+	@Override
+	public void dispose()
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("shutting down data source prefetcher");
+		}
+		
+		executor.shutdownNow();
+		
+		synchronized (activeDataSources)
+		{
+			activeDataSources.clear();
+		}
+	}
+	
+	protected class PrefetchedDataSource implements JRDataSource, Runnable
+	{
+		protected final JRDataSource dataSource;
+		private final JRField[] fields;
+		private final Map<String, Integer> fieldIndexes;
+		
+		private final AtomicInteger state;
+		private final BlockingQueue<Object[]> buffer;
+		private final CountDownLatch finished;
+		private volatile Future<?> future;
+		private volatile Throwable error;
+		
+		private Object[] currentRecord;
+		private boolean ended;
+		
+		protected PrefetchedDataSource(JRDataSource dataSource, JRField[] fields)
+		{
+			this.dataSource = dataSource;
+			this.fields = fields == null ? new JRField[0] : fields;
+			this.fieldIndexes = new HashMap<String, Integer>();
+			for (int i = 0; i < this.fields.length; i++)
+			{
+				fieldIndexes.put(this.fields[i].getName(), i);
+			}
+			
+			this.state = new AtomicInteger(STATE_PENDING);
+			this.buffer = new ArrayBlockingQueue<Object[]>(bufferSize);
+			this.finished = new CountDownLatch(1);
+		}
+		
+		protected void submit()
+		{
+			future = executor.submit(this);
+		}
+		
+		@Override
+		public void run()
+		{
+			if (!state.compareAndSet(STATE_PENDING, STATE_PREFETCHING))
+			{
+				// the data source is read directly
+				return;
+			}
+			
+			try
+			{
+				while (dataSource.next())
+				{
+					Object[] record = new Object[fields.length];
+					for (int i = 0; i < fields.length; i++)
+					{
+						record[i] = dataSource.getFieldValue(fields[i]);
+					}
+					buffer.put(record);
+				}
+				buffer.put(END_RECORD);
+			}
+			catch (InterruptedException e)
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("data source prefetch interrupted");
+				}
+			}
+			catch (Throwable e)
+			{
+				error = e;
+				try
+				{
+					buffer.put(END_RECORD);
+				}
+				catch (InterruptedException ie)
+				{
+					if (log.isDebugEnabled())
+					{
+						log.debug("data source prefetch interrupted");
+					}
+				}
+			}
+			finally
+			{
+				finished.countDown();
+			}
+		}
+		
+		protected boolean isDirect()
+		{
+			if (state.get() == STATE_PENDING && state.compareAndSet(STATE_PENDING, STATE_DIRECT))
+			{
+				// the prefetch task did not start yet, reading the data source on this thread
+				executor.remove((Runnable) future);
+			}
+			return state.get() == STATE_DIRECT;
+		}
+
+		@Override
+		public boolean next() throws JRException
+		{
+			if (isDirect())
+			{
+				boolean hasNext = dataSource.next();
+				if (!hasNext)
+				{
+					ended(this);
+				}
+				return hasNext;
+			}
+			
+			if (ended)
+			{
+				return false;
+			}
+			
+			Object[] record;
+			try
+			{
+				record = buffer.take();
+			}
+			catch (InterruptedException e)
+			{
+				throw 
+					new JRException(
+						EXCEPTION_MESSAGE_KEY_PREFETCH_INTERRUPTED, 
+						(Object[]) null, 
+						e);
+			}
+			
+			if (record == END_RECORD)
+			{
+				ended = true;
+				currentRecord = null;
+				ended(this);
+				
+				Throwable prefetchError = error;
+				if (prefetchError != null)
+				{
+					if (prefetchError instanceof JRException)
+					{
+						throw (JRException) prefetchError;
+					}
+					if (prefetchError instanceof RuntimeException)
+					{
+						throw (RuntimeException) prefetchError;
+					}
+					if (prefetchError instanceof Error)
+					{
+						throw (Error) prefetchError;
+					}
+					throw new JRException(prefetchError);
+				}
+				return false;
+			}
+			
+			currentRecord = record;
+			return true;
+		}
+
+		@Override
+		public Object getFieldValue(JRField jrField) throws JRException
+		{
+			if (state.get() == STATE_DIRECT)
+			{
+				return dataSource.getFieldValue(jrField);
+			}
+			
+			Integer index = fieldIndexes.get(jrField.getName());
+			return index == null || currentRecord == null ? null : currentRecord[index];
+		}
+		
+		protected void reset() throws JRException
+		{
+			boolean prefetching = state.getAndSet(STATE_DIRECT) == STATE_PREFETCHING;
+			if (prefetching)
+			{
+				future.cancel(true);
+				try
+				{
+					// the data source can only be used after the prefetch thread has stopped
+					finished.await();
+				}
+				catch (InterruptedException e)
+				{
+					throw 
+						new JRException(
+							EXCEPTION_MESSAGE_KEY_PREFETCH_INTERRUPTED, 
+							(Object[]) null, 
+							e);
+				}
+			}
+			else
+			{
+				executor.remove((Runnable) future);
+			}
+			
+			buffer.clear();
+			currentRecord = null;
+			ended = false;
+		}
+	}
+	
+	protected class RewindablePrefetchedDataSource extends PrefetchedDataSource implements JRRewindableDataSource
+	{
+		protected RewindablePrefetchedDataSource(JRRewindableDataSource dataSource, JRField[] fields)
+		{
+			super(dataSource, fields);
+		}
+
+		@Override
+		public void moveFirst() throws JRException
+		{
+			// reading the data source directly after rewinding
+			reset();
+			((JRRewindableDataSource) dataSource).moveFirst();
+		}
+	}
+	
+	protected static class PrefetchThreadFactory implements ThreadFactory
+	{
+		private final JRFillContext fillContext;
+		private final AtomicInteger threadCount;
+		
+		public PrefetchThreadFactory(JRFillContext fillContext)
+		{
+			this.fillContext = fillContext;
+			this.threadCount = new AtomicInteger();
+		}
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			String threadName = fillContext.getMasterFiller().getJasperReport().getName() 
+					+ " data prefetch #" + threadCount.incrementAndGet();
+			Thread thread = new Thread(r, threadName);
+			thread.setDaemon(true);
+			if (log.isDebugEnabled())
+			{
+				log.debug("created thread " + thread);
+			}
+			return thread;
+		}
+	}
+}
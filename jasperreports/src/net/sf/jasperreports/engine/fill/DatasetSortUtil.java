@@ -23,27 +23,29 @@
  */
 package net.sf.jasperreports.engine.fill;
 
-import java.text.Collator;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRField;
 import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
 import net.sf.jasperreports.engine.JRRuntimeException;
 import net.sf.jasperreports.engine.JRScriptletException;
 import net.sf.jasperreports.engine.JRSortField;
 import net.sf.jasperreports.engine.JRVariable;
 import net.sf.jasperreports.engine.design.JRDesignDatasetRun;
 import net.sf.jasperreports.engine.fill.DatasetSortInfo.RecordField;
-import net.sf.jasperreports.engine.fill.DatasetSortInfo.SortFieldInfo;
 import net.sf.jasperreports.engine.fill.SortedDataSource.SortRecord;
 import net.sf.jasperreports.engine.type.SortFieldTypeEnum;
+import net.sf.jasperreports.properties.PropertyConstants;
 
 
 /**
@@ -54,6 +56,70 @@ public class DatasetSortUtil
 	public static final String EXCEPTION_MESSAGE_KEY_SORT_FIELD_NOT_FOUND = "fill.dataset.sort.field.not.found";
 	public static final String EXCEPTION_MESSAGE_KEY_SORT_VARIABLE_NOT_FOUND = "fill.dataset.sort.variable.not.found";
 
+	/**
+	 * Property that specifies the number of records above which datasets are sorted externally.
+	 * 
+	 * <p>
+	 * When the number of records collected for sorting reaches the threshold, the records are sorted
+	 * in memory and written as a sorted run to a temporary file, and the runs are merged while the 
+	 * sorted data source is iterated.
+	 * The threshold is thus also the maximum number of records kept in memory while sorting.
+	 * </p>
+	 * 
+	 * <p>
+	 * The property can be set globally or at dataset level.
+	 * A value of 0 (which is the default) disables external sorting.
+	 * </p>
+	 * 
+	 * @see ExternalSortedDataSource
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.DATASET},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_EXTERNAL_SORT_RECORD_THRESHOLD = JRPropertiesUtil.PROPERTY_PREFIX + "sort.external.record.threshold";
+
+	/**
+	 * Property that specifies the directory in which the temporary files used for external sorting are created.
+	 * 
+	 * <p>
+	 * If not set, the default temporary directory is used.
+	 * </p>
+	 * 
+	 * @see #PROPERTY_EXTERNAL_SORT_RECORD_THRESHOLD
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = "System property java.io.tmpdir",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.DATASET},
+			sinceVersion = PropertyConstants.VERSION_6_8_0
+			)
+	public static final String PROPERTY_EXTERNAL_SORT_DIRECTORY = JRPropertiesUtil.PROPERTY_PREFIX + "sort.external.directory";
+
+	/**
+	 * Property that specifies the number of records above which in memory dataset sorting is performed in parallel.
+	 * 
+	 * <p>
+	 * Parallel sorting precomputes the sort keys for all records, including collation keys for string fields,
+	 * and sorts them using the common fork/join pool.
+	 * The property can be set globally or at dataset level.
+	 * A value of 0 (which is the default) disables parallel sorting.
+	 * </p>
+	 * 
+	 * @see ParallelRecordSorter
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.DATASET},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_PARALLEL_SORT_RECORD_THRESHOLD = JRPropertiesUtil.PROPERTY_PREFIX + "sort.parallel.record.threshold";
+
 
 	/**
 	 * Returns all current sort field criteria, including the dynamic ones provided as report parameter.
@@ -109,25 +175,50 @@ public class DatasetSortUtil
 		
 		SortFillDatasetRun sortDatasetRun = new SortFillDatasetRun(filler, dataset, sortInfo);
 		
+		JRPropertiesUtil propertiesUtil = JRPropertiesUtil.getInstance(filler.getJasperReportsContext());
+		int parallelThreshold = propertiesUtil.getIntegerProperty(dataset, PROPERTY_PARALLEL_SORT_RECORD_THRESHOLD, 0);
+		int externalThreshold = propertiesUtil.getIntegerProperty(dataset, PROPERTY_EXTERNAL_SORT_RECORD_THRESHOLD, 0);
+		if (externalThreshold > 0)
+		{
+			String directoryName = propertiesUtil.getProperty(dataset, PROPERTY_EXTERNAL_SORT_DIRECTORY);
+			File directory = directoryName == null || directoryName.isEmpty() ? null : new File(directoryName);
+			// the original record order is needed when populating data snapshots
+			sortDatasetRun.setExternalSort(externalThreshold, locale, directory, dataset.isCacheRecording());
+		}
+		
 		List<SortedDataSource.SortRecord> records = sortDatasetRun.sort();
 		
+		ExternalSortedDataSource externalDataSource = sortDatasetRun.getExternalDataSource();
+		if (externalDataSource != null)
+		{
+			return externalDataSource;
+		}
+		
 		// using indirect sorting in order to also preserve the original record order for data caching
 		int recordCount = records.size();
-		// we need wrapper objects for Arrays.sort with comparator
-		Integer[] indexes = new Integer[recordCount];
-		for (int i = 0; i < recordCount; i++) {
-			indexes[i] = i;
+		Integer[] indexes;
+		if (parallelThreshold > 0 && recordCount >= parallelThreshold)
+		{
+			indexes = new ParallelRecordSorter(sortInfo, locale).sort(records);
+		}
+		else
+		{
+			// we need wrapper objects for Arrays.sort with comparator
+			indexes = new Integer[recordCount];
+			for (int i = 0; i < recordCount; i++) {
+				indexes[i] = i;
+			}
+
+			/*   */
+			Arrays.sort(
+				indexes, 
+				new DataSourceComparator(
+					sortInfo, 
+					locale,
+					records
+					)
+				);
 		}
-		
-		/*   */
-		Arrays.sort(
-			indexes, 
-			new DataSourceComparator(
-				sortInfo, 
-				locale,
-				records
-				)
-			);
 		
 		return new SortedDataSource(sortInfo, records, indexes);
 	}
@@ -214,74 +305,6 @@ public class DatasetSortUtil
 }
 
 
-/**
- *
- */
-class DataSourceComparator implements Comparator<Integer>
-{
-	private final Collator collator;
-	private final List<SortFieldInfo> sortFields;
-	private final List<SortedDataSource.SortRecord> records;
-
-	public DataSourceComparator(DatasetSortInfo sortFieldInfo, Locale locale, 
-			List<SortedDataSource.SortRecord> records)
-	{
-		this.collator = Collator.getInstance(locale);
-		this.sortFields = sortFieldInfo.getSortFields();
-		this.records = records;
-	}
-
-	@Override
-	@SuppressWarnings({ "rawtypes", "unchecked" })
-	public int compare(Integer idx1, Integer idx2)
-	{
-		// assuming random access records list
-		Object[] record1 = records.get(idx1).getValues();
-		Object[] record2 = records.get(idx2).getValues();
-		
-		int ret = 0;
-
-		for (SortFieldInfo info : sortFields)
-		{
-			Comparable field1 = (Comparable)record1[info.getRecordIndex()];
-			Comparable field2 = (Comparable)record2[info.getRecordIndex()];
-
-			if (field1 == null)
-			{
-				ret = (field2 == null) ? 0 : -1;
-			}
-			else if (field2 == null)
-			{
-				ret = 1;
-			}
-			else
-			{
-				if (info.useCollator())
-				{
-					ret = collator.compare(field1, field2);
-				}
-				else
-				{
-					ret = field1.compareTo(field2);
-				}
-			}
-
-			if (ret != 0)
-			{
-				if (info.isDescending())
-				{
-					ret = -ret;
-				}
-				
-				return ret;
-			}
-		}
-
-		return ret;
-	}
-}
-
-
 /**
  * Used to iterate on a subdataset and create a sorted data source.
  * 
@@ -293,6 +316,12 @@ class SortFillDatasetRun extends JRFillDatasetRun
 	private DatasetSortInfo sortInfo;
 	private int recordIndex;
 	private List<SortedDataSource.SortRecord> records;
+	
+	private int externalThreshold;
+	private Locale externalLocale;
+	private File externalDirectory;
+	private boolean externalKeepOriginalOrder;
+	private ExternalSortedDataSource externalDataSource;
 
 	
 	public SortFillDatasetRun(BaseReportFiller filler, JRFillDataset dataset, DatasetSortInfo sortInfo) throws JRException
@@ -307,27 +336,64 @@ class SortFillDatasetRun extends JRFillDatasetRun
 	}
 
 	
+	public void setExternalSort(int threshold, Locale locale, File directory, boolean keepOriginalOrder)
+	{
+		this.externalThreshold = threshold;
+		this.externalLocale = locale;
+		this.externalDirectory = directory;
+		this.externalKeepOriginalOrder = keepOriginalOrder;
+	}
+
+	
 	public List<SortedDataSource.SortRecord> sort() throws JRException
 	{
 		recordIndex = 0;
 		records = new ArrayList<SortedDataSource.SortRecord>();
+		externalDataSource = null;
 
+		boolean success = false;
 		try
 		{
 			//all parameters are already set onto the dataset by the main fill process
 
 			iterate();
+			
+			if (externalDataSource != null)
+			{
+				// writing the remaining records as the last run
+				externalDataSource.writeRun(records);
+				records = new ArrayList<SortedDataSource.SortRecord>();
+				externalDataSource.endRuns();
+			}
+			
+			success = true;
 		}
 		finally
 		{
 			dataset.closeQueryExecuter();
 			dataset.reset();
+			
+			if (!success && externalDataSource != null)
+			{
+				// deleting the temporary files
+				externalDataSource.dispose();
+				externalDataSource = null;
+			}
 		}
 		
 		return records;
 	}
 
 	
+	/**
+	 * Returns the external sorted data source, if the records have been written to sorted runs.
+	 */
+	public ExternalSortedDataSource getExternalDataSource()
+	{
+		return externalDataSource;
+	}
+
+	
 	@Override
 	protected void detail() throws JRScriptletException, JRException 
 	{
@@ -360,6 +426,24 @@ class SortFillDatasetRun extends JRFillDatasetRun
 		++recordIndex;
 		
 		records.add(sortRecord);
+		
+		if (externalThreshold > 0 && records.size() >= externalThreshold)
+		{
+			writeExternalRun();
+		}
+	}
+
+
+	protected void writeExternalRun() throws JRException
+	{
+		if (externalDataSource == null)
+		{
+			externalDataSource = new ExternalSortedDataSource(sortInfo, 
+					externalLocale, externalDirectory, externalKeepOriginalOrder);
+		}
+		
+		externalDataSource.writeRun(records);
+		records = new ArrayList<SortedDataSource.SortRecord>(externalThreshold);
 	}
 
 
@@ -86,12 +86,16 @@ public class DelayedFillActions implements VirtualizationListener<VirtualElement
 	
 	private static int assignId(BaseReportFiller reportFiller)
 	{
-		AtomicInteger counter = (AtomicInteger) reportFiller.fillContext.getFillCache(FILL_CACHE_KEY_ID);
-		if (counter == null)
+		AtomicInteger counter;
+		// subfillers can run concurrently when report parts are filled in parallel
+		synchronized (reportFiller.fillContext)
 		{
-			// we just need a mutable integer, there's no actual concurrency here
-			counter = new AtomicInteger();
-			reportFiller.fillContext.setFillCache(FILL_CACHE_KEY_ID, counter);
+			counter = (AtomicInteger) reportFiller.fillContext.getFillCache(FILL_CACHE_KEY_ID);
+			if (counter == null)
+			{
+				counter = new AtomicInteger();
+				reportFiller.fillContext.setFillCache(FILL_CACHE_KEY_ID, counter);
+			}
 		}
 		
 		return counter.incrementAndGet();
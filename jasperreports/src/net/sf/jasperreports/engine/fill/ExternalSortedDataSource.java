@@ -0,0 +1,744 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.engine.virtualization.VirtualizationInput;
+import net.sf.jasperreports.engine.virtualization.VirtualizationOutput;
+
+/**
+ * Sorted data source that keeps the records in sorted runs written to temporary files,
+ * merging the runs while the data source is iterated.
+ * 
+ * <p>
+ * Each chunk of records collected while iterating the dataset is sorted in memory
+ * and written as a run using the virtualization type serializers.
+ * When the records need to be available in their original order (for data snapshots),
+ * they are also written to a separate file in the order in which they were collected.
+ * </p>
+ * 
+ * <p>
+ * Run files are written in segments of a fixed number of records, each segment being
+ * an independent serialization stream, so that reading can start at any segment.
+ * </p>
+ * 
+ * @see DatasetSortUtil#PROPERTY_EXTERNAL_SORT_RECORD_THRESHOLD
+ */
+public class ExternalSortedDataSource extends SortedDataSource
+{
+	private static final Log log = LogFactory.getLog(ExternalSortedDataSource.class);
+	
+	public static final String EXCEPTION_MESSAGE_KEY_ORIGINAL_RECORDS_NOT_AVAILABLE = "data.sorted.external.original.records.not.available";
+	
+	/**
+	 * Number of records in a run file segment.
+	 */
+	private static final int SEGMENT_SIZE = 1000;
+	
+	private final DatasetSortInfo sortInfo;
+	private final Locale locale;
+	private final File directory;
+	private final DataSourceComparator comparator;
+	private final int valueCount;
+	
+	private final List<SortRun> runs = new ArrayList<SortRun>();
+	private final List<RunReader> openReaders = new ArrayList<RunReader>();
+	private SortRun originalRun;
+	private RunWriter originalWriter;
+	private int recordCount;
+	private int[] filteredIndexes;
+	
+	private PriorityQueue<RunReader> mergeQueue;
+	private boolean disposed;
+	
+	/**
+	 * Creates an external sorted data source.
+	 * 
+	 * @param sortInfo the sort information
+	 * @param locale the locale used to compare string values
+	 * @param directory the directory in which the temporary files are created, 
+	 * <code>null</code> for the default temporary directory
+	 * @param keepOriginalOrder whether the records should also be kept in their original order
+	 * @throws JRException
+	 */
+	public ExternalSortedDataSource(DatasetSortInfo sortInfo, Locale locale, 
+			File directory, boolean keepOriginalOrder) throws JRException
+	{
+		super(sortInfo);
+		
+		this.sortInfo = sortInfo;
+		this.locale = locale;
+		this.directory = directory;
+		this.comparator = new DataSourceComparator(sortInfo, locale, null);
+		this.valueCount = sortInfo.getRecordFields().size();
+		
+		if (keepOriginalOrder)
+		{
+			try
+			{
+				originalRun = createRun();
+				originalWriter = new RunWriter(originalRun);
+			}
+			catch (IOException e)
+			{
+				dispose();
+				throw new JRException(e);
+			}
+		}
+	}
+
+	/**
+	 * Sorts a chunk of records and writes it as a run.
+	 * 
+	 * @param records the records, in their original order
+	 * @throws JRException
+	 */
+	public void writeRun(List<SortRecord> records) throws JRException
+	{
+		int count = records.size();
+		if (count == 0)
+		{
+			return;
+		}
+		
+		// sorting indexes as done for in memory sorted data sources, which keeps the sort stable
+		Integer[] indexes = new Integer[count];
+		for (int i = 0; i < count; i++)
+		{
+			indexes[i] = i;
+		}
+		Arrays.sort(indexes, new DataSourceComparator(sortInfo, locale, records));
+		
+		try
+		{
+			SortRun run = createRun();
+			runs.add(run);
+			
+			RunWriter writer = new RunWriter(run);
+			try
+			{
+				for (Integer index : indexes)
+				{
+					writer.write(records.get(index));
+				}
+			}
+			finally
+			{
+				writer.close();
+			}
+			
+			if (originalWriter != null)
+			{
+				for (SortRecord record : records)
+				{
+					originalWriter.write(record);
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			throw new JRException(e);
+		}
+		
+		recordCount += count;
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("wrote sorted run " + runs.size() + " of " + count + " records");
+		}
+	}
+
+	/**
+	 * Called after all runs have been written, prepares the data source for iteration.
+	 * 
+	 * @throws JRException
+	 */
+	public void endRuns() throws JRException
+	{
+		if (originalWriter != null)
+		{
+			try
+			{
+				originalWriter.close();
+			}
+			catch (IOException e)
+			{
+				throw new JRException(e);
+			}
+			originalWriter = null;
+		}
+		
+		openRuns();
+	}
+	
+	protected SortRun createRun() throws IOException
+	{
+		File file = File.createTempFile("sort_run", ".tmp", directory);
+		return new SortRun(file);
+	}
+	
+	protected void openRuns()
+	{
+		closeReaders();
+		
+		mergeQueue = new PriorityQueue<RunReader>(Math.max(1, runs.size()), new Comparator<RunReader>()
+		{
+			@Override
+			public int compare(RunReader reader1, RunReader reader2)
+			{
+				int ret = comparator.compareValues(reader1.current.getValues(), reader2.current.getValues());
+				if (ret == 0)
+				{
+					// preserving the original order for equal records
+					ret = Integer.compare(reader1.current.originalIndex, reader2.current.originalIndex);
+				}
+				return ret;
+			}
+		});
+		
+		try
+		{
+			for (SortRun run : runs)
+			{
+				RunReader reader = new RunReader(run);
+				if (reader.advance())
+				{
+					mergeQueue.add(reader);
+				}
+				else
+				{
+					reader.close();
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			throw new JRRuntimeException(e);
+		}
+	}
+	
+	@Override
+	public boolean next()
+	{
+		RunReader reader = mergeQueue == null ? null : mergeQueue.poll();
+		if (reader == null)
+		{
+			return false;
+		}
+		
+		RunRecord record = reader.current;
+		applyFilteredIndex(record);
+		setCurrentRecord(record);
+		
+		try
+		{
+			if (reader.advance())
+			{
+				mergeQueue.add(reader);
+			}
+			else
+			{
+				reader.close();
+			}
+		}
+		catch (IOException e)
+		{
+			throw new JRRuntimeException(e);
+		}
+		return true;
+	}
+	
+	protected void applyFilteredIndex(RunRecord record)
+	{
+		if (filteredIndexes != null)
+		{
+			int filteredIndex = filteredIndexes[record.originalIndex];
+			if (filteredIndex >= 0)
+			{
+				record.markFiltered();
+				record.setRecordIndex(filteredIndex);
+			}
+		}
+	}
+
+	@Override
+	public void setRecordFilteredIndex(int index)
+	{
+		RunRecord record = (RunRecord) getCurrentRecord();
+		super.setRecordFilteredIndex(index);
+		
+		if (filteredIndexes == null)
+		{
+			filteredIndexes = new int[recordCount];
+			Arrays.fill(filteredIndexes, -1);
+		}
+		filteredIndexes[record.originalIndex] = index;
+	}
+
+	@Override
+	public void moveFirst()
+	{
+		if (!disposed)
+		{
+			openRuns();
+		}
+	}
+
+	/**
+	 * Returns the records in their original order, if the data source was created to keep it.
+	 * 
+	 * <p>
+	 * The records are read from the temporary file.
+	 * Iterating the list reads the file sequentially, while indexed access seeks to the segment
+	 * that contains the record, so that sequential indexed access is also efficient.
+	 * </p>
+	 */
+	@Override
+	public List<SortRecord> getRecords()
+	{
+		if (originalRun == null || originalWriter != null || disposed)
+		{
+			throw 
+				new JRRuntimeException(
+					EXCEPTION_MESSAGE_KEY_ORIGINAL_RECORDS_NOT_AVAILABLE,
+					(Object[])null);
+		}
+		
+		return new OriginalRecords();
+	}
+
+	/**
+	 * Returns the total number of records.
+	 */
+	public int getRecordCount()
+	{
+		return recordCount;
+	}
+
+	/**
+	 * Returns the number of sorted runs.
+	 */
+	public int getRunCount()
+	{
+		return runs.size();
+	}
+
+	@Override
+	public void dispose()
+	{
+		if (disposed)
+		{
+			return;
+		}
+		disposed = true;
+		
+		mergeQueue = null;
+		closeReaders();
+		
+		if (originalWriter != null)
+		{
+			try
+			{
+				originalWriter.close();
+			}
+			catch (IOException e)
+			{
+				log.warn("Error closing sort run file", e);
+			}
+			originalWriter = null;
+		}
+		
+		for (SortRun run : runs)
+		{
+			run.delete();
+		}
+		runs.clear();
+		
+		if (originalRun != null)
+		{
+			originalRun.delete();
+			originalRun = null;
+		}
+	}
+	
+	protected void closeReaders()
+	{
+		for (RunReader reader : new ArrayList<RunReader>(openReaders))
+		{
+			reader.close();
+		}
+	}
+	
+	protected static class SortRun
+	{
+		private final File file;
+		private final List<Long> segmentOffsets = new ArrayList<Long>();
+		private int recordCount;
+		
+		public SortRun(File file)
+		{
+			this.file = file;
+		}
+		
+		public void delete()
+		{
+			if (!file.delete())
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("Could not delete sort run file " + file);
+				}
+			}
+		}
+	}
+	
+	protected static class RunRecord extends SortRecord
+	{
+		private final int originalIndex;
+		
+		public RunRecord(Object[] values, int originalIndex)
+		{
+			super(values, originalIndex);
+			
+			this.originalIndex = originalIndex;
+		}
+	}
+	
+	protected class RunWriter
+	{
+		private final SortRun run;
+		private final PositionOutputStream fileOut;
+		private VirtualizationOutput out;
+		
+		public RunWriter(SortRun run) throws IOException
+		{
+			this.run = run;
+			this.fileOut = new PositionOutputStream(
+					new BufferedOutputStream(new FileOutputStream(run.file)));
+			startSegment();
+		}
+		
+		protected void startSegment() throws IOException
+		{
+			run.segmentOffsets.add(fileOut.position);
+			// a new stream for each segment, the previous one only needs to be flushed
+			out = new VirtualizationOutput(fileOut, null);
+		}
+		
+		public void write(SortRecord record) throws IOException
+		{
+			if (run.recordCount > 0 && run.recordCount % SEGMENT_SIZE == 0)
+			{
+				out.flush();
+				startSegment();
+			}
+			
+			out.writeIntCompressed(record.getRecordIndex());
+			
+			Object[] values = record.getValues();
+			for (int i = 0; i < valueCount; i++)
+			{
+				// not using references so that the written objects are not kept in memory
+				out.writeJRObject(values[i], false, false);
+			}
+			
+			++run.recordCount;
+		}
+		
+		public void close() throws IOException
+		{
+			out.close();
+		}
+	}
+	
+	protected static class PositionOutputStream extends FilterOutputStream
+	{
+		private long position;
+		
+		public PositionOutputStream(OutputStream out)
+		{
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			++position;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			position += len;
+		}
+	}
+	
+	protected class RunReader
+	{
+		private final SortRun run;
+		private VirtualizationInput in;
+		private int segment = -1;
+		private int nextIndex;
+		private RunRecord current;
+		private boolean closed;
+		
+		public RunReader(SortRun run) throws IOException
+		{
+			this(run, 0);
+		}
+		
+		/**
+		 * Creates a reader positioned at a record.
+		 * 
+		 * @param run the run
+		 * @param startIndex the index of the first record that is read
+		 * @throws IOException
+		 */
+		public RunReader(SortRun run, int startIndex) throws IOException
+		{
+			this.run = run;
+			openReaders.add(this);
+			
+			int startSegment = startIndex / SEGMENT_SIZE;
+			if (startSegment < run.segmentOffsets.size())
+			{
+				openSegment(startSegment);
+				this.nextIndex = startSegment * SEGMENT_SIZE;
+				while (nextIndex < startIndex && advance())
+				{
+					// skipping records
+				}
+			}
+			else
+			{
+				this.nextIndex = run.recordCount;
+			}
+		}
+		
+		protected void openSegment(int segmentIndex) throws IOException
+		{
+			if (in != null)
+			{
+				in.close();
+				in = null;
+			}
+			
+			FileInputStream fileIn = new FileInputStream(run.file);
+			try
+			{
+				fileIn.getChannel().position(run.segmentOffsets.get(segmentIndex));
+				in = new VirtualizationInput(new BufferedInputStream(fileIn), null);
+				segment = segmentIndex;
+			}
+			catch (IOException e)
+			{
+				fileIn.close();
+				throw e;
+			}
+		}
+		
+		public boolean advance() throws IOException
+		{
+			if (nextIndex >= run.recordCount)
+			{
+				current = null;
+				return false;
+			}
+			
+			if (nextIndex / SEGMENT_SIZE != segment)
+			{
+				openSegment(nextIndex / SEGMENT_SIZE);
+			}
+			
+			int originalIndex = in.readIntCompressed();
+			Object[] values = new Object[valueCount];
+			for (int i = 0; i < valueCount; i++)
+			{
+				values[i] = in.readJRObject(false);
+			}
+			
+			current = new RunRecord(values, originalIndex);
+			++nextIndex;
+			return true;
+		}
+		
+		public void close()
+		{
+			closed = true;
+			openReaders.remove(this);
+			if (in == null)
+			{
+				return;
+			}
+			
+			try
+			{
+				in.close();
+			}
+			catch (IOException e)
+			{
+				log.warn("Error closing sort run file", e);
+			}
+		}
+	}
+	
+	protected class OriginalRecords extends AbstractList<SortRecord>
+	{
+		private RunReader cursor;
+		
+		@Override
+		public SortRecord get(int index)
+		{
+			if (index < 0 || index >= recordCount)
+			{
+				throw new IndexOutOfBoundsException("Index: " + index + ", size: " + recordCount);
+			}
+			
+			try
+			{
+				// reusing the cursor when reading forward in the same segment or repeating the last record
+				if (cursor == null || cursor.closed || cursor.nextIndex > index + 1
+						|| index / SEGMENT_SIZE > cursor.nextIndex / SEGMENT_SIZE)
+				{
+					if (cursor != null)
+					{
+						cursor.close();
+					}
+					cursor = new RunReader(originalRun, index);
+				}
+				
+				while (cursor.nextIndex <= index)
+				{
+					if (!cursor.advance())
+					{
+						// should not happen
+						throw new IndexOutOfBoundsException("Index: " + index + ", size: " + recordCount);
+					}
+				}
+			}
+			catch (IOException e)
+			{
+				throw new JRRuntimeException(e);
+			}
+			
+			RunRecord record = cursor.current;
+			applyFilteredIndex(record);
+			return record;
+		}
+
+		@Override
+		public int size()
+		{
+			return recordCount;
+		}
+
+		@Override
+		public Iterator<SortRecord> iterator()
+		{
+			final RunReader reader;
+			try
+			{
+				reader = new RunReader(originalRun);
+			}
+			catch (IOException e)
+			{
+				throw new JRRuntimeException(e);
+			}
+			
+			return new Iterator<SortRecord>()
+			{
+				private boolean advanced;
+				private boolean hasNext;
+				
+				@Override
+				public boolean hasNext()
+				{
+					if (!advanced)
+					{
+						try
+						{
+							hasNext = reader.advance();
+						}
+						catch (IOException e)
+						{
+							reader.close();
+							throw new JRRuntimeException(e);
+						}
+						advanced = true;
+						
+						if (!hasNext)
+						{
+							reader.close();
+						}
+					}
+					return hasNext;
+				}
+
+				@Override
+				public SortRecord next()
+				{
+					if (!hasNext())
+					{
+						throw new NoSuchElementException();
+					}
+					
+					advanced = false;
+					RunRecord record = reader.current;
+					applyFilteredIndex(record);
+					return record;
+				}
+
+				@Override
+				public void remove()
+				{
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
@@ -36,10 +36,21 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.collections.map.ReferenceMap;
 import org.apache.commons.logging.Log;
@@ -49,6 +60,7 @@ import net.sf.jasperreports.engine.JRRuntimeException;
 import net.sf.jasperreports.engine.JRVirtualizable;
 import net.sf.jasperreports.engine.JRVirtualizer;
 import net.sf.jasperreports.engine.util.LocalVirtualizationSerializer;
+import net.sf.jasperreports.engine.util.MeasuringVirtualizationSerializer;
 import net.sf.jasperreports.engine.util.VirtualizationSerializer;
 
 
@@ -60,21 +72,64 @@ import net.sf.jasperreports.engine.util.VirtualizationSerializer;
 public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 {
 	private static final Log log = LogFactory.getLog(JRAbstractLRUVirtualizer.class);
+	
+	/**
+	 * The default estimated size of objects for which no serialized size is known.
+	 * 
+	 * @see #setDefaultObjectSize(long)
+	 */
+	public static final long DEFAULT_OBJECT_SIZE = 64 * 1024;
 
 	protected static class CacheReference extends WeakReference<JRVirtualizable>
 	{
 		private final String id;
+		private final long size;
 
 		public CacheReference(JRVirtualizable o, ReferenceQueue<JRVirtualizable> queue)
+		{
+			this(o, queue, 0);
+		}
+
+		public CacheReference(JRVirtualizable o, ReferenceQueue<JRVirtualizable> queue, long size)
 		{
 			super(o, queue);
 			id = o.getUID();
+			this.size = size;
 		}
 
 		public String getId()
 		{
 			return id;
 		}
+
+		/**
+		 * Returns the estimated size of the object, as serialized bytes.
+		 */
+		public long getSize()
+		{
+			return size;
+		}
+	}
+
+	/**
+	 * Policies used to choose the objects evicted from the in-memory cache.
+	 */
+	public enum EvictionPolicy
+	{
+		/**
+		 * The least recently used objects are evicted first.
+		 */
+		LRU,
+		
+		/**
+		 * 2Q-style policy in which objects that were not accessed again since being 
+		 * registered or paged in are evicted first, in FIFO order, followed by the least
+		 * recently used among the objects that were accessed again.
+		 * <p>
+		 * This prevents objects that are only accessed once, such as pages scanned
+		 * by an exporter, from flushing frequently used objects out of the cache.
+		 */
+		TWO_QUEUE
 	}
 
 	/**
@@ -86,11 +141,15 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 		private final int maxSize;
 		private final ReferenceQueue<JRVirtualizable> refQueue;
 		private final LinkedHashMap<String, CacheReference> map;
+		// objects not accessed since put, only used by the 2Q policy
+		private final LinkedHashMap<String, CacheReference> probation;
+		private long totalSize;
 
 		Cache(int maxSize)
 		{
 			this.maxSize = maxSize;
 			map = new LinkedHashMap<String, CacheReference>(16, 0.75f, true);
+			probation = new LinkedHashMap<String, CacheReference>();
 			refQueue = new ReferenceQueue<JRVirtualizable>();
 		}
 
@@ -117,7 +176,12 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 
 		protected CacheReference toMapValue(JRVirtualizable val)
 		{
-			return val == null ? null : new CacheReference(val, refQueue);
+			return toMapValue(val, estimatedSize());
+		}
+
+		protected CacheReference toMapValue(JRVirtualizable val, long size)
+		{
+			return val == null ? null : new CacheReference(val, refQueue, size);
 		}
 
 		protected void purge()
@@ -125,42 +189,96 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 			CacheReference ref;
 			while ((ref = (CacheReference) refQueue.poll()) != null)
 			{
-				map.remove(ref.getId());
+				removeEntry(ref.getId());
+			}
+		}
+		
+		protected CacheReference removeEntry(String id)
+		{
+			CacheReference ref = map.remove(id);
+			if (ref == null)
+			{
+				ref = probation.remove(id);
+			}
+			
+			if (ref != null)
+			{
+				totalSize -= ref.getSize();
 			}
+			return ref;
 		}
 
 		public boolean contains(String id)
 		{
 			purge();
 			
-			return map.containsKey(id);
+			return map.containsKey(id) || probation.containsKey(id);
 		}
 		
 		public JRVirtualizable get(String id)
 		{
 			purge();
 
-			return getMapValue(map.get(id));
+			CacheReference ref = map.get(id);
+			if (ref == null)
+			{
+				ref = probation.remove(id);
+				if (ref != null)
+				{
+					// accessed again, promoting
+					map.put(id, ref);
+				}
+			}
+			return getMapValue(ref);
 		}
 
 		public JRVirtualizable put(String id, JRVirtualizable o)
+		{
+			return put(id, o, estimatedSize());
+		}
+
+		public JRVirtualizable put(String id, JRVirtualizable o, long size)
 		{
 			purge();
 
-			return getMapValue(map.put(id, toMapValue(o)));
+			boolean accessed = evictionPolicy == EvictionPolicy.LRU || map.containsKey(id);
+			CacheReference old = removeEntry(id);
+			CacheReference ref = toMapValue(o, size);
+			if (ref != null)
+			{
+				(accessed ? map : probation).put(id, ref);
+				totalSize += size;
+			}
+			return getMapValue(old);
+		}
+		
+		/**
+		 * Returns the estimated size of the objects in the cache, as serialized bytes.
+		 */
+		public long getTotalSize()
+		{
+			return totalSize;
+		}
+		
+		public int size()
+		{
+			return map.size() + probation.size();
 		}
 
 		public List<JRVirtualizable> evictionCandidates()
 		{
-			if (map.size() <= maxSize)
+			long maxBytes = maxMemorySize;
+			int size = size();
+			if (size <= maxSize && (maxBytes <= 0 || totalSize <= maxBytes))
 			{
 				return Collections.<JRVirtualizable>emptyList();
 			}
 			
-			int candidateCount = map.size() - maxSize;
+			int excessCount = size - maxSize;
+			long excessBytes = maxBytes <= 0 ? 0 : totalSize - maxBytes;
 			List<JRVirtualizable> candidates = new ArrayList<JRVirtualizable>();
-			Iterator<Entry<String, CacheReference>> mapIterator = map.entrySet().iterator();
-			while (candidates.size() < candidateCount && mapIterator.hasNext())
+			Iterator<Entry<String, CacheReference>> mapIterator = entryIterator();
+			while ((excessCount > 0 || excessBytes > 0) && mapIterator.hasNext())
 			{
 				Entry<String, CacheReference> entry = mapIterator.next();
 				JRVirtualizable value = getMapValue(entry.getValue());
@@ -168,7 +286,8 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 				if (value == null)
 				{
 					// this entry will get removed by purge()
-					--candidateCount;
+					--excessCount;
+					excessBytes -= entry.getValue().getSize();
 				}
 				else if (isEvictable(value))
 				{
@@ -178,10 +297,12 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 					}
 					
 					candidates.add(value);
+					--excessCount;
+					excessBytes -= entry.getValue().getSize();
 				}
 			}
 
-			if (candidates.size() < candidateCount)
+			if (excessCount > 0 || excessBytes > 0)
 			{
 				log.debug("The virtualizer is used by more contexts than its in-memory cache size " + maxSize);
 			}
@@ -189,37 +310,80 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 			return candidates;
 		}
 		
+		protected Iterator<Entry<String, CacheReference>> entryIterator()
+		{
+			// objects in probation come first
+			final Iterator<Entry<String, CacheReference>> probationIt = probation.entrySet().iterator();
+			final Iterator<Entry<String, CacheReference>> mapIt = map.entrySet().iterator();
+			return new Iterator<Entry<String, CacheReference>>()
+			{
+				private Iterator<Entry<String, CacheReference>> current = probationIt;
+				private CacheReference last;
+				
+				@Override
+				public boolean hasNext()
+				{
+					if (current.hasNext())
+					{
+						return true;
+					}
+					
+					if (current == probationIt)
+					{
+						current = mapIt;
+						return current.hasNext();
+					}
+					return false;
+				}
+
+				@Override
+				public Entry<String, CacheReference> next()
+				{
+					hasNext();
+					Entry<String, CacheReference> entry = current.next();
+					last = entry.getValue();
+					return entry;
+				}
+
+				@Override
+				public void remove()
+				{
+					current.remove();
+					totalSize -= last.getSize();
+				}
+			};
+		}
+		
 		public JRVirtualizable remove(String id)
 		{
 			purge();
 
-			return getMapValue(map.remove(id));
+			return getMapValue(removeEntry(id));
 		}
 
 		public Iterator<String> idIterator()
 		{
 			purge();
 
-			final Iterator<CacheReference> valsIt = map.values().iterator();
+			final Iterator<Entry<String, CacheReference>> entriesIt = entryIterator();
 			return new Iterator<String>()
 			{
 				@Override
 				public boolean hasNext()
 				{
-					return valsIt.hasNext();
+					return entriesIt.hasNext();
 				}
 
 				@Override
 				public String next()
 				{
-					CacheReference ref = valsIt.next();
-					return ref.getId();
+					return entriesIt.next().getKey();
 				}
 
 				@Override
 				public void remove()
 				{
-					valsIt.remove();
+					entriesIt.remove();
 				}
 			};
 		}
@@ -236,6 +400,16 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 	protected ReferenceMap lastObjectSet;
 
 	private boolean readOnly;
+	
+	private volatile WriteBehindQueue writeBehindQueue;
+	private final AtomicLong queuedPageOutCount = new AtomicLong();
+	private final AtomicLong writeBehindCount = new AtomicLong();
+	
+	private final MeasuringVirtualizationSerializer measuringSerializer;
+	private final VirtualizerStatistics statistics;
+	private volatile long maxMemorySize;
+	private volatile long defaultObjectSize = DEFAULT_OBJECT_SIZE;
+	private volatile EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
 
 	/**
 	 * @param maxSize
@@ -249,7 +423,9 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 
 	protected JRAbstractLRUVirtualizer(VirtualizationSerializer serializer, int maxSize)
 	{
-		this.serializer = serializer;
+		this.measuringSerializer = new MeasuringVirtualizationSerializer(serializer);
+		this.serializer = measuringSerializer;
+		this.statistics = new VirtualizerStatistics();
 		
 		this.pagedIn = new Cache(maxSize);
 		this.pagedOut = new ReferenceMap(ReferenceMap.HARD, ReferenceMap.WEAK);
@@ -342,6 +518,151 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 		return readOnly || o.getContext().isReadOnly();
 	}
 
+	/**
+	 * Sets the maximum estimated size of the objects kept in memory.
+	 * <p/>
+	 * The size of an object is estimated as the number of bytes it took when last serialized.
+	 * Objects that have not yet been serialized are estimated at the average serialized object size,
+	 * or at the {@link #setDefaultObjectSize(long) default object size} if no object has been
+	 * serialized yet.
+	 * <p/>
+	 * Objects are evicted when either the object count limit or the size limit is exceeded.
+	 * A virtualizer that should only be limited by size can be created with
+	 * <code>Integer.MAX_VALUE</code> as maximum object count.
+	 * 
+	 * @param maxMemorySize the maximum size of the objects kept in memory in bytes, 
+	 * <code>0</code> for no size limit
+	 */
+	public void setMaxMemorySize(long maxMemorySize)
+	{
+		this.maxMemorySize = maxMemorySize;
+	}
+
+	/**
+	 * Returns the maximum estimated size of the objects kept in memory.
+	 * 
+	 * @return the maximum size in bytes, <code>0</code> when there is no size limit
+	 * @see #setMaxMemorySize(long)
+	 */
+	public long getMaxMemorySize()
+	{
+		return maxMemorySize;
+	}
+
+	/**
+	 * Sets the size estimate used for objects when no object has been serialized yet.
+	 * 
+	 * @param defaultObjectSize the estimated object size in bytes
+	 * @see #setMaxMemorySize(long)
+	 */
+	public void setDefaultObjectSize(long defaultObjectSize)
+	{
+		this.defaultObjectSize = defaultObjectSize;
+	}
+
+	public long getDefaultObjectSize()
+	{
+		return defaultObjectSize;
+	}
+
+	/**
+	 * Sets the policy used to choose the objects to evict from memory.
+	 * 
+	 * @param evictionPolicy the eviction policy, {@link EvictionPolicy#LRU LRU} by default
+	 */
+	public void setEvictionPolicy(EvictionPolicy evictionPolicy)
+	{
+		this.evictionPolicy = evictionPolicy == null ? EvictionPolicy.LRU : evictionPolicy;
+	}
+
+	public EvictionPolicy getEvictionPolicy()
+	{
+		return evictionPolicy;
+	}
+	
+	/**
+	 * Returns the counters collected by the virtualizer.
+	 * 
+	 * @return the virtualizer statistics
+	 */
+	public VirtualizerStatistics getStatistics()
+	{
+		return statistics;
+	}
+	
+	protected long estimatedSize()
+	{
+		long averageSize = statistics.getAveragePageOutSize();
+		return averageSize > 0 ? averageSize : defaultObjectSize;
+	}
+
+	/**
+	 * Sets the size of the write-behind queue used to page out evicted objects.
+	 * <p/>
+	 * When the size is positive, evicted objects are handed to a background thread
+	 * that writes them to the external storage, the filling thread only writes
+	 * evicted objects itself when the queue is full.
+	 * An object that is accessed again while waiting in the queue is not written
+	 * and is placed back in the paged in cache.
+	 * <p/>
+	 * By default write-behind is not used and evicted objects are written synchronously.
+	 *
+	 * @param queueSize the maximum number of objects waiting to be paged out,
+	 * <code>0</code> to disable write-behind
+	 */
+	public synchronized void setWriteBehindQueueSize(int queueSize)
+	{
+		WriteBehindQueue currentQueue = writeBehindQueue;
+		if (currentQueue != null)
+		{
+			if (currentQueue.getCapacity() == queueSize)
+			{
+				return;
+			}
+			
+			// placing the pending objects back in the paged in cache
+			for (JRVirtualizable o : currentQueue.drain())
+			{
+				pagedIn.put(o.getUID(), o);
+			}
+			currentQueue.shutdown();
+		}
+		
+		writeBehindQueue = queueSize > 0 ? new WriteBehindQueue(queueSize) : null;
+	}
+
+	/**
+	 * Returns the size of the write-behind queue.
+	 *
+	 * @return the size of the write-behind queue, <code>0</code> if write-behind is not used
+	 * @see #setWriteBehindQueueSize(int)
+	 */
+	public int getWriteBehindQueueSize()
+	{
+		WriteBehindQueue queue = writeBehindQueue;
+		return queue == null ? 0 : queue.getCapacity();
+	}
+
+	/**
+	 * Returns the number of evicted objects placed in the write-behind queue.
+	 * 
+	 * @see #setWriteBehindQueueSize(int)
+	 */
+	public long getQueuedPageOutCount()
+	{
+		return queuedPageOutCount.get();
+	}
+
+	/**
+	 * Returns the number of objects written by the write-behind thread.
+	 * 
+	 * @see #setWriteBehindQueueSize(int)
+	 */
+	public long getWriteBehindCount()
+	{
+		return writeBehindCount.get();
+	}
+
 	@Override
 	public void registerObject(JRVirtualizable o)
 	{
@@ -410,7 +731,8 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 							log.debug("evicting " + uid);
 						}
 						
-						if (!o.getContext().isDisposed())
+						statistics.eviction();
+						if (!o.getContext().isDisposed() && !enqueuePageOut(o))
 						{
 							virtualizeData(o);
 						}
@@ -438,6 +760,67 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 		}
 	}
 
+	protected boolean enqueuePageOut(JRVirtualizable o)
+	{
+		WriteBehindQueue queue = writeBehindQueue;
+		return queue != null && queue.offer(o);
+	}
+
+	/**
+	 * Removes an object from the write-behind queue.
+	 * 
+	 * @param uid the object UID
+	 * @return the object, or <code>null</code> if the object was not waiting to be paged out
+	 */
+	protected final synchronized JRVirtualizable cancelPageOut(String uid)
+	{
+		WriteBehindQueue queue = writeBehindQueue;
+		return queue == null ? null : queue.cancel(uid);
+	}
+
+	protected void writeBehind(WriteBehindQueue queue, JRVirtualizable o)
+	{
+		JRVirtualizationContext context = o.getContext();
+		context.lock();
+		try
+		{
+			synchronized (this)
+			{
+				if (!queue.complete(o))
+				{
+					if (log.isDebugEnabled())
+					{
+						log.debug("page out cancelled for " + o.getUID());
+					}
+					return;
+				}
+			}
+
+			if (!context.isDisposed())
+			{
+				virtualizeData(o);
+				writeBehindCount.incrementAndGet();
+			}
+		}
+		catch (RuntimeException e)
+		{
+			log.error("Error writing object " + o.getUID(), e);
+			
+			// the data is still in memory
+			synchronized (this)
+			{
+				if (!isPagedOut(o.getUID()))
+				{
+					pagedIn.put(o.getUID(), o);
+				}
+			}
+		}
+		finally
+		{
+			context.unlock();
+		}
+	}
+
 	@Override
 	public void deregisterObject(JRVirtualizable o)
 	{
@@ -461,6 +844,8 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 
 		synchronized(this)
 		{
+			cancelPageOut(uid);
+			
 			JRVirtualizable oldIn = pagedIn.remove(uid);
 			if (oldIn != null)
 			{
@@ -509,6 +894,21 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 			synchronized (this)
 			{
 				internalObject = pagedIn.get(o.getUID());
+				if (internalObject == null)
+				{
+					// the object is accessed again before being written
+					internalObject = cancelPageOut(o.getUID());
+					if (internalObject != null)
+					{
+						pagedIn.put(internalObject.getUID(), internalObject);
+					}
+				}
+			}
+			
+			if (internalObject != null)
+			{
+				// the object was in memory, page ins are counted as misses by requestData
+				statistics.hit();
 			}
 			
 			setLastObject(internalObject);
@@ -532,21 +932,26 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 				}
 				
 				// unvirtualize
+				long size;
 				try
 				{
+					measuringSerializer.resetSizes();
 					pageIn(o);
+					size = measuringSerializer.getReadSize();
 				}
 				catch (IOException e)
 				{
 					log.error("Error devirtualizing object", e);
 					throw new JRRuntimeException(e);
 				}
+				
+				statistics.miss(size);
 
 				synchronized (this)
 				{
 					setLastObject(o);
 					pagedOut.remove(uid);
-					pagedIn.put(uid, o);
+					pagedIn.put(uid, o, size > 0 ? size : estimatedSize());
 				}
 
 				o.afterInternalization();
@@ -597,7 +1002,14 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 			// virtualize
 			try
 			{
+				measuringSerializer.resetSizes();
 				pageOut(o);
+				
+				long size = measuringSerializer.getWrittenSize();
+				if (size > 0)
+				{
+					statistics.pageOut(size);
+				}
 			}
 			catch (IOException e)
 			{
@@ -672,6 +1084,25 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 	protected synchronized void reset()
 	{
 		readOnly = false;
+		
+		clearWriteBehindQueue();
+	}
+
+	/**
+	 * Discards the objects that are waiting to be written by the write-behind thread
+	 * and stops the thread.
+	 * The write-behind queue is replaced by an empty queue that starts a new thread if the
+	 * virtualizer is used again.
+	 */
+	protected final synchronized void clearWriteBehindQueue()
+	{
+		WriteBehindQueue queue = writeBehindQueue;
+		if (queue != null)
+		{
+			queue.drain();
+			queue.shutdown();
+			writeBehindQueue = new WriteBehindQueue(queue.getCapacity());
+		}
 	}
 
 	protected final void disposeAll()
@@ -736,4 +1167,132 @@ public abstract class JRAbstractLRUVirtualizer implements JRVirtualizer
 	 * @param virtualId the ID of the virtualizable object
 	 */
 	protected abstract void dispose(String virtualId);
+
+	/**
+	 * Bounded queue of evicted objects that are written by a background thread.
+	 */
+	protected class WriteBehindQueue implements Runnable
+	{
+		private final int capacity;
+		private final BlockingQueue<JRVirtualizable> queue;
+		// guarded by the virtualizer
+		private final Map<String, JRVirtualizable> pending;
+		private final AtomicBoolean writing;
+		private final ThreadPoolExecutor executor;
+		
+		protected WriteBehindQueue(int capacity)
+		{
+			this.capacity = capacity;
+			this.queue = new ArrayBlockingQueue<JRVirtualizable>(capacity);
+			this.pending = new HashMap<String, JRVirtualizable>();
+			this.writing = new AtomicBoolean();
+			
+			this.executor = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, 
+					new LinkedBlockingQueue<Runnable>(), new WriterThreadFactory());
+			this.executor.allowCoreThreadTimeOut(true);
+		}
+		
+		public int getCapacity()
+		{
+			return capacity;
+		}
+
+		/**
+		 * Called with the object context locked.
+		 */
+		public boolean offer(JRVirtualizable o)
+		{
+			String uid = o.getUID();
+			synchronized (JRAbstractLRUVirtualizer.this)
+			{
+				if (!queue.offer(o))
+				{
+					if (log.isDebugEnabled())
+					{
+						log.debug("write-behind queue full, writing " + uid);
+					}
+					return false;
+				}
+				
+				pending.put(uid, o);
+			}
+			
+			queuedPageOutCount.incrementAndGet();
+			if (log.isDebugEnabled())
+			{
+				log.debug("queued " + uid + " for write-behind");
+			}
+
+			if (writing.compareAndSet(false, true))
+			{
+				executor.execute(this);
+			}
+			return true;
+		}
+		
+		// called when synchronized on the virtualizer
+		protected JRVirtualizable cancel(String uid)
+		{
+			JRVirtualizable o = pending.remove(uid);
+			if (o != null)
+			{
+				queue.remove(o);
+			}
+			return o;
+		}
+		
+		// called when synchronized on the virtualizer
+		protected boolean complete(JRVirtualizable o)
+		{
+			return pending.remove(o.getUID()) == o;
+		}
+		
+		// called when synchronized on the virtualizer
+		protected List<JRVirtualizable> drain()
+		{
+			List<JRVirtualizable> objects = new ArrayList<JRVirtualizable>(pending.values());
+			pending.clear();
+			queue.clear();
+			return objects;
+		}
+		
+		protected void shutdown()
+		{
+			executor.shutdown();
+		}
+
+		@Override
+		public void run()
+		{
+			do
+			{
+				JRVirtualizable o;
+				while ((o = queue.poll()) != null)
+				{
+					writeBehind(this, o);
+				}
+				
+				writing.set(false);
+			}
+			// checking for objects that were queued after the last poll
+			while (!queue.isEmpty() && writing.compareAndSet(false, true));
+		}
+	}
+	
+	protected static class WriterThreadFactory implements ThreadFactory
+	{
+		private static final AtomicInteger threadCount = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			Thread thread = new Thread(r, "virtualizer writer #" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			if (log.isDebugEnabled())
+			{
+				log.debug("created thread " + thread);
+			}
+			return thread;
+		}
+	}
 }
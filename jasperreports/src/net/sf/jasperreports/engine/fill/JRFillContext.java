@@ -24,6 +24,7 @@
 package net.sf.jasperreports.engine.fill;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -38,6 +39,7 @@ import org.apache.commons.logging.LogFactory;
 import net.sf.jasperreports.data.cache.DataCacheHandler;
 import net.sf.jasperreports.data.cache.DataRecorder;
 import net.sf.jasperreports.data.cache.DataSnapshot;
+import net.sf.jasperreports.data.cache.ReportDataCacheHandler;
 import net.sf.jasperreports.engine.Deduplicable;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRPrintElement;
@@ -62,6 +64,11 @@ import net.sf.jasperreports.repo.JasperDesignCache;
  * Context class shared by all the fillers involved in a report (master and subfillers).
  * <p>
  * The context is created by the master filler and inherited by the subfillers.
+ * <p>
+ * Subfillers can run on different threads (e.g. when report parts are filled concurrently),
+ * therefore the caches kept by the context are synchronized on the context object.
+ * Callers that need to atomically look up and create a fill cache object
+ * also synchronize on the context.
  * 
  * @author Lucian Chirita (lucianc@users.sourceforge.net)
  * @see net.sf.jasperreports.engine.fill.JRBaseFiller
@@ -159,7 +166,7 @@ public class JRFillContext
 	 * @see #getLoadedRenderer(Object)
 	 * @see #registerLoadedRenderer(Object, Renderable)
 	 */
-	public boolean hasLoadedRenderer(Object source)
+	public synchronized boolean hasLoadedRenderer(Object source)
 	{
 		return loadedImageRenderers.containsKey(source); 
 	}
@@ -172,7 +179,7 @@ public class JRFillContext
 	 * @return the cached image renderer
 	 * @see #registerLoadedRenderer(Object, Renderable)
 	 */
-	public Renderable getLoadedRenderer(Object source)
+	public synchronized Renderable getLoadedRenderer(Object source)
 	{
 		return loadedImageRenderers.get(source); 
 	}
@@ -187,7 +194,7 @@ public class JRFillContext
 	 * @param renderer the loaded image renderer
 	 * @see #getLoadedRenderer(Object)
 	 */
-	public void registerLoadedRenderer(Object source, Renderable renderer)
+	public synchronized void registerLoadedRenderer(Object source, Renderable renderer)
 	{
 		loadedImageRenderers.put(source, renderer);
 		if (usingVirtualizer)
@@ -214,7 +221,7 @@ public class JRFillContext
 	 * @see #getLoadedSubreport(Object)
 	 * @see #registerLoadedSubreport(Object, JasperReportSource)
 	 */
-	public boolean hasLoadedSubreport(Object source)
+	public synchronized boolean hasLoadedSubreport(Object source)
 	{
 		return loadedSubreports.containsKey(source); 
 	}
@@ -227,7 +234,7 @@ public class JRFillContext
 	 * @return the cached subreport
 	 * @see #registerLoadedSubreport(Object, JasperReportSource)
 	 */
-	public JasperReportSource getLoadedSubreport(Object source)
+	public synchronized JasperReportSource getLoadedSubreport(Object source)
 	{
 		return loadedSubreports.get(source); 
 	}
@@ -242,7 +249,7 @@ public class JRFillContext
 	 * @param subreport the loaded subreport
 	 * @see #getLoadedSubreport(Object)
 	 */
-	public void registerLoadedSubreport(Object source, JasperReportSource subreport)
+	public synchronized void registerLoadedSubreport(Object source, JasperReportSource subreport)
 	{
 		loadedSubreports.put(source, subreport);
 	}
@@ -445,7 +452,7 @@ public class JRFillContext
 	 * @see #getLoadedTemplate(Object)
 	 * @see #registerLoadedTemplate(Object, ReportTemplateSource)
 	 */
-	public boolean hasLoadedTemplate(Object source)
+	public synchronized boolean hasLoadedTemplate(Object source)
 	{
 		return loadedTemplates.containsKey(source); 
 	}
@@ -458,7 +465,7 @@ public class JRFillContext
 	 * @return the cached template
 	 * @see #registerLoadedTemplate(Object, ReportTemplateSource)
 	 */
-	public ReportTemplateSource getLoadedTemplate(Object source)
+	public synchronized ReportTemplateSource getLoadedTemplate(Object source)
 	{
 		return loadedTemplates.get(source); 
 	}
@@ -473,7 +480,7 @@ public class JRFillContext
 	 * @param templateSource the loaded template
 	 * @see #getLoadedTemplate(Object)
 	 */
-	public void registerLoadedTemplate(Object source, ReportTemplateSource templateSource)
+	public synchronized void registerLoadedTemplate(Object source, ReportTemplateSource templateSource)
 	{
 		loadedTemplates.put(source, templateSource);
 	}
@@ -485,7 +492,7 @@ public class JRFillContext
 	 * @param object the object to be searched or added
 	 * @return a duplicate of the object if found, or the passed object if not
 	 */
-	public <T extends Deduplicable> T deduplicate(T object)
+	public synchronized <T extends Deduplicable> T deduplicate(T object)
 	{
 		return deduplicableRegistry.deduplicate(object);
 	}
@@ -515,6 +522,11 @@ public class JRFillContext
 	}
 
 	public void setReportContext(ReportContext reportContext)
+	{
+		setReportContext(reportContext, Collections.<String, Object>emptyMap());
+	}
+	
+	public void setReportContext(ReportContext reportContext, Map<String, Object> parameterValues)
 	{
 		this.reportContext = reportContext;
 		
@@ -522,6 +534,12 @@ public class JRFillContext
 				DataCacheHandler.PARAMETER_DATA_CACHE_HANDLER);
 		if (cacheHandler != null)
 		{
+			if (cacheHandler instanceof ReportDataCacheHandler)
+			{
+				((ReportDataCacheHandler) cacheHandler).fillStarted(
+						masterFiller.getJasperReport(), parameterValues);
+			}
+			
 			if (cacheHandler.isSnapshotPopulated())
 			{
 				dataSnapshot = cacheHandler.getDataSnapshot();
@@ -565,7 +583,7 @@ public class JRFillContext
 		return dataRecorder;
 	}
 
-	public void addDataRecordResult(FillDatasetPosition fillPosition, Object recorded)
+	public synchronized void addDataRecordResult(FillDatasetPosition fillPosition, Object recorded)
 	{
 		recordedData.add(new Pair<FillDatasetPosition, Object>(fillPosition, recorded));
 	}
@@ -594,18 +612,23 @@ public class JRFillContext
 		return canceled;
 	}
 	
-	public Object getFillCache(String key)
+	public synchronized Object getFillCache(String key)
 	{
 		return fillCaches.get(key);
 	}
 	
-	public void setFillCache(String key, Object value)
+	public synchronized void setFillCache(String key, Object value)
 	{
 		fillCaches.put(key, value);
 	}
 
 	public void dispose()
 	{
+		if (cacheHandler instanceof ReportDataCacheHandler)
+		{
+			((ReportDataCacheHandler) cacheHandler).fillEnded();
+		}
+		
 		for (Object cacheObject : fillCaches.values())
 		{
 			if (cacheObject instanceof FillCacheDisposable)
@@ -24,6 +24,7 @@
 package net.sf.jasperreports.engine.fill;
 
 import java.awt.Color;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -225,6 +226,8 @@ public class JRFillCrosstab extends JRFillElement implements JRCrosstab, JROrigi
 			new JRGenericElementType(JRXmlConstants.JASPERREPORTS_NAMESPACE, CROSSTAB_INTERACTIVE_ELEMENT_NAME);
 
 	protected static final String FILL_CACHE_KEY_CROSSTAB_CHUNK_COUNTER = JRFillCrosstab.class.getName() + "#chunkCounter";
+	
+	protected static final String FILL_CACHE_KEY_EXTERNAL_BUCKETING_SERVICES = JRFillCrosstab.class.getName() + "#externalBucketingServices";
 
 	private final JRFillObjectFactory fillFactory;
 	
@@ -570,7 +573,60 @@ public class JRFillCrosstab extends JRFillElement implements JRCrosstab, JROrigi
 			colBuckets.get(0).setComputeTotal();
 		}
 		
-		return new CrosstabBucketingService(this, rowBuckets, colBuckets, measureList, dataset.isDataPreSorted(), retrieveTotal);
+		CrosstabBucketingService service = new CrosstabBucketingService(this, rowBuckets, colBuckets, measureList, dataset.isDataPreSorted(), retrieveTotal);
+		setExternalBucketing(service);
+		return service;
+	}
+
+	protected void setExternalBucketing(CrosstabBucketingService service)
+	{
+		JRPropertiesUtil propertiesUtil = filler.getPropertiesUtil();
+		int recordThreshold = propertiesUtil.getIntegerProperty(this, 
+				CrosstabBucketingService.PROPERTY_EXTERNAL_BUCKETING_RECORD_THRESHOLD, 0);
+		if (recordThreshold <= 0)
+		{
+			return;
+		}
+		
+		String directoryPath = propertiesUtil.getProperty(this, 
+				CrosstabBucketingService.PROPERTY_EXTERNAL_BUCKETING_DIRECTORY);
+		File directory = directoryPath == null || directoryPath.isEmpty() ? null : new File(directoryPath);
+		service.setExternalBucketing(recordThreshold, directory);
+		
+		// making sure that the temporary files are deleted when the fill ends
+		JRFillContext fillerContext = filler.getFillContext();
+		ExternalBucketingDisposable disposable;
+		synchronized (fillerContext)
+		{
+			disposable = (ExternalBucketingDisposable) fillerContext.getFillCache(
+					FILL_CACHE_KEY_EXTERNAL_BUCKETING_SERVICES);
+			if (disposable == null)
+			{
+				disposable = new ExternalBucketingDisposable();
+				fillerContext.setFillCache(FILL_CACHE_KEY_EXTERNAL_BUCKETING_SERVICES, disposable);
+			}
+		}
+		disposable.add(service);
+	}
+	
+	protected static class ExternalBucketingDisposable implements JRFillContext.FillCacheDisposable
+	{
+		private final List<CrosstabBucketingService> services = new ArrayList<CrosstabBucketingService>();
+		
+		public synchronized void add(CrosstabBucketingService service)
+		{
+			services.add(service);
+		}
+
+		@Override
+		public synchronized void dispose()
+		{
+			for (CrosstabBucketingService service : services)
+			{
+				service.disposeExternalBucketing();
+			}
+			services.clear();
+		}
 	}
 
 	private BucketDefinition createServiceBucket(JRCrosstabGroup group, int groupIndex, byte evaluation) throws JRException
@@ -954,18 +1010,28 @@ public class JRFillCrosstab extends JRFillElement implements JRCrosstab, JROrigi
 	protected int getChunkIndex()
 	{
 		JRFillContext fillerContext = filler.getFillContext();
-		AtomicInteger counter = (AtomicInteger) fillerContext.getFillCache(FILL_CACHE_KEY_CROSSTAB_CHUNK_COUNTER);
-		if (counter == null)
+		AtomicInteger counter;
+		// crosstabs can be filled concurrently in report parts
+		synchronized (fillerContext)
 		{
-			// we just need a mutable integer, there's no actual concurrency here
-			counter = new AtomicInteger();
-			fillerContext.setFillCache(FILL_CACHE_KEY_CROSSTAB_CHUNK_COUNTER, counter);
+			counter = (AtomicInteger) fillerContext.getFillCache(FILL_CACHE_KEY_CROSSTAB_CHUNK_COUNTER);
+			if (counter == null)
+			{
+				counter = new AtomicInteger();
+				fillerContext.setFillCache(FILL_CACHE_KEY_CROSSTAB_CHUNK_COUNTER, counter);
+			}
 		}
 		
 		int chunkIndex = counter.getAndIncrement();
 		return chunkIndex;
 	}
 	
+	protected CrosstabCell[] getCellRow(int rowIndex) throws JRException
+	{
+		// the cells are not kept in memory when bucketed externally
+		return cellData != null ? cellData[rowIndex] : bucketingService.getCrosstabCellRow(rowIndex);
+	}
+	
 	protected HorizontalPosition concreteHorizontalPosition()
 	{
 		HorizontalPosition position = getHorizontalPosition();
@@ -2462,7 +2528,7 @@ public class JRFillCrosstab extends JRFillElement implements JRCrosstab, JROrigi
 			rowYs.clear();			
 			rowYs.add(0);
 
-			for (rowIdx = 0; rowIdx < cellData.length - startRowIndex; ++rowIdx)
+			for (rowIdx = 0; rowIdx < rowHeadersData[0].length - startRowIndex; ++rowIdx)
 			{
 				initPreparedRow();
 				
@@ -2478,7 +2544,7 @@ public class JRFillCrosstab extends JRFillElement implements JRCrosstab, JROrigi
 				rowYs.add(rowYs.get(rowIdx) + preparedRowHeight);
 			}
 			
-			if (rowIdx < cellData.length - startRowIndex)//overflow
+			if (rowIdx < rowHeadersData[0].length - startRowIndex)//overflow
 			{
 				releasePreparedRow();
 				
@@ -2551,9 +2617,10 @@ public class JRFillCrosstab extends JRFillElement implements JRCrosstab, JROrigi
 		
 		private void prepareRow(int xOffset, int availableHeight) throws JRException
 		{
+			CrosstabCell[] rowData = getCellRow(rowIdx + startRowIndex);
 			for (int col = startColumnIndex; col < lastColumnIndex; ++col)
 			{
-				CrosstabCell data = cellData[rowIdx + startRowIndex][col];
+				CrosstabCell data = rowData[col];
 				boolean overflow = prepareDataCell(data, col, availableHeight, xOffset);
 				
 				if (overflow)
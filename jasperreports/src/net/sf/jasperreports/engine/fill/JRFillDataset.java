@@ -951,6 +951,11 @@ public class JRFillDataset implements JRDataset, DatasetFillContext
 		}
 	}
 
+	protected boolean isCacheRecording()
+	{
+		return dataRecorder != null;
+	}
+
 	protected void cacheEnd()
 	{
 		if (dataRecorder != null && !dataRecorder.hasEnded())
@@ -1320,6 +1325,12 @@ public class JRFillDataset implements JRDataset, DatasetFillContext
 			// if the whole data source was iterated, submit the recorded data
 			cacheEnd();
 		}
+		
+		if (sortedDataSource && dataSource instanceof SortedDataSource)
+		{
+			// release the resources held by external sorting
+			((SortedDataSource) dataSource).dispose();
+		}
 	}
 
 	protected void closeQueryExecuter()
@@ -521,6 +521,13 @@ public class JRFillSubreport extends JRFillElement implements JRSubreport
 			{
 				dataSource = (JRDataSource) evaluateExpression(
 						getDataSourceExpression(), evaluation);
+				
+				if (dataSource != null 
+						&& filler.getPropertiesUtil().getBooleanProperty(this, DataSourcePrefetcher.PROPERTY_DATA_SOURCE_PREFETCH, false))
+				{
+					dataSource = DataSourcePrefetcher.getInstance(filler.fillContext).prefetch(
+							dataSource, getReport().getMainDataset().getFields());
+				}
 			}
 			
 			parameterValues = 
@@ -907,85 +914,26 @@ public class JRFillSubreport extends JRFillElement implements JRSubreport
 		}
 		subreportFiller.setPageHeight(pageHeight);
 
-		synchronized (subreportFiller)
+		if (!filling && !toPrint)
 		{
-			JRSubreportRunResult result;
-			if (filling)
-			{
-				if (log.isDebugEnabled())
-				{
-					log.debug("Fill " + filler.fillerId + ": resuming " + subreportFiller.fillerId);
-				}
-
-				result = runner.resume();
-			}
-			else if (toPrint)
-			{
-				setReprinted(reprinted);
-
-				if (log.isDebugEnabled())
-				{
-					log.debug("Fill " + filler.fillerId + ": starting " + subreportFiller.fillerId);
-				}
-
-				result = runner.start();
-			}
-			else
-			{
-				printPage = null;
-				setPrepareHeight(getHeight());
-				setToPrint(false);
-
-				return willOverflow;
-			}
-			
-			if (result.getException() != null)
-			{
-				Throwable error = result.getException();
-				
-				if (log.isErrorEnabled())
-				{
-					log.error("Fill " + filler.fillerId + ": exception", error);
-				}
-				
-				if (error instanceof RuntimeException)
-				{
-					throw (RuntimeException) error;
-				}
-
-				throw new JRRuntimeException(error);
-			}
-
-			if (result.hasFinished())
-			{
-				if (log.isDebugEnabled())
-				{
-					log.debug("Fill " + filler.fillerId + ": subreport " + subreportFiller.fillerId + " finished");
-				}
-				
-				returnValues.copyValues(returnValuesContext);
-			}
-			else
-			{
-				if (log.isDebugEnabled())
-				{
-					log.debug("Fill " + filler.fillerId + ": subreport " + subreportFiller.fillerId + " to continue");
-				}
-			}
-
-			printPage = subreportFiller.getCurrentPage();
-			setPrepareHeight(result.hasFinished() ? subFillerParent.getCurrentPageStretchHeight() : pageHeight);
+			printPage = null;
+			setPrepareHeight(getHeight());
+			setToPrint(false);
 
-			//if the subreport fill thread has not finished, 
-			// it means that the subreport will overflow on the next page
-			willOverflow = !result.hasFinished();
-			
-			if (!willOverflow)
+			return willOverflow;
+		}
+		
+		if (runner.isFillerLockRequired())
+		{
+			synchronized (subreportFiller)
 			{
-				//the subreport fill thread has finished and the next time we shall create a new one
-				runner.reset();
+				willOverflow = runSubreportPage(filling, reprinted, pageHeight);
 			}
-		}// synchronized
+		}
+		else
+		{
+			willOverflow = runSubreportPage(filling, reprinted, pageHeight);
+		}
 		
 		Collection<JRPrintElement> printElements = getPrintElements();
 		if (
@@ -1032,6 +980,81 @@ public class JRFillSubreport extends JRFillElement implements JRSubreport
 	}
 
 
+	protected boolean runSubreportPage(boolean filling, boolean reprinted, int pageHeight) throws JRException
+	{
+		JRSubreportRunResult result;
+		if (filling)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Fill " + filler.fillerId + ": resuming " + subreportFiller.fillerId);
+			}
+
+			result = runner.resume();
+		}
+		else
+		{
+			setReprinted(reprinted);
+
+			if (log.isDebugEnabled())
+			{
+				log.debug("Fill " + filler.fillerId + ": starting " + subreportFiller.fillerId);
+			}
+
+			result = runner.start();
+		}
+		
+		if (result.getException() != null)
+		{
+			Throwable error = result.getException();
+			
+			if (log.isErrorEnabled())
+			{
+				log.error("Fill " + filler.fillerId + ": exception", error);
+			}
+			
+			if (error instanceof RuntimeException)
+			{
+				throw (RuntimeException) error;
+			}
+
+			throw new JRRuntimeException(error);
+		}
+
+		if (result.hasFinished())
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Fill " + filler.fillerId + ": subreport " + subreportFiller.fillerId + " finished");
+			}
+			
+			returnValues.copyValues(returnValuesContext);
+		}
+		else
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Fill " + filler.fillerId + ": subreport " + subreportFiller.fillerId + " to continue");
+			}
+		}
+
+		printPage = subreportFiller.getCurrentPage();
+		setPrepareHeight(result.hasFinished() ? subFillerParent.getCurrentPageStretchHeight() : pageHeight);
+
+		//if the subreport fill thread has not finished, 
+		// it means that the subreport will overflow on the next page
+		boolean willOverflow = !result.hasFinished();
+		
+		if (!willOverflow)
+		{
+			//the subreport fill thread has finished and the next time we shall create a new one
+			runner.reset();
+		}
+		
+		return willOverflow;
+	}
+
+
 	protected void cancelSubreportFill() throws JRException
 	{
 		if (log.isDebugEnabled())
@@ -1042,9 +1065,17 @@ public class JRFillSubreport extends JRFillElement implements JRSubreport
 		// marking the subreport filler for interruption
 		subreportFiller.setInterrupted(true);
 		
-		synchronized (subreportFiller)
+		if (runner.isFillerLockRequired())
+		{
+			synchronized (subreportFiller)
+			{
+				// forcing the creation of a new thread and a new subreport filler
+				runner.cancel();
+				runner.reset();
+			}
+		}
+		else
 		{
-			// forcing the creation of a new thread and a new subreport filler
 			runner.cancel();
 			runner.reset();
 		}
@@ -107,7 +107,7 @@ public class JRHorizontalFiller extends JRBaseFiller
 
 	@Override
 	@continuable
-	protected synchronized void fillReport() throws JRException
+	protected void fillReport() throws JRException
 	{
 		setLastPageFooter(false);
 
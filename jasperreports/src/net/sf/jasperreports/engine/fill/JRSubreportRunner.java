@@ -45,7 +45,8 @@ public interface JRSubreportRunner
 	/**
 	 * Starts to fill the subreport.
 	 * <p>
-	 * This method is always called by a thread owning the lock on the subreport filler.
+	 * This method is always called by a thread owning the lock on the subreport filler,
+	 * unless {@link #isFillerLockRequired()} returns <code>false</code>.
 	 * 
 	 * @return the result of the fill process
 	 * @throws JRException
@@ -58,7 +59,8 @@ public interface JRSubreportRunner
 	 * This method is called after the fill has been suspended by
 	 * {@link #suspend() suspend} and the subreport should continue on the new page. 
 	 * <p>
-	 * This method is always called by a thread owning the lock on the subreport filler.
+	 * This method is always called by a thread owning the lock on the subreport filler,
+	 * unless {@link #isFillerLockRequired()} returns <code>false</code>.
 	 * 
 	 * @return the result of the fill process
 	 * @throws JRException
@@ -78,7 +80,8 @@ public interface JRSubreportRunner
 	 * This method is called when a subreport is placed on a non splitting band
 	 * and needs to rewind.
 	 * <p>
-	 * This method is always called by a thread owning the lock on the subreport filler.
+	 * This method is always called by a thread owning the lock on the subreport filler,
+	 * unless {@link #isFillerLockRequired()} returns <code>false</code>.
 	 * 
 	 * @throws JRException
 	 */
@@ -90,7 +93,8 @@ public interface JRSubreportRunner
 	 * This method is called when the subreport reaches the end of a page
 	 * and needs to wait for the master to create a new page.
 	 * <p>
-	 * This method is always called by a thread owning the lock on the subreport filler.
+	 * This method is always called by a thread owning the lock on the subreport filler,
+	 * unless {@link #isFillerLockRequired()} returns <code>false</code>.
 	 * 
 	 * @throws JRException
 	 */
@@ -101,4 +105,18 @@ public interface JRSubreportRunner
 	 * Aborts the current fill.
 	 */
 	void abort();
+	
+	/**
+	 * Determines whether the runner synchronizes the master and subreport fills using the 
+	 * monitor of the subreport filler.
+	 * <p>
+	 * Runners that return <code>false</code> coordinate the fills by other means,
+	 * and the methods of the runner are called without owning the lock on the subreport filler.
+	 * 
+	 * @return whether the methods of the runner need to be called while owning the lock on the subreport filler
+	 */
+	default boolean isFillerLockRequired()
+	{
+		return true;
+	}
 }
@@ -0,0 +1,233 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import net.sf.jasperreports.engine.JRConstants;
+import net.sf.jasperreports.engine.fill.DatasetSortInfo.SortFieldInfo;
+import net.sf.jasperreports.engine.fill.SortedDataSource.SortRecord;
+
+/**
+ * Sorts dataset records in parallel using precomputed sort keys.
+ * 
+ * <p>
+ * The sort keys are computed for all records before sorting, using fork/join tasks.
+ * String fields compared using the locale collator are converted to {@link CollationKey collation keys},
+ * and integral number values are compared as primitive values.
+ * The keys are then sorted using {@link Arrays#parallelSort(Object[], Comparator)}, 
+ * which is stable and thus produces the same order as the sequential sort.
+ * </p>
+ * 
+ * @see DatasetSortUtil#PROPERTY_PARALLEL_SORT_RECORD_THRESHOLD
+ */
+public class ParallelRecordSorter
+{
+	/**
+	 * Number of records for which the sort keys are computed by a single task.
+	 */
+	private static final int KEYS_TASK_SIZE = 8192;
+	
+	/**
+	 * Marker for sort keys stored as primitive long values.
+	 */
+	private static final Object LONG_KEY = new Object();
+	
+	private final Collator collator;
+	private final int[] recordIndexes;
+	private final boolean[] collatorFlags;
+	private final boolean[] descendingFlags;
+	
+	public ParallelRecordSorter(DatasetSortInfo sortInfo, Locale locale)
+	{
+		this.collator = Collator.getInstance(locale);
+		
+		List<SortFieldInfo> sortFields = sortInfo.getSortFields();
+		int fieldCount = sortFields.size();
+		this.recordIndexes = new int[fieldCount];
+		this.collatorFlags = new boolean[fieldCount];
+		this.descendingFlags = new boolean[fieldCount];
+		for (int i = 0; i < fieldCount; i++)
+		{
+			SortFieldInfo info = sortFields.get(i);
+			recordIndexes[i] = info.getRecordIndex();
+			collatorFlags[i] = info.useCollator();
+			descendingFlags[i] = info.isDescending();
+		}
+	}
+	
+	/**
+	 * Sorts a list of records.
+	 * 
+	 * @param records the records
+	 * @return the indexes of the records in sorted order
+	 */
+	public Integer[] sort(List<SortRecord> records)
+	{
+		int recordCount = records.size();
+		SortKey[] keys = new SortKey[recordCount];
+		ForkJoinPool.commonPool().invoke(new KeysTask(records, keys, 0, recordCount));
+		
+		Arrays.parallelSort(keys, new SortKeyComparator());
+		
+		Integer[] indexes = new Integer[recordCount];
+		for (int i = 0; i < recordCount; i++)
+		{
+			indexes[i] = keys[i].index;
+		}
+		return indexes;
+	}
+	
+	protected SortKey createKey(Collator keyCollator, Object[] values, int index)
+	{
+		int fieldCount = recordIndexes.length;
+		Object[] keyValues = new Object[fieldCount];
+		long[] longValues = null;
+		for (int i = 0; i < fieldCount; i++)
+		{
+			Object value = values[recordIndexes[i]];
+			if (value == null)
+			{
+				keyValues[i] = null;
+			}
+			else if (collatorFlags[i])
+			{
+				keyValues[i] = keyCollator.getCollationKey((String) value);
+			}
+			else if (value instanceof Integer || value instanceof Long
+					|| value instanceof Short || value instanceof Byte)
+			{
+				if (longValues == null)
+				{
+					longValues = new long[fieldCount];
+				}
+				longValues[i] = ((Number) value).longValue();
+				keyValues[i] = LONG_KEY;
+			}
+			else
+			{
+				keyValues[i] = value;
+			}
+		}
+		return new SortKey(index, keyValues, longValues);
+	}
+	
+	protected static class SortKey
+	{
+		private final int index;
+		private final Object[] values;
+		private final long[] longValues;
+		
+		public SortKey(int index, Object[] values, long[] longValues)
+		{
+			this.index = index;
+			this.values = values;
+			this.longValues = longValues;
+		}
+	}
+	
+	protected class SortKeyComparator implements Comparator<SortKey>
+	{
+		@Override
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		public int compare(SortKey key1, SortKey key2)
+		{
+			for (int i = 0; i < descendingFlags.length; i++)
+			{
+				Object value1 = key1.values[i];
+				Object value2 = key2.values[i];
+				
+				int ret;
+				if (value1 == null)
+				{
+					ret = (value2 == null) ? 0 : -1;
+				}
+				else if (value2 == null)
+				{
+					ret = 1;
+				}
+				else if (value1 == LONG_KEY && value2 == LONG_KEY)
+				{
+					ret = Long.compare(key1.longValues[i], key2.longValues[i]);
+				}
+				else
+				{
+					ret = ((Comparable) value1).compareTo(value2);
+				}
+				
+				if (ret != 0)
+				{
+					return descendingFlags[i] ? -ret : ret;
+				}
+			}
+			return 0;
+		}
+	}
+	
+	protected class KeysTask extends RecursiveAction
+	{
+		private static final long serialVersionUID = JRConstants.SERIAL_VERSION_UID;
+		
+		private final List<SortRecord> records;
+		private final SortKey[] keys;
+		private final int start;
+		private final int end;
+		
+		public KeysTask(List<SortRecord> records, SortKey[] keys, int start, int end)
+		{
+			this.records = records;
+			this.keys = keys;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (end - start <= KEYS_TASK_SIZE)
+			{
+				// collators are not meant to be shared by threads
+				Collator keyCollator = (Collator) collator.clone();
+				for (int i = start; i < end; i++)
+				{
+					// assuming random access records list
+					keys[i] = createKey(keyCollator, records.get(i).getValues(), i);
+				}
+			}
+			else
+			{
+				int middle = (start + end) >>> 1;
+				invokeAll(new KeysTask(records, keys, start, middle), 
+						new KeysTask(records, keys, middle, end));
+			}
+		}
+	}
+}
@@ -27,15 +27,27 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
 import net.sf.jasperreports.engine.BookmarkHelper;
 import net.sf.jasperreports.engine.BookmarkIterator;
 import net.sf.jasperreports.engine.JRException;
@@ -43,6 +55,7 @@ import net.sf.jasperreports.engine.JRExpression;
 import net.sf.jasperreports.engine.JRGroup;
 import net.sf.jasperreports.engine.JROrigin;
 import net.sf.jasperreports.engine.JRPrintPage;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
 import net.sf.jasperreports.engine.JRRuntimeException;
 import net.sf.jasperreports.engine.JRScriptletException;
 import net.sf.jasperreports.engine.JRStyle;
@@ -60,12 +73,14 @@ import net.sf.jasperreports.engine.part.FillingPrintPart;
 import net.sf.jasperreports.engine.part.FinalFillingPrintPart;
 import net.sf.jasperreports.engine.part.GroupFillParts;
 import net.sf.jasperreports.engine.part.PartEvaluationTime;
+import net.sf.jasperreports.engine.part.PartFillComponent;
 import net.sf.jasperreports.engine.part.PartPrintOutput;
 import net.sf.jasperreports.engine.type.IncrementTypeEnum;
 import net.sf.jasperreports.engine.type.ResetTypeEnum;
 import net.sf.jasperreports.engine.type.SectionTypeEnum;
 import net.sf.jasperreports.engine.util.JRDataUtils;
 import net.sf.jasperreports.parts.PartFillerParent;
+import net.sf.jasperreports.properties.PropertyConstants;
 
 /**
  * @author Lucian Chirita (lucianc@users.sourceforge.net)
@@ -78,6 +93,55 @@ public class PartReportFiller extends BaseReportFiller
 	public static final String EXCEPTION_MESSAGE_KEY_UNKNOWN_EVALUATION_TIME_TYPE = "fill.part.filler.unknown.evaluation.time.type";
 	public static final String EXCEPTION_MESSAGE_KEY_UNSUPPORTED_SECTION_TYPE = "fill.part.filler.unsupported.section.type";
 	
+	/**
+	 * Property that enables concurrent filling of report parts.
+	 * 
+	 * <p>
+	 * When the property is set, parts that are evaluated immediately (evaluation time <code>now</code>)
+	 * are filled on the threads of a pool, while the report filling thread goes on to evaluate
+	 * the subsequent parts.
+	 * The part expressions are still evaluated by the report filling thread, and the filled parts
+	 * are added to the generated document in their original order.
+	 * </p>
+	 * 
+	 * <p>
+	 * Only parts that do not interact with the master report while being filled are filled concurrently,
+	 * i.e. subreport parts that do not have return values and that refer to band reports.
+	 * Other parts, and parts with delayed evaluation times, are filled by the report filling thread 
+	 * after the concurrently filled parts that precede them are complete.
+	 * Parts that are filled concurrently should not share data source instances.
+	 * </p>
+	 * 
+	 * @see #PROPERTY_PARTS_CONCURRENT_FILL_THREADS
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_PARTS_CONCURRENT_FILL = JRPropertiesUtil.PROPERTY_PREFIX + "fill.parts.concurrent";
+	
+	/**
+	 * Property that specifies the number of threads used to fill report parts concurrently.
+	 * 
+	 * <p>
+	 * If the property is not set or has a value that is not positive,
+	 * the number of available processors is used.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_PARTS_CONCURRENT_FILL_THREADS = JRPropertiesUtil.PROPERTY_PREFIX + "fill.parts.concurrent.threads";
+	
+	protected static final String FILL_CACHE_KEY_PARTS_EXECUTOR = PartReportFiller.class.getName() + ".partsExecutor";
+	
 	private FillParts detailParts;
 	private List<GroupFillParts> groupParts;
 	private Map<String, GroupFillParts> groupPartsByName;
@@ -86,6 +150,9 @@ public class PartReportFiller extends BaseReportFiller
 	
 	private List<DelayedPrintPart> reportEvaluatedParts;
 	
+	private PartsExecutor partsExecutor;
+	private LinkedList<ConcurrentPart> concurrentParts;
+	
 	public PartReportFiller(JasperReportsContext jasperReportsContext, JasperReport jasperReport) throws JRException
 	{
 		this(jasperReportsContext, SimpleJasperReportSource.from(jasperReport), null);
@@ -190,6 +257,8 @@ public class PartReportFiller extends BaseReportFiller
 
 			setBookmarkHelper();
 			
+			initConcurrentParts();
+			
 			//loadStyles();
 
 			jasperPrint.setName(jasperReport.getName());
@@ -239,6 +308,8 @@ public class PartReportFiller extends BaseReportFiller
 		}
 		finally
 		{
+			cancelConcurrentParts();
+			
 			mainDataset.closeDatasource();
 			mainDataset.disposeParameterContributors();
 			
@@ -269,6 +340,37 @@ public class PartReportFiller extends BaseReportFiller
 		}
 	}
 
+	protected void initConcurrentParts()
+	{
+		boolean concurrent = propertiesUtil.getBooleanProperty(mainDataset, PROPERTY_PARTS_CONCURRENT_FILL, false);
+		if (concurrent)
+		{
+			partsExecutor = getPartsExecutor();
+			concurrentParts = new LinkedList<ConcurrentPart>();
+		}
+	}
+
+	protected PartsExecutor getPartsExecutor()
+	{
+		// the executor is shared by the part fillers of the report
+		synchronized (fillContext)
+		{
+			PartsExecutor executor = (PartsExecutor) fillContext.getFillCache(FILL_CACHE_KEY_PARTS_EXECUTOR);
+			if (executor == null)
+			{
+				int threads = propertiesUtil.getIntegerProperty(PROPERTY_PARTS_CONCURRENT_FILL_THREADS, 0);
+				if (threads <= 0)
+				{
+					threads = Runtime.getRuntime().availableProcessors();
+				}
+				
+				executor = new PartsExecutor(threads, new PartsThreadFactory(fillContext));
+				fillContext.setFillCache(FILL_CACHE_KEY_PARTS_EXECUTOR, executor);
+			}
+			return executor;
+		}
+	}
+
 	private void createBoundElemementMaps()
 	{
 		createBoundElementMaps(JREvaluationTime.EVALUATION_TIME_MASTER);
@@ -410,25 +512,20 @@ public class PartReportFiller extends BaseReportFiller
 		{
 		case NOW:
 		{
-			PartPrintOutput appendOutput = partQueue.tail().getOutput();
-			if (appendOutput != null)
+			if (concurrentParts == null)
 			{
-				// can write directly to the previous output
-				part.fill(evaluation, appendOutput);
+				fillPartNow(part, evaluation);
 			}
 			else
 			{
-				// previous part is delayed, creating a new part with local output
-				FillPartPrintOutput localOutput = new FillPartPrintOutput(this);
-				part.fill(evaluation, localOutput);
-				
-				// adding to the queue
-				partQueue.appendOutput(localOutput);
+				fillPartConcurrently(part, evaluation);
 			}
 			break;
 		}
 		case REPORT:
 		{
+			completeConcurrentParts();
+			
 			DelayedPrintPart delayedPart = partQueue.appendDelayed(part);
 			reportEvaluatedParts.add(delayedPart);
 			break;
@@ -444,6 +541,8 @@ public class PartReportFiller extends BaseReportFiller
 						new Object[]{evaluationTime.getEvaluationGroup()});
 			}
 			
+			completeConcurrentParts();
+			
 			DelayedPrintPart delayedPart = partQueue.appendDelayed(part);
 			groupFillParts.addGroupEvaluatedPart(delayedPart);
 			break;
@@ -456,6 +555,164 @@ public class PartReportFiller extends BaseReportFiller
 		}
 	}
 
+	protected void fillPartNow(FillPart part, byte evaluation) throws JRException
+	{
+		PartPrintOutput appendOutput = partQueue.tail().getOutput();
+		if (appendOutput != null)
+		{
+			// can write directly to the previous output
+			part.fill(evaluation, appendOutput);
+		}
+		else
+		{
+			// previous part is delayed, creating a new part with local output
+			FillPartPrintOutput localOutput = new FillPartPrintOutput(this);
+			part.fill(evaluation, localOutput);
+			
+			// adding to the queue
+			partQueue.appendOutput(localOutput);
+		}
+	}
+
+	protected void fillPartConcurrently(FillPart part, byte evaluation) throws JRException
+	{
+		boolean toPrint = part.evaluate(evaluation);
+		if (!toPrint)
+		{
+			return;
+		}
+		
+		PartFillComponent detachedPart = part.detachEvaluated();
+		if (detachedPart == null)
+		{
+			// the part needs to be filled by this thread, after the previous parts
+			completeConcurrentParts();
+			
+			PartPrintOutput appendOutput = partQueue.tail().getOutput();
+			if (appendOutput != null)
+			{
+				part.fillEvaluated(appendOutput);
+			}
+			else
+			{
+				FillPartPrintOutput localOutput = new FillPartPrintOutput(this);
+				part.fillEvaluated(localOutput);
+				partQueue.appendOutput(localOutput);
+			}
+			return;
+		}
+		
+		FillPartPrintOutput localOutput = new FillPartPrintOutput(this);
+		Future<Void> future = partsExecutor.submit(detachedPart, localOutput);
+		concurrentParts.add(new ConcurrentPart(localOutput, future));
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + fillerId + ": submitted part for concurrent fill, " 
+					+ concurrentParts.size() + " pending parts");
+		}
+		
+		// appending the parts that are already filled, and limiting the number of pending parts
+		while (!concurrentParts.isEmpty() 
+				&& (concurrentParts.getFirst().future.isDone() 
+						|| concurrentParts.size() > partsExecutor.getMaxPendingParts()))
+		{
+			appendConcurrentPart(concurrentParts.removeFirst());
+		}
+	}
+
+	/**
+	 * Waits for the parts that are filled concurrently and adds them to the parts queue.
+	 */
+	protected void completeConcurrentParts() throws JRException
+	{
+		if (concurrentParts != null)
+		{
+			while (!concurrentParts.isEmpty())
+			{
+				appendConcurrentPart(concurrentParts.removeFirst());
+			}
+		}
+	}
+
+	protected void appendConcurrentPart(ConcurrentPart concurrentPart) throws JRException
+	{
+		waitConcurrentPart(concurrentPart);
+		
+		FillPartPrintOutput output = concurrentPart.output;
+		PartPrintOutput appendOutput = partQueue.tail().getOutput();
+		if (appendOutput != null)
+		{
+			appendOutput.append(output);
+			output.getDelayedActions().dispose();
+		}
+		else
+		{
+			partQueue.appendOutput(output);
+		}
+	}
+
+	protected void waitConcurrentPart(ConcurrentPart concurrentPart) throws JRException
+	{
+		while (true)
+		{
+			checkInterrupted();
+			
+			try
+			{
+				concurrentPart.future.get();
+				return;
+			}
+			catch (InterruptedException e)
+			{
+				// checkInterrupted will throw
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e)
+			{
+				Throwable cause = e.getCause();
+				if (cause instanceof JRException)
+				{
+					throw (JRException) cause;
+				}
+				if (cause instanceof RuntimeException)
+				{
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error)
+				{
+					throw (Error) cause;
+				}
+				throw new JRException(cause);
+			}
+		}
+	}
+
+	protected void cancelConcurrentParts()
+	{
+		if (concurrentParts != null)
+		{
+			for (ConcurrentPart concurrentPart : concurrentParts)
+			{
+				concurrentPart.future.cancel(true);
+			}
+			concurrentParts.clear();
+		}
+	}
+
+	@Override
+	public synchronized void recordUsedPageWidth(int width)
+	{
+		// also called by the parts that are filled concurrently
+		super.recordUsedPageWidth(width);
+	}
+
+	@Override
+	public synchronized int getUsedPageWidth()
+	{
+		return super.getUsedPageWidth();
+	}
+
 	@Override
 	public boolean isPageFinal(int pageIndex)
 	{
@@ -502,6 +759,8 @@ public class PartReportFiller extends BaseReportFiller
 	
 	protected void fillDelayedEvaluatedParts(List<DelayedPrintPart> parts, byte evaluation) throws JRException
 	{
+		completeConcurrentParts();
+		
 		for (ListIterator<DelayedPrintPart> it = parts.listIterator(); it.hasNext();)
 		{
 			DelayedPrintPart part = it.next();
@@ -518,6 +777,16 @@ public class PartReportFiller extends BaseReportFiller
 
 	public BookmarkHelper getFirstBookmarkHelper()
 	{
+		try
+		{
+			// the bookmarks of the previous parts are needed
+			completeConcurrentParts();
+		}
+		catch (JRException e)
+		{
+			throw new JRRuntimeException(e);
+		}
+		
 		for(FillPrintPart part = partQueue.head(); part != null; part = part.nextPart())
 		{
 			PartPrintOutput output = part.getOutput();
@@ -533,6 +802,90 @@ public class PartReportFiller extends BaseReportFiller
 		return null;
 	}
 	
+	protected static class ConcurrentPart
+	{
+		private final FillPartPrintOutput output;
+		private final Future<Void> future;
+		
+		protected ConcurrentPart(FillPartPrintOutput output, Future<Void> future)
+		{
+			this.output = output;
+			this.future = future;
+		}
+	}
+	
+	/**
+	 * Thread pool used to fill report parts concurrently, shared by the part fillers of a report fill.
+	 */
+	protected static class PartsExecutor implements JRFillContext.FillCacheDisposable
+	{
+		private final ExecutorService executor;
+		private final int maxPendingParts;
+		
+		public PartsExecutor(int threads, ThreadFactory threadFactory)
+		{
+			this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, 
+					new LinkedBlockingQueue<Runnable>(), threadFactory);
+			// keeping the threads busy while not holding too many filled parts in memory
+			this.maxPendingParts = 2 * threads;
+			
+			if (log.isDebugEnabled())
+			{
+				log.debug("created parts executor with " + threads + " threads");
+			}
+		}
+		
+		public Future<Void> submit(final PartFillComponent part, final PartPrintOutput output)
+		{
+			return executor.submit(new Callable<Void>()
+			{
+				@Override
+				public Void call() throws JRException
+				{
+					part.fill(output);
+					return null;
+				}
+			});
+		}
+		
+		public int getMaxPendingParts()
+		{
+			return maxPendingParts;
+		}
+
+		@Override
+		public void dispose()
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	protected static class PartsThreadFactory implements ThreadFactory
+	{
+		private final JRFillContext fillContext;
+		private final AtomicInteger threadCount;
+		
+		public PartsThreadFactory(JRFillContext fillContext)
+		{
+			this.fillContext = fillContext;
+			this.threadCount = new AtomicInteger();
+		}
+
+		@Override
+		public Thread newThread(Runnable r)
+		{
+			String threadName = fillContext.getMasterFiller().getJasperReport().getName() 
+					+ " part fill #" + threadCount.incrementAndGet();
+			Thread thread = new Thread(r, threadName);
+			thread.setDaemon(true);
+			if (log.isDebugEnabled())
+			{
+				log.debug("created thread " + thread);
+			}
+			return thread;
+		}
+	}
+	
 	protected class JasperPrintPartOutput implements PartPrintOutput
 	{
 		private final ReadWriteLock currentFillPartLock = new ReentrantReadWriteLock();
@@ -104,6 +104,27 @@ public class SortedDataSource implements JRRewindableDataSource, IndexedDataSour
 		this.records = records;
 		this.recordIndexes = recordIndexes;
 		
+		initColumnNames(sortInfo);
+
+		this.currentIndex = 0;
+	}
+	
+	/**
+	 * Constructor used by subclasses that provide the sorted records by other means.
+	 * 
+	 * @param sortInfo the sort information
+	 * @see #setCurrentRecord(SortRecord)
+	 */
+	protected SortedDataSource(DatasetSortInfo sortInfo)
+	{
+		this.records = null;
+		this.recordIndexes = null;
+		
+		initColumnNames(sortInfo);
+	}
+
+	private void initColumnNames(DatasetSortInfo sortInfo)
+	{
 		for (ListIterator<RecordField> it = sortInfo.getRecordFields().listIterator(); it.hasNext();)
 		{
 			RecordField recordField = it.next();
@@ -112,8 +133,6 @@ public class SortedDataSource implements JRRewindableDataSource, IndexedDataSour
 				columnNamesMap.put(recordField.getName(), it.previousIndex());
 			}
 		}
-
-		this.currentIndex = 0;
 	}
 
 	@Override
@@ -131,6 +150,16 @@ public class SortedDataSource implements JRRewindableDataSource, IndexedDataSour
 		return true;
 	}
 
+	protected SortRecord getCurrentRecord()
+	{
+		return currentRecord;
+	}
+
+	protected void setCurrentRecord(SortRecord currentRecord)
+	{
+		this.currentRecord = currentRecord;
+	}
+
 	public void setRecordFilteredIndex(int index)
 	{
 		currentRecord.markFiltered();
@@ -167,4 +196,12 @@ public class SortedDataSource implements JRRewindableDataSource, IndexedDataSour
 	{
 		return records;
 	}
+	
+	/**
+	 * Releases the resources held by the data source, called when the dataset is closed.
+	 */
+	public void dispose()
+	{
+		//NOP
+	}
 }
\ No newline at end of file
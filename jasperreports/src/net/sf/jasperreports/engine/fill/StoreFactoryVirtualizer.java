@@ -174,6 +174,8 @@ public class StoreFactoryVirtualizer extends JRAbstractLRUVirtualizer
 			log.debug("disposing " + this);
 		}
 
+		clearWriteBehindQueue();
+
 		synchronized (contextStores)
 		{
 			for (Iterator<?> it = contextStores.values().iterator(); it.hasNext();)
@@ -68,6 +68,7 @@ public class StoreVirtualizer extends JRAbstractLRUVirtualizer
 	@Override
 	public void cleanup()
 	{
+		clearWriteBehindQueue();
 		store.dispose();
 	}
 }
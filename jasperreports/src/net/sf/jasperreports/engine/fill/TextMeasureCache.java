@@ -0,0 +1,366 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.text.AttributedCharacterIterator.Attribute;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.annotations.properties.Property;
+import net.sf.jasperreports.annotations.properties.PropertyScope;
+import net.sf.jasperreports.engine.JRConstants;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.util.JRStyledText;
+import net.sf.jasperreports.properties.PropertyConstants;
+
+/**
+ * Cache of text measurement results shared by the fills that use the same JasperReports context.
+ * 
+ * <p>
+ * The cache is used by {@link TextMeasurer} for texts that have been entirely measured,
+ * the results being keyed by the text, its style runs, the element width, paddings and
+ * paragraph settings.
+ * A cached result is only used when its height fits the height available for the text.
+ * </p>
+ * 
+ * <p>
+ * A cache instance is kept as a value of the {@link JasperReportsContext} for which it was created,
+ * so that fills that resolve fonts using different contexts do not share measurement results.
+ * Note that fills that use a report class loader have their own local context and therefore
+ * their own cache.
+ * </p>
+ * 
+ * @see #PROPERTY_CACHE_SIZE
+ */
+public class TextMeasureCache
+{
+	
+	private static final Log log = LogFactory.getLog(TextMeasureCache.class);
+
+	/**
+	 * Property that specifies the maximum number of text measurement results kept in the cache
+	 * of a JasperReports context.
+	 * 
+	 * <p>
+	 * The cache is recreated when the property value of the context changes.
+	 * A value of 0 disables the cache.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_FILL,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_CACHE_SIZE = JRPropertiesUtil.PROPERTY_PREFIX + "measure.text.cache.size";
+	
+	private static final int SEGMENT_COUNT = 16;
+	
+	private static final String CONTEXT_KEY_CACHE = TextMeasureCache.class.getName() + ".cache";
+	
+	/**
+	 * Returns the cache of a context if enabled by {@link #PROPERTY_CACHE_SIZE}.
+	 * 
+	 * @param jasperReportsContext the context
+	 * @return the cache of the context, or <code>null</code> if the cache is not enabled
+	 */
+	public static TextMeasureCache getInstance(JasperReportsContext jasperReportsContext)
+	{
+		int size = JRPropertiesUtil.getInstance(jasperReportsContext).getIntegerProperty(PROPERTY_CACHE_SIZE, 0);
+		if (size <= 0)
+		{
+			return null;
+		}
+		
+		// not using parent context values as the parent might resolve fonts differently
+		TextMeasureCache cache = (TextMeasureCache) jasperReportsContext.getOwnValue(CONTEXT_KEY_CACHE);
+		if (cache == null || cache.getMaxSize() != size)
+		{
+			synchronized (jasperReportsContext)
+			{
+				cache = (TextMeasureCache) jasperReportsContext.getOwnValue(CONTEXT_KEY_CACHE);
+				if (cache == null || cache.getMaxSize() != size)
+				{
+					if (log.isDebugEnabled())
+					{
+						log.debug("creating text measure cache of size " + size + " for " + jasperReportsContext);
+					}
+					
+					cache = new TextMeasureCache(size);
+					jasperReportsContext.setValue(CONTEXT_KEY_CACHE, cache);
+				}
+			}
+		}
+		return cache;
+	}
+	
+	private final int maxSize;
+	private final Segment[] segments;
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong putCount = new AtomicLong();
+	
+	public TextMeasureCache(int maxSize)
+	{
+		this.maxSize = maxSize;
+		
+		int segmentCount = Math.min(SEGMENT_COUNT, maxSize);
+		int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+		this.segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+		{
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+	
+	protected Segment segment(Key key)
+	{
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return segments[(hash & 0x7fffffff) % segments.length];
+	}
+	
+	/**
+	 * Looks up a measurement result.
+	 * 
+	 * @param key the measurement key
+	 * @param maxHeight the height available for the text
+	 * @return the cached result, or <code>null</code> if not found or if the cached text does not fit the available height 
+	 */
+	public JRMeasuredText get(Key key, int maxHeight)
+	{
+		Segment segment = segment(key);
+		JRMeasuredText measuredText;
+		synchronized (segment)
+		{
+			measuredText = segment.get(key);
+		}
+		
+		if (measuredText == null || measuredText.getTextHeight() > maxHeight)
+		{
+			missCount.incrementAndGet();
+			return null;
+		}
+		
+		hitCount.incrementAndGet();
+		return measuredText;
+	}
+	
+	/**
+	 * Adds the result of a complete measurement to the cache.
+	 * 
+	 * @param key the measurement key, which should not reference mutable objects
+	 * @param measuredText the measurement result
+	 */
+	public void put(Key key, JRMeasuredText measuredText)
+	{
+		Segment segment = segment(key);
+		synchronized (segment)
+		{
+			segment.put(key, measuredText);
+		}
+		putCount.incrementAndGet();
+	}
+	
+	public void clear()
+	{
+		for (Segment segment : segments)
+		{
+			synchronized (segment)
+			{
+				segment.clear();
+			}
+		}
+	}
+	
+	public int size()
+	{
+		int size = 0;
+		for (Segment segment : segments)
+		{
+			synchronized (segment)
+			{
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	public int getMaxSize()
+	{
+		return maxSize;
+	}
+
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+
+	public long getPutCount()
+	{
+		return putCount.get();
+	}
+	
+	/**
+	 * Returns the ratio of lookups that found a result in the cache.
+	 */
+	public double getHitRatio()
+	{
+		long hits = hitCount.get();
+		long lookups = hits + missCount.get();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	protected static class Segment extends LinkedHashMap<Key, JRMeasuredText>
+	{
+		private static final long serialVersionUID = JRConstants.SERIAL_VERSION_UID;
+		
+		private final int maxSize;
+
+		public Segment(int maxSize)
+		{
+			super(64, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, JRMeasuredText> eldest)
+		{
+			return size() > maxSize;
+		}
+	}
+	
+	/**
+	 * Text measurement cache key.
+	 */
+	public static final class Key
+	{
+		private final String text;
+		private final Locale locale;
+		private final Object[] runs;
+		private final Object[] layout;
+		private final int hash;
+		
+		/**
+		 * Creates a key.
+		 * 
+		 * @param styledText the measured text
+		 * @param layout values of the element and paragraph attributes that affect the measurement
+		 */
+		public Key(JRStyledText styledText, Object[] layout)
+		{
+			this.text = styledText.getText();
+			this.locale = styledText.getLocale();
+			
+			List<JRStyledText.Run> styleRuns = styledText.getRuns();
+			this.runs = new Object[styleRuns.size() * 3];
+			int idx = 0;
+			for (JRStyledText.Run run : styleRuns)
+			{
+				runs[idx++] = run.startIndex;
+				runs[idx++] = run.endIndex;
+				runs[idx++] = run.attributes;
+			}
+			
+			this.layout = layout;
+			this.hash = computeHash();
+		}
+		
+		private Key(Key key)
+		{
+			this.text = key.text;
+			this.locale = key.locale;
+			this.runs = key.runs.clone();
+			for (int idx = 2; idx < runs.length; idx += 3)
+			{
+				@SuppressWarnings("unchecked")
+				Map<Attribute, Object> attributes = (Map<Attribute, Object>) runs[idx];
+				runs[idx] = attributes == null ? null : new HashMap<Attribute, Object>(attributes);
+			}
+			this.layout = key.layout;
+			this.hash = key.hash;
+		}
+		
+		/**
+		 * Creates a copy of the key that does not reference the style attribute maps of the measured text.
+		 */
+		public Key detach()
+		{
+			return new Key(this);
+		}
+		
+		private int computeHash()
+		{
+			int hashCode = text.hashCode();
+			hashCode = 31 * hashCode + (locale == null ? 0 : locale.hashCode());
+			hashCode = 31 * hashCode + Arrays.hashCode(runs);
+			hashCode = 31 * hashCode + Arrays.hashCode(layout);
+			return hashCode;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if (obj == this)
+			{
+				return true;
+			}
+			
+			if (!(obj instanceof Key))
+			{
+				return false;
+			}
+			
+			Key key = (Key) obj;
+			return hash == key.hash
+					&& text.equals(key.text)
+					&& (locale == null ? key.locale == null : locale.equals(key.locale))
+					&& Arrays.equals(layout, key.layout)
+					&& Arrays.equals(runs, key.runs);
+		}
+	}
+
+}
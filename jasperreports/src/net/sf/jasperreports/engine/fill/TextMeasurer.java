@@ -26,6 +26,7 @@ package net.sf.jasperreports.engine.fill;
 import java.awt.font.FontRenderContext;
 import java.text.BreakIterator;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
 
@@ -227,6 +228,9 @@ public class TextMeasurer implements JRTextMeasurer
 	protected TextMeasuredState measuredState;
 	protected TextMeasuredState prevMeasuredState;
 	
+	private TextMeasureCache measureCache;
+	private Object[] measureCacheSettings;
+	
 	protected static class TextMeasuredState implements JRMeasuredText, Cloneable
 	{
 		private final boolean saveLineBreakOffsets;
@@ -430,6 +434,16 @@ public class TextMeasurer implements JRTextMeasurer
 		
 		complextLineWrapper = new ComplexTextLineWrapper();
 		complextLineWrapper.init(measureContext);
+		
+		measureCache = TextMeasureCache.getInstance(jasperReportsContext);
+		if (measureCache != null)
+		{
+			// element settings read by the line wrappers
+			measureCacheSettings = new Object[]{
+					propertiesUtil.getProperty(propertiesHolder, PROPERTY_MEASURE_SIMPLE_TEXTS),
+					propertiesUtil.getProperty(propertiesHolder, SimpleTextLineWrapper.PROPERTY_MEASURE_EXACT),
+					};
+		}
 	}
 
 	/**
@@ -537,6 +551,18 @@ public class TextMeasurer implements JRTextMeasurer
 	{
 		/*   */
 		initialize(styledText, remainingTextStart, availableStretchHeight, canOverflow);
+		
+		TextMeasureCache.Key cacheKey = null;
+		if (measureCache != null && remainingTextStart == 0)
+		{
+			cacheKey = createMeasureCacheKey(styledText);
+			TextMeasuredState cachedState = (TextMeasuredState) measureCache.get(cacheKey, maxHeight);
+			if (cachedState != null)
+			{
+				measuredState = cachedState.cloneState();
+				return measuredState;
+			}
+		}
 
 		TextLineWrapper lineWrapper = simpleLineWrapper;
 		// check if the simple wrapper would handle the text
@@ -577,12 +603,55 @@ public class TextMeasurer implements JRTextMeasurer
 
 		if (rendered && lastParagraphStart < remainingTextStart + remainingText.length())
 		{
-			renderParagraph(lineWrapper, lastParagraphStart, lastParagraphText);
+			rendered = renderParagraph(lineWrapper, lastParagraphStart, lastParagraphText);
+		}
+		
+		if (cacheKey != null && rendered)
+		{
+			// the entire text fit, the result does not depend on the available height
+			measureCache.put(cacheKey.detach(), measuredState.cloneState());
 		}
 		
 		return measuredState;
 	}
 	
+	protected TextMeasureCache.Key createMeasureCacheKey(JRStyledText styledText)
+	{
+		TabStop[] tabStops = jrParagraph.getTabStops();
+		Object[] tabStopValues = null;
+		if (tabStops != null)
+		{
+			tabStopValues = new Object[tabStops.length * 2];
+			for (int i = 0; i < tabStops.length; i++)
+			{
+				tabStopValues[2 * i] = tabStops[i].getPosition();
+				tabStopValues[2 * i + 1] = tabStops[i].getAlignment();
+			}
+		}
+		
+		Object[] layout = new Object[]{
+				textElement.getMarkup(),
+				textElement.getFontsize(),
+				width,
+				leftPadding,
+				rightPadding,
+				jrParagraph.getLineSpacing(),
+				jrParagraph.getLineSpacingSize(),
+				jrParagraph.getFirstLineIndent(),
+				jrParagraph.getLeftIndent(),
+				jrParagraph.getRightIndent(),
+				jrParagraph.getSpacingBefore(),
+				jrParagraph.getTabStopWidth(),
+				tabStopValues == null ? null : Arrays.asList(tabStopValues),
+				ignoreMissingFont,
+				measuredState.saveLineBreakOffsets,
+				measureCacheSettings[0],
+				measureCacheSettings[1],
+				getFontRenderContext(),
+				};
+		return new TextMeasureCache.Key(styledText, layout);
+	}
+	
 	protected boolean hasParagraphIndents()
 	{
 		Integer firstLineIndent = jrParagraph.getFirstLineIndent();
@@ -45,16 +45,25 @@ public class ThreadPoolSubreportRunnerFactory implements JRSubreportRunnerFactor
 	public JRSubreportRunner createSubreportRunner(JRFillSubreport fillSubreport, JRBaseFiller subreportFiller)
 	{
 		JRFillContext fillContext = subreportFiller.getFillContext();
-		ExecutorServiceDisposable executor = (ExecutorServiceDisposable) fillContext.getFillCache(THREAD_POOL_KEY);
-		if (executor == null)
+		ExecutorServiceDisposable executor;
+		synchronized (fillContext)
 		{
-			ExecutorService threadExecutor = createThreadExecutor(fillContext);
-			executor = new ExecutorServiceDisposable(threadExecutor);
-			fillContext.setFillCache(THREAD_POOL_KEY, executor);
+			executor = (ExecutorServiceDisposable) fillContext.getFillCache(THREAD_POOL_KEY);
+			if (executor == null)
+			{
+				ExecutorService threadExecutor = createThreadExecutor(fillContext);
+				executor = new ExecutorServiceDisposable(threadExecutor);
+				fillContext.setFillCache(THREAD_POOL_KEY, executor);
+			}
 		}
 
-		return new ThreadExecutorSubreportRunner(fillSubreport, subreportFiller, 
-				executor.getExecutorService());
+		return createSubreportRunner(fillSubreport, subreportFiller, executor.getExecutorService());
+	}
+
+	protected JRSubreportRunner createSubreportRunner(JRFillSubreport fillSubreport, JRBaseFiller subreportFiller,
+			ExecutorService threadExecutor)
+	{
+		return new ThreadExecutorSubreportRunner(fillSubreport, subreportFiller, threadExecutor);
 	}
 
 	protected ExecutorService createThreadExecutor(JRFillContext fillContext)
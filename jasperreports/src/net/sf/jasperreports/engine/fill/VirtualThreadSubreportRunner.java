@@ -0,0 +1,339 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRRuntimeException;
+
+
+/**
+ * Subreport runner that fills the subreport on a thread obtained from an executor and hands off 
+ * pages between the master and subreport fills using a {@link ReentrantLock}.
+ * <p>
+ * Unlike {@link AbstractThreadSubreportRunner}, the runner does not wait on the monitor of the
+ * subreport filler, therefore a virtual thread that waits for its turn to fill does not pin its 
+ * carrier thread on runtimes prior to Java 24.
+ * The runner also works with platform threads.
+ * </p>
+ * 
+ * @see VirtualThreadSubreportRunnerFactory
+ */
+public class VirtualThreadSubreportRunner extends JRSubreportRunnable implements JRSubreportRunner
+{
+	
+	private static final Log log = LogFactory.getLog(VirtualThreadSubreportRunner.class);
+
+	private final JRBaseFiller subreportFiller;
+	private final Executor threadExecutor;
+	
+	private final ReentrantLock lock;
+	private final Condition turnChanged;
+	// guarded by lock
+	private boolean subreportTurn;
+	
+	private boolean filling;
+	
+	public VirtualThreadSubreportRunner(JRFillSubreport fillSubreport, JRBaseFiller subreportFiller,
+			Executor threadExecutor)
+	{
+		super(fillSubreport);
+		this.subreportFiller = subreportFiller;
+		this.threadExecutor = threadExecutor;
+		this.lock = new ReentrantLock();
+		this.turnChanged = lock.newCondition();
+	}
+
+	@Override
+	public boolean isFillerLockRequired()
+	{
+		return false;
+	}
+
+	@Override
+	public boolean isFilling()
+	{
+		return filling;
+	}
+
+	@Override
+	public JRSubreportRunResult start()
+	{
+		filling = true;
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": starting");
+		}
+		
+		lock.lock();
+		try
+		{
+			subreportTurn = true;
+			threadExecutor.execute(this);
+			return waitResult();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public JRSubreportRunResult resume()
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": notifying to continue");
+		}
+		
+		lock.lock();
+		try
+		{
+			//notifing the subreport fill thread that it can continue on the next page
+			subreportTurn = true;
+			turnChanged.signalAll();
+			
+			return waitResult();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	protected JRSubreportRunResult waitResult()
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": waiting for fill result");
+		}
+
+		try
+		{
+			// waiting for the subreport fill thread to fill the current page
+			while (subreportTurn)
+			{
+				turnChanged.await();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			if (subreportFiller.fillContext.isCanceled())
+			{
+				// only debug when cancel was requested
+				if (log.isDebugEnabled())
+				{
+					log.debug("Fill " + subreportFiller.fillerId + ": exception", e);
+				}
+			}
+			else
+			{
+				if (log.isErrorEnabled())
+				{
+					log.error("Fill " + subreportFiller.fillerId + ": exception", e);
+				}
+			}
+			
+			throw 
+				new JRRuntimeException(
+					AbstractThreadSubreportRunner.EXCEPTION_MESSAGE_KEY_THREAD_REPORT_RUNNER_WAIT_ERROR,
+					(Object[])null,
+					e);
+		}
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": notified of fill result");
+		}
+		
+		return runResult();
+	}
+
+	@Override
+	public void reset()
+	{
+		filling = false;
+	}
+
+	@Override
+	public void cancel() throws JRException
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": notifying to continue on cancel");
+		}
+
+		lock.lock();
+		try
+		{
+			// notifying the subreport filling thread that it can continue.
+			// it will stop anyway when trying to fill the current band
+			subreportTurn = true;
+			turnChanged.signalAll();
+
+			if (isRunning())
+			{
+				if (log.isDebugEnabled())
+				{
+					log.debug("Fill " + subreportFiller.fillerId + ": still running, waiting");
+				}
+				
+				try
+				{
+					while (subreportTurn)
+					{
+						turnChanged.await();
+					}
+				}
+				catch (InterruptedException e)
+				{
+					if (log.isErrorEnabled())
+					{
+						log.error("Fill " + subreportFiller.fillerId + ": exception", e);
+					}
+					
+					throw 
+						new JRException(
+							AbstractThreadSubreportRunner.EXCEPTION_MESSAGE_KEY_THREAD_SUBREPORT_RUNNER_WAIT_ERROR,
+							null,
+							e);
+				}
+				
+				if (log.isDebugEnabled())
+				{
+					log.debug("Fill " + subreportFiller.fillerId + ": wait ended");
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void suspend() throws JRException
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": notifying on suspend");
+		}
+		
+		lock.lock();
+		try
+		{
+			//signals to the master filler that is has finished the page
+			subreportTurn = false;
+			turnChanged.signalAll();
+			
+			if (log.isDebugEnabled())
+			{
+				log.debug("Fill " + subreportFiller.fillerId + ": waiting to continue");
+			}
+
+			//waits until the master filler notifies it that can continue with the next page
+			while (!subreportTurn)
+			{
+				turnChanged.await();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			if (subreportFiller.fillContext.isCanceled() || subreportFiller.isDeliberatelyInterrupted())
+			{
+				// only log a debug message if cancel was requested
+				if (log.isDebugEnabled())
+				{
+					log.debug("Fill " + subreportFiller.fillerId + ": exception", e);
+				}
+			}
+			else
+			{
+				if (log.isErrorEnabled())
+				{
+					log.error("Fill " + subreportFiller.fillerId + ": exception", e);
+				}
+			}
+			
+			throw 
+				new JRException(
+					AbstractThreadSubreportRunner.EXCEPTION_MESSAGE_KEY_THREAD_SUBREPORT_RUNNER_WAIT_ERROR,
+					null,
+					e);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": notified to continue");
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		super.run();
+
+		if (log.isDebugEnabled())
+		{
+			log.debug("Fill " + subreportFiller.fillerId + ": notifying of completion");
+		}
+
+		lock.lock();
+		try
+		{
+			//main filler notified that the subreport has finished
+			subreportTurn = false;
+			turnChanged.signalAll();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void abort()
+	{
+		if (subreportFiller.fillingThread != null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("Interrupting subfiller thread " + subreportFiller.fillingThread);
+			}
+
+			subreportFiller.fillingThread.interrupt();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Subreport runner factory that fills subreports on virtual threads.
+ * <p>
+ * A subreport filled by a thread based runner keeps its thread parked while the master
+ * report fills the rest of the page, so a report with many or deeply nested subreports
+ * holds a number of blocked threads during the fill.
+ * Virtual threads make such parked threads cheap, which helps when many reports are filled
+ * at the same time.
+ * </p>
+ * <p>
+ * The factory can be selected by setting the 
+ * {@link JRSubreportRunnerFactory#SUBREPORT_RUNNER_FACTORY net.sf.jasperreports.subreport.runner.factory}
+ * property to this class name.
+ * Virtual threads are available starting with Java 21, on older runtimes the factory falls back
+ * to the pool of platform threads used by {@link ThreadPoolSubreportRunnerFactory}.
+ * The subreport fills are coordinated with the master fill by {@link VirtualThreadSubreportRunner}
+ * using a lock instead of the subreport filler monitor, so that waiting virtual threads do not 
+ * pin their carrier threads on runtimes prior to Java 24.
+ * </p>
+ */
+public class VirtualThreadSubreportRunnerFactory extends ThreadPoolSubreportRunnerFactory
+{
+	private static final Log log = LogFactory.getLog(VirtualThreadSubreportRunnerFactory.class);
+	
+	private static final Method OF_VIRTUAL_METHOD;
+	private static final Method BUILDER_NAME_METHOD;
+	private static final Method BUILDER_FACTORY_METHOD;
+	private static final Method THREAD_PER_TASK_EXECUTOR_METHOD;
+	
+	static
+	{
+		Method ofVirtual = null;
+		Method builderName = null;
+		Method builderFactory = null;
+		Method threadPerTaskExecutor = null;
+		try
+		{
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			builderName = builderClass.getMethod("name", String.class, long.class);
+			builderFactory = builderClass.getMethod("factory");
+			threadPerTaskExecutor = Executors.class.getMethod(
+					"newThreadPerTaskExecutor", ThreadFactory.class);
+			
+			// preview runtimes throw UnsupportedOperationException when preview features are not enabled
+			ofVirtual.invoke(null);
+		}
+		catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException 
+				| InvocationTargetException | SecurityException e)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("virtual threads not available: " + e);
+			}
+			
+			ofVirtual = null;
+		}
+		
+		OF_VIRTUAL_METHOD = ofVirtual;
+		BUILDER_NAME_METHOD = builderName;
+		BUILDER_FACTORY_METHOD = builderFactory;
+		THREAD_PER_TASK_EXECUTOR_METHOD = threadPerTaskExecutor;
+	}
+	
+	/**
+	 * Determines whether the runtime supports virtual threads.
+	 * 
+	 * @return whether virtual threads are supported
+	 */
+	public static boolean isVirtualThreadsSupported()
+	{
+		return OF_VIRTUAL_METHOD != null;
+	}
+	
+	/**
+	 * Creates an executor that starts a new virtual thread for each task.
+	 * 
+	 * @param namePrefix the prefix of the thread names, followed by a counter
+	 * @return a virtual thread executor, or <code>null</code> if the runtime does not support virtual threads
+	 */
+	public static ExecutorService createVirtualThreadExecutor(String namePrefix)
+	{
+		if (!isVirtualThreadsSupported())
+		{
+			return null;
+		}
+		
+		try
+		{
+			Object builder = OF_VIRTUAL_METHOD.invoke(null);
+			builder = BUILDER_NAME_METHOD.invoke(builder, namePrefix, 1L);
+			ThreadFactory threadFactory = (ThreadFactory) BUILDER_FACTORY_METHOD.invoke(builder);
+			return (ExecutorService) THREAD_PER_TASK_EXECUTOR_METHOD.invoke(null, threadFactory);
+		}
+		catch (IllegalAccessException | InvocationTargetException e)
+		{
+			log.warn("failed to create virtual thread executor", e);
+			return null;
+		}
+	}
+
+	@Override
+	protected ExecutorService createThreadExecutor(JRFillContext fillContext)
+	{
+		String namePrefix = fillContext.getMasterFiller().getJasperReport().getName() + " subreports #";
+		ExecutorService threadExecutor = createVirtualThreadExecutor(namePrefix);
+		if (threadExecutor == null)
+		{
+			// falling back to platform threads
+			return super.createThreadExecutor(fillContext);
+		}
+		
+		if (log.isDebugEnabled())
+		{
+			log.debug("created subreports virtual thread executor " + threadExecutor 
+					+ " for " + fillContext.getMasterFiller().getJasperReport().getName());
+		}
+		return threadExecutor;
+	}
+
+	@Override
+	protected JRSubreportRunner createSubreportRunner(JRFillSubreport fillSubreport, JRBaseFiller subreportFiller,
+			ExecutorService threadExecutor)
+	{
+		return new VirtualThreadSubreportRunner(fillSubreport, subreportFiller, threadExecutor);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.fill;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters collected by a {@link JRAbstractLRUVirtualizer LRU virtualizer}.
+ * 
+ * @see JRAbstractLRUVirtualizer#getStatistics()
+ */
+public class VirtualizerStatistics
+{
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong pageOutCount = new AtomicLong();
+	private final AtomicLong pagedOutBytes = new AtomicLong();
+	private final AtomicLong pagedInBytes = new AtomicLong();
+	
+	protected void hit()
+	{
+		hitCount.incrementAndGet();
+	}
+	
+	protected void miss(long bytes)
+	{
+		missCount.incrementAndGet();
+		pagedInBytes.addAndGet(bytes);
+	}
+	
+	protected void eviction()
+	{
+		evictionCount.incrementAndGet();
+	}
+	
+	protected void pageOut(long bytes)
+	{
+		pageOutCount.incrementAndGet();
+		pagedOutBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Returns the number of times objects were accessed while in memory.
+	 * Consecutive accesses to the same object are counted once.
+	 */
+	public long getHitCount()
+	{
+		return hitCount.get();
+	}
+
+	/**
+	 * Returns the number of times objects had to be paged in.
+	 */
+	public long getMissCount()
+	{
+		return missCount.get();
+	}
+	
+	/**
+	 * Returns the ratio of object accesses that did not require paging in.
+	 */
+	public double getHitRatio()
+	{
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0 ? 1d : (double) hits / total;
+	}
+
+	/**
+	 * Returns the number of objects evicted from the in-memory cache.
+	 */
+	public long getEvictionCount()
+	{
+		return evictionCount.get();
+	}
+
+	/**
+	 * Returns the number of objects written to the external storage.
+	 */
+	public long getPageOutCount()
+	{
+		return pageOutCount.get();
+	}
+
+	/**
+	 * Returns the number of serialized bytes written to the external storage.
+	 */
+	public long getPagedOutBytes()
+	{
+		return pagedOutBytes.get();
+	}
+
+	/**
+	 * Returns the number of serialized bytes read from the external storage.
+	 */
+	public long getPagedInBytes()
+	{
+		return pagedInBytes.get();
+	}
+	
+	/**
+	 * Returns the average serialized size of the objects written to the external storage.
+	 * 
+	 * @return the average size, or <code>0</code> if no objects have been written
+	 */
+	public long getAveragePageOutSize()
+	{
+		long count = pageOutCount.get();
+		return count == 0 ? 0 : pagedOutBytes.get() / count;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "hits: " + getHitCount() + ", misses: " + getMissCount() 
+				+ ", evictions: " + getEvictionCount() + ", page outs: " + getPageOutCount()
+				+ ", bytes out: " + getPagedOutBytes() + ", bytes in: " + getPagedInBytes();
+	}
+}
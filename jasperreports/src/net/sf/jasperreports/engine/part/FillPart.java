@@ -66,17 +66,55 @@ public class FillPart
 	
 	public void fill(byte evaluation, PartPrintOutput output) throws JRException
 	{
-		boolean toPrint = evaluatePrintWhenExpression(evaluation);
+		boolean toPrint = evaluate(evaluation);
 		if (!toPrint)
 		{
 			return;
 		}
 		
-		evaluatePartNameExpression(evaluation);
-		fillComponent.evaluate(evaluation);
 		fillComponent.fill(output);
 	}
 
+	/**
+	 * Evaluates the part without filling it.
+	 * 
+	 * @param evaluation the evaluation type
+	 * @return whether the part is to be printed
+	 * @throws JRException
+	 * @see #fillEvaluated(PartPrintOutput)
+	 * @see #detachEvaluated()
+	 */
+	public boolean evaluate(byte evaluation) throws JRException
+	{
+		boolean toPrint = evaluatePrintWhenExpression(evaluation);
+		if (toPrint)
+		{
+			evaluatePartNameExpression(evaluation);
+			fillComponent.evaluate(evaluation);
+		}
+		return toPrint;
+	}
+
+	/**
+	 * Fills a part previously evaluated by {@link #evaluate(byte)}.
+	 */
+	public void fillEvaluated(PartPrintOutput output) throws JRException
+	{
+		fillComponent.fill(output);
+	}
+
+	/**
+	 * Detaches the state of a part previously evaluated by {@link #evaluate(byte)}.
+	 * 
+	 * @return a fill component that can fill the part on a separate thread,
+	 * or <code>null</code> if the part does not support concurrent filling
+	 * @see PartFillComponent#detachEvaluated()
+	 */
+	public PartFillComponent detachEvaluated()
+	{
+		return fillComponent.detachEvaluated();
+	}
+
 	protected boolean evaluatePrintWhenExpression(byte evaluation) throws JRException
 	{
 		JRExpression expression = reportPart.getPrintWhenExpression();
@@ -66,4 +66,22 @@ public interface PartFillComponent
 	 */
 	void fill(PartPrintOutput output) throws JRException;
 
+	/**
+	 * Detaches the evaluated state of the component so that the part can be
+	 * filled on a separate thread.
+	 * 
+	 * <p>
+	 * The returned component only needs to support {@link #fill(PartPrintOutput)},
+	 * and it is required not to modify the state of the report filler as the
+	 * original component can be evaluated again while the detached copy is filled.
+	 * 
+	 * @return a component that fills the evaluated part, or <code>null</code>
+	 * if the part can only be filled by the report filling thread
+	 * @see net.sf.jasperreports.engine.fill.PartReportFiller#PROPERTY_PARTS_CONCURRENT_FILL
+	 */
+	default PartFillComponent detachEvaluated()
+	{
+		return null;
+	}
+
 }
@@ -36,6 +36,7 @@ import net.sf.jasperreports.engine.JRRuntimeException;
 public final class DigestUtils
 {
 	public static final String EXCEPTION_MESSAGE_KEY_MD5_NOT_AVAILABLE = "util.digest.md5.not.available";
+	public static final String EXCEPTION_MESSAGE_KEY_SHA256_NOT_AVAILABLE = "util.digest.sha256.not.available";
 
 	private static final DigestUtils INSTANCE = new DigestUtils();
 	
@@ -87,6 +88,43 @@ public final class DigestUtils
 		}
 	}
 	
+	public String sha256Hex(String text)
+	{
+		try
+		{
+			return sha256Hex(text.getBytes("UTF-8"));
+		}
+		catch (UnsupportedEncodingException e)
+		{
+			// should not happen
+			throw new JRRuntimeException(e);
+		}
+	}
+	
+	public String sha256Hex(byte[] data)
+	{
+		try
+		{
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] digestBytes = digest.digest(data);
+			StringBuilder hex = new StringBuilder(digestBytes.length * 2);
+			for (byte digestByte : digestBytes)
+			{
+				hex.append(Character.forDigit((digestByte >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(digestByte & 0xF, 16));
+			}
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException e)
+		{
+			throw 
+				new JRRuntimeException(
+					EXCEPTION_MESSAGE_KEY_SHA256_NOT_AVAILABLE,
+					(Object[])null,
+					e);
+		}
+	}
+	
 	public UUID deriveUUID(UUID base, String text)
 	{
 		MD5Digest textMD5 = md5(text);
@@ -0,0 +1,284 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import net.sf.jasperreports.engine.JRRuntimeException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * Storage for arbitrary binary data in direct (off-heap) memory.
+ * <p>
+ * Memory is allocated in slabs of {@link ByteBuffer#allocateDirect(int) direct buffers}, which
+ * are split in fixed-size blocks.  Callers write data in allocated blocks and receive a
+ * {@link JRSwapFile.SwapHandle handle} based on which the data can be read or freed, in the same
+ * way as for {@link JRSwapFile swap files}.
+ * <p>
+ * The total size of the slabs is limited by a maximum size, {@link #write(byte[]) write} returns
+ * <code>null</code> when the data does not fit in the remaining memory.
+ * If the JVM fails to allocate a direct buffer, the slabs allocated so far are kept and 
+ * no further slabs are allocated.
+ * Slabs are not released until the storage is {@link #dispose() disposed}, after which
+ * the direct buffers are freed by the garbage collector.
+ * <p>
+ * The implementation is thread-safe, only block allocation and release are synchronized.
+ */
+public class DirectMemorySwap
+{
+	private static final Log log = LogFactory.getLog(DirectMemorySwap.class);
+	
+	public static final String EXCEPTION_MESSAGE_KEY_SLAB_TOO_LARGE = "util.direct.memory.swap.slab.too.large";
+	
+	private final int blockSize;
+	private final int slabBlockCount;
+	private final int slabSize;
+	private int maxSlabCount;
+	private final JRSwapFile.LongQueue freeBlocks;
+	private volatile ByteBuffer[] slabs;
+	private boolean disposed;
+
+	/**
+	 * Creates a direct memory storage.
+	 * 
+	 * @param blockSize the size of the blocks allocated in the slabs
+	 * @param slabBlockCount the number of blocks in a slab
+	 * @param maxSize the maximum size in bytes of the allocated slabs
+	 */
+	public DirectMemorySwap(int blockSize, int slabBlockCount, long maxSize)
+	{
+		long slabLength = (long) blockSize * slabBlockCount;
+		if (slabLength > Integer.MAX_VALUE)
+		{
+			throw 
+				new JRRuntimeException(
+					EXCEPTION_MESSAGE_KEY_SLAB_TOO_LARGE,
+					new Object[]{slabLength});
+		}
+		
+		this.blockSize = blockSize;
+		this.slabBlockCount = slabBlockCount;
+		this.slabSize = (int) slabLength;
+		this.maxSlabCount = (int) Math.min(Integer.MAX_VALUE, maxSize / slabSize);
+		this.freeBlocks = new JRSwapFile.LongQueue(slabBlockCount);
+		this.slabs = new ByteBuffer[0];
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "DirectMemorySwap " + System.identityHashCode(this);
+	}
+
+	/**
+	 * Allocates blocks in memory and writes data in them.
+	 * 
+	 * @param data the data for which to allocate blocks
+	 * @return a handle to the allocated blocks, or <code>null</code> if the maximum memory
+	 * size would be exceeded
+	 */
+	public JRSwapFile.SwapHandle write(byte[] data)
+	{
+		int blockCount = (data.length - 1) / blockSize + 1;
+		long[] offsets = reserveFreeBlocks(blockCount);
+		if (offsets == null)
+		{
+			return null;
+		}
+		
+		int lastBlockSize = (data.length - 1) % blockSize + 1;
+		for (int i = 0; i < blockCount; ++i)
+		{
+			int dataSize = i < blockCount - 1 ? blockSize : lastBlockSize;
+			blockBuffer(offsets[i]).put(data, i * blockSize, dataSize);
+		}
+		return new JRSwapFile.SwapHandle(offsets, lastBlockSize);
+	}
+
+	/**
+	 * Reads the data from allocated blocks.
+	 * 
+	 * @param handle the allocated blocks handle
+	 * @param free whether to free the blocks after reading
+	 * @return the data saved in the blocks
+	 */
+	public byte[] read(JRSwapFile.SwapHandle handle, boolean free)
+	{
+		long[] offsets = handle.getOffsets();
+		int totalLength = (offsets.length - 1) * blockSize + handle.getLastSize();
+		byte[] data = new byte[totalLength];
+		for (int i = 0; i < offsets.length; ++i)
+		{
+			int dataLength = i < offsets.length - 1 ? blockSize : handle.getLastSize();
+			blockBuffer(offsets[i]).get(data, i * blockSize, dataLength);
+		}
+		
+		if (free)
+		{
+			freeBlocks(offsets);
+		}
+		return data;
+	}
+	
+	/**
+	 * Frees allocated blocks.
+	 * 
+	 * @param handle the allocated blocks handle
+	 */
+	public void free(JRSwapFile.SwapHandle handle)
+	{
+		freeBlocks(handle.getOffsets());
+	}
+	
+	/**
+	 * Returns the size of the slabs allocated so far.
+	 * 
+	 * @return the allocated size in bytes
+	 */
+	public long getAllocatedSize()
+	{
+		return (long) slabs.length * slabSize;
+	}
+	
+	/**
+	 * Releases all slabs.
+	 * <p>
+	 * No data can be written after the storage has been disposed.
+	 */
+	public synchronized void dispose()
+	{
+		if (log.isDebugEnabled())
+		{
+			log.debug("disposing " + this + " with " + slabs.length + " slabs");
+		}
+		
+		disposed = true;
+		slabs = new ByteBuffer[0];
+		while (freeBlocks.size() > 0)
+		{
+			freeBlocks.popFirst();
+		}
+	}
+	
+	protected ByteBuffer blockBuffer(long offset)
+	{
+		// the slab has been published before the block offset was handed out
+		ByteBuffer[] currentSlabs = slabs;
+		int slabIndex = (int) (offset / slabSize);
+		
+		// using a duplicate so that positions are not shared between threads
+		ByteBuffer buffer = currentSlabs[slabIndex].duplicate();
+		buffer.position((int) (offset - (long) slabIndex * slabSize));
+		return buffer;
+	}
+
+	protected synchronized long[] reserveFreeBlocks(int blockCount)
+	{
+		if (disposed)
+		{
+			return null;
+		}
+		
+		long availableCount = freeBlocks.size() + (long) (maxSlabCount - slabs.length) * slabBlockCount;
+		if (availableCount < blockCount)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug(this + " cannot allocate " + blockCount + " blocks");
+			}
+			return null;
+		}
+		
+		while (freeBlocks.size() < blockCount)
+		{
+			if (!growSlab())
+			{
+				return null;
+			}
+		}
+		
+		long[] offsets = new long[blockCount];
+		for (int i = 0; i < blockCount; i++)
+		{
+			offsets[i] = freeBlocks.popFirst();
+		}
+		return offsets;
+	}
+	
+	protected boolean growSlab()
+	{
+		ByteBuffer[] currentSlabs = slabs;
+		long slabOffset = (long) currentSlabs.length * slabSize;
+		if (log.isDebugEnabled())
+		{
+			log.debug(this + " allocating slab of " + slabBlockCount + " blocks x " + blockSize 
+					+ " bytes, total size " + (slabOffset + slabSize));
+		}
+		
+		ByteBuffer slab;
+		try
+		{
+			slab = allocateSlab(slabSize);
+		}
+		catch (OutOfMemoryError e)
+		{
+			// direct memory is exhausted, not attempting to allocate further slabs
+			log.warn(this + " failed to allocate slab, limiting memory to " + currentSlabs.length + " slabs", e);
+			maxSlabCount = currentSlabs.length;
+			return false;
+		}
+		
+		ByteBuffer[] newSlabs = Arrays.copyOf(currentSlabs, currentSlabs.length + 1);
+		newSlabs[currentSlabs.length] = slab;
+		slabs = newSlabs;
+		
+		for (int i = 0; i < slabBlockCount; ++i)
+		{
+			freeBlocks.addLast(slabOffset + (long) i * blockSize);
+		}
+		return true;
+	}
+	
+	protected ByteBuffer allocateSlab(int size)
+	{
+		return ByteBuffer.allocateDirect(size);
+	}
+
+	protected synchronized void freeBlocks(long[] offsets)
+	{
+		if (disposed)
+		{
+			return;
+		}
+		
+		for (int i = offsets.length - 1; i >= 0; --i)
+		{
+			freeBlocks.addFirst(offsets[i]);
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.engine.JasperReportsContext;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+
+/**
+ * {@link net.sf.jasperreports.engine.util.JRSwapFile JRSwapFile} derived class that maps
+ * the swap file in memory and performs concurrent I/O without a global lock.
+ * <p>
+ * The swap file grows in fixed-size segments, each segment being mapped via
+ * {@link FileChannel#map(java.nio.channels.FileChannel.MapMode, long, long) FileChannel.map}.
+ * Blocks never cross segment boundaries, therefore reads and writes are performed
+ * directly on per-call duplicates of the mapped buffers.
+ * <p>
+ * Free blocks are kept in several lock-striped lists, a thread allocating or releasing
+ * blocks uses the list chosen by its thread id and only falls back on other lists when
+ * its own list is empty.  A lock is only held globally when a new segment is mapped.
+ * <p>
+ * Note that mapped segments are only released by the garbage collector, on some
+ * platforms the swap file cannot be deleted on {@link #dispose() dispose} while
+ * segments are still mapped.
+ */
+public class JRMappedSwapFile extends JRSwapFile
+{
+	private static final Log log = LogFactory.getLog(JRMappedSwapFile.class);
+	
+	public static final String EXCEPTION_MESSAGE_KEY_SEGMENT_TOO_LARGE = "util.mapped.swap.file.segment.too.large";
+	
+	private final FileChannel fileChannel;
+	private final int blockSize;
+	private final int segmentBlockCount;
+	private final int segmentSize;
+	private final LongQueue[] stripes;
+	private final Object growLock = new Object();
+	private volatile MappedByteBuffer[] segments;
+
+	/**
+	 * Creates a mapped swap file.
+	 * 
+	 * The file name is generated automatically.
+	 * 
+	 * @param directory the directory where the file should be created.
+	 * @param blockSize the size of the blocks allocated by the swap file
+	 * @param segmentBlockCount the number of blocks in a mapped segment, the swap file grows by
+	 * one segment when full
+	 * @param stripeCount the number of free block lists
+	 */
+	public JRMappedSwapFile(String directory, int blockSize, int segmentBlockCount, int stripeCount)
+	{
+		this(DefaultJasperReportsContext.getInstance(), directory, blockSize, segmentBlockCount, stripeCount);
+	}
+
+	/**
+	 * Creates a mapped swap file.
+	 * 
+	 * The file name is generated automatically.
+	 * 
+	 * @param jasperReportsContext the JasperReportsContext to read configuration from.
+	 * @param directory the directory where the file should be created.
+	 * @param blockSize the size of the blocks allocated by the swap file
+	 * @param segmentBlockCount the number of blocks in a mapped segment, the swap file grows by
+	 * one segment when full
+	 * @param stripeCount the number of free block lists
+	 */
+	public JRMappedSwapFile(JasperReportsContext jasperReportsContext, String directory, 
+			int blockSize, int segmentBlockCount, int stripeCount)
+	{
+		super(jasperReportsContext, directory, blockSize, segmentBlockCount);
+		
+		long segmentLength = (long) blockSize * segmentBlockCount;
+		if (segmentLength > Integer.MAX_VALUE)
+		{
+			throw 
+				new JRRuntimeException(
+					EXCEPTION_MESSAGE_KEY_SEGMENT_TOO_LARGE,
+					new Object[]{segmentLength});
+		}
+		
+		this.fileChannel = file.getChannel();
+		this.blockSize = blockSize;
+		this.segmentBlockCount = segmentBlockCount;
+		this.segmentSize = (int) segmentLength;
+		
+		this.stripes = new LongQueue[Math.max(1, stripeCount)];
+		for (int i = 0; i < stripes.length; i++)
+		{
+			stripes[i] = new LongQueue(segmentBlockCount);
+		}
+		
+		this.segments = new MappedByteBuffer[0];
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "JRMappedSwapFile " + swapFile.getAbsolutePath();
+	}
+
+	@Override
+	protected void write(byte[] data, int dataSize, int dataOffset, long fileOffset) throws IOException
+	{
+		ByteBuffer buffer = segmentBuffer(fileOffset);
+		buffer.put(data, dataOffset, dataSize);
+	}
+
+	@Override
+	protected void read(byte[] data, int dataOffset, int dataLength, long fileOffset) throws IOException
+	{
+		ByteBuffer buffer = segmentBuffer(fileOffset);
+		buffer.get(data, dataOffset, dataLength);
+	}
+	
+	protected ByteBuffer segmentBuffer(long fileOffset)
+	{
+		// the segment has been published before the block offset was handed out
+		MappedByteBuffer[] currentSegments = segments;
+		int segmentIndex = (int) (fileOffset / segmentSize);
+		
+		// using a duplicate so that positions are not shared between threads
+		ByteBuffer buffer = currentSegments[segmentIndex].duplicate();
+		buffer.position((int) (fileOffset - (long) segmentIndex * segmentSize));
+		return buffer;
+	}
+
+	@Override
+	protected long[] reserveFreeBlocks(int blockCount) throws IOException
+	{
+		long[] offsets = new long[blockCount];
+		int reserved = 0;
+		
+		int stripeIndex = stripeIndex();
+		for (int i = 0; i < stripes.length && reserved < blockCount; i++)
+		{
+			LongQueue stripe = stripes[(stripeIndex + i) % stripes.length];
+			synchronized (stripe)
+			{
+				while (reserved < blockCount && stripe.size() > 0)
+				{
+					offsets[reserved++] = stripe.popFirst();
+				}
+			}
+		}
+		
+		while (reserved < blockCount)
+		{
+			long segmentOffset = growSegment();
+			
+			LongQueue stripe = stripes[stripeIndex];
+			synchronized (stripe)
+			{
+				for (int i = 0; i < segmentBlockCount; i++)
+				{
+					long offset = segmentOffset + (long) i * blockSize;
+					if (reserved < blockCount)
+					{
+						offsets[reserved++] = offset;
+					}
+					else
+					{
+						stripe.addLast(offset);
+					}
+				}
+			}
+		}
+		
+		return offsets;
+	}
+
+	protected long growSegment() throws IOException
+	{
+		synchronized (growLock)
+		{
+			MappedByteBuffer[] currentSegments = segments;
+			long segmentOffset = (long) currentSegments.length * segmentSize;
+			long newLength = segmentOffset + segmentSize;
+			if (log.isDebugEnabled())
+			{
+				log.debug("Growing swap file " + swapFile.getPath() + " with a segment of " 
+						+ segmentBlockCount + " blocks x " + blockSize + " bytes to size " + newLength);
+			}
+			
+			file.setLength(newLength);
+			MappedByteBuffer segment = fileChannel.map(FileChannel.MapMode.READ_WRITE, segmentOffset, segmentSize);
+			
+			MappedByteBuffer[] newSegments = Arrays.copyOf(currentSegments, currentSegments.length + 1);
+			newSegments[currentSegments.length] = segment;
+			segments = newSegments;
+			return segmentOffset;
+		}
+	}
+
+	@Override
+	protected void freeBlocks(long[] offsets)
+	{
+		LongQueue stripe = stripes[stripeIndex()];
+		synchronized (stripe)
+		{
+			for (int i = offsets.length - 1; i >= 0; --i)
+			{
+				stripe.addFirst(offsets[i]);
+			}
+		}
+	}
+	
+	protected int stripeIndex()
+	{
+		return (int) (Thread.currentThread().getId() % stripes.length);
+	}
+
+	@Override
+	public void dispose()
+	{
+		// releasing the mapped segments so that they can be garbage collected
+		segments = new MappedByteBuffer[0];
+		
+		super.dispose();
+	}
+}
@@ -0,0 +1,544 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.util;
+
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.sf.jasperreports.engine.JRRuntimeException;
+
+/**
+ * Fast stream compression that favors speed over compression ratio.
+ * <p>
+ * Data is split into blocks of up to 64KB that are compressed using the LZ4 block format.
+ * Each block is preceded by a header containing the compression method, the uncompressed
+ * length and the stored length, blocks that do not compress are stored as they are.
+ * The stream framing is specific to this class and is not compatible with the LZ4 frame format.
+ * <p>
+ * The compression is meant for transient data such as virtualized pages, where
+ * {@link DeflateStreamCompression deflate} is too slow.
+ */
+public class LZ4StreamCompression implements StreamCompression
+{
+	public static final String EXCEPTION_MESSAGE_KEY_CORRUPT_DATA = "util.lz4.compression.corrupt.data";
+	
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 16;
+
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_LZ4 = 1;
+	
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MATCH_FIND_LIMIT = 12;
+	private static final int MAX_OFFSET = 0xFFFF;
+	private static final int HASH_LOG = 12;
+	
+	private final int blockSize;
+	
+	public LZ4StreamCompression()
+	{
+		this(DEFAULT_BLOCK_SIZE);
+	}
+	
+	public LZ4StreamCompression(int blockSize)
+	{
+		this.blockSize = blockSize;
+	}
+
+	@Override
+	public OutputStream compressedOutput(OutputStream stream)
+	{
+		return new LZ4OutputStream(stream, blockSize);
+	}
+
+	@Override
+	public InputStream uncompressedInput(InputStream stream)
+	{
+		return new LZ4InputStream(stream);
+	}
+	
+	/**
+	 * Returns the maximum compressed length of a block.
+	 * 
+	 * @param length the length of the block
+	 * @return the maximum compressed length
+	 */
+	public static int maxCompressedLength(int length)
+	{
+		return length + length / 255 + 16;
+	}
+	
+	/**
+	 * Compresses a block of data in the LZ4 block format.
+	 * 
+	 * @param src the data buffer
+	 * @param srcOffset the offset of the data
+	 * @param srcLength the length of the data
+	 * @param dest the destination buffer, having at least {@link #maxCompressedLength(int)} bytes
+	 * available at the destination offset
+	 * @param destOffset the destination offset
+	 * @return the compressed length
+	 */
+	public static int compressBlock(byte[] src, int srcOffset, int srcLength, byte[] dest, int destOffset)
+	{
+		int srcEnd = srcOffset + srcLength;
+		int matchLimit = srcEnd - LAST_LITERALS;
+		int findLimit = srcEnd - MATCH_FIND_LIMIT;
+		
+		int anchor = srcOffset;
+		int ip = srcOffset;
+		int op = destOffset;
+		
+		if (srcLength > MATCH_FIND_LIMIT)
+		{
+			int[] hashTable = new int[1 << HASH_LOG];
+			// positions are stored + 1 so that 0 means empty
+			while (ip < findLimit)
+			{
+				int sequence = readInt(src, ip);
+				int hash = hash(sequence);
+				int ref = hashTable[hash] - 1;
+				hashTable[hash] = ip + 1;
+				
+				if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence)
+				{
+					++ip;
+					continue;
+				}
+				
+				int matchLength = MIN_MATCH;
+				while (ip + matchLength < matchLimit && src[ref + matchLength] == src[ip + matchLength])
+				{
+					++matchLength;
+				}
+				
+				op = writeSequence(src, anchor, ip - anchor, ip - ref, matchLength, dest, op);
+				ip += matchLength;
+				anchor = ip;
+			}
+		}
+		
+		// last literals
+		return writeLastLiterals(src, anchor, srcEnd - anchor, dest, op) - destOffset;
+	}
+
+	private static int writeSequence(byte[] src, int literalsOffset, int literalsLength, 
+			int matchOffset, int matchLength, byte[] dest, int op)
+	{
+		int tokenOffset = op++;
+		int matchCode = matchLength - MIN_MATCH;
+		dest[tokenOffset] = (byte) ((Math.min(literalsLength, 15) << 4) | Math.min(matchCode, 15));
+		
+		op = writeLength(literalsLength, dest, op);
+		System.arraycopy(src, literalsOffset, dest, op, literalsLength);
+		op += literalsLength;
+		
+		dest[op++] = (byte) matchOffset;
+		dest[op++] = (byte) (matchOffset >>> 8);
+		
+		return writeLength(matchCode, dest, op);
+	}
+
+	private static int writeLastLiterals(byte[] src, int literalsOffset, int literalsLength, 
+			byte[] dest, int op)
+	{
+		dest[op++] = (byte) (Math.min(literalsLength, 15) << 4);
+		op = writeLength(literalsLength, dest, op);
+		System.arraycopy(src, literalsOffset, dest, op, literalsLength);
+		return op + literalsLength;
+	}
+	
+	private static int writeLength(int length, byte[] dest, int op)
+	{
+		if (length >= 15)
+		{
+			int remaining = length - 15;
+			while (remaining >= 255)
+			{
+				dest[op++] = (byte) 255;
+				remaining -= 255;
+			}
+			dest[op++] = (byte) remaining;
+		}
+		return op;
+	}
+	
+	/**
+	 * Decompresses a block of data in the LZ4 block format.
+	 * 
+	 * @param src the compressed data buffer
+	 * @param srcOffset the offset of the compressed data
+	 * @param srcLength the length of the compressed data
+	 * @param dest the destination buffer
+	 * @param destOffset the destination offset
+	 * @param destLength the length of the uncompressed data
+	 * @return the number of decompressed bytes
+	 */
+	public static int decompressBlock(byte[] src, int srcOffset, int srcLength, 
+			byte[] dest, int destOffset, int destLength)
+	{
+		int srcEnd = srcOffset + srcLength;
+		int destEnd = destOffset + destLength;
+		int ip = srcOffset;
+		int op = destOffset;
+		try
+		{
+			while (true)
+			{
+				int token = src[ip++] & 0xFF;
+				
+				int literalsLength = token >>> 4;
+				if (literalsLength == 15)
+				{
+					int b;
+					do
+					{
+						b = src[ip++] & 0xFF;
+						literalsLength += b;
+					}
+					while (b == 255);
+				}
+				
+				if (op + literalsLength > destEnd || ip + literalsLength > srcEnd)
+				{
+					throw corruptData();
+				}
+				System.arraycopy(src, ip, dest, op, literalsLength);
+				ip += literalsLength;
+				op += literalsLength;
+				
+				if (ip >= srcEnd)
+				{
+					// last sequence
+					break;
+				}
+				
+				int matchOffset = (src[ip] & 0xFF) | ((src[ip + 1] & 0xFF) << 8);
+				ip += 2;
+				
+				int matchLength = token & 0x0F;
+				if (matchLength == 15)
+				{
+					int b;
+					do
+					{
+						b = src[ip++] & 0xFF;
+						matchLength += b;
+					}
+					while (b == 255);
+				}
+				matchLength += MIN_MATCH;
+				
+				int ref = op - matchOffset;
+				if (matchOffset == 0 || ref < destOffset || op + matchLength > destEnd)
+				{
+					throw corruptData();
+				}
+				
+				if (matchOffset >= matchLength)
+				{
+					System.arraycopy(dest, ref, dest, op, matchLength);
+					op += matchLength;
+				}
+				else
+				{
+					// overlapping copy
+					for (int i = 0; i < matchLength; ++i)
+					{
+						dest[op++] = dest[ref++];
+					}
+				}
+			}
+		}
+		catch (ArrayIndexOutOfBoundsException e)
+		{
+			throw corruptData();
+		}
+		
+		return op - destOffset;
+	}
+	
+	private static JRRuntimeException corruptData()
+	{
+		return 
+			new JRRuntimeException(
+				EXCEPTION_MESSAGE_KEY_CORRUPT_DATA,
+				(Object[])null);
+	}
+	
+	private static int readInt(byte[] buffer, int offset)
+	{
+		return (buffer[offset] & 0xFF) 
+				| ((buffer[offset + 1] & 0xFF) << 8)
+				| ((buffer[offset + 2] & 0xFF) << 16)
+				| ((buffer[offset + 3] & 0xFF) << 24);
+	}
+	
+	private static int hash(int sequence)
+	{
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+	
+	protected static class LZ4OutputStream extends FilterOutputStream
+	{
+		private final byte[] buffer;
+		private final byte[] compressedBuffer;
+		private int count;
+		private boolean closed;
+		
+		public LZ4OutputStream(OutputStream out, int blockSize)
+		{
+			super(out);
+			this.buffer = new byte[blockSize];
+			this.compressedBuffer = new byte[maxCompressedLength(blockSize)];
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			if (count == buffer.length)
+			{
+				writeBlock();
+			}
+			buffer[count++] = (byte) b;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			while (len > 0)
+			{
+				if (count == buffer.length)
+				{
+					writeBlock();
+				}
+				
+				int chunk = Math.min(len, buffer.length - count);
+				System.arraycopy(b, off, buffer, count, chunk);
+				count += chunk;
+				off += chunk;
+				len -= chunk;
+			}
+		}
+		
+		protected void writeBlock() throws IOException
+		{
+			if (count == 0)
+			{
+				return;
+			}
+			
+			int compressedLength = compressBlock(buffer, 0, count, compressedBuffer, 0);
+			if (compressedLength < count)
+			{
+				writeHeader(METHOD_LZ4, count, compressedLength);
+				out.write(compressedBuffer, 0, compressedLength);
+			}
+			else
+			{
+				writeHeader(METHOD_STORED, count, count);
+				out.write(buffer, 0, count);
+			}
+			count = 0;
+		}
+		
+		private void writeHeader(int method, int length, int storedLength) throws IOException
+		{
+			out.write(method);
+			writeInt(length);
+			writeInt(storedLength);
+		}
+
+		private void writeInt(int value) throws IOException
+		{
+			out.write(value >>> 24);
+			out.write(value >>> 16);
+			out.write(value >>> 8);
+			out.write(value);
+		}
+
+		@Override
+		public void flush() throws IOException
+		{
+			writeBlock();
+			out.flush();
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			if (!closed)
+			{
+				closed = true;
+				try
+				{
+					writeBlock();
+				}
+				finally
+				{
+					out.close();
+				}
+			}
+		}
+	}
+	
+	protected static class LZ4InputStream extends InputStream
+	{
+		private final InputStream in;
+		private byte[] buffer;
+		private byte[] compressedBuffer;
+		private int position;
+		private int length;
+		
+		public LZ4InputStream(InputStream in)
+		{
+			this.in = in;
+			this.buffer = new byte[0];
+			this.compressedBuffer = new byte[0];
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			if (position == length && !readBlock())
+			{
+				return -1;
+			}
+			return buffer[position++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			if (len == 0)
+			{
+				return 0;
+			}
+			
+			if (position == length && !readBlock())
+			{
+				return -1;
+			}
+			
+			int chunk = Math.min(len, length - position);
+			System.arraycopy(buffer, position, b, off, chunk);
+			position += chunk;
+			return chunk;
+		}
+
+		@Override
+		public int available() throws IOException
+		{
+			return length - position;
+		}
+		
+		protected boolean readBlock() throws IOException
+		{
+			int method = in.read();
+			if (method < 0)
+			{
+				return false;
+			}
+			
+			int blockLength = readInt();
+			int storedLength = readInt();
+			if (blockLength < 0 || storedLength < 0)
+			{
+				throw corruptData();
+			}
+			
+			if (buffer.length < blockLength)
+			{
+				buffer = new byte[blockLength];
+			}
+			
+			switch (method)
+			{
+				case METHOD_STORED:
+					if (storedLength != blockLength)
+					{
+						throw corruptData();
+					}
+					readFully(buffer, storedLength);
+					break;
+				case METHOD_LZ4:
+					if (compressedBuffer.length < storedLength)
+					{
+						compressedBuffer = new byte[storedLength];
+					}
+					readFully(compressedBuffer, storedLength);
+					int decompressed = decompressBlock(compressedBuffer, 0, storedLength, buffer, 0, blockLength);
+					if (decompressed != blockLength)
+					{
+						throw corruptData();
+					}
+					break;
+				default:
+					throw corruptData();
+			}
+			
+			position = 0;
+			length = blockLength;
+			return true;
+		}
+		
+		private int readInt() throws IOException
+		{
+			int value = 0;
+			for (int i = 0; i < 4; ++i)
+			{
+				int b = in.read();
+				if (b < 0)
+				{
+					throw new EOFException();
+				}
+				value = (value << 8) | b;
+			}
+			return value;
+		}
+		
+		private void readFully(byte[] b, int len) throws IOException
+		{
+			int read = 0;
+			while (read < len)
+			{
+				int count = in.read(b, read, len - read);
+				if (count < 0)
+				{
+					throw new EOFException();
+				}
+				read += count;
+			}
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.util;
+
+/**
+ * Swap file store factory that creates {@link JRMappedSwapFile memory mapped swap files}.
+ * <p>
+ * The factory is meant to be used with a 
+ * {@link net.sf.jasperreports.engine.fill.StoreFactoryVirtualizer StoreFactoryVirtualizer}
+ * shared by reports that are filled concurrently.
+ */
+public class MappedSwapFileVirtualizerStoreFactory extends SwapFileVirtualizerStoreFactory
+{
+	private int segmentBlockCount = 1024;//default value
+	private int stripeCount = Runtime.getRuntime().availableProcessors();//default value
+	
+	@Override
+	protected JRSwapFile createSwapFile()
+	{
+		return new JRMappedSwapFile(getDirectory(), getBlockSize(), segmentBlockCount, stripeCount);
+	}
+
+	public int getSegmentBlockCount()
+	{
+		return segmentBlockCount;
+	}
+
+	public void setSegmentBlockCount(int segmentBlockCount)
+	{
+		this.segmentBlockCount = segmentBlockCount;
+	}
+
+	public int getStripeCount()
+	{
+		return stripeCount;
+	}
+
+	public void setStripeCount(int stripeCount)
+	{
+		this.stripeCount = stripeCount;
+	}
+}
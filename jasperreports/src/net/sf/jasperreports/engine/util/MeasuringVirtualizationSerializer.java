@@ -0,0 +1,177 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.util;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import net.sf.jasperreports.engine.fill.JRVirtualizationContext;
+import net.sf.jasperreports.engine.virtualization.VirtualizationInput;
+import net.sf.jasperreports.engine.virtualization.VirtualizationOutput;
+
+/**
+ * Serializer wrapper that counts the bytes written and read by the current thread.
+ * <p>
+ * The counters are reset by {@link #resetSizes()} and accumulate the sizes of all the
+ * objects written/read by the thread after the reset.
+ */
+public class MeasuringVirtualizationSerializer extends VirtualizationSerializer
+{
+	private static final int WRITTEN = 0;
+	private static final int READ = 1;
+	
+	private final VirtualizationSerializer serializer;
+	private final ThreadLocal<long[]> sizes = new ThreadLocal<long[]>()
+	{
+		@Override
+		protected long[] initialValue()
+		{
+			return new long[2];
+		}
+	};
+
+	public MeasuringVirtualizationSerializer(VirtualizationSerializer serializer)
+	{
+		this.serializer = serializer;
+	}
+	
+	public VirtualizationSerializer getSerializer()
+	{
+		return serializer;
+	}
+
+	@Override
+	protected VirtualizationOutput createOutput(JRVirtualizationContext context, OutputStream out) throws IOException
+	{
+		return serializer.createOutput(context, new CountingOutputStream(out, sizes.get()));
+	}
+
+	@Override
+	protected VirtualizationInput createInput(JRVirtualizationContext context, InputStream in) throws IOException
+	{
+		return serializer.createInput(context, new CountingInputStream(in, sizes.get()));
+	}
+	
+	/**
+	 * Resets the counters of the current thread.
+	 */
+	public void resetSizes()
+	{
+		long[] threadSizes = sizes.get();
+		threadSizes[WRITTEN] = 0;
+		threadSizes[READ] = 0;
+	}
+	
+	/**
+	 * Returns the number of serialized bytes written by the current thread since the last reset.
+	 * 
+	 * @return the number of bytes written
+	 */
+	public long getWrittenSize()
+	{
+		return sizes.get()[WRITTEN];
+	}
+	
+	/**
+	 * Returns the number of serialized bytes read by the current thread since the last reset.
+	 * 
+	 * @return the number of bytes read
+	 */
+	public long getReadSize()
+	{
+		return sizes.get()[READ];
+	}
+	
+	protected static class CountingOutputStream extends FilterOutputStream
+	{
+		private final long[] sizes;
+		
+		public CountingOutputStream(OutputStream out, long[] sizes)
+		{
+			super(out);
+			this.sizes = sizes;
+		}
+
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			++sizes[WRITTEN];
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			sizes[WRITTEN] += len;
+		}
+	}
+	
+	protected static class CountingInputStream extends FilterInputStream
+	{
+		private final long[] sizes;
+		
+		public CountingInputStream(InputStream in, long[] sizes)
+		{
+			super(in);
+			this.sizes = sizes;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = in.read();
+			if (b >= 0)
+			{
+				++sizes[READ];
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int read = in.read(b, off, len);
+			if (read > 0)
+			{
+				sizes[READ] += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException
+		{
+			long skipped = in.skip(n);
+			if (skipped > 0)
+			{
+				sizes[READ] += skipped;
+			}
+			return skipped;
+		}
+	}
+}
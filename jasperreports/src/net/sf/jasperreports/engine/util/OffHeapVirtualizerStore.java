@@ -0,0 +1,308 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.engine.JRVirtualizable;
+import net.sf.jasperreports.engine.fill.VirtualizerStore;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Virtualizer store that keeps serialized objects in {@link DirectMemorySwap direct memory}.
+ * <p>
+ * When the direct memory is full, objects are written to a fallback swap file.
+ * If no fallback swap file is used, storing objects fails once the memory is full.
+ */
+public class OffHeapVirtualizerStore implements VirtualizerStore
+{
+	private static final Log log = LogFactory.getLog(OffHeapVirtualizerStore.class);
+	public static final String EXCEPTION_MESSAGE_KEY_MEMORY_FULL = "util.off.heap.virtualizer.memory.full";
+	
+	private final DirectMemorySwap memory;
+	private final boolean memoryOwner;
+	private final SwapFileFactory fallbackFactory;
+	private final StreamCompression compression;
+	private final Map<String, StoredData> storedData;
+	private volatile JRSwapFile fallbackSwap;
+
+	/**
+	 * Creates an off-heap store.
+	 * 
+	 * @param memory the direct memory storage
+	 * @param memoryOwner whether the store is the owner (single user) of the direct memory.
+	 * If <code>true</code>, the memory is disposed when the store is disposed.
+	 * @param fallbackFactory factory for the swap file used when the memory is full, 
+	 * can be <code>null</code>
+	 * @param compression stream compression to apply to serialized data, can be <code>null</code>
+	 */
+	public OffHeapVirtualizerStore(DirectMemorySwap memory, boolean memoryOwner, 
+			SwapFileFactory fallbackFactory, StreamCompression compression)
+	{
+		this.memory = memory;
+		this.memoryOwner = memoryOwner;
+		this.fallbackFactory = fallbackFactory;
+		this.compression = compression;
+		this.storedData = new ConcurrentHashMap<String, StoredData>();
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "OffHeapVirtualizerStore " + memory;
+	}
+
+	@Override
+	public boolean store(JRVirtualizable<?> o, VirtualizationSerializer serializer)
+	{
+		if (storedData.containsKey(o.getUID()))
+		{
+			if (log.isTraceEnabled())
+			{
+				log.trace("object " + o.getUID() + " already stored");
+			}
+			return false;
+		}
+		
+		try
+		{
+			ByteArrayOutputStream bout = new ByteArrayOutputStream(3000);
+			OutputStream out = compression == null ? bout : compression.compressedOutput(bout);
+			serializer.writeData(o, out);
+			out.close();
+			
+			byte[] data = bout.toByteArray();
+			StoredData stored;
+			JRSwapFile.SwapHandle handle = memory.write(data);
+			if (handle != null)
+			{
+				if (log.isTraceEnabled())
+				{
+					log.trace("wrote " + data.length + " for object " + o.getUID() + " to " + memory);
+				}
+				
+				stored = new StoredData(handle, false);
+			}
+			else
+			{
+				JRSwapFile swap = fallbackSwap();
+				if (log.isTraceEnabled())
+				{
+					log.trace("writing " + data.length + " for object " + o.getUID() + " to " + swap);
+				}
+				
+				stored = new StoredData(swap.write(data), true);
+			}
+			
+			storedData.put(o.getUID(), stored);
+			return true;
+		}
+		catch (IOException e)
+		{
+			log.error("Error virtualizing object " + o.getUID() + " to " + this, e);
+			throw 
+				new JRRuntimeException(
+					SwapFileVirtualizerStore.EXCEPTION_MESSAGE_KEY_VIRTUALIZING_ERROR,
+					(Object[])null,
+					e);
+		}
+	}
+	
+	protected JRSwapFile fallbackSwap()
+	{
+		JRSwapFile swap = fallbackSwap;
+		if (swap == null)
+		{
+			if (fallbackFactory == null)
+			{
+				throw 
+					new JRRuntimeException(
+						EXCEPTION_MESSAGE_KEY_MEMORY_FULL,
+						(Object[])null);
+			}
+			
+			synchronized (this)
+			{
+				swap = fallbackSwap;
+				if (swap == null)
+				{
+					swap = fallbackFactory.createSwapFile();
+					if (log.isDebugEnabled())
+					{
+						log.debug(this + " created fallback " + swap);
+					}
+					fallbackSwap = swap;
+				}
+			}
+		}
+		return swap;
+	}
+
+	@Override
+	public void retrieve(JRVirtualizable<?> o, boolean remove, VirtualizationSerializer serializer)
+	{
+		StoredData stored = remove ? storedData.remove(o.getUID()) : storedData.get(o.getUID());
+		if (stored == null)
+		{
+			log.error("No stored data found for " + o.getUID() + " in " + this);
+			throw 
+				new JRRuntimeException(
+					SwapFileVirtualizerStore.EXCEPTION_MESSAGE_KEY_UNABLE_TO_READ_DATA,
+					(Object[])null);
+		}
+		
+		try
+		{
+			byte[] data = stored.isSwapped() 
+					? fallbackSwap.read(stored.getHandle(), remove)
+					: memory.read(stored.getHandle(), remove);
+			if (log.isTraceEnabled())
+			{
+				log.trace("read " + data.length + " for object " + o.getUID() + " from " + this);
+			}
+			
+			ByteArrayInputStream rawInput = new ByteArrayInputStream(data);
+			InputStream input = compression == null ? rawInput : compression.uncompressedInput(rawInput);
+			serializer.readData(o, input);
+			input.close();
+		}
+		catch (IOException e)
+		{
+			log.error("Error reading object data " + o.getUID() + " from " + this, e);
+			throw 
+				new JRRuntimeException(
+					SwapFileVirtualizerStore.EXCEPTION_MESSAGE_KEY_DEVIRTUALIZING_ERROR,
+					(Object[])null,
+					e);
+		}
+	}
+
+	@Override
+	public void remove(String objectId)
+	{
+		StoredData stored = storedData.remove(objectId);
+		if (stored == null)
+		{
+			if (log.isTraceEnabled())
+			{
+				log.trace("object " + objectId + " not found for removal");
+			}
+		}
+		else
+		{
+			if (log.isTraceEnabled())
+			{
+				log.trace("removing object " + objectId + " from " + this);
+			}
+			
+			free(stored);
+		}
+	}
+	
+	protected void free(StoredData stored)
+	{
+		if (stored.isSwapped())
+		{
+			fallbackSwap.free(stored.getHandle());
+		}
+		else
+		{
+			memory.free(stored.getHandle());
+		}
+	}
+
+	/**
+	 * Releases the memory used by the store and disposes the fallback swap file.
+	 */
+	@Override
+	public void dispose()
+	{
+		if (memoryOwner)
+		{
+			memory.dispose();
+		}
+		else
+		{
+			// the memory is shared, freeing the blocks used by this store
+			for (StoredData stored : storedData.values())
+			{
+				if (!stored.isSwapped())
+				{
+					memory.free(stored.getHandle());
+				}
+			}
+		}
+		storedData.clear();
+		
+		JRSwapFile swap = fallbackSwap;
+		if (swap != null)
+		{
+			if (log.isDebugEnabled())
+			{
+				log.debug("disposing " + swap);
+			}
+			
+			swap.dispose();
+		}
+	}
+	
+	protected static class StoredData
+	{
+		private final JRSwapFile.SwapHandle handle;
+		private final boolean swapped;
+		
+		public StoredData(JRSwapFile.SwapHandle handle, boolean swapped)
+		{
+			this.handle = handle;
+			this.swapped = swapped;
+		}
+
+		public JRSwapFile.SwapHandle getHandle()
+		{
+			return handle;
+		}
+
+		public boolean isSwapped()
+		{
+			return swapped;
+		}
+	}
+	
+	/**
+	 * Creates the fallback swap file of an off-heap store.
+	 */
+	public interface SwapFileFactory
+	{
+		JRSwapFile createSwapFile();
+	}
+}
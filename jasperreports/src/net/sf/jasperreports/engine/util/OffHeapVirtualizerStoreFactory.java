@@ -0,0 +1,168 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.engine.util;
+
+import net.sf.jasperreports.engine.fill.JRVirtualizationContext;
+import net.sf.jasperreports.engine.fill.VirtualizerStore;
+import net.sf.jasperreports.engine.fill.VirtualizerStoreFactory;
+
+/**
+ * Factory of {@link OffHeapVirtualizerStore off-heap stores}.
+ * <p>
+ * All the stores created by a factory share the same {@link DirectMemorySwap direct memory}
+ * storage, therefore the maximum memory size applies to all the reports that use the factory.
+ * Each store creates its own fallback swap file when the memory is full.
+ */
+public class OffHeapVirtualizerStoreFactory implements VirtualizerStoreFactory, OffHeapVirtualizerStore.SwapFileFactory
+{
+	private long maxMemorySize = 256L * 1024 * 1024;//default value
+	private int blockSize = 4096;//default value
+	private int slabBlockCount = 1024;//default value
+	private boolean swapFallback = true;//default value
+	private String directory = System.getProperty("java.io.tmpdir");//default value
+	private int minGrowCount = 20;//default value
+	private StreamCompression compression;
+	
+	private DirectMemorySwap memory;
+	
+	@Override
+	public VirtualizerStore createStore(JRVirtualizationContext virtualizationContext)
+	{
+		return new OffHeapVirtualizerStore(memory(), false, swapFallback ? this : null, compression);
+	}
+	
+	protected synchronized DirectMemorySwap memory()
+	{
+		if (memory == null)
+		{
+			memory = createMemory();
+		}
+		return memory;
+	}
+	
+	protected DirectMemorySwap createMemory()
+	{
+		return new DirectMemorySwap(blockSize, slabBlockCount, maxMemorySize);
+	}
+
+	@Override
+	public JRSwapFile createSwapFile()
+	{
+		return new JRSwapFile(directory, blockSize, minGrowCount);
+	}
+	
+	/**
+	 * Releases the direct memory shared by the stores.
+	 * <p>
+	 * The method should be called after all the stores created by the factory have been disposed.
+	 */
+	public synchronized void dispose()
+	{
+		if (memory != null)
+		{
+			memory.dispose();
+			memory = null;
+		}
+	}
+
+	public long getMaxMemorySize()
+	{
+		return maxMemorySize;
+	}
+
+	/**
+	 * Sets the maximum size of the direct memory used by the stores created by this factory.
+	 * 
+	 * @param maxMemorySize the maximum memory size in bytes
+	 */
+	public void setMaxMemorySize(long maxMemorySize)
+	{
+		this.maxMemorySize = maxMemorySize;
+	}
+
+	public int getBlockSize()
+	{
+		return blockSize;
+	}
+
+	public void setBlockSize(int blockSize)
+	{
+		this.blockSize = blockSize;
+	}
+
+	public int getSlabBlockCount()
+	{
+		return slabBlockCount;
+	}
+
+	public void setSlabBlockCount(int slabBlockCount)
+	{
+		this.slabBlockCount = slabBlockCount;
+	}
+
+	public boolean isSwapFallback()
+	{
+		return swapFallback;
+	}
+
+	/**
+	 * Specifies whether objects are written to a swap file when the direct memory is full.
+	 * 
+	 * @param swapFallback whether to fall back to a swap file
+	 */
+	public void setSwapFallback(boolean swapFallback)
+	{
+		this.swapFallback = swapFallback;
+	}
+
+	public String getDirectory()
+	{
+		return directory;
+	}
+
+	public void setDirectory(String directory)
+	{
+		this.directory = directory;
+	}
+
+	public int getMinGrowCount()
+	{
+		return minGrowCount;
+	}
+
+	public void setMinGrowCount(int minGrowCount)
+	{
+		this.minGrowCount = minGrowCount;
+	}
+
+	public StreamCompression getCompression()
+	{
+		return compression;
+	}
+
+	public void setCompression(StreamCompression compression)
+	{
+		this.compression = compression;
+	}
+}
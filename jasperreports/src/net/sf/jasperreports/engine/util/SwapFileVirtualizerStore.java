@@ -28,9 +28,16 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.jasperreports.engine.JRRuntimeException;
 import net.sf.jasperreports.engine.JRVirtualizable;
@@ -40,6 +47,14 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
+ * Virtualizer store that writes serialized objects to a {@link JRSwapFile swap file}.
+ * <p>
+ * Optionally, the store can keep recently stored objects in memory as serialized (and
+ * possibly {@link StreamCompression compressed}) data, up to a configured 
+ * {@link #setMemoryCacheSize(long) number of bytes}.  The oldest objects are written to
+ * the swap file when the limit is exceeded, objects retrieved while still in memory are 
+ * read without touching the swap file.
+ * 
  * @author Lucian Chirita (lucianc@users.sourceforge.net)
  */
 public class SwapFileVirtualizerStore implements VirtualizerStore
@@ -53,6 +68,13 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 	private final boolean swapOwner;
 	private final Map<String,JRSwapFile.SwapHandle> handles;
 	private final StreamCompression compression;
+	
+	private volatile long memoryCacheSize;
+	// guarded by itself
+	private final LinkedHashMap<String, byte[]> memoryData;
+	private final Set<String> spilling;
+	private long memoryDataSize;
+	private long spillingSize;
 
 	public SwapFileVirtualizerStore(JRSwapFile swap, boolean swapOwner)
 	{
@@ -63,8 +85,26 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 	{
 		this.swap = swap;
 		this.swapOwner = swapOwner;
-		this.handles = Collections.synchronizedMap(new HashMap<String,JRSwapFile.SwapHandle>());
+		this.handles = new ConcurrentHashMap<String,JRSwapFile.SwapHandle>();
 		this.compression = compression;
+		this.memoryData = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+		this.spilling = new HashSet<String>();
+	}
+
+	/**
+	 * Sets the maximum number of bytes kept in memory before writing data to the swap file.
+	 * 
+	 * @param memoryCacheSize the size of the in-memory cache in bytes, <code>0</code> to
+	 * always write data to the swap file
+	 */
+	public void setMemoryCacheSize(long memoryCacheSize)
+	{
+		this.memoryCacheSize = memoryCacheSize;
+	}
+
+	public long getMemoryCacheSize()
+	{
+		return memoryCacheSize;
 	}
 	
 	@Override
@@ -75,7 +115,15 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 	
 	protected boolean isStored(JRVirtualizable<?> o)
 	{
-		return handles.containsKey(o.getUID());
+		if (handles.containsKey(o.getUID()))
+		{
+			return true;
+		}
+		
+		synchronized (memoryData)
+		{
+			return memoryData.containsKey(o.getUID());
+		}
 	}
 	
 	@Override
@@ -103,8 +151,11 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 				log.trace("writing " + data.length + " for object " + o.getUID() + " to " + swap);
 			}
 			
-			JRSwapFile.SwapHandle handle = swap.write(data);
-			handles.put(o.getUID(), handle);
+			if (!storeInMemory(o.getUID(), data))
+			{
+				JRSwapFile.SwapHandle handle = swap.write(data);
+				handles.put(o.getUID(), handle);
+			}
 			return true;
 		}
 		catch (IOException e)
@@ -118,10 +169,129 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 		}
 	}
 	
+	protected boolean storeInMemory(String objectId, byte[] data) throws IOException
+	{
+		long maxSize = memoryCacheSize;
+		if (maxSize <= 0 || data.length > maxSize)
+		{
+			return false;
+		}
+		
+		List<Map.Entry<String, byte[]>> spilled;
+		synchronized (memoryData)
+		{
+			memoryData.put(objectId, data);
+			memoryDataSize += data.length;
+			
+			spilled = spillCandidates(maxSize);
+		}
+		
+		for (Map.Entry<String, byte[]> entry : spilled)
+		{
+			spill(entry.getKey(), entry.getValue());
+		}
+		return true;
+	}
+
+	// called when synchronized on memoryData
+	protected List<Map.Entry<String, byte[]>> spillCandidates(long maxSize)
+	{
+		long excessSize = memoryDataSize - spillingSize - maxSize;
+		if (excessSize <= 0)
+		{
+			return Collections.emptyList();
+		}
+		
+		List<Map.Entry<String, byte[]>> candidates = new ArrayList<Map.Entry<String, byte[]>>();
+		for (Iterator<Map.Entry<String, byte[]>> it = memoryData.entrySet().iterator(); 
+				excessSize > 0 && it.hasNext();)
+		{
+			Map.Entry<String, byte[]> entry = it.next();
+			if (spilling.add(entry.getKey()))
+			{
+				int size = entry.getValue().length;
+				spillingSize += size;
+				excessSize -= size;
+				candidates.add(new AbstractMap.SimpleImmutableEntry<String, byte[]>(entry));
+			}
+		}
+		return candidates;
+	}
+	
+	protected void spill(String objectId, byte[] data) throws IOException
+	{
+		if (log.isTraceEnabled())
+		{
+			log.trace("spilling " + data.length + " for object " + objectId + " to " + swap);
+		}
+		
+		JRSwapFile.SwapHandle handle = null;
+		boolean spilled = false;
+		try
+		{
+			handle = swap.write(data);
+		}
+		finally
+		{
+			synchronized (memoryData)
+			{
+				spilling.remove(objectId);
+				spillingSize -= data.length;
+				
+				if (handle != null)
+				{
+					byte[] current = memoryData.remove(objectId);
+					if (current == data)
+					{
+						memoryDataSize -= data.length;
+						handles.put(objectId, handle);
+						spilled = true;
+					}
+					else if (current != null)
+					{
+						// the object has been retrieved and stored again
+						memoryData.put(objectId, current);
+					}
+				}
+			}
+		}
+		
+		if (handle != null && !spilled)
+		{
+			// the object has been removed in the meantime
+			swap.free(handle);
+		}
+	}
+	
 	@Override
 	public void retrieve(JRVirtualizable<?> o, boolean remove, VirtualizationSerializer serializer)
 	{
-		JRSwapFile.SwapHandle handle = handles.get(o.getUID());
+		byte[] memoryBytes;
+		JRSwapFile.SwapHandle handle = null;
+		synchronized (memoryData)
+		{
+			memoryBytes = remove ? memoryData.remove(o.getUID()) : memoryData.get(o.getUID());
+			if (memoryBytes == null)
+			{
+				handle = handles.get(o.getUID());
+			}
+			else if (remove)
+			{
+				memoryDataSize -= memoryBytes.length;
+			}
+		}
+		
+		if (memoryBytes != null)
+		{
+			if (log.isTraceEnabled())
+			{
+				log.trace("found " + memoryBytes.length + " for object " + o.getUID() + " in memory");
+			}
+			
+			readData(o, memoryBytes, serializer);
+			return;
+		}
+		
 		if (handle == null)
 		{
 			// should not happen
@@ -140,11 +310,8 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 			{
 				log.trace("read " + data.length + " for object " + o.getUID() + " from " + swap);
 			}
-			
-			ByteArrayInputStream rawInput = new ByteArrayInputStream(data);
-			InputStream input = compression == null ? rawInput : compression.uncompressedInput(rawInput);
-			serializer.readData(o, input);
-			input.close();
+		
+			readData(o, data, serializer);
 		}
 		catch (IOException e)
 		{
@@ -162,9 +329,44 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 		}
 	}
 	
+	protected void readData(JRVirtualizable<?> o, byte[] data, VirtualizationSerializer serializer)
+	{
+		try
+		{
+			ByteArrayInputStream rawInput = new ByteArrayInputStream(data);
+			InputStream input = compression == null ? rawInput : compression.uncompressedInput(rawInput);
+			serializer.readData(o, input);
+			input.close();
+		}
+		catch (IOException e)
+		{
+			log.error("Error reading object data " + o.getUID(), e);
+			throw 
+				new JRRuntimeException(
+					EXCEPTION_MESSAGE_KEY_DEVIRTUALIZING_ERROR,
+					(Object[])null,
+					e);
+		}
+	}
+	
 	@Override
 	public void remove(String objectId)
 	{
+		synchronized (memoryData)
+		{
+			byte[] memoryBytes = memoryData.remove(objectId);
+			if (memoryBytes != null)
+			{
+				memoryDataSize -= memoryBytes.length;
+				
+				if (log.isTraceEnabled())
+				{
+					log.trace("removing object " + objectId + " from memory");
+				}
+				return;
+			}
+		}
+		
 		JRSwapFile.SwapHandle handle = handles.remove(objectId);
 		if (handle == null)
 		{
@@ -192,6 +394,12 @@ public class SwapFileVirtualizerStore implements VirtualizerStore
 	@Override
 	public void dispose()
 	{
+		synchronized (memoryData)
+		{
+			memoryData.clear();
+			memoryDataSize = 0;
+		}
+		
 		handles.clear();
 		if (swapOwner)
 		{
@@ -36,12 +36,20 @@ public class SwapFileVirtualizerStoreFactory implements VirtualizerStoreFactory
 	private int blockSize = 4096;//default value
 	private int minGrowCount = 20;//default value
 	private StreamCompression compression;
+	private long memoryCacheSize;
 	
 	@Override
 	public VirtualizerStore createStore(JRVirtualizationContext virtualizationContext)
 	{
-		JRSwapFile swapFile = new JRSwapFile(directory, blockSize, minGrowCount);
-		return new SwapFileVirtualizerStore(swapFile, true, compression);
+		JRSwapFile swapFile = createSwapFile();
+		SwapFileVirtualizerStore store = new SwapFileVirtualizerStore(swapFile, true, compression);
+		store.setMemoryCacheSize(memoryCacheSize);
+		return store;
+	}
+
+	protected JRSwapFile createSwapFile()
+	{
+		return new JRSwapFile(directory, blockSize, minGrowCount);
 	}
 
 	public String getDirectory()
@@ -83,4 +91,21 @@ public class SwapFileVirtualizerStoreFactory implements VirtualizerStoreFactory
 	{
 		this.compression = compression;
 	}
+
+	public long getMemoryCacheSize()
+	{
+		return memoryCacheSize;
+	}
+
+	/**
+	 * Sets the number of bytes of serialized data that created stores keep in memory 
+	 * before writing to the swap file.
+	 * 
+	 * @param memoryCacheSize the size of the in-memory cache in bytes
+	 * @see SwapFileVirtualizerStore#setMemoryCacheSize(long)
+	 */
+	public void setMemoryCacheSize(long memoryCacheSize)
+	{
+		this.memoryCacheSize = memoryCacheSize;
+	}
 }
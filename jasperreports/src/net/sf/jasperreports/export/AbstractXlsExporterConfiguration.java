@@ -37,6 +37,8 @@ public abstract class AbstractXlsExporterConfiguration extends SimpleExporterCon
 	private String metadataSubject;
 	private String metadataKeywords;
 	private String metadataApplication;
+	private Integer parallelSheets;
+	private Integer parallelSheetsThreads;
 	
 	
 	/**
@@ -163,4 +165,32 @@ public abstract class AbstractXlsExporterConfiguration extends SimpleExporterCon
 	{
 		this.metadataApplication = metadataApplication;
 	}
+	
+	@Override
+	public Integer getParallelSheets()
+	{
+		return parallelSheets;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setParallelSheets(Integer parallelSheets)
+	{
+		this.parallelSheets = parallelSheets;
+	}
+	
+	@Override
+	public Integer getParallelSheetsThreads()
+	{
+		return parallelSheetsThreads;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setParallelSheetsThreads(Integer parallelSheetsThreads)
+	{
+		this.parallelSheetsThreads = parallelSheetsThreads;
+	}
 }
@@ -93,6 +93,60 @@ public interface HtmlExporterConfiguration extends ExporterConfiguration
 	public static final String PROPERTY_BETWEEN_PAGES_HTML = JRPropertiesUtil.PROPERTY_PREFIX + "export.html.between.pages";
 
 
+	/**
+	 * Property that provides the default value for the {@link #isFlushPages()} export configuration setting.
+	 * 
+	 * <p>
+	 * The property can be set at report level or globally.
+	 * By default, the HTML exporter does not flush the output after each page.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_FLUSH_PAGES = JRPropertiesUtil.PROPERTY_PREFIX + "export.html.flush.pages";
+
+
+	/**
+	 * Property that provides the default value for the {@link #isUseStyleClasses()} export configuration setting.
+	 * 
+	 * <p>
+	 * The property can be set at report level or globally.
+	 * By default, the HTML exporter writes cell styles as inline style attributes.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_USE_STYLE_CLASSES = JRPropertiesUtil.PROPERTY_PREFIX + "export.html.use.style.classes";
+
+
+	/**
+	 * Property that provides the default value for the {@link #isDeduplicateImages()} export configuration setting.
+	 * 
+	 * <p>
+	 * The property can be set at report level or globally.
+	 * By default, the HTML exporter writes a separate resource for each exported image.
+	 * </p>
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_DEDUPLICATE_IMAGES = JRPropertiesUtil.PROPERTY_PREFIX + "export.html.deduplicate.images";
+
+
 	/**
 	 * Returns a string representing HTML code that will be inserted in front of the generated report. The JasperReports engine places
 	 * a piece of HTML code at the top of the page but users can define their own headers and stylesheet links.
@@ -148,4 +202,42 @@ public interface HtmlExporterConfiguration extends ExporterConfiguration
 		booleanDefault=true
 		)
 	public Boolean isFlushOutput();
+	
+	
+	/**
+	 * A flag that determines whether the HTML exporter should flush the
+	 * output after each exported page, allowing browsers to render the report progressively.
+	 * @see #PROPERTY_FLUSH_PAGES
+	 */
+	@ExporterProperty(
+		value=PROPERTY_FLUSH_PAGES, 
+		booleanDefault=false
+		)
+	public Boolean isFlushPages();
+	
+	
+	/**
+	 * A flag that determines whether the HTML exporter should write cell styles as CSS classes
+	 * instead of inline style attributes.
+	 * Identical cell styles share a single class, and the classes first used by a page are declared
+	 * in a style block written before the page.
+	 * @see #PROPERTY_USE_STYLE_CLASSES
+	 */
+	@ExporterProperty(
+		value=PROPERTY_USE_STYLE_CLASSES, 
+		booleanDefault=false
+		)
+	public Boolean isUseStyleClasses();
+	
+	
+	/**
+	 * A flag that determines whether the HTML exporter should write images that have identical data
+	 * only once through the image handler, and refer to the same resource for all of them.
+	 * @see #PROPERTY_DEDUPLICATE_IMAGES
+	 */
+	@ExporterProperty(
+		value=PROPERTY_DEDUPLICATE_IMAGES, 
+		booleanDefault=false
+		)
+	public Boolean isDeduplicateImages();
 }
@@ -340,6 +340,30 @@ public interface PdfExporterConfiguration extends ExporterConfiguration
 			)
 	public static final String PROPERTY_JUSTIFIED_LETTER_SPACING = JRPropertiesUtil.PROPERTY_PREFIX + "export.pdf.justified.letter.spacing";
 	
+	/**
+	 * Property whose value is used as default for the {@link #getImagePrefetchPages()} export configuration setting.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_IMAGE_PREFETCH_PAGES = JRPropertiesUtil.PROPERTY_PREFIX + "export.pdf.image.prefetch.pages";
+	
+	/**
+	 * Property whose value is used as default for the {@link #getImagePrefetchThreads()} export configuration setting.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_IMAGE_PREFETCH_THREADS = JRPropertiesUtil.PROPERTY_PREFIX + "export.pdf.image.prefetch.threads";
+	
 	/**
 	 * Returns a boolean value specifying  whether the PDF document should contain an outline section.
 	 * @see #PROPERTY_CREATE_BATCH_MODE_BOOKMARKS
@@ -613,4 +637,36 @@ public interface PdfExporterConfiguration extends ExporterConfiguration
 		booleanDefault=false
 		)
 	public Boolean isDisplayMetadataTitle();
+	
+	/**
+	 * The number of pages ahead of the page being written for which images are prepared on background threads.
+	 * <p>
+	 * When set to a positive value, the exporter loads image resources and decodes raster images
+	 * for the following pages on a thread pool, while the exporting thread writes the PDF content
+	 * of the current page.
+	 * Images rendered as Graphics2D (SVG images, charts) and text are still processed by the exporting thread.
+	 * Prepared images are discarded once the page on which they are last used has been written,
+	 * so that the look-ahead window bounds the memory used by the prepared images.
+	 * By default the value is 0, meaning that images are prepared when each page is written.
+	 * </p>
+	 * @see #PROPERTY_IMAGE_PREFETCH_PAGES
+	 */
+	@ExporterProperty(
+		value=PROPERTY_IMAGE_PREFETCH_PAGES, 
+		intDefault=0
+		)
+	public Integer getImagePrefetchPages();
+	
+	/**
+	 * The number of threads used to prepare images when {@link #getImagePrefetchPages()} is positive.
+	 * <p>
+	 * If the value is not positive, the number of available processors is used.
+	 * </p>
+	 * @see #PROPERTY_IMAGE_PREFETCH_THREADS
+	 */
+	@ExporterProperty(
+		value=PROPERTY_IMAGE_PREFETCH_THREADS, 
+		intDefault=0
+		)
+	public Integer getImagePrefetchThreads();
 }
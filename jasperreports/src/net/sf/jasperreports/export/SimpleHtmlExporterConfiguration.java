@@ -34,6 +34,9 @@ public class SimpleHtmlExporterConfiguration extends SimpleExporterConfiguration
 	private String betweenPagesHtml;
 	private String htmlFooter;
 	private Boolean flushOutput;
+	private Boolean flushPages;
+	private Boolean useStyleClasses;
+	private Boolean deduplicateImages;
 
 	
 	/**
@@ -98,4 +101,46 @@ public class SimpleHtmlExporterConfiguration extends SimpleExporterConfiguration
 	{
 		this.flushOutput = flushOutput;
 	}
+	
+	@Override
+	public Boolean isFlushPages()
+	{
+		return flushPages;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setFlushPages(Boolean flushPages)
+	{
+		this.flushPages = flushPages;
+	}
+	
+	@Override
+	public Boolean isUseStyleClasses()
+	{
+		return useStyleClasses;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setUseStyleClasses(Boolean useStyleClasses)
+	{
+		this.useStyleClasses = useStyleClasses;
+	}
+	
+	@Override
+	public Boolean isDeduplicateImages()
+	{
+		return deduplicateImages;
+	}
+	
+	/**
+	 * 
+	 */
+	public void setDeduplicateImages(Boolean deduplicateImages)
+	{
+		this.deduplicateImages = deduplicateImages;
+	}
 }
@@ -55,6 +55,8 @@ public class SimplePdfExporterConfiguration extends SimpleExporterConfiguration
 	private String metadataKeywords;
 	private String metadataCreator;
 	private Boolean displayMetadataTitle;
+	private Integer imagePrefetchPages;
+	private Integer imagePrefetchThreads;
 
 	
 	/**
@@ -369,4 +371,32 @@ public class SimplePdfExporterConfiguration extends SimpleExporterConfiguration
 	public void setDisplayMetadataTitle(Boolean displayMetadataTitle) {
 		this.displayMetadataTitle = displayMetadataTitle;
 	}
+
+	@Override
+	public Integer getImagePrefetchPages()
+	{
+		return imagePrefetchPages;
+	}
+
+	/**
+	 * 
+	 */
+	public void setImagePrefetchPages(Integer imagePrefetchPages)
+	{
+		this.imagePrefetchPages = imagePrefetchPages;
+	}
+
+	@Override
+	public Integer getImagePrefetchThreads()
+	{
+		return imagePrefetchThreads;
+	}
+
+	/**
+	 * 
+	 */
+	public void setImagePrefetchThreads(Integer imagePrefetchThreads)
+	{
+		this.imagePrefetchThreads = imagePrefetchThreads;
+	}
 }
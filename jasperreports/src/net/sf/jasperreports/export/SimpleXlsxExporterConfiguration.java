@@ -30,6 +30,8 @@ package net.sf.jasperreports.export;
 public class SimpleXlsxExporterConfiguration extends SimpleXlsExporterConfiguration implements XlsxExporterConfiguration
 {
 	private String macroTemplate;
+	private Boolean streamSheets;
+	private Boolean useSharedStrings;
 	
 	/**
 	 * 
@@ -51,4 +53,32 @@ public class SimpleXlsxExporterConfiguration extends SimpleXlsExporterConfigurat
 	{
 		this.macroTemplate = macroTemplate;
 	}
+
+	@Override
+	public Boolean isStreamSheets()
+	{
+		return streamSheets;
+	}
+
+	/**
+	 * 
+	 */
+	public void setStreamSheets(Boolean streamSheets)
+	{
+		this.streamSheets = streamSheets;
+	}
+
+	@Override
+	public Boolean isUseSharedStrings()
+	{
+		return useSharedStrings;
+	}
+
+	/**
+	 * 
+	 */
+	public void setUseSharedStrings(Boolean useSharedStrings)
+	{
+		this.useSharedStrings = useSharedStrings;
+	}
 }
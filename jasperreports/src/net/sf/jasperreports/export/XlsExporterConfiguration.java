@@ -146,6 +146,30 @@ public interface XlsExporterConfiguration extends ExporterConfiguration
 			)
 	public static final String PROPERTY_METADATA_APPLICATION = JRPropertiesUtil.PROPERTY_PREFIX + "export.xls.metadata.application";
 	
+	/**
+	 * Property whose value is used as default for the {@link #getParallelSheets()} export configuration setting.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_PARALLEL_SHEETS = JRPropertiesUtil.PROPERTY_PREFIX + "export.xls.parallel.sheets";
+	
+	/**
+	 * Property whose value is used as default for the {@link #getParallelSheetsThreads()} export configuration setting.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = "0",
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Integer.class
+			)
+	public static final String PROPERTY_PARALLEL_SHEETS_THREADS = JRPropertiesUtil.PROPERTY_PREFIX + "export.xls.parallel.sheets.threads";
+	
 	/**
 	 * Returns a boolean value specifying whether the standard color palette should be customized
 	 * so that the XLS result uses the original report colors.
@@ -238,4 +262,41 @@ public interface XlsExporterConfiguration extends ExporterConfiguration
 	 */
 	@ExporterProperty(PROPERTY_METADATA_APPLICATION)
 	public String getMetadataApplication();
+	
+	/**
+	 * The number of sheets ahead of the sheet being written that are laid out on background threads.
+	 * <p>
+	 * The setting applies to reports exported with one page per sheet.
+	 * When pages are written one after the other on the same sheet, all the pages share the column cuts
+	 * which each page layout updates, so the pages are laid out sequentially.
+	 * Sheet breaks inside pages, such as the ones created by 
+	 * {@link net.sf.jasperreports.engine.export.JRXlsAbstractExporter#PROPERTY_BREAK_BEFORE_ROW net.sf.jasperreports.export.xls.break.before.row},
+	 * do not affect the layouts and are supported with parallel sheets.
+	 * When set to a positive value, the exporter computes the cell grids of the following pages on a thread pool,
+	 * while the exporting thread writes the cells of the current sheet.
+	 * Sheets are still written one at a time and in order, so the workbook content does not depend on this setting.
+	 * Reports that use exporter filters are exported sequentially, as filters can depend on the order in which elements are checked.
+	 * By default the value is 0, meaning that each sheet is laid out when it is written.
+	 * </p>
+	 * @see #PROPERTY_PARALLEL_SHEETS
+	 * @see XlsReportConfiguration#isOnePagePerSheet()
+	 */
+	@ExporterProperty(
+		value=PROPERTY_PARALLEL_SHEETS, 
+		intDefault=0
+		)
+	public Integer getParallelSheets();
+	
+	/**
+	 * The number of threads used to lay out sheets when {@link #getParallelSheets()} is set.
+	 * <p>
+	 * By default the value is 0, meaning that the number of available processors is used.
+	 * </p>
+	 * @see #PROPERTY_PARALLEL_SHEETS_THREADS
+	 */
+	@ExporterProperty(
+		value=PROPERTY_PARALLEL_SHEETS_THREADS, 
+		intDefault=0
+		)
+	public Integer getParallelSheetsThreads();
 }
@@ -54,6 +54,30 @@ public interface XlsxExporterConfiguration extends XlsExporterConfiguration
 			)
 	public static final String PROPERTY_MACRO_TEMPLATE = JRPropertiesUtil.PROPERTY_PREFIX + "export.xlsx.macro.template";
 
+	/**
+	 * Property used to provide a default value for the {@link #isStreamSheets()} export configuration flag.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_STREAM_SHEETS = JRPropertiesUtil.PROPERTY_PREFIX + "export.xlsx.stream.sheets";
+
+	/**
+	 * Property used to provide a default value for the {@link #isUseSharedStrings()} export configuration flag.
+	 */
+	@Property(
+			category = PropertyConstants.CATEGORY_EXPORT,
+			defaultValue = PropertyConstants.BOOLEAN_FALSE,
+			scopes = {PropertyScope.CONTEXT, PropertyScope.REPORT},
+			sinceVersion = PropertyConstants.VERSION_6_8_0,
+			valueType = Boolean.class
+			)
+	public static final String PROPERTY_USE_SHARED_STRINGS = JRPropertiesUtil.PROPERTY_PREFIX + "export.xlsx.use.shared.strings";
+
 	/**
 	 * Specifies the location of an existing workbook template containing a macro object. 
 	 * The macro object will be copied into the generated document if the template location is valid. 
@@ -64,4 +88,39 @@ public interface XlsxExporterConfiguration extends XlsExporterConfiguration
 	@ExporterProperty(PROPERTY_MACRO_TEMPLATE)
 	public String getMacroTemplate();
 
+	/**
+	 * Flag that specifies whether worksheets are written directly to the output stream.
+	 * <p>
+	 * By default, all the parts of the document are buffered in memory or in temporary files
+	 * and written to the output once the export is complete.
+	 * When the flag is set, the XML of each worksheet is compressed and written to the output
+	 * as the sheet is exported, and only the smaller document parts (workbook, styles, drawings, relationships)
+	 * are buffered until the end of the export.
+	 * This avoids buffering and copying the sheet data, at the cost of writing incomplete content
+	 * to the output when the export fails.
+	 * </p>
+	 * @see #PROPERTY_STREAM_SHEETS
+	 */
+	@ExporterProperty(
+		value=PROPERTY_STREAM_SHEETS, 
+		booleanDefault=false
+		)
+	public Boolean isStreamSheets();
+
+	/**
+	 * Flag that specifies whether plain text cells are written using a shared strings table.
+	 * <p>
+	 * When the flag is set, each distinct text value of cells without styled text is written once
+	 * in the shared strings part of the document and cells refer to it by index,
+	 * which reduces the document size when the same values repeat across rows.
+	 * The distinct values are kept in memory for the duration of the export.
+	 * </p>
+	 * @see #PROPERTY_USE_SHARED_STRINGS
+	 */
+	@ExporterProperty(
+		value=PROPERTY_USE_SHARED_STRINGS, 
+		booleanDefault=false
+		)
+	public Boolean isUseSharedStrings();
+
 }
@@ -42,6 +42,7 @@ import net.sf.jasperreports.engine.JRPrintPage;
 import net.sf.jasperreports.engine.JRPropertiesUtil;
 import net.sf.jasperreports.engine.JRRuntimeException;
 import net.sf.jasperreports.engine.JRStyle;
+import net.sf.jasperreports.engine.JRSubreportReturnValue;
 import net.sf.jasperreports.engine.JRVariable;
 import net.sf.jasperreports.engine.JasperPrint;
 import net.sf.jasperreports.engine.JasperReport;
@@ -67,6 +68,7 @@ import net.sf.jasperreports.engine.fill.JasperReportSource;
 import net.sf.jasperreports.engine.fill.PartReportFiller;
 import net.sf.jasperreports.engine.fill.SimpleJasperReportSource;
 import net.sf.jasperreports.engine.part.BasePartFillComponent;
+import net.sf.jasperreports.engine.part.PartFillComponent;
 import net.sf.jasperreports.engine.part.FillingPrintPart;
 import net.sf.jasperreports.engine.part.PartPrintOutput;
 import net.sf.jasperreports.engine.type.SectionTypeEnum;
@@ -114,13 +116,44 @@ public class SubreportFillPart extends BasePartFillComponent
 	
 	private volatile BaseReportFiller subreportFiller;
 	
+	private boolean detached;
+	private String detachedPartName;
+	
 	public SubreportFillPart(SubreportPartComponent subreportPart, JRFillObjectFactory factory)
 	{
 		this.subreportPart = subreportPart;
 		this.expressionEvaluator = factory.getExpressionEvaluator();
 		
 		this.returnValues = new FillReturnValues(subreportPart.getReturnValues(), factory, factory.getReportFiller());
-		this.returnValuesSource = new AbstractVariableReturnValueSourceContext() 
+		this.returnValuesSource = createReturnValuesSource();
+	}
+
+	/**
+	 * Creates a copy that holds the evaluated state of a part.
+	 * 
+	 * @see #detachEvaluated()
+	 */
+	protected SubreportFillPart(SubreportFillPart evaluatedPart)
+	{
+		this.subreportPart = evaluatedPart.subreportPart;
+		this.expressionEvaluator = evaluatedPart.expressionEvaluator;
+		this.returnValues = evaluatedPart.returnValues;
+		this.returnValuesSource = createReturnValuesSource();
+		this.fillContext = evaluatedPart.fillContext;
+		
+		this.reportSource = evaluatedPart.reportSource;
+		this.jasperReportSource = evaluatedPart.jasperReportSource;
+		this.parameterValues = evaluatedPart.parameterValues;
+		this.datasetPosition = evaluatedPart.datasetPosition;
+		this.cacheIncluded = evaluatedPart.cacheIncluded;
+		
+		this.detached = true;
+		this.detachedPartName = evaluatedPart.getPartName();
+	}
+	
+	private FillReturnValues.SourceContext createReturnValuesSource()
+	{
+		return new AbstractVariableReturnValueSourceContext() 
 		{
 			@Override
 			public Object getValue(CommonReturnValue returnValue) {
@@ -237,6 +270,26 @@ public class SubreportFillPart extends BasePartFillComponent
 		returnValues.copyValues(returnValuesSource);
 	}
 	
+	@Override
+	public PartFillComponent detachEvaluated()
+	{
+		JRSubreportReturnValue[] partReturnValues = subreportPart.getReturnValues();
+		if (partReturnValues != null && partReturnValues.length > 0)
+		{
+			// return values need to be copied in the part order
+			return null;
+		}
+		
+		SectionTypeEnum sectionType = getReport().getSectionType();
+		if (sectionType != null && sectionType != SectionTypeEnum.BAND)
+		{
+			// part subreports write directly to the parent parts queue
+			return null;
+		}
+		
+		return new SubreportFillPart(this);
+	}
+	
 	protected BaseReportFiller createSubreportFiller(final PartPrintOutput output) throws JRException
 	{
 		SectionTypeEnum sectionType = getReport().getSectionType();
@@ -308,7 +361,7 @@ public class SubreportFillPart extends BasePartFillComponent
 	
 	protected String getPartName()
 	{
-		return fillContext.getFillPart().getPartName();
+		return detached ? detachedPartName : fillContext.getFillPart().getPartName();
 	}
 	
 	protected class PartBandParent implements BandReportFillerParent
@@ -36,10 +36,12 @@ import javax.servlet.http.HttpServletResponse;
 
 import net.sf.jasperreports.engine.JRConstants;
 import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRPropertiesUtil;
 import net.sf.jasperreports.engine.JRRuntimeException;
 import net.sf.jasperreports.engine.export.HtmlExporter;
 import net.sf.jasperreports.engine.export.JsonExporter;
 import net.sf.jasperreports.engine.util.JRStringUtil;
+import net.sf.jasperreports.export.HtmlExporterConfiguration;
 import net.sf.jasperreports.export.SimpleExporterInput;
 import net.sf.jasperreports.export.SimpleHtmlExporterConfiguration;
 import net.sf.jasperreports.export.SimpleHtmlExporterOutput;
@@ -226,6 +228,12 @@ public class ReportOutputServlet extends AbstractServlet
 		exporterConfig.setHtmlHeader(getHeader(request, webReportContext, hasPages, pageStatus));
 		exporterConfig.setBetweenPagesHtml(getBetweenPages(request, webReportContext));
 		exporterConfig.setHtmlFooter(getFooter(request, webReportContext, hasPages, pageStatus, isComponentMetadataEmbedded));
+		if (JRPropertiesUtil.getInstance(getJasperReportsContext()).getProperty(
+				jasperPrintAccessor.getJasperPrint(), HtmlExporterConfiguration.PROPERTY_FLUSH_PAGES) == null)
+		{
+			// unless configured otherwise, send the page to the browser before the component metadata is collected
+			exporterConfig.setFlushPages(true);
+		}
 
 		reportConfig.setHyperlinkProducerFactory(
 			ReportExecutionHyperlinkProducerFactory.getInstance(getJasperReportsContext(), request)
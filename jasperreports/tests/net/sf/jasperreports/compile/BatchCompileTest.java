@@ -0,0 +1,157 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.compile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.ReportCompileResult;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.JRDesignExpression;
+import net.sf.jasperreports.engine.design.JRDesignVariable;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.xml.JRXmlLoader;
+
+public class BatchCompileTest
+{
+	private static final String[] REPORTS = {
+			"net/sf/jasperreports/fill/repo/PartsBook.jrxml",
+			"net/sf/jasperreports/fill/repo/PartsChapter.jrxml",
+	};
+	
+	@Test
+	public void compileDesigns() throws JRException, IOException
+	{
+		List<JasperDesign> designs = new ArrayList<JasperDesign>();
+		for (int i = 0; i < 6; ++i)
+		{
+			JasperDesign design = loadDesign(REPORTS[i % REPORTS.length]);
+			design.setName(design.getName() + i);
+			designs.add(design);
+		}
+		
+		JasperDesign brokenDesign = loadDesign(REPORTS[1]);
+		JRDesignVariable brokenVariable = new JRDesignVariable();
+		brokenVariable.setName("Broken");
+		brokenVariable.setValueClass(String.class);
+		brokenVariable.setExpression(new JRDesignExpression("noSuchMethod()"));
+		brokenDesign.addVariable(brokenVariable);
+		designs.add(2, brokenDesign);
+		
+		List<ReportCompileResult> results = compileManager(3).compileAll(designs);
+		assert results.size() == designs.size();
+		for (int i = 0; i < designs.size(); ++i)
+		{
+			ReportCompileResult result = results.get(i);
+			assert result.getDesign() == designs.get(i);
+			if (i == 2)
+			{
+				assert !result.isSuccessful();
+				assert result.getError() instanceof JRException;
+			}
+			else
+			{
+				assert result.isSuccessful();
+				assert result.getError() == null;
+				assert result.getReport().getName().equals(designs.get(i).getName());
+				assert result.getCompileNanos() > 0;
+			}
+		}
+	}
+	
+	@Test
+	public void compileDirectory() throws JRException, IOException
+	{
+		File sourceDir = Files.createTempDirectory("jr-batch-compile").toFile();
+		try
+		{
+			for (String report : REPORTS)
+			{
+				InputStream jrxmlInput = JRLoader.getResourceInputStream(report);
+				try
+				{
+					Files.copy(jrxmlInput, new File(sourceDir, new File(report).getName()).toPath());
+				}
+				finally
+				{
+					jrxmlInput.close();
+				}
+			}
+			Files.write(new File(sourceDir, "Invalid.jrxml").toPath(), "<jasperReport".getBytes("UTF-8"));
+			Files.write(new File(sourceDir, "Ignored.txt").toPath(), "text".getBytes("UTF-8"));
+			
+			List<ReportCompileResult> results = compileManager(0).compileDirectory(sourceDir);
+			assert results.size() == 3;
+			
+			// sorted by file name
+			assert results.get(0).getSource().endsWith("Invalid.jrxml");
+			assert results.get(0).getDesign() == null;
+			assert results.get(0).getError() != null;
+			
+			assert results.get(1).getSource().endsWith("PartsBook.jrxml");
+			assert results.get(1).isSuccessful();
+			assert results.get(1).getParseNanos() > 0;
+			
+			assert results.get(2).getSource().endsWith("PartsChapter.jrxml");
+			assert results.get(2).isSuccessful();
+		}
+		finally
+		{
+			for (File file : sourceDir.listFiles())
+			{
+				file.delete();
+			}
+			sourceDir.delete();
+		}
+	}
+	
+	protected JasperCompileManager compileManager(int parallelism)
+	{
+		SimpleJasperReportsContext jasperReportsContext = new SimpleJasperReportsContext();
+		jasperReportsContext.setProperty(JasperCompileManager.PROPERTY_BATCH_PARALLELISM, String.valueOf(parallelism));
+		return JasperCompileManager.getInstance(jasperReportsContext);
+	}
+	
+	protected JasperDesign loadDesign(String report) throws JRException, IOException
+	{
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(report);
+		try
+		{
+			return JRXmlLoader.load(jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.compile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.UUID;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.CompiledReportCache;
+import net.sf.jasperreports.engine.design.JRClassGenerator;
+import net.sf.jasperreports.engine.design.JRDesignElement;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.xml.JRXmlLoader;
+
+public class CompiledReportCacheTest
+{
+	private static final String REPORT = "net/sf/jasperreports/fill/repo/PartsChapter.jrxml";
+	
+	private File cacheDir;
+	private SimpleJasperReportsContext jasperReportsContext;
+	
+	@BeforeMethod
+	public void createCache() throws IOException
+	{
+		cacheDir = Files.createTempDirectory("jr-compile-cache").toFile();
+		
+		jasperReportsContext = new SimpleJasperReportsContext();
+		jasperReportsContext.setProperty(CompiledReportCache.PROPERTY_CACHE_DIR, cacheDir.getAbsolutePath());
+	}
+	
+	@AfterMethod
+	public void deleteCache()
+	{
+		File[] files = cacheDir.listFiles();
+		if (files != null)
+		{
+			for (File file : files)
+			{
+				file.delete();
+			}
+		}
+		cacheDir.delete();
+	}
+	
+	@Test
+	public void sameDesign() throws JRException, IOException
+	{
+		// the design has UUIDs for all elements, separately loaded designs are identical
+		JasperReport report = compile(loadDesign());
+		JasperReport cachedReport = compile(loadDesign());
+		
+		assert cacheDir.listFiles().length == 1;
+		assert cachedReport.getCompileNameSuffix().equals(report.getCompileNameSuffix());
+	}
+	
+	@Test
+	public void changedDesign() throws JRException, IOException
+	{
+		JasperReport report = compile(loadDesign());
+		
+		JasperDesign design = loadDesign();
+		design.setPageHeight(design.getPageHeight() + 10);
+		JasperReport changedReport = compile(design);
+		
+		assert cacheDir.listFiles().length == 2;
+		assert !changedReport.getCompileNameSuffix().equals(report.getCompileNameSuffix());
+		assert changedReport.getPageHeight() == report.getPageHeight() + 10;
+	}
+	
+	@Test
+	public void elementUuids() throws JRException, IOException
+	{
+		JasperReport report = compile(loadDesign());
+		
+		JasperDesign design = loadDesign();
+		JRDesignElement designElement = (JRDesignElement) design.getTitle().getElements()[0];
+		UUID uuid = UUID.randomUUID();
+		designElement.setUUID(uuid);
+		JasperReport changedReport = compile(design);
+		
+		// UUIDs are not part of the key, the cached report gets the UUIDs of the design
+		assert cacheDir.listFiles().length == 1;
+		assert changedReport.getCompileNameSuffix().equals(report.getCompileNameSuffix());
+		assert changedReport.getTitle().getElements()[0].getUUID().equals(uuid);
+		assert report.getTitle().getElements()[0].getUUID().equals(
+				loadDesign().getTitle().getElements()[0].getUUID());
+	}
+	
+	@Test
+	public void designWithoutUuids() throws JRException, IOException
+	{
+		// designs loaded from JRXML without UUIDs get random UUIDs
+		JasperDesign design = loadDesignWithoutUuids();
+		JasperReport report = compile(design);
+		
+		JasperDesign otherDesign = loadDesignWithoutUuids();
+		assert !otherDesign.getTitle().getElements()[0].getUUID().equals(
+				design.getTitle().getElements()[0].getUUID());
+		JasperReport cachedReport = compile(otherDesign);
+		
+		assert cacheDir.listFiles().length == 1;
+		assert cachedReport.getCompileNameSuffix().equals(report.getCompileNameSuffix());
+		assert cachedReport.getTitle().getElements()[0].getUUID().equals(
+				otherDesign.getTitle().getElements()[0].getUUID());
+		assert cachedReport.getUUID().equals(otherDesign.getUUID());
+	}
+	
+	@Test
+	public void maxEntries() throws JRException, IOException
+	{
+		jasperReportsContext.setProperty(CompiledReportCache.PROPERTY_MAX_ENTRIES, "2");
+		
+		for (int i = 1; i <= 4; i++)
+		{
+			JasperDesign design = loadDesign();
+			design.setPageHeight(design.getPageHeight() + i);
+			compile(design);
+			
+			assert cacheDir.listFiles().length == Math.min(i, 2);
+		}
+	}
+	
+	@Test
+	public void compilerProperties() throws JRException, IOException
+	{
+		JasperReport report = compile(loadDesign());
+		
+		jasperReportsContext.setProperty(JRClassGenerator.PROPERTY_EXPRESSION_METHODS, "true");
+		JasperReport methodsReport = compile(loadDesign());
+		assert cacheDir.listFiles().length == 2;
+		assert !methodsReport.getCompileNameSuffix().equals(report.getCompileNameSuffix());
+		
+		jasperReportsContext.setProperty(JRClassGenerator.PROPERTY_MAX_METHOD_SIZE, "1000");
+		JasperReport sizeReport = compile(loadDesign());
+		assert cacheDir.listFiles().length == 3;
+		assert !sizeReport.getCompileNameSuffix().equals(methodsReport.getCompileNameSuffix());
+		
+		// the compiler class is part of the key
+		JasperDesign design = loadDesign();
+		CompiledReportCache cache = CompiledReportCache.getInstance(jasperReportsContext);
+		String key = cache.getKey(design, "net.sf.jasperreports.engine.design.JRJavacCompiler");
+		assert key.equals(cache.getKey(design, "net.sf.jasperreports.engine.design.JRJavacCompiler"));
+		assert !key.equals(cache.getKey(design, "net.sf.jasperreports.engine.design.JRJdtCompiler"));
+	}
+	
+	@Test
+	public void instancePerContext() throws JRException
+	{
+		CompiledReportCache cache = CompiledReportCache.getInstance(jasperReportsContext);
+		assert cache != null;
+		assert CompiledReportCache.getInstance(jasperReportsContext) == cache;
+		
+		SimpleJasperReportsContext otherContext = new SimpleJasperReportsContext();
+		otherContext.setProperty(CompiledReportCache.PROPERTY_CACHE_DIR, cacheDir.getAbsolutePath());
+		assert CompiledReportCache.getInstance(otherContext) != cache;
+	}
+	
+	@Test
+	public void corruptEntry() throws JRException, IOException
+	{
+		JasperReport report = compile(loadDesign());
+		
+		File[] entries = cacheDir.listFiles();
+		assert entries.length == 1;
+		Files.write(entries[0].toPath(), new byte[]{1, 2, 3});
+		
+		JasperReport recompiledReport = compile(loadDesign());
+		assert !recompiledReport.getCompileNameSuffix().equals(report.getCompileNameSuffix());
+		
+		JasperReport cachedReport = compile(loadDesign());
+		assert cachedReport.getCompileNameSuffix().equals(recompiledReport.getCompileNameSuffix());
+	}
+	
+	protected JasperDesign loadDesign() throws JRException, IOException
+	{
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(REPORT);
+		try
+		{
+			return JRXmlLoader.load(jasperReportsContext, jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+	}
+	
+	protected JasperDesign loadDesignWithoutUuids() throws JRException, IOException
+	{
+		String jrxml = new String(JRLoader.loadBytesFromResource(REPORT), "UTF-8");
+		String jrxmlWithoutUuids = jrxml.replaceAll("\\suuid=\"[^\"]*\"", "");
+		assert !jrxmlWithoutUuids.contains("uuid=");
+		return JRXmlLoader.load(jasperReportsContext, 
+				new ByteArrayInputStream(jrxmlWithoutUuids.getBytes("UTF-8")));
+	}
+	
+	protected JasperReport compile(JasperDesign design) throws JRException
+	{
+		return JasperCompileManager.getInstance(jasperReportsContext).compile(design);
+	}
+}
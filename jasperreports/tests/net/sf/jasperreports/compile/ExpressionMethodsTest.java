@@ -0,0 +1,165 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.compile;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRPrintElement;
+import net.sf.jasperreports.engine.JRPrintPage;
+import net.sf.jasperreports.engine.JRPrintText;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.JRClassGenerator;
+import net.sf.jasperreports.engine.design.JRDesignBand;
+import net.sf.jasperreports.engine.design.JRDesignExpression;
+import net.sf.jasperreports.engine.design.JRDesignParameter;
+import net.sf.jasperreports.engine.design.JRDesignSection;
+import net.sf.jasperreports.engine.design.JRDesignTextField;
+import net.sf.jasperreports.engine.design.JRDesignVariable;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.type.CalculationEnum;
+import net.sf.jasperreports.engine.type.EvaluationTimeEnum;
+
+public class ExpressionMethodsTest
+{
+	// more than the number of expressions per generated method
+	private static final int TEXT_FIELD_COUNT = 240;
+	private static final int COLUMN_COUNT = 6;
+	
+	@Test
+	public void sameFillOutput() throws JRException
+	{
+		JasperDesign design = createDesign();
+		JasperReport inlineReport = compileManager(false).compile(design);
+		JasperReport methodsReport = compileManager(true).compile(design);
+		
+		List<String> inlineTexts = pageTexts(fill(inlineReport));
+		List<String> methodsTexts = pageTexts(fill(methodsReport));
+		assert inlineTexts.size() > TEXT_FIELD_COUNT;
+		assert methodsTexts.equals(inlineTexts);
+	}
+	
+	protected JasperCompileManager compileManager(boolean expressionMethods)
+	{
+		SimpleJasperReportsContext jasperReportsContext = new SimpleJasperReportsContext();
+		jasperReportsContext.setProperty(JRClassGenerator.PROPERTY_EXPRESSION_METHODS, String.valueOf(expressionMethods));
+		return JasperCompileManager.getInstance(jasperReportsContext);
+	}
+	
+	protected JasperDesign createDesign() throws JRException
+	{
+		JasperDesign design = new JasperDesign();
+		design.setName("ExpressionMethods");
+		design.setPageWidth(595);
+		design.setPageHeight(842);
+		design.setColumnWidth(555);
+		design.setLeftMargin(20);
+		design.setRightMargin(20);
+		design.setTopMargin(20);
+		design.setBottomMargin(20);
+		
+		JRDesignParameter prefixParameter = new JRDesignParameter();
+		prefixParameter.setName("Prefix");
+		prefixParameter.setValueClass(String.class);
+		design.addParameter(prefixParameter);
+		
+		JRDesignVariable sumVariable = new JRDesignVariable();
+		sumVariable.setName("Sum");
+		sumVariable.setValueClass(Integer.class);
+		sumVariable.setCalculation(CalculationEnum.SUM);
+		sumVariable.setExpression(new JRDesignExpression("$V{REPORT_COUNT} * 2"));
+		design.addVariable(sumVariable);
+		
+		JRDesignBand band = new JRDesignBand();
+		int rowCount = (TEXT_FIELD_COUNT + COLUMN_COUNT - 1) / COLUMN_COUNT;
+		band.setHeight(rowCount * 10);
+		for (int i = 0; i < TEXT_FIELD_COUNT; i++)
+		{
+			JRDesignTextField textField = new JRDesignTextField();
+			textField.setX((i % COLUMN_COUNT) * 90);
+			textField.setY((i / COLUMN_COUNT) * 10);
+			textField.setWidth(90);
+			textField.setHeight(10);
+			
+			String expression;
+			switch (i % 4)
+			{
+			case 0:
+				expression = "$P{Prefix} + \" \" + $V{REPORT_COUNT} + \"/\" + " + i;
+				break;
+			case 1:
+				expression = "String.valueOf($V{Sum} + " + i + ")";
+				break;
+			case 2:
+				// evaluated with the estimated and old values
+				expression = "\"page \" + $V{PAGE_NUMBER} + \" field " + i + "\"";
+				textField.setEvaluationTime(EvaluationTimeEnum.REPORT);
+				break;
+			default:
+				expression = "$V{PAGE_COUNT} + \":\" + " + i;
+				textField.setEvaluationTime(EvaluationTimeEnum.PAGE);
+				break;
+			}
+			textField.setExpression(new JRDesignExpression(expression));
+			band.addElement(textField);
+		}
+		((JRDesignSection) design.getDetailSection()).addBand(band);
+		return design;
+	}
+	
+	protected JasperPrint fill(JasperReport report) throws JRException
+	{
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("Prefix", "record");
+		return JasperFillManager.getInstance(new SimpleJasperReportsContext()).fill(report, parameters, 
+				new JREmptyDataSource(10));
+	}
+	
+	protected List<String> pageTexts(JasperPrint jasperPrint)
+	{
+		List<String> texts = new ArrayList<String>();
+		for (JRPrintPage page : jasperPrint.getPages())
+		{
+			for (JRPrintElement element : page.getElements())
+			{
+				if (element instanceof JRPrintText)
+				{
+					texts.add(element.getX() + "," + element.getY() + ":" + ((JRPrintText) element).getFullText());
+				}
+			}
+			texts.add("--");
+		}
+		return texts;
+	}
+}
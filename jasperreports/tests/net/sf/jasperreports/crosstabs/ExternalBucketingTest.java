@@ -0,0 +1,280 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.crosstabs;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.crosstabs.fill.calculation.BucketDefinition;
+import net.sf.jasperreports.crosstabs.fill.calculation.BucketingServiceContext;
+import net.sf.jasperreports.crosstabs.fill.calculation.CrosstabBucketingService;
+import net.sf.jasperreports.crosstabs.fill.calculation.CrosstabCell;
+import net.sf.jasperreports.crosstabs.fill.calculation.HeaderCell;
+import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition;
+import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition.MeasureValue;
+import net.sf.jasperreports.crosstabs.type.CrosstabTotalPositionEnum;
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRExpression;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.analytics.dataset.BucketOrder;
+import net.sf.jasperreports.engine.fill.JRDefaultIncrementerFactory;
+import net.sf.jasperreports.engine.fill.JRFillExpressionEvaluator;
+import net.sf.jasperreports.engine.type.CalculationEnum;
+
+public class ExternalBucketingTest
+{
+	private static final int RECORD_COUNT = 20000;
+	private static final int MEASURE_COUNT = 5;
+	
+	@Test
+	public void externalResults() throws JRException, IOException
+	{
+		compareResults(2000, CrosstabTotalPositionEnum.END);
+	}
+	
+	@Test
+	public void splitPartitions() throws JRException, IOException
+	{
+		// partitions exceeding the threshold are split
+		compareResults(400, CrosstabTotalPositionEnum.START);
+	}
+	
+	@Test
+	public void belowThreshold() throws JRException, IOException
+	{
+		File directory = Files.createTempDirectory("crosstab").toFile();
+		try
+		{
+			CrosstabBucketingService service = createService(RECORD_COUNT + 1, directory, CrosstabTotalPositionEnum.END);
+			addData(service);
+			processData(service);
+			
+			assert service.getCrosstabCells() != null;
+			assert directory.list().length == 0;
+		}
+		finally
+		{
+			directory.delete();
+		}
+	}
+	
+	private void compareResults(int recordThreshold, CrosstabTotalPositionEnum totalPosition) throws JRException, IOException
+	{
+		File directory = Files.createTempDirectory("crosstab").toFile();
+		try
+		{
+			CrosstabBucketingService inMemory = createService(0, null, totalPosition);
+			CrosstabBucketingService external = createService(recordThreshold, directory, totalPosition);
+			addData(inMemory);
+			addData(external);
+			
+			processData(inMemory);
+			processData(external);
+			
+			assert external.getCrosstabCells() == null;
+			
+			assertEquals(inMemory.getRowHeaders(), external.getRowHeaders());
+			assertEquals(inMemory.getColumnHeaders(), external.getColumnHeaders());
+			
+			CrosstabCell[][] cells = inMemory.getCrosstabCells();
+			assert cells.length == external.getRowHeaders()[0].length;
+			for (int i = 0; i < cells.length; i++)
+			{
+				CrosstabCell[] externalRow = external.getCrosstabCellRow(i);
+				assert cells[i].length == externalRow.length;
+				for (int j = 0; j < cells[i].length; j++)
+				{
+					assertEquals(cells[i][j], externalRow[j]);
+				}
+			}
+			
+			assertEquals(inMemory.getGrandTotals(), external.getGrandTotals());
+			
+			external.disposeExternalBucketing();
+			assert directory.list().length == 0;
+		}
+		finally
+		{
+			directory.delete();
+		}
+	}
+	
+	private void addData(CrosstabBucketingService service) throws JRException
+	{
+		Random random = new Random(11);
+		Object[] bucketValues = new Object[3];
+		Object[] measureValues = new Object[5];
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			bucketValues[0] = random.nextInt(30) == 0 ? null : "customer" + random.nextInt(300);
+			bucketValues[1] = random.nextInt(5);
+			bucketValues[2] = "product" + random.nextInt(12);
+			
+			// integral amounts so that the sums do not depend on the order of the records
+			Double amount = random.nextInt(20) == 0 ? null : (double) random.nextInt(1000);
+			Arrays.fill(measureValues, amount);
+			
+			service.addData(bucketValues, measureValues);
+		}
+	}
+	
+	private void processData(CrosstabBucketingService service) throws JRException
+	{
+		service.processData();
+		service.createCrosstab();
+	}
+	
+	private CrosstabBucketingService createService(int recordThreshold, File directory, 
+			CrosstabTotalPositionEnum totalPosition) throws JRException
+	{
+		BucketingServiceContext serviceContext = new BucketingServiceContext()
+		{
+			@Override
+			public JasperReportsContext getJasperReportsContext()
+			{
+				return DefaultJasperReportsContext.getInstance();
+			}
+			
+			@Override
+			public JRFillExpressionEvaluator getExpressionEvaluator()
+			{
+				return null;
+			}
+			
+			@Override
+			public Object evaluateMeasuresExpression(JRExpression expression, MeasureValue[] measureValues)
+			{
+				return null;
+			}
+		};
+		
+		List<BucketDefinition> rowBuckets = new ArrayList<BucketDefinition>();
+		rowBuckets.add(new BucketDefinition(String.class, null, null, BucketOrder.ASCENDING, totalPosition));
+		rowBuckets.add(new BucketDefinition(Integer.class, null, null, BucketOrder.DESCENDING, CrosstabTotalPositionEnum.END));
+		
+		List<BucketDefinition> columnBuckets = new ArrayList<BucketDefinition>();
+		columnBuckets.add(new BucketDefinition(String.class, null, null, BucketOrder.ASCENDING, CrosstabTotalPositionEnum.START));
+		
+		List<MeasureDefinition> measures = new ArrayList<MeasureDefinition>();
+		measures.add(measure(Double.class, CalculationEnum.SUM));
+		measures.add(measure(Integer.class, CalculationEnum.COUNT));
+		measures.add(measure(Double.class, CalculationEnum.AVERAGE));
+		measures.add(measure(Double.class, CalculationEnum.HIGHEST));
+		measures.add(measure(Integer.class, CalculationEnum.DISTINCT_COUNT));
+		
+		boolean[][] retrieveTotal = new boolean[3][2];
+		for (boolean[] rowTotals : retrieveTotal)
+		{
+			Arrays.fill(rowTotals, true);
+		}
+		
+		CrosstabBucketingService service = new CrosstabBucketingService(serviceContext, 
+				rowBuckets, columnBuckets, measures, false, retrieveTotal);
+		service.setExternalBucketing(recordThreshold, directory);
+		return service;
+	}
+	
+	private MeasureDefinition measure(Class<?> valueClass, CalculationEnum calculation)
+	{
+		return new MeasureDefinition(valueClass, calculation, JRDefaultIncrementerFactory.getFactory(valueClass));
+	}
+	
+	private void assertEquals(HeaderCell[][] expected, HeaderCell[][] actual)
+	{
+		assert expected.length == actual.length;
+		for (int i = 0; i < expected.length; i++)
+		{
+			assert expected[i].length == actual[i].length;
+			for (int j = 0; j < expected[i].length; j++)
+			{
+				if (expected[i][j] == null)
+				{
+					assert actual[i][j] == null;
+					continue;
+				}
+				
+				assert Arrays.equals(expected[i][j].getBucketValues(), actual[i][j].getBucketValues());
+				assert expected[i][j].getLevelSpan() == actual[i][j].getLevelSpan();
+				assert expected[i][j].getDepthSpan() == actual[i][j].getDepthSpan();
+				assertEquals(expected[i][j].getTotals(), actual[i][j].getTotals());
+			}
+		}
+	}
+	
+	private void assertEquals(CrosstabCell expected, CrosstabCell actual)
+	{
+		assert Arrays.equals(expected.getRowBucketValues(), actual.getRowBucketValues());
+		assert Arrays.equals(expected.getColumnBucketValues(), actual.getColumnBucketValues());
+		assertEquals(expected.getMesureValues(), actual.getMesureValues());
+		
+		MeasureValue[][][] expectedTotals = expected.getTotals();
+		MeasureValue[][][] actualTotals = actual.getTotals();
+		assert expectedTotals.length == actualTotals.length;
+		for (int i = 0; i < expectedTotals.length; i++)
+		{
+			assertEquals(expectedTotals[i], actualTotals[i]);
+		}
+	}
+	
+	private void assertEquals(MeasureValue[][] expected, MeasureValue[][] actual)
+	{
+		if (expected == null)
+		{
+			assert actual == null;
+			return;
+		}
+		
+		assert expected.length == actual.length;
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertEquals(expected[i], actual[i]);
+		}
+	}
+	
+	private void assertEquals(MeasureValue[] expected, MeasureValue[] actual)
+	{
+		if (expected == null)
+		{
+			assert actual == null;
+			return;
+		}
+		
+		assert expected.length == actual.length;
+		for (int i = 0; i < MEASURE_COUNT; i++)
+		{
+			Object expectedValue = expected[i].getValue();
+			Object actualValue = actual[i].getValue();
+			assert expectedValue == null ? actualValue == null : expectedValue.equals(actualValue)
+					: expectedValue + " != " + actualValue;
+		}
+	}
+}
@@ -0,0 +1,364 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.crosstabs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.crosstabs.fill.calculation.BucketDefinition;
+import net.sf.jasperreports.crosstabs.fill.calculation.BucketingService;
+import net.sf.jasperreports.crosstabs.fill.calculation.BucketingServiceContext;
+import net.sf.jasperreports.crosstabs.fill.calculation.CrosstabBucketingService;
+import net.sf.jasperreports.crosstabs.fill.calculation.CrosstabCell;
+import net.sf.jasperreports.crosstabs.fill.calculation.HeaderCell;
+import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition;
+import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition.MeasureValue;
+import net.sf.jasperreports.crosstabs.type.CrosstabTotalPositionEnum;
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRExpression;
+import net.sf.jasperreports.engine.JRRuntimeException;
+import net.sf.jasperreports.engine.JasperReportsContext;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.analytics.dataset.BucketOrder;
+import net.sf.jasperreports.engine.fill.AbstractValueProvider;
+import net.sf.jasperreports.engine.fill.JRAbstractExtendedIncrementer;
+import net.sf.jasperreports.engine.fill.JRCalculable;
+import net.sf.jasperreports.engine.fill.JRDefaultIncrementerFactory;
+import net.sf.jasperreports.engine.fill.JRExtendedIncrementer;
+import net.sf.jasperreports.engine.fill.JRExtendedIncrementerFactory;
+import net.sf.jasperreports.engine.fill.JRFillExpressionEvaluator;
+import net.sf.jasperreports.engine.fill.JRIncrementer;
+import net.sf.jasperreports.engine.type.CalculationEnum;
+
+public class ParallelBucketingTest
+{
+	private static final int RECORD_COUNT = 100000;
+	private static final int MEASURE_COUNT = 5;
+	
+	@Test
+	public void parallelResults() throws JRException
+	{
+		CrosstabBucketingService serial = createService(0);
+		CrosstabBucketingService parallel = createService(4);
+		
+		Random random = new Random(7);
+		Object[] bucketValues = new Object[3];
+		Object[] measureValues = new Object[5];
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			bucketValues[0] = "region" + random.nextInt(7);
+			bucketValues[1] = random.nextInt(50);
+			bucketValues[2] = random.nextInt(10) == 0 ? null : "product" + random.nextInt(30);
+			
+			Double amount = random.nextInt(20) == 0 ? null : random.nextDouble() * 1000;
+			Arrays.fill(measureValues, amount);
+			
+			serial.addData(bucketValues, measureValues);
+			parallel.addData(bucketValues, measureValues);
+		}
+		
+		processData(serial);
+		processData(parallel);
+		
+		assertEquals(serial.getRowHeaders(), parallel.getRowHeaders());
+		assertEquals(serial.getColumnHeaders(), parallel.getColumnHeaders());
+		
+		CrosstabCell[][] serialCells = serial.getCrosstabCells();
+		CrosstabCell[][] parallelCells = parallel.getCrosstabCells();
+		assert serialCells.length == parallelCells.length;
+		for (int i = 0; i < serialCells.length; i++)
+		{
+			assert serialCells[i].length == parallelCells[i].length;
+			for (int j = 0; j < serialCells[i].length; j++)
+			{
+				assertEquals(serialCells[i][j], parallelCells[i][j]);
+			}
+		}
+		
+		assertEquals(serial.getGrandTotals(), parallel.getGrandTotals());
+	}
+	
+	@Test
+	public void clearData() throws JRException
+	{
+		CrosstabBucketingService parallel = createService(3);
+		for (int i = 0; i < 5000; i++)
+		{
+			parallel.addData(new Object[]{"a" + (i % 3), i % 5, "b"}, new Object[]{1d, 1d, 1d, 1d, 1d});
+		}
+		parallel.clear();
+		
+		parallel.addData(new Object[]{"a", 1, "b"}, new Object[]{2d, 2d, 2d, 2d, 2d});
+		processData(parallel);
+		
+		MeasureValue[] totals = parallel.getGrandTotals();
+		assert totals[0].getValue().equals(2d);
+		assert totals[1].getValue().equals(1);
+	}
+	
+	@Test
+	public void measureLimit() throws JRException
+	{
+		CrosstabBucketingService parallel = createService(4, 1000);
+		int addedCount = 0;
+		try
+		{
+			// distinct cells, the limit is exceeded after 200 cells
+			for (; addedCount < RECORD_COUNT; addedCount++)
+			{
+				parallel.addData(new Object[]{"a" + addedCount, addedCount, "b"}, new Object[]{1d, 1d, 1d, 1d, 1d});
+			}
+			processData(parallel);
+			assert false : "bucket measure limit not enforced";
+		}
+		catch (JRRuntimeException e)
+		{
+			assert BucketingService.EXCEPTION_MESSAGE_KEY_BUCKET_MEASURE_LIMIT.equals(e.getMessageKey());
+		}
+		
+		// the limit is checked while accumulating, without waiting for the merge
+		assert addedCount < RECORD_COUNT;
+		parallel.clear();
+	}
+	
+	@Test(timeOut = 60000)
+	public void workerError() throws JRException
+	{
+		List<MeasureDefinition> measures = measures();
+		measures.set(0, new MeasureDefinition(Double.class, CalculationEnum.SUM, new FailingIncrementerFactory()));
+		CrosstabBucketingService parallel = createService(4, 0, measures);
+		try
+		{
+			// more batches than the pending batches limit, the producer must not block
+			for (int i = 0; i < RECORD_COUNT; i++)
+			{
+				parallel.addData(new Object[]{"a" + (i % 3), i % 5, "b"}, new Object[]{1d, 1d, 1d, 1d, 1d});
+			}
+			processData(parallel);
+			assert false : "worker error not propagated";
+		}
+		catch (IncrementError e)
+		{
+			// expected
+		}
+		parallel.clear();
+	}
+	
+	private void processData(CrosstabBucketingService service) throws JRException
+	{
+		service.processData();
+		service.createCrosstab();
+	}
+	
+	private CrosstabBucketingService createService(int parallelism) throws JRException
+	{
+		return createService(parallelism, 0);
+	}
+	
+	private CrosstabBucketingService createService(int parallelism, int measureLimit) throws JRException
+	{
+		return createService(parallelism, measureLimit, measures());
+	}
+	
+	private CrosstabBucketingService createService(int parallelism, int measureLimit, 
+			List<MeasureDefinition> measures) throws JRException
+	{
+		final SimpleJasperReportsContext context = new SimpleJasperReportsContext(DefaultJasperReportsContext.getInstance());
+		context.setProperty(BucketingService.PROPERTY_BUCKETING_PARALLELISM, String.valueOf(parallelism));
+		context.setProperty(BucketingService.PROPERTY_BUCKET_MEASURE_LIMIT, String.valueOf(measureLimit));
+		BucketingServiceContext serviceContext = new BucketingServiceContext()
+		{
+			@Override
+			public JasperReportsContext getJasperReportsContext()
+			{
+				return context;
+			}
+			
+			@Override
+			public JRFillExpressionEvaluator getExpressionEvaluator()
+			{
+				return null;
+			}
+			
+			@Override
+			public Object evaluateMeasuresExpression(JRExpression expression, MeasureValue[] measureValues)
+			{
+				return null;
+			}
+		};
+		
+		List<BucketDefinition> rowBuckets = new ArrayList<BucketDefinition>();
+		rowBuckets.add(new BucketDefinition(String.class, null, null, BucketOrder.ASCENDING, CrosstabTotalPositionEnum.END));
+		rowBuckets.add(new BucketDefinition(Integer.class, null, null, BucketOrder.NONE, CrosstabTotalPositionEnum.END));
+		
+		List<BucketDefinition> columnBuckets = new ArrayList<BucketDefinition>();
+		columnBuckets.add(new BucketDefinition(String.class, null, null, BucketOrder.DESCENDING, CrosstabTotalPositionEnum.START));
+		
+		boolean[][] retrieveTotal = new boolean[3][2];
+		for (boolean[] rowTotals : retrieveTotal)
+		{
+			Arrays.fill(rowTotals, true);
+		}
+		
+		return new CrosstabBucketingService(serviceContext, rowBuckets, columnBuckets, measures, false, retrieveTotal);
+	}
+	
+	private List<MeasureDefinition> measures()
+	{
+		List<MeasureDefinition> measures = new ArrayList<MeasureDefinition>();
+		measures.add(measure(Double.class, CalculationEnum.SUM));
+		measures.add(measure(Integer.class, CalculationEnum.COUNT));
+		measures.add(measure(Double.class, CalculationEnum.AVERAGE));
+		measures.add(measure(Double.class, CalculationEnum.HIGHEST));
+		measures.add(measure(Integer.class, CalculationEnum.DISTINCT_COUNT));
+		return measures;
+	}
+	
+	private MeasureDefinition measure(Class<?> valueClass, CalculationEnum calculation)
+	{
+		return new MeasureDefinition(valueClass, calculation, JRDefaultIncrementerFactory.getFactory(valueClass));
+	}
+	
+	private void assertEquals(HeaderCell[][] expected, HeaderCell[][] actual)
+	{
+		assert expected.length == actual.length;
+		for (int i = 0; i < expected.length; i++)
+		{
+			assert expected[i].length == actual[i].length;
+			for (int j = 0; j < expected[i].length; j++)
+			{
+				if (expected[i][j] == null)
+				{
+					assert actual[i][j] == null;
+					continue;
+				}
+				
+				assert Arrays.equals(expected[i][j].getBucketValues(), actual[i][j].getBucketValues());
+				assert expected[i][j].getLevelSpan() == actual[i][j].getLevelSpan();
+				assert expected[i][j].getDepthSpan() == actual[i][j].getDepthSpan();
+				assertEquals(expected[i][j].getTotals(), actual[i][j].getTotals());
+			}
+		}
+	}
+	
+	private void assertEquals(CrosstabCell expected, CrosstabCell actual)
+	{
+		if (expected == null)
+		{
+			assert actual == null;
+			return;
+		}
+		
+		assert Arrays.equals(expected.getRowBucketValues(), actual.getRowBucketValues());
+		assert Arrays.equals(expected.getColumnBucketValues(), actual.getColumnBucketValues());
+		assertEquals(expected.getMesureValues(), actual.getMesureValues());
+		
+		MeasureValue[][][] expectedTotals = expected.getTotals();
+		MeasureValue[][][] actualTotals = actual.getTotals();
+		assert expectedTotals.length == actualTotals.length;
+		for (int i = 0; i < expectedTotals.length; i++)
+		{
+			assertEquals(expectedTotals[i], actualTotals[i]);
+		}
+	}
+	
+	private void assertEquals(MeasureValue[][] expected, MeasureValue[][] actual)
+	{
+		if (expected == null)
+		{
+			assert actual == null;
+			return;
+		}
+		
+		assert expected.length == actual.length;
+		for (int i = 0; i < expected.length; i++)
+		{
+			assertEquals(expected[i], actual[i]);
+		}
+	}
+	
+	private void assertEquals(MeasureValue[] expected, MeasureValue[] actual)
+	{
+		if (expected == null)
+		{
+			assert actual == null;
+			return;
+		}
+		
+		assert expected.length == actual.length;
+		// only compare the declared measures, helper values do not implement equals
+		for (int i = 0; i < MEASURE_COUNT; i++)
+		{
+			Object expectedValue = expected[i] == null ? null : expected[i].getValue();
+			Object actualValue = actual[i] == null ? null : actual[i].getValue();
+			assert expectedValue == null ? actualValue == null : expectedValue.equals(actualValue)
+					: expectedValue + " != " + actualValue;
+		}
+	}
+	
+	private static class IncrementError extends Error
+	{
+		private static final long serialVersionUID = 1L;
+	}
+	
+	private static class FailingIncrementerFactory implements JRExtendedIncrementerFactory
+	{
+		@Override
+		public JRExtendedIncrementer getExtendedIncrementer(CalculationEnum calculation)
+		{
+			return new JRAbstractExtendedIncrementer()
+			{
+				@Override
+				public Object increment(JRCalculable calculable, Object expressionValue, 
+						AbstractValueProvider valueProvider)
+				{
+					throw new IncrementError();
+				}
+				
+				@Override
+				public Object initialValue()
+				{
+					return null;
+				}
+			};
+		}
+		
+		@Override
+		public JRExtendedIncrementer getExtendedIncrementer(byte calculation)
+		{
+			return getExtendedIncrementer(CalculationEnum.getByValue(calculation));
+		}
+		
+		@Override
+		public JRIncrementer getIncrementer(byte calculation)
+		{
+			return getExtendedIncrementer(calculation);
+		}
+	}
+}
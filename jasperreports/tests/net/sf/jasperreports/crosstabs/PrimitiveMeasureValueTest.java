@@ -0,0 +1,120 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.crosstabs;
+
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition;
+import net.sf.jasperreports.crosstabs.fill.calculation.MeasureDefinition.MeasureValue;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.fill.JRDefaultIncrementerFactory;
+import net.sf.jasperreports.engine.type.CalculationEnum;
+
+public class PrimitiveMeasureValueTest
+{
+	@Test
+	public void integerValues() throws JRException
+	{
+		Random random = new Random(1);
+		Object[] values = new Object[1000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = random.nextInt(10) == 0 ? null : random.nextInt();
+		}
+		
+		compareValues(Integer.class, CalculationEnum.SUM, values);
+		compareValues(Integer.class, CalculationEnum.COUNT, values);
+	}
+	
+	@Test
+	public void longValues() throws JRException
+	{
+		Random random = new Random(2);
+		Object[] values = new Object[1000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = random.nextInt(10) == 0 ? null : random.nextLong();
+		}
+		
+		compareValues(Long.class, CalculationEnum.SUM, values);
+		compareValues(Long.class, CalculationEnum.COUNT, values);
+	}
+	
+	@Test
+	public void doubleValues() throws JRException
+	{
+		Random random = new Random(3);
+		Object[] values = new Object[1000];
+		for (int i = 0; i < values.length; i++)
+		{
+			values[i] = random.nextInt(10) == 0 ? null : random.nextGaussian() * 1000;
+		}
+		
+		compareValues(Double.class, CalculationEnum.SUM, values);
+		compareValues(Double.class, CalculationEnum.COUNT, values);
+	}
+	
+	@Test
+	public void nullValues() throws JRException
+	{
+		compareValues(Double.class, CalculationEnum.SUM, new Object[]{null, null});
+		compareValues(Integer.class, CalculationEnum.COUNT, new Object[]{null});
+	}
+	
+	private void compareValues(Class<?> valueClass, CalculationEnum calculation, Object[] values) throws JRException
+	{
+		MeasureDefinition measure = new MeasureDefinition(valueClass, calculation, 
+				JRDefaultIncrementerFactory.getFactory(valueClass));
+		
+		MeasureValue expected = measure.new MeasureValue();
+		MeasureValue actual = measure.createMeasureValue();
+		MeasureValue expectedTotal = measure.new MeasureValue();
+		MeasureValue actualTotal = measure.createMeasureValue();
+		for (int i = 0; i < values.length; i++)
+		{
+			expected.addValue(values[i]);
+			actual.addValue(values[i]);
+			assertEquals(expected, actual);
+			
+			if (i % 100 == 99)
+			{
+				expectedTotal.addValue(expected);
+				actualTotal.addValue(actual);
+				assertEquals(expectedTotal, actualTotal);
+				
+				expected = measure.new MeasureValue();
+				actual = measure.createMeasureValue();
+			}
+		}
+	}
+	
+	private void assertEquals(MeasureValue expected, MeasureValue actual)
+	{
+		assert expected.isInitialized() == actual.isInitialized();
+		assert expected.getValue() == null ? actual.getValue() == null : expected.getValue().equals(actual.getValue())
+				: expected.getValue() + " != " + actual.getValue();
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.testng.annotations.Test;
+
+public class DictionaryValuesTest
+{
+	private static final int RECORD_COUNT = 10000;
+	
+	@Test
+	public void lowCardinality() throws IOException, ClassNotFoundException
+	{
+		ColumnDataCacheHandler cacheHandler = new ColumnDataCacheHandler();
+		TypedColumnStore store = new TypedColumnStore(cacheHandler, String.class);
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			// new string instances
+			store.addValue(i % 11 == 0 ? null : new String("value" + (i % 20)));
+		}
+		
+		ObjectArrayStore<?> valueStore = valueStore(store);
+		assert valueStore.isDictionaryEncoding();
+		assert valueStore.getDictionarySize() == 20;
+		
+		ColumnValues values = store.createValues();
+		assert valueStore.getEncodedValueCount() > 0;
+		verifyValues(values, 20);
+		
+		ColumnValues readValues = serialize(values);
+		verifyValues(readValues, 20);
+	}
+	
+	@Test
+	public void highCardinality()
+	{
+		ColumnDataCacheHandler cacheHandler = new ColumnDataCacheHandler();
+		cacheHandler.setDictionaryMaxSize(100);
+		TypedColumnStore store = new TypedColumnStore(cacheHandler, String.class);
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			store.addValue(i % 11 == 0 ? null : ("value" + (i % 500)));
+		}
+		
+		ObjectArrayStore<?> valueStore = valueStore(store);
+		assert !valueStore.isDictionaryEncoding();
+		
+		ColumnValues values = store.createValues();
+		verifyValues(values, 500);
+	}
+	
+	protected ObjectArrayStore<?> valueStore(TypedColumnStore store)
+	{
+		BlockColumnStore blockStore = (BlockColumnStore) store.getValueStore();
+		return (ObjectArrayStore<?>) blockStore.getBufferStore();
+	}
+	
+	protected void verifyValues(ColumnValues values, int cardinality)
+	{
+		assert values.size() == RECORD_COUNT;
+		
+		ColumnValuesIterator iterator = values.iterator();
+		for (int pass = 0; pass < 2; pass++)
+		{
+			int count = 0;
+			while (iterator.next())
+			{
+				Object value = iterator.get();
+				assert count % 11 == 0 ? value == null : value.equals("value" + (count % cardinality));
+				++count;
+			}
+			assert count == RECORD_COUNT;
+			
+			iterator.moveFirst();
+		}
+	}
+	
+	protected ColumnValues serialize(ColumnValues values) throws IOException, ClassNotFoundException
+	{
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bout);
+		out.writeObject(values);
+		out.close();
+		
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bout.toByteArray()));
+		return (ColumnValues) in.readObject();
+	}
+}
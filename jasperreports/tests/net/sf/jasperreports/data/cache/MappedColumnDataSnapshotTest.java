@@ -0,0 +1,201 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.data.IndexedDataSource;
+import net.sf.jasperreports.engine.design.JRDesignField;
+
+public class MappedColumnDataSnapshotTest
+{
+	private static final int RECORD_COUNT = 10000;
+	
+	@Test
+	public void writeAndMap() throws JRException, IOException
+	{
+		ColumnDataCacheHandler cacheHandler = new ColumnDataCacheHandler();
+		TypedColumnStore idStore = new TypedColumnStore(cacheHandler, Integer.class);
+		TypedColumnStore nameStore = new TypedColumnStore(cacheHandler, String.class);
+		TypedColumnStore amountStore = new TypedColumnStore(cacheHandler, Double.class);
+		TypedColumnStore labelStore = new TypedColumnStore(cacheHandler, String.class);
+		TypedColumnStore priceStore = new TypedColumnStore(cacheHandler, BigDecimal.class);
+		TypedColumnStore timeStore = new TypedColumnStore(cacheHandler, Timestamp.class);
+		TypedColumnStore flagStore = new TypedColumnStore(cacheHandler, Boolean.class);
+		TypedColumnStore sizeStore = new TypedColumnStore(cacheHandler, Float.class);
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			idStore.addValue(i % 7 == 0 ? null : i);
+			nameStore.addValue("name" + (i % 50));
+			amountStore.addValue(i * 1.5d);
+			labelStore.addValue(label(i));
+			priceStore.addValue(price(i));
+			timeStore.addValue(time(i));
+			flagStore.addValue(i % 3 == 0);
+			sizeStore.addValue(i / 4f);
+		}
+		
+		LinkedHashMap<String, Object> parameters = new LinkedHashMap<String, Object>();
+		parameters.put("param", "value");
+		StandardColumnCacheData data = new StandardColumnCacheData(
+				new String[]{"id", "name", "amount", "label", "price", "time", "flag", "size"}, RECORD_COUNT, 
+				new ColumnValues[]{idStore.createValues(), nameStore.createValues(), amountStore.createValues(),
+						labelStore.createValues(), priceStore.createValues(), timeStore.createValues(),
+						flagStore.createValues(), sizeStore.createValues()}, 
+				parameters);
+		
+		ColumnDataSnapshot snapshot = new ColumnDataSnapshot();
+		snapshot.addCachedData("key", data);
+		
+		File file = File.createTempFile("snapshot", ".data");
+		try
+		{
+			// small segments so that regions are moved to segment boundaries
+			new ColumnDataSnapshotWriter(64 * 1024).write(snapshot, file);
+			
+			MappedColumnDataSnapshot mappedSnapshot = new MappedColumnDataSnapshot(
+					DefaultJasperReportsContext.getInstance(), file);
+			assert mappedSnapshot.hasCachedData("key");
+			assert !mappedSnapshot.hasCachedData("other");
+			
+			CachedDataset cachedDataset = mappedSnapshot.getCachedData("key");
+			assert "value".equals(cachedDataset.getParameterValue("param"));
+			
+			IndexedDataSource dataSource = cachedDataset.getDataSource();
+			for (int pass = 0; pass < 2; pass++)
+			{
+				int count = 0;
+				while (dataSource.next())
+				{
+					assert dataSource.getRecordIndex() == count;
+					Object id = dataSource.getFieldValue(field("id", Integer.class));
+					assert count % 7 == 0 ? id == null : id.equals(count);
+					assert dataSource.getFieldValue(field("name", String.class)).equals("name" + (count % 50));
+					assert dataSource.getFieldValue(field("amount", Double.class)).equals(count * 1.5d);
+					Object label = dataSource.getFieldValue(field("label", String.class));
+					assert label == null ? label(count) == null : label.equals(label(count));
+					assert dataSource.getFieldValue(field("price", BigDecimal.class)).equals(price(count));
+					assert dataSource.getFieldValue(field("time", Timestamp.class)).equals(time(count));
+					assert dataSource.getFieldValue(field("flag", Boolean.class)).equals(count % 3 == 0);
+					assert dataSource.getFieldValue(field("size", Float.class)).equals(count / 4f);
+					++count;
+				}
+				assert count == RECORD_COUNT;
+				
+				((ColumnValuesDataSource) dataSource).moveFirst();
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	@Test
+	public void dictionaryWrittenOnce() throws JRException, IOException
+	{
+		int recordCount = 10 * 4096;
+		int distinctCount = 100;
+		StringBuilder padding = new StringBuilder();
+		for (int i = 0; i < 500; i++)
+		{
+			padding.append('x');
+		}
+		
+		ColumnDataCacheHandler cacheHandler = new ColumnDataCacheHandler();
+		TypedColumnStore valueStore = new TypedColumnStore(cacheHandler, String.class);
+		for (int i = 0; i < recordCount; i++)
+		{
+			valueStore.addValue(padding.toString() + (i % distinctCount));
+		}
+		
+		StandardColumnCacheData data = new StandardColumnCacheData(
+				new String[]{"value"}, recordCount, 
+				new ColumnValues[]{valueStore.createValues()}, 
+				null);
+		
+		ColumnDataSnapshot snapshot = new ColumnDataSnapshot();
+		snapshot.addCachedData("key", data);
+		
+		File file = File.createTempFile("snapshot", ".data");
+		try
+		{
+			new ColumnDataSnapshotWriter().write(snapshot, file);
+			
+			// the dictionary is written once, the blocks only contain one byte codes
+			long dictionarySize = distinctCount * (padding.length() + 10);
+			assert file.length() < 2 * dictionarySize + recordCount;
+			
+			MappedColumnDataSnapshot mappedSnapshot = new MappedColumnDataSnapshot(
+					DefaultJasperReportsContext.getInstance(), file);
+			IndexedDataSource dataSource = mappedSnapshot.getCachedData("key").getDataSource();
+			int count = 0;
+			while (dataSource.next())
+			{
+				assert dataSource.getFieldValue(field("value", String.class)).equals(
+						padding.toString() + (count % distinctCount));
+				++count;
+			}
+			assert count == recordCount;
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+	protected String label(int index)
+	{
+		// distinct values so that the column is not stored as a dictionary
+		return index % 11 == 0 ? null : "label \u00e9" + index;
+	}
+	
+	protected BigDecimal price(int index)
+	{
+		return BigDecimal.valueOf(index * 25L + 3, 2);
+	}
+	
+	protected Timestamp time(int index)
+	{
+		Timestamp time = new Timestamp(1500000000000L + index * 60000L);
+		time.setNanos(index * 1000);
+		return time;
+	}
+	
+	protected JRDesignField field(String name, Class<?> type)
+	{
+		JRDesignField field = new JRDesignField();
+		field.setName(name);
+		field.setValueClass(type);
+		return field;
+	}
+}
@@ -0,0 +1,300 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.data.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+public class SharedDataSnapshotCacheTest
+{
+	
+	private static final UUID REPORT_UUID = UUID.randomUUID();
+
+	@Test
+	public void hitsAndMisses()
+	{
+		SharedDataSnapshotCache cache = new SharedDataSnapshotCache(10, 0);
+		DataSnapshotCacheKey key = key("a", 1);
+		
+		SharedDataSnapshotCache.Lookup lookup = cache.lookup(key);
+		assert lookup.getSnapshot() == null;
+		assert lookup.getPopulation() != null;
+		
+		DataSnapshot snapshot = new ColumnDataSnapshot();
+		cache.publish(lookup.getPopulation(), snapshot);
+		
+		SharedDataSnapshotCache.Lookup secondLookup = cache.lookup(key("a", 1));
+		assert secondLookup.getSnapshot() == snapshot;
+		assert secondLookup.getPopulation() == null;
+		
+		SharedDataSnapshotCache.Lookup otherLookup = cache.lookup(key("a", 2));
+		assert otherLookup.getSnapshot() == null;
+		cache.release(otherLookup.getPopulation());
+		
+		assert cache.getHitCount() == 1;
+		assert cache.getMissCount() == 2;
+		assert cache.size() == 1;
+	}
+	
+	@Test
+	public void keyValues()
+	{
+		Map<String, Object> values1 = new HashMap<String, Object>();
+		values1.put("list", Arrays.asList("x", "y"));
+		values1.put("array", new Integer[]{1, 2});
+		Map<String, Object> values2 = new HashMap<String, Object>();
+		values2.put("list", Arrays.asList("x", "y"));
+		values2.put("array", new Integer[]{1, 2});
+		
+		DataSnapshotCacheKey key1 = new DataSnapshotCacheKey(REPORT_UUID, "sql", "select 1", values1);
+		DataSnapshotCacheKey key2 = new DataSnapshotCacheKey(REPORT_UUID, "sql", "select 1", values2);
+		assert key1.equals(key2);
+		assert key1.hashCode() == key2.hashCode();
+		
+		DataSnapshotCacheKey key3 = new DataSnapshotCacheKey(REPORT_UUID, "sql", "select 2", values2);
+		assert !key1.equals(key3);
+		
+		assert !DataSnapshotCacheKey.isKeyValue(new Object());
+		assert !DataSnapshotCacheKey.isKeyValue(Collections.singletonList(new Object()));
+	}
+	
+	@Test
+	public void eviction()
+	{
+		SharedDataSnapshotCache cache = new SharedDataSnapshotCache(2, 0);
+		populate(cache, key("a", 1));
+		populate(cache, key("a", 2));
+		
+		// access the first key so that the second one is evicted
+		assert cache.lookup(key("a", 1)).getSnapshot() != null;
+		populate(cache, key("a", 3));
+		
+		assert cache.size() == 2;
+		assert cache.getEvictionCount() == 1;
+		assert cache.lookup(key("a", 1)).getSnapshot() != null;
+		
+		SharedDataSnapshotCache.Lookup lookup = cache.lookup(key("a", 2));
+		assert lookup.getSnapshot() == null;
+		cache.release(lookup.getPopulation());
+	}
+	
+	@Test
+	public void expiration() throws InterruptedException
+	{
+		SharedDataSnapshotCache cache = new SharedDataSnapshotCache(10, 50);
+		populate(cache, key("a", 1));
+		assert cache.lookup(key("a", 1)).getSnapshot() != null;
+		
+		Thread.sleep(100);
+		
+		SharedDataSnapshotCache.Lookup lookup = cache.lookup(key("a", 1));
+		assert lookup.getSnapshot() == null;
+		assert cache.getExpirationCount() == 1;
+		cache.release(lookup.getPopulation());
+	}
+	
+	@Test
+	public void invalidation()
+	{
+		SharedDataSnapshotCache cache = new SharedDataSnapshotCache(10, 0);
+		populate(cache, key("a", 1));
+		populate(cache, key("a", 2));
+		populate(cache, new DataSnapshotCacheKey(UUID.randomUUID(), null, null, null));
+		assert cache.size() == 3;
+		
+		cache.invalidate(key("a", 1));
+		assert cache.size() == 2;
+		
+		cache.invalidateReport(REPORT_UUID);
+		assert cache.size() == 1;
+		
+		cache.invalidateAll();
+		assert cache.size() == 0;
+	}
+	
+	@Test
+	public void singleFlight() throws Exception
+	{
+		final SharedDataSnapshotCache cache = new SharedDataSnapshotCache(10, 0);
+		final DataSnapshotCacheKey key = key("a", 1);
+		final SharedDataSnapshotCache.Lookup ownerLookup = cache.lookup(key);
+		assert ownerLookup.getPopulation() != null;
+		
+		int waiterCount = 4;
+		final CountDownLatch started = new CountDownLatch(waiterCount);
+		ExecutorService executor = Executors.newFixedThreadPool(waiterCount);
+		try
+		{
+			@SuppressWarnings("unchecked")
+			Future<DataSnapshot>[] results = new Future[waiterCount];
+			for (int i = 0; i < waiterCount; i++)
+			{
+				results[i] = executor.submit(new Callable<DataSnapshot>()
+				{
+					@Override
+					public DataSnapshot call()
+					{
+						started.countDown();
+						SharedDataSnapshotCache.Lookup lookup = cache.lookup(key);
+						assert lookup.getPopulation() == null;
+						return lookup.getSnapshot();
+					}
+				});
+			}
+			
+			started.await();
+			while (cache.getWaitCount() < waiterCount)
+			{
+				Thread.sleep(10);
+			}
+			
+			DataSnapshot snapshot = new ColumnDataSnapshot();
+			cache.publish(ownerLookup.getPopulation(), snapshot);
+			
+			for (Future<DataSnapshot> result : results)
+			{
+				assert result.get(10, TimeUnit.SECONDS) == snapshot;
+			}
+			assert cache.getMissCount() == 1;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void failedPopulation() throws Exception
+	{
+		final SharedDataSnapshotCache cache = new SharedDataSnapshotCache(10, 0);
+		final DataSnapshotCacheKey key = key("a", 1);
+		SharedDataSnapshotCache.Lookup ownerLookup = cache.lookup(key);
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try
+		{
+			Future<SharedDataSnapshotCache.Lookup> result = executor.submit(new Callable<SharedDataSnapshotCache.Lookup>()
+			{
+				@Override
+				public SharedDataSnapshotCache.Lookup call()
+				{
+					return cache.lookup(key);
+				}
+			});
+			
+			while (cache.getWaitCount() < 1)
+			{
+				Thread.sleep(10);
+			}
+			
+			cache.release(ownerLookup.getPopulation());
+			
+			SharedDataSnapshotCache.Lookup waiterLookup = result.get(10, TimeUnit.SECONDS);
+			assert waiterLookup.getSnapshot() == null;
+			assert waiterLookup.getPopulation() == null;
+			assert cache.size() == 0;
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		
+		// the next lookup populates the snapshot
+		assert cache.lookup(key).getPopulation() != null;
+	}
+	
+	@Test
+	public void stalledPopulation()
+	{
+		SharedDataSnapshotCache cache = new SharedDataSnapshotCache(10, 0, 100);
+		DataSnapshotCacheKey key = key("a", 1);
+		
+		// the first fill never ends
+		SharedDataSnapshotCache.Lookup ownerLookup = cache.lookup(key);
+		assert ownerLookup.getPopulation() != null;
+		
+		long start = System.currentTimeMillis();
+		SharedDataCacheHandler handler = new SharedDataCacheHandler(cache);
+		handler.fillStarted(cache.lookup(key));
+		assert System.currentTimeMillis() - start < 10000;
+		
+		// the waiting fill runs without cached data
+		assert !handler.isSnapshotPopulated();
+		assert !handler.isRecordingEnabled();
+		handler.fillEnded();
+		
+		assert cache.getWaitCount() == 1;
+		assert cache.getWaitTimeoutCount() == 1;
+		assert cache.getMissCount() == 2;
+		assert cache.size() == 0;
+	}
+	
+	@Test
+	public void handlerRecording()
+	{
+		SharedDataSnapshotCache cache = new SharedDataSnapshotCache(10, 0);
+		DataSnapshotCacheKey key = key("a", 1);
+		SharedDataSnapshotCache.Lookup lookup = cache.lookup(key);
+		
+		SharedDataCacheHandler handler = new SharedDataCacheHandler(cache);
+		handler.fillStarted(lookup);
+		assert !handler.isSnapshotPopulated();
+		assert handler.isRecordingEnabled();
+		
+		DataRecorder recorder = handler.createDataRecorder();
+		recorder.setSnapshotPopulated();
+		handler.fillEnded();
+		
+		SharedDataCacheHandler nextHandler = new SharedDataCacheHandler(cache);
+		nextHandler.fillStarted(cache.lookup(key));
+		assert nextHandler.isSnapshotPopulated();
+		assert !nextHandler.isRecordingEnabled();
+		nextHandler.fillEnded();
+	}
+	
+	private static DataSnapshotCacheKey key(String query, int value)
+	{
+		return new DataSnapshotCacheKey(REPORT_UUID, "sql", query, 
+				Collections.<String, Object>singletonMap("param", value));
+	}
+	
+	private static void populate(SharedDataSnapshotCache cache, DataSnapshotCacheKey key)
+	{
+		SharedDataSnapshotCache.Lookup lookup = cache.lookup(key);
+		assert lookup.getPopulation() != null;
+		cache.publish(lookup.getPopulation(), new ColumnDataSnapshot());
+	}
+	
+}
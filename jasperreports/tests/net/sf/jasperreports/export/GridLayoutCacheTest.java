@@ -0,0 +1,224 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.export;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JRDefaultStyleProvider;
+import net.sf.jasperreports.engine.JRPrintElement;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.base.JRBasePrintFrame;
+import net.sf.jasperreports.engine.base.JRBasePrintText;
+import net.sf.jasperreports.engine.export.ExporterNature;
+import net.sf.jasperreports.engine.export.Grid;
+import net.sf.jasperreports.engine.export.GridLayoutCache;
+import net.sf.jasperreports.engine.export.JRExporterGridCell;
+import net.sf.jasperreports.engine.export.JRGridLayout;
+import net.sf.jasperreports.engine.export.JRXlsExporterNature;
+
+public class GridLayoutCacheTest
+{
+	private static final int PAGE_WIDTH = 400;
+	private static final int PAGE_HEIGHT = 300;
+	
+	private JRDefaultStyleProvider styleProvider;
+	private ExporterNature nature;
+	
+	@BeforeMethod
+	public void createNature()
+	{
+		styleProvider = new JasperPrint().getDefaultStyleProvider();
+		nature = new JRXlsExporterNature(new SimpleJasperReportsContext(), null, false, false);
+	}
+	
+	@Test
+	public void sameStructure()
+	{
+		GridLayoutCache cache = new GridLayoutCache(16);
+		
+		List<JRPrintElement> page1 = page(20, "first");
+		JRGridLayout layout1 = layout(page1, cache);
+		assert cache.getMissCount() == 1;
+		assert cache.getHitCount() == 0;
+		
+		List<JRPrintElement> page2 = page(20, "second");
+		JRGridLayout layout2 = layout(page2, cache);
+		assert cache.getMissCount() == 1;
+		assert cache.getHitCount() == 1;
+		
+		// the cached layout has the cuts of the first page, with the elements of the second page
+		assertSameCuts(layout2, layout1);
+		assertSameGrid(layout2, layout(page2, null));
+		assertElements(layout2.getGrid(), "second");
+		
+		// the layout of the first page is not affected
+		assertElements(layout1.getGrid(), "first");
+	}
+	
+	@Test
+	public void differentBounds()
+	{
+		GridLayoutCache cache = new GridLayoutCache(16);
+		
+		JRGridLayout layout1 = layout(page(20, "first"), cache);
+		JRGridLayout layout2 = layout(page(25, "second"), cache);
+		assert cache.getMissCount() == 2;
+		assert cache.getHitCount() == 0;
+		assert !Arrays.equals(layout2.getYCuts().getCutOffsets(), layout1.getYCuts().getCutOffsets());
+		assertSameGrid(layout2, layout(page(25, "second"), null));
+		
+		// moving a nested element changes the structure
+		List<JRPrintElement> page3 = page(20, "third");
+		JRBasePrintFrame frame = (JRBasePrintFrame) page3.get(page3.size() - 1);
+		frame.getElements().get(0).setX(10);
+		JRGridLayout layout3 = layout(page3, cache);
+		assert cache.getMissCount() == 3;
+		assert cache.getHitCount() == 0;
+		assertSameGrid(layout3, layout(page(20, "third"), null), false);
+		
+		// the original structure is still cached
+		layout(page(20, "fourth"), cache);
+		assert cache.getMissCount() == 3;
+		assert cache.getHitCount() == 1;
+	}
+	
+	@Test
+	public void evictedLayouts()
+	{
+		GridLayoutCache cache = new GridLayoutCache(1);
+		
+		layout(page(20, "first"), cache);
+		layout(page(25, "second"), cache);
+		layout(page(20, "third"), cache);
+		assert cache.getMissCount() == 3;
+		assert cache.getHitCount() == 0;
+	}
+	
+	protected List<JRPrintElement> page(int rowHeight, String text)
+	{
+		List<JRPrintElement> elements = new ArrayList<JRPrintElement>();
+		for (int row = 0; row < 5; ++row)
+		{
+			elements.add(text(0, row * rowHeight, 100, rowHeight, text + " " + row + " a"));
+			elements.add(text(100, row * rowHeight, 150, rowHeight, text + " " + row + " b"));
+		}
+		
+		JRBasePrintFrame frame = new JRBasePrintFrame(styleProvider);
+		frame.setX(0);
+		frame.setY(5 * rowHeight);
+		frame.setWidth(300);
+		frame.setHeight(40);
+		frame.addElement(text(20, 0, 200, 20, text + " nested"));
+		elements.add(frame);
+		return elements;
+	}
+	
+	protected JRBasePrintText text(int x, int y, int width, int height, String text)
+	{
+		JRBasePrintText element = new JRBasePrintText(styleProvider);
+		element.setX(x);
+		element.setY(y);
+		element.setWidth(width);
+		element.setHeight(height);
+		element.setText(text);
+		return element;
+	}
+	
+	protected JRGridLayout layout(List<JRPrintElement> elements, GridLayoutCache cache)
+	{
+		return new JRGridLayout(nature, elements, PAGE_WIDTH, PAGE_HEIGHT, 0, 0, null, cache);
+	}
+	
+	protected void assertSameCuts(JRGridLayout layout, JRGridLayout expected)
+	{
+		assert Arrays.equals(layout.getXCuts().getCutOffsets(), expected.getXCuts().getCutOffsets());
+		assert Arrays.equals(layout.getYCuts().getCutOffsets(), expected.getYCuts().getCutOffsets());
+	}
+	
+	protected void assertSameGrid(JRGridLayout layout, JRGridLayout expected)
+	{
+		assertSameGrid(layout, expected, true);
+	}
+	
+	protected void assertSameGrid(JRGridLayout layout, JRGridLayout expected, boolean same)
+	{
+		boolean equalCuts = Arrays.equals(layout.getXCuts().getCutOffsets(), expected.getXCuts().getCutOffsets())
+				&& Arrays.equals(layout.getYCuts().getCutOffsets(), expected.getYCuts().getCutOffsets());
+		assert equalCuts == same;
+		if (!same)
+		{
+			return;
+		}
+		
+		Grid grid = layout.getGrid();
+		Grid expectedGrid = expected.getGrid();
+		assert grid.getRowCount() == expectedGrid.getRowCount();
+		assert grid.getColumnCount() == expectedGrid.getColumnCount();
+		for (int row = 0; row < grid.getRowCount(); ++row)
+		{
+			for (int col = 0; col < grid.getColumnCount(); ++col)
+			{
+				JRExporterGridCell cell = grid.get(row, col);
+				JRExporterGridCell expectedCell = expectedGrid.get(row, col);
+				assert cell.getType() == expectedCell.getType();
+				assert cell.getWidth() == expectedCell.getWidth();
+				assert cell.getHeight() == expectedCell.getHeight();
+				assert cell.getColSpan() == expectedCell.getColSpan();
+				assert cell.getRowSpan() == expectedCell.getRowSpan();
+				
+				// the expected layout was created from a separate page with the same texts
+				String text = cell.getElement() instanceof JRBasePrintText 
+						? ((JRBasePrintText) cell.getElement()).getFullText() : null;
+				String expectedText = expectedCell.getElement() instanceof JRBasePrintText 
+						? ((JRBasePrintText) expectedCell.getElement()).getFullText() : null;
+				assert text == null ? expectedText == null : text.equals(expectedText);
+			}
+		}
+	}
+	
+	protected void assertElements(Grid grid, String text)
+	{
+		int textCount = 0;
+		for (int row = 0; row < grid.getRowCount(); ++row)
+		{
+			for (int col = 0; col < grid.getColumnCount(); ++col)
+			{
+				JRPrintElement element = grid.get(row, col).getElement();
+				if (element instanceof JRBasePrintText)
+				{
+					assert ((JRBasePrintText) element).getFullText().startsWith(text + " ");
+					++textCount;
+				}
+			}
+		}
+		// the 10 top level texts and the one in the frame
+		assert textCount == 11;
+	}
+}
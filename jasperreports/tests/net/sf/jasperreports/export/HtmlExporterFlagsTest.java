@@ -0,0 +1,324 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.export;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.export.HtmlExporter;
+import net.sf.jasperreports.engine.export.HtmlResourceHandler;
+import net.sf.jasperreports.engine.util.DigestUtils;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.xml.JRXmlLoader;
+
+public class HtmlExporterFlagsTest
+{
+	private static final String REPORT = "net/sf/jasperreports/export/repo/HtmlFlags.jrxml";
+	
+	private static final String PAGE_ANCHOR = "<a name=\"JR_PAGE_ANCHOR_0_";
+	private static final String IMAGES_PATH = "images/";
+	
+	private static final String STYLE_CLASS_REGEX = HtmlExporter.STYLE_CLASS_PREFIX + "([0-9a-f]+)_[0-9]+";
+	private static final Pattern STYLE_CLASSES_BLOCK_PATTERN = 
+			Pattern.compile("<style type=\"text/css\">\n((\\." + STYLE_CLASS_REGEX + " \\{[^}]*\\}\n)+)</style>\n");
+	private static final Pattern STYLE_CLASS_PATTERN = 
+			Pattern.compile("\\.(" + STYLE_CLASS_REGEX + ") \\{([^}]*)\\}\n");
+	private static final Pattern CLASS_ATTRIBUTE_PATTERN = 
+			Pattern.compile(" class=\"(" + STYLE_CLASS_REGEX + ")\"");
+	private static final Pattern CUSTOM_CLASS_CELL_PATTERN = Pattern.compile("<td[^>]* class=\"custom\"[^>]*>");
+	private static final Pattern IMAGE_SOURCE_PATTERN = Pattern.compile("<img src=\"" + IMAGES_PATH + "([^\"]*)\"");
+	
+	private SimpleJasperReportsContext jasperReportsContext;
+	private JasperPrint jasperPrint;
+	
+	@BeforeClass
+	public void fillReport() throws JRException, IOException
+	{
+		jasperReportsContext = new SimpleJasperReportsContext();
+		
+		JasperDesign design;
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(REPORT);
+		try
+		{
+			design = JRXmlLoader.load(jasperReportsContext, jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+		
+		JasperReport report = JasperCompileManager.getInstance(jasperReportsContext).compile(design);
+		jasperPrint = JasperFillManager.getInstance(jasperReportsContext).fill(report, 
+				new HashMap<String, Object>(), new JREmptyDataSource(20));
+		assert jasperPrint.getPages().size() > 3;
+	}
+	
+	@Test
+	public void flushPages() throws JRException
+	{
+		FlushRecordingWriter plainWriter = new FlushRecordingWriter();
+		export(new SimpleHtmlExporterConfiguration(), plainWriter, null);
+		// only flushed at the end
+		for (int flushPosition : plainWriter.flushPositions)
+		{
+			assert flushPosition > pageAnchorPosition(plainWriter.toString(), jasperPrint.getPages().size());
+		}
+		
+		SimpleHtmlExporterConfiguration configuration = new SimpleHtmlExporterConfiguration();
+		configuration.setFlushPages(true);
+		FlushRecordingWriter flushWriter = new FlushRecordingWriter();
+		export(configuration, flushWriter, null);
+		assert flushWriter.toString().equals(plainWriter.toString());
+		assertPagesFlushed(flushWriter);
+		
+		// report level property
+		jasperPrint.setProperty(HtmlExporterConfiguration.PROPERTY_FLUSH_PAGES, "true");
+		try
+		{
+			FlushRecordingWriter propertyWriter = new FlushRecordingWriter();
+			export(new SimpleHtmlExporterConfiguration(), propertyWriter, null);
+			assertPagesFlushed(propertyWriter);
+		}
+		finally
+		{
+			jasperPrint.removeProperty(HtmlExporterConfiguration.PROPERTY_FLUSH_PAGES);
+		}
+	}
+	
+	protected void assertPagesFlushed(FlushRecordingWriter writer)
+	{
+		String html = writer.toString();
+		int pageCount = jasperPrint.getPages().size();
+		for (int page = 1; page <= pageCount; ++page)
+		{
+			int pageStart = pageAnchorPosition(html, page);
+			int pageEnd = page < pageCount ? pageAnchorPosition(html, page + 1) : html.length();
+			
+			boolean flushed = false;
+			for (int flushPosition : writer.flushPositions)
+			{
+				flushed |= flushPosition > pageStart && flushPosition <= pageEnd;
+			}
+			assert flushed : page;
+		}
+	}
+	
+	protected int pageAnchorPosition(String html, int page)
+	{
+		int position = html.indexOf(PAGE_ANCHOR + page + "\"");
+		assert position >= 0;
+		return position;
+	}
+	
+	@Test
+	public void styleClasses() throws JRException
+	{
+		String plainHtml = export(new SimpleHtmlExporterConfiguration(), new StringWriter(), null);
+		
+		SimpleHtmlExporterConfiguration configuration = new SimpleHtmlExporterConfiguration();
+		configuration.setUseStyleClasses(true);
+		String classesHtml = export(configuration, new StringWriter(), null);
+		
+		// each class is declared once, before the first cell that uses it
+		Map<String, String> classStyles = new HashMap<String, String>();
+		Map<String, Integer> classPositions = new HashMap<String, Integer>();
+		Matcher declarationMatcher = STYLE_CLASS_PATTERN.matcher(classesHtml);
+		while (declarationMatcher.find())
+		{
+			String styleClass = declarationMatcher.group(1);
+			assert !classStyles.containsKey(styleClass);
+			classStyles.put(styleClass, declarationMatcher.group(3));
+			classPositions.put(styleClass, declarationMatcher.start());
+		}
+		assert !classStyles.isEmpty();
+		// identical styles share a class
+		assert new HashSet<String>(classStyles.values()).size() == classStyles.size();
+		
+		int classUsageCount = 0;
+		Matcher usageMatcher = CLASS_ATTRIBUTE_PATTERN.matcher(classesHtml);
+		while (usageMatcher.find())
+		{
+			Integer declarationPosition = classPositions.get(usageMatcher.group(1));
+			assert declarationPosition != null && declarationPosition < usageMatcher.start();
+			++classUsageCount;
+		}
+		// the styles of the detail cells repeat on every page
+		assert classUsageCount > classStyles.size();
+		
+		// cells that have a class set through properties keep inline styles
+		int customCellCount = 0;
+		Matcher customCellMatcher = CUSTOM_CLASS_CELL_PATTERN.matcher(classesHtml);
+		while (customCellMatcher.find())
+		{
+			String cellTag = customCellMatcher.group();
+			assert cellTag.contains(" style=\"");
+			assert !CLASS_ATTRIBUTE_PATTERN.matcher(cellTag).find();
+			++customCellCount;
+		}
+		assert customCellCount == 20;
+		
+		// replacing the classes with their styles results in the plain output
+		String inlinedHtml = STYLE_CLASSES_BLOCK_PATTERN.matcher(classesHtml).replaceAll("");
+		StringBuffer inlined = new StringBuffer();
+		Matcher inlineMatcher = CLASS_ATTRIBUTE_PATTERN.matcher(inlinedHtml);
+		while (inlineMatcher.find())
+		{
+			inlineMatcher.appendReplacement(inlined, 
+					Matcher.quoteReplacement(" style=\"" + classStyles.get(inlineMatcher.group(1)) + "\""));
+		}
+		inlineMatcher.appendTail(inlined);
+		assert inlined.toString().equals(plainHtml);
+		
+		// the classes of each export have a distinct prefix
+		Set<String> exportTokens = new HashSet<String>();
+		for (String styleClass : classStyles.keySet())
+		{
+			Matcher classMatcher = Pattern.compile(STYLE_CLASS_REGEX).matcher(styleClass);
+			assert classMatcher.matches();
+			exportTokens.add(classMatcher.group(1));
+		}
+		assert exportTokens.size() == 1;
+		
+		String otherClassesHtml = export(configuration, new StringWriter(), null);
+		Matcher otherDeclarationMatcher = STYLE_CLASS_PATTERN.matcher(otherClassesHtml);
+		assert otherDeclarationMatcher.find();
+		assert !exportTokens.contains(otherDeclarationMatcher.group(2));
+	}
+	
+	@Test
+	public void deduplicateImages() throws JRException
+	{
+		RecordingResourceHandler plainImages = new RecordingResourceHandler();
+		String plainHtml = export(new SimpleHtmlExporterConfiguration(), new StringWriter(), plainImages);
+		
+		SimpleHtmlExporterConfiguration configuration = new SimpleHtmlExporterConfiguration();
+		configuration.setDeduplicateImages(true);
+		RecordingResourceHandler dedupImages = new RecordingResourceHandler();
+		String dedupHtml = export(configuration, new StringWriter(), dedupImages);
+		
+		Set<String> plainDigests = new HashSet<String>();
+		for (byte[] data : plainImages.resources.values())
+		{
+			plainDigests.add(DigestUtils.instance().sha256Hex(data));
+		}
+		// the non cached images are handled for each element without the flag
+		assert plainImages.resources.size() > plainDigests.size();
+		
+		// each distinct image is handled once
+		Set<String> dedupDigests = new HashSet<String>();
+		for (byte[] data : dedupImages.resources.values())
+		{
+			assert dedupDigests.add(DigestUtils.instance().sha256Hex(data));
+		}
+		assert dedupDigests.equals(plainDigests);
+		assert dedupDigests.size() == 2;
+		
+		List<String> plainSources = imageSources(plainHtml);
+		List<String> dedupSources = imageSources(dedupHtml);
+		assert dedupSources.size() == plainSources.size();
+		for (int i = 0; i < dedupSources.size(); ++i)
+		{
+			// each image refers to a resource with the same data as in the plain output
+			byte[] plainData = plainImages.resources.get(plainSources.get(i));
+			byte[] dedupData = dedupImages.resources.get(dedupSources.get(i));
+			assert plainData != null && dedupData != null;
+			assert DigestUtils.instance().sha256Hex(dedupData).equals(DigestUtils.instance().sha256Hex(plainData));
+		}
+	}
+	
+	protected List<String> imageSources(String html)
+	{
+		List<String> sources = new ArrayList<String>();
+		Matcher matcher = IMAGE_SOURCE_PATTERN.matcher(html);
+		while (matcher.find())
+		{
+			sources.add(matcher.group(1));
+		}
+		return sources;
+	}
+	
+	protected String export(SimpleHtmlExporterConfiguration configuration, StringWriter writer, 
+			HtmlResourceHandler imageHandler) throws JRException
+	{
+		SimpleHtmlExporterOutput output = new SimpleHtmlExporterOutput(writer);
+		output.setImageHandler(imageHandler == null ? new RecordingResourceHandler() : imageHandler);
+		
+		HtmlExporter exporter = new HtmlExporter(jasperReportsContext);
+		exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+		exporter.setConfiguration(configuration);
+		exporter.setExporterOutput(output);
+		exporter.exportReport();
+		return writer.toString();
+	}
+	
+	protected static class FlushRecordingWriter extends StringWriter
+	{
+		private final List<Integer> flushPositions = new ArrayList<Integer>();
+		
+		@Override
+		public void flush()
+		{
+			flushPositions.add(getBuffer().length());
+			super.flush();
+		}
+	}
+	
+	protected static class RecordingResourceHandler implements HtmlResourceHandler
+	{
+		private final Map<String, byte[]> resources = new LinkedHashMap<String, byte[]>();
+
+		@Override
+		public String getResourcePath(String id)
+		{
+			return IMAGES_PATH + id;
+		}
+
+		@Override
+		public void handleResource(String id, byte[] data)
+		{
+			resources.put(id, data);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.export.GridLayoutCache;
+import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.xml.JRXmlLoader;
+
+public class ParallelSheetsExportTest
+{
+	private static final String REPORT = "net/sf/jasperreports/export/repo/XlsSheetBreaks.jrxml";
+	
+	private static final String SHEET_PREFIX = "xl/worksheets/sheet";
+	
+	// contains the document creation time
+	private static final String CORE_PROPERTIES = "docProps/core.xml";
+	
+	private SimpleJasperReportsContext jasperReportsContext;
+	private JasperPrint jasperPrint;
+	private int prefetchedLayoutCount;
+	
+	@BeforeClass
+	public void fillReport() throws JRException, IOException
+	{
+		jasperReportsContext = new SimpleJasperReportsContext();
+		
+		JasperDesign design;
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(REPORT);
+		try
+		{
+			design = JRXmlLoader.load(jasperReportsContext, jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+		
+		JasperReport report = JasperCompileManager.getInstance(jasperReportsContext).compile(design);
+		jasperPrint = JasperFillManager.getInstance(jasperReportsContext).fill(report, 
+				new HashMap<String, Object>(), new JREmptyDataSource(60));
+		assert jasperPrint.getPages().size() > 4;
+	}
+	
+	@Test
+	public void sameOutput() throws JRException, IOException
+	{
+		Map<String, String> sequentialParts = export(null, jasperReportsContext);
+		
+		// the breaks every 5 rows start new sheets inside pages
+		int sheetCount = 0;
+		while (sequentialParts.containsKey(SHEET_PREFIX + (sheetCount + 1) + ".xml"))
+		{
+			++sheetCount;
+		}
+		assert sheetCount > jasperPrint.getPages().size();
+		assert sequentialParts.get("xl/workbook.xml").contains("<sheet name=\"Rows ");
+		assert prefetchedLayoutCount == 0;
+		
+		int pageCount = jasperPrint.getPages().size();
+		assertSameParts(export(1, jasperReportsContext), sequentialParts);
+		assert prefetchedLayoutCount == pageCount;
+		assertSameParts(export(3, jasperReportsContext), sequentialParts);
+		assert prefetchedLayoutCount == pageCount;
+		// a look-ahead larger than the report
+		assertSameParts(export(pageCount * 2, jasperReportsContext), sequentialParts);
+		assert prefetchedLayoutCount == pageCount;
+	}
+	
+	@Test
+	public void singleSheet() throws JRException, IOException
+	{
+		SimpleXlsxReportConfiguration reportConfiguration = new SimpleXlsxReportConfiguration();
+		reportConfiguration.setOnePagePerSheet(false);
+		reportConfiguration.setOverrideHints(true);
+		
+		Map<String, String> sequentialParts = export(null, jasperReportsContext, reportConfiguration);
+		
+		// pages written on the same sheet are laid out sequentially
+		assertSameParts(export(2, jasperReportsContext, reportConfiguration), sequentialParts);
+		assert prefetchedLayoutCount == 0;
+	}
+	
+	@Test
+	public void sameOutputWithoutLayoutCache() throws JRException, IOException
+	{
+		SimpleJasperReportsContext noCacheContext = new SimpleJasperReportsContext(jasperReportsContext);
+		noCacheContext.setProperty(GridLayoutCache.PROPERTY_CACHE_SIZE, "0");
+		
+		Map<String, String> sequentialParts = export(null, noCacheContext);
+		assertSameParts(export(2, noCacheContext), sequentialParts);
+		assertSameParts(sequentialParts, export(null, jasperReportsContext));
+	}
+	
+	@Test
+	public void propertySetting() throws JRException, IOException
+	{
+		Map<String, String> sequentialParts = export(null, jasperReportsContext);
+		
+		SimpleJasperReportsContext parallelContext = new SimpleJasperReportsContext(jasperReportsContext);
+		parallelContext.setProperty(XlsExporterConfiguration.PROPERTY_PARALLEL_SHEETS, "2");
+		parallelContext.setProperty(XlsExporterConfiguration.PROPERTY_PARALLEL_SHEETS_THREADS, "2");
+		assertSameParts(export(null, parallelContext), sequentialParts);
+		assert prefetchedLayoutCount == jasperPrint.getPages().size();
+	}
+	
+	protected void assertSameParts(Map<String, String> parts, Map<String, String> expectedParts)
+	{
+		assert parts.keySet().equals(expectedParts.keySet());
+		for (Map.Entry<String, String> entry : expectedParts.entrySet())
+		{
+			if (!entry.getKey().equals(CORE_PROPERTIES))
+			{
+				assert parts.get(entry.getKey()).equals(entry.getValue()) : entry.getKey();
+			}
+		}
+	}
+	
+	protected Map<String, String> export(Integer parallelSheets, SimpleJasperReportsContext context) throws JRException, IOException
+	{
+		return export(parallelSheets, context, null);
+	}
+	
+	protected Map<String, String> export(Integer parallelSheets, SimpleJasperReportsContext context, 
+			SimpleXlsxReportConfiguration reportConfiguration) throws JRException, IOException
+	{
+		SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
+		if (parallelSheets != null)
+		{
+			configuration.setParallelSheets(parallelSheets);
+			configuration.setParallelSheetsThreads(2);
+		}
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		prefetchedLayoutCount = 0;
+		JRXlsxExporter exporter = new JRXlsxExporter(context)
+		{
+			@Override
+			protected void disposeLayoutPrefetcher()
+			{
+				if (layoutPrefetcher != null)
+				{
+					prefetchedLayoutCount += layoutPrefetcher.getPrefetchedLayoutCount();
+				}
+				super.disposeLayoutPrefetcher();
+			}
+		};
+		exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+		exporter.setConfiguration(configuration);
+		if (reportConfiguration != null)
+		{
+			exporter.setConfiguration(reportConfiguration);
+		}
+		exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(out));
+		exporter.exportReport();
+		
+		Map<String, String> parts = new HashMap<String, String>();
+		ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+		try
+		{
+			ZipEntry entry;
+			while ((entry = zipInput.getNextEntry()) != null)
+			{
+				ByteArrayOutputStream entryData = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = zipInput.read(buffer)) > 0)
+				{
+					entryData.write(buffer, 0, read);
+				}
+				parts.put(entry.getName(), new String(entryData.toByteArray(), StandardCharsets.UTF_8));
+			}
+		}
+		finally
+		{
+			zipInput.close();
+		}
+		return parts;
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRPrintElement;
+import net.sf.jasperreports.engine.JRPrintImage;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.export.JRPdfExporter;
+import net.sf.jasperreports.engine.export.PdfImagePrefetcher;
+import net.sf.jasperreports.engine.type.ScaleImageEnum;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.xml.JRXmlLoader;
+import net.sf.jasperreports.renderers.RenderersCache;
+
+public class PdfImagePrefetcherTest
+{
+	private static final String REPORT = "net/sf/jasperreports/export/repo/PdfImages.jrxml";
+	
+	private SimpleJasperReportsContext jasperReportsContext;
+	private JasperPrint jasperPrint;
+	
+	@BeforeClass
+	public void fillReport() throws JRException, IOException
+	{
+		jasperReportsContext = new SimpleJasperReportsContext();
+		
+		JasperDesign design;
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(REPORT);
+		try
+		{
+			design = JRXmlLoader.load(jasperReportsContext, jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+		
+		JasperReport report = JasperCompileManager.getInstance(jasperReportsContext).compile(design);
+		jasperPrint = JasperFillManager.getInstance(jasperReportsContext).fill(report, 
+				new HashMap<String, Object>(), new JREmptyDataSource(40));
+		assert jasperPrint.getPages().size() > 4;
+	}
+	
+	@Test
+	public void sameOutput() throws JRException, NoSuchAlgorithmException
+	{
+		String plainDigest = exportDigest(null);
+		String prefetchDigest = exportDigest(3);
+		assert prefetchDigest.equals(plainDigest);
+		
+		// a look-ahead window larger than the report
+		String wholeReportDigest = exportDigest(jasperPrint.getPages().size() * 2);
+		assert wholeReportDigest.equals(plainDigest);
+	}
+	
+	@Test
+	public void cachedImagesOnly()
+	{
+		ExecutorService executor = PdfImagePrefetcher.createExecutor(2);
+		try
+		{
+			PdfImagePrefetcher prefetcher = new PdfImagePrefetcher(jasperReportsContext, 
+					new RenderersCache(jasperReportsContext), executor, 1);
+			prefetcher.prefetch(jasperPrint.getPages(), 0, jasperPrint.getPages().size() - 1);
+			
+			List<JRPrintImage> images = new ArrayList<JRPrintImage>();
+			for (JRPrintElement element : jasperPrint.getPages().get(0).getElements())
+			{
+				if (element instanceof JRPrintImage)
+				{
+					images.add((JRPrintImage) element);
+				}
+			}
+			assert !images.isEmpty();
+			
+			for (JRPrintImage image : images)
+			{
+				if (!image.isUsingCache())
+				{
+					assert prefetcher.getImage(image) == null;
+				}
+				else if (image.getScaleImageValue() != ScaleImageEnum.CLIP)
+				{
+					assert prefetcher.getImage(image) != null;
+				}
+			}
+			
+			prefetcher.dispose();
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	protected String exportDigest(Integer prefetchPages) throws JRException, NoSuchAlgorithmException
+	{
+		SimplePdfExporterConfiguration configuration = new SimplePdfExporterConfiguration();
+		if (prefetchPages != null)
+		{
+			configuration.setImagePrefetchPages(prefetchPages);
+			configuration.setImagePrefetchThreads(2);
+		}
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JRPdfExporter exporter = new JRPdfExporter(jasperReportsContext);
+		exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+		exporter.setConfiguration(configuration);
+		exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(out));
+		exporter.exportReport();
+		
+		// the creation date and the document ID differ for each export, the lengths are fixed
+		String pdf = new String(out.toByteArray(), StandardCharsets.ISO_8859_1);
+		pdf = pdf.replaceAll("/(CreationDate|ModDate)\\s*\\(D:[^)]*\\)", "/$1()");
+		pdf = pdf.replaceAll("/ID\\s*\\[\\s*<[0-9a-fA-F]*>\\s*<[0-9a-fA-F]*>\\s*\\]", "/ID[]");
+		
+		MessageDigest digest = MessageDigest.getInstance("SHA-1");
+		digest.update(pdf.getBytes(StandardCharsets.ISO_8859_1));
+		StringBuilder digestString = new StringBuilder();
+		for (byte b : digest.digest())
+		{
+			digestString.append(String.format("%02x", b));
+		}
+		return digestString.toString();
+	}
+}
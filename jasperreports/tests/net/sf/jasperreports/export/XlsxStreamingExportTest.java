@@ -0,0 +1,255 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.export;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.JasperDesign;
+import net.sf.jasperreports.engine.export.ooxml.JRXlsxExporter;
+import net.sf.jasperreports.engine.util.JRLoader;
+import net.sf.jasperreports.engine.xml.JRXmlLoader;
+
+public class XlsxStreamingExportTest
+{
+	private static final String REPORT = "net/sf/jasperreports/export/repo/XlsxSheets.jrxml";
+	
+	private static final String SHEET_PREFIX = "xl/worksheets/sheet";
+	private static final String SHARED_STRINGS = "xl/sharedStrings.xml";
+	
+	private static final Pattern CELL_PATTERN = Pattern.compile("<c r=\"([A-Z]+[0-9]+)\"([^>]*?)(/>|>(.*?)</c>)", Pattern.DOTALL);
+	private static final Pattern TEXT_PATTERN = Pattern.compile("<t[^>]*>(.*?)</t>", Pattern.DOTALL);
+	private static final Pattern VALUE_PATTERN = Pattern.compile("<v>(.*?)</v>", Pattern.DOTALL);
+	
+	private SimpleJasperReportsContext jasperReportsContext;
+	private JasperPrint jasperPrint;
+	
+	@BeforeClass
+	public void fillReport() throws JRException, IOException
+	{
+		jasperReportsContext = new SimpleJasperReportsContext();
+		
+		JasperDesign design;
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(REPORT);
+		try
+		{
+			design = JRXmlLoader.load(jasperReportsContext, jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+		
+		JasperReport report = JasperCompileManager.getInstance(jasperReportsContext).compile(design);
+		jasperPrint = JasperFillManager.getInstance(jasperReportsContext).fill(report, 
+				new HashMap<String, Object>(), new JREmptyDataSource(50));
+		assert jasperPrint.getPages().size() > 3;
+	}
+	
+	@Test
+	public void streamedSheets() throws JRException, IOException
+	{
+		Map<String, String> plainParts = export(false, false);
+		Map<String, String> streamedParts = export(true, false);
+		
+		assert !streamedParts.containsKey(SHARED_STRINGS);
+		assert streamedParts.keySet().equals(plainParts.keySet());
+		
+		List<String> sheets = sheetNames(plainParts);
+		assert sheets.size() == jasperPrint.getPages().size();
+		for (String sheet : sheets)
+		{
+			assert streamedParts.get(sheet).equals(plainParts.get(sheet));
+		}
+	}
+	
+	@Test
+	public void sharedStrings() throws JRException, IOException
+	{
+		Map<String, String> plainParts = export(false, false);
+		Map<String, String> sharedParts = export(true, true);
+		
+		String sharedStringsXml = sharedParts.get(SHARED_STRINGS);
+		assert sharedStringsXml != null;
+		assert sharedParts.get("[Content_Types].xml").contains("/" + SHARED_STRINGS);
+		assert sharedParts.get("xl/_rels/workbook.xml.rels").contains("sharedStrings.xml");
+		
+		List<String> strings = new ArrayList<String>();
+		Matcher stringMatcher = TEXT_PATTERN.matcher(sharedStringsXml);
+		while (stringMatcher.find())
+		{
+			strings.add(stringMatcher.group(1));
+		}
+		// each string is written once
+		assert new HashSet<String>(strings).size() == strings.size();
+		assert strings.contains("Category");
+		assert strings.contains("Category 1 &amp; &lt;more&gt;");
+		
+		int sharedCellCount = 0;
+		Set<String> referencedStrings = new HashSet<String>();
+		List<String> sheets = sheetNames(plainParts);
+		assert sheets.size() > 1;
+		assert sheetNames(sharedParts).equals(sheets);
+		for (String sheet : sheets)
+		{
+			Map<String, String> plainCells = cellValues(plainParts.get(sheet), null);
+			Map<String, String> sharedCells = cellValues(sharedParts.get(sheet), strings);
+			assert sharedCells.equals(plainCells);
+			
+			Matcher cellMatcher = CELL_PATTERN.matcher(sharedParts.get(sheet));
+			while (cellMatcher.find())
+			{
+				if (cellMatcher.group(2).contains("t=\"s\""))
+				{
+					++sharedCellCount;
+					referencedStrings.add(sharedCells.get(cellMatcher.group(1)));
+				}
+			}
+		}
+		
+		// the header and category strings repeat across rows and sheets
+		assert sharedCellCount > strings.size();
+		assert referencedStrings.equals(new HashSet<String>(strings));
+		
+		// styled text is still written inline
+		assert !sharedStringsXml.contains("Total");
+	}
+	
+	protected List<String> sheetNames(Map<String, String> parts)
+	{
+		List<String> sheets = new ArrayList<String>();
+		for (int index = 1; parts.containsKey(SHEET_PREFIX + index + ".xml"); ++index)
+		{
+			sheets.add(SHEET_PREFIX + index + ".xml");
+		}
+		return sheets;
+	}
+	
+	protected Map<String, String> cellValues(String sheetXml, List<String> sharedStrings)
+	{
+		Map<String, String> values = new LinkedHashMap<String, String>();
+		Matcher cellMatcher = CELL_PATTERN.matcher(sheetXml);
+		while (cellMatcher.find())
+		{
+			String content = cellMatcher.group(4);
+			if (content == null)
+			{
+				continue;
+			}
+			
+			String value;
+			if (cellMatcher.group(2).contains("t=\"s\""))
+			{
+				Matcher valueMatcher = VALUE_PATTERN.matcher(content);
+				assert valueMatcher.find();
+				value = sharedStrings.get(Integer.parseInt(valueMatcher.group(1)));
+			}
+			else
+			{
+				StringBuilder text = new StringBuilder();
+				Matcher textMatcher = TEXT_PATTERN.matcher(content);
+				while (textMatcher.find())
+				{
+					text.append(textMatcher.group(1));
+				}
+				
+				if (text.length() > 0)
+				{
+					value = text.toString();
+				}
+				else
+				{
+					Matcher valueMatcher = VALUE_PATTERN.matcher(content);
+					value = valueMatcher.find() ? valueMatcher.group(1) : "";
+				}
+			}
+			values.put(cellMatcher.group(1), value);
+		}
+		return values;
+	}
+	
+	protected Map<String, String> export(boolean streamSheets, boolean sharedStrings) throws JRException, IOException
+	{
+		SimpleXlsxExporterConfiguration configuration = new SimpleXlsxExporterConfiguration();
+		configuration.setStreamSheets(streamSheets);
+		configuration.setUseSharedStrings(sharedStrings);
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JRXlsxExporter exporter = new JRXlsxExporter(jasperReportsContext);
+		exporter.setExporterInput(new SimpleExporterInput(jasperPrint));
+		exporter.setConfiguration(configuration);
+		exporter.setExporterOutput(new SimpleOutputStreamExporterOutput(out));
+		exporter.exportReport();
+		
+		Map<String, String> parts = new HashMap<String, String>();
+		ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+		try
+		{
+			ZipEntry entry;
+			while ((entry = zipInput.getNextEntry()) != null)
+			{
+				ByteArrayOutputStream entryData = new ByteArrayOutputStream();
+				byte[] buffer = new byte[4096];
+				int read;
+				while ((read = zipInput.read(buffer)) > 0)
+				{
+					entryData.write(buffer, 0, read);
+				}
+				
+				// entries are written once
+				assert !parts.containsKey(entry.getName());
+				parts.put(entry.getName(), new String(entryData.toByteArray(), StandardCharsets.UTF_8));
+			}
+		}
+		finally
+		{
+			zipInput.close();
+		}
+		return parts;
+	}
+}
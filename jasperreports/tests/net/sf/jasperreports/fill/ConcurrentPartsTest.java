@@ -0,0 +1,143 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.fill;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRPrintElement;
+import net.sf.jasperreports.engine.JRPrintPage;
+import net.sf.jasperreports.engine.JRPrintText;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.PrintPart;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.fill.PartReportFiller;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+public class ConcurrentPartsTest
+{
+	private static final int CHAPTER_COUNT = 40;
+	
+	private JasperReport bookReport;
+	private JasperReport chapterReport;
+	
+	@BeforeClass
+	public void compileReports() throws JRException, IOException
+	{
+		bookReport = compileReport("net/sf/jasperreports/fill/repo/PartsBook.jrxml");
+		chapterReport = compileReport("net/sf/jasperreports/fill/repo/PartsChapter.jrxml");
+	}
+	
+	protected JasperReport compileReport(String jrxml) throws JRException, IOException
+	{
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(jrxml);
+		try
+		{
+			return JasperCompileManager.compileReport(jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+	}
+	
+	@Test
+	public void partsOrder() throws JRException
+	{
+		JasperPrint sequentialPrint = fillBook(false, 0);
+		JasperPrint concurrentPrint = fillBook(true, 4);
+		
+		// summary, introduction and chapters that are not multiples of 7
+		assert concurrentPrint.getParts().partCount() == 2 + CHAPTER_COUNT - CHAPTER_COUNT / 7;
+		assert partNames(concurrentPrint).equals(partNames(sequentialPrint));
+		assert pageTexts(concurrentPrint).equals(pageTexts(sequentialPrint));
+	}
+	
+	@Test
+	public void singleThread() throws JRException
+	{
+		JasperPrint sequentialPrint = fillBook(false, 0);
+		JasperPrint concurrentPrint = fillBook(true, 1);
+		
+		assert partNames(concurrentPrint).equals(partNames(sequentialPrint));
+		assert pageTexts(concurrentPrint).equals(pageTexts(sequentialPrint));
+	}
+	
+	protected JasperPrint fillBook(boolean concurrent, int threads) throws JRException
+	{
+		SimpleJasperReportsContext jasperReportsContext = new SimpleJasperReportsContext();
+		if (concurrent)
+		{
+			jasperReportsContext.setProperty(PartReportFiller.PROPERTY_PARTS_CONCURRENT_FILL, "true");
+			jasperReportsContext.setProperty(PartReportFiller.PROPERTY_PARTS_CONCURRENT_FILL_THREADS, 
+					String.valueOf(threads));
+		}
+		
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("ChapterReport", chapterReport);
+		return JasperFillManager.getInstance(jasperReportsContext).fill(bookReport, parameters, 
+				new JREmptyDataSource(CHAPTER_COUNT));
+	}
+	
+	protected List<String> partNames(JasperPrint jasperPrint)
+	{
+		List<String> names = new ArrayList<String>();
+		for (Iterator<Map.Entry<Integer, PrintPart>> it = jasperPrint.getParts().partsIterator(); it.hasNext();)
+		{
+			Map.Entry<Integer, PrintPart> partEntry = it.next();
+			names.add(partEntry.getKey() + ":" + partEntry.getValue().getName());
+		}
+		return names;
+	}
+	
+	protected List<String> pageTexts(JasperPrint jasperPrint)
+	{
+		List<String> texts = new ArrayList<String>();
+		for (JRPrintPage page : jasperPrint.getPages())
+		{
+			for (JRPrintElement element : page.getElements())
+			{
+				if (element instanceof JRPrintText)
+				{
+					texts.add(((JRPrintText) element).getFullText());
+				}
+			}
+			texts.add("--");
+		}
+		return texts;
+	}
+}
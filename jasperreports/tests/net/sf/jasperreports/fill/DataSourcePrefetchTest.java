@@ -0,0 +1,211 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.fill;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JRDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRField;
+import net.sf.jasperreports.engine.JRRewindableDataSource;
+import net.sf.jasperreports.engine.design.JRDesignField;
+import net.sf.jasperreports.engine.fill.DataSourcePrefetcher;
+
+public class DataSourcePrefetchTest
+{
+	private static final int RECORD_COUNT = 5000;
+	
+	@Test
+	public void recordOrder() throws JRException
+	{
+		DataSourcePrefetcher prefetcher = new DataSourcePrefetcher(2, 100);
+		try
+		{
+			JRField[] fields = createFields();
+			JRDataSource dataSource = prefetcher.prefetch(new RecordsDataSource(RECORD_COUNT, -1), fields);
+			assert readRecords(dataSource, fields).equals(readRecords(new RecordsDataSource(RECORD_COUNT, -1), fields));
+		}
+		finally
+		{
+			prefetcher.dispose();
+		}
+	}
+	
+	@Test
+	public void directRead() throws JRException
+	{
+		// the single thread is busy with the first data source, the second one is read directly
+		DataSourcePrefetcher prefetcher = new DataSourcePrefetcher(1, 10);
+		try
+		{
+			JRField[] fields = createFields();
+			JRDataSource first = prefetcher.prefetch(new RecordsDataSource(RECORD_COUNT, -1), fields);
+			JRDataSource second = prefetcher.prefetch(new RecordsDataSource(RECORD_COUNT, -1), fields);
+			
+			List<String> expected = readRecords(new RecordsDataSource(RECORD_COUNT, -1), fields);
+			assert readRecords(second, fields).equals(expected);
+			assert readRecords(first, fields).equals(expected);
+		}
+		finally
+		{
+			prefetcher.dispose();
+		}
+	}
+	
+	@Test
+	public void rewind() throws JRException
+	{
+		DataSourcePrefetcher prefetcher = new DataSourcePrefetcher(2, 100);
+		try
+		{
+			JRField[] fields = createFields();
+			JRDataSource dataSource = prefetcher.prefetch(new RecordsDataSource(RECORD_COUNT, -1), fields);
+			assert dataSource instanceof JRRewindableDataSource;
+			
+			for (int i = 0; i < 500; i++)
+			{
+				assert dataSource.next();
+			}
+			((JRRewindableDataSource) dataSource).moveFirst();
+			
+			assert readRecords(dataSource, fields).equals(readRecords(new RecordsDataSource(RECORD_COUNT, -1), fields));
+		}
+		finally
+		{
+			prefetcher.dispose();
+		}
+	}
+	
+	@Test
+	public void sameDataSource() throws JRException
+	{
+		DataSourcePrefetcher prefetcher = new DataSourcePrefetcher(2, 100);
+		try
+		{
+			JRField[] fields = createFields();
+			RecordsDataSource records = new RecordsDataSource(RECORD_COUNT, -1);
+			JRDataSource dataSource = prefetcher.prefetch(records, fields);
+			assert prefetcher.prefetch(records, fields) == dataSource;
+			
+			readRecords(dataSource, fields);
+			assert prefetcher.prefetch(records, fields) != dataSource;
+		}
+		finally
+		{
+			prefetcher.dispose();
+		}
+	}
+	
+	@Test
+	public void dataSourceError() throws JRException
+	{
+		DataSourcePrefetcher prefetcher = new DataSourcePrefetcher(2, 100);
+		try
+		{
+			JRField[] fields = createFields();
+			JRDataSource dataSource = prefetcher.prefetch(new RecordsDataSource(RECORD_COUNT, 300), fields);
+			
+			int count = 0;
+			try
+			{
+				while (dataSource.next())
+				{
+					++count;
+				}
+				assert false;
+			}
+			catch (JRException e)
+			{
+				// the error is thrown after the records read before it
+				assert count == 300;
+			}
+		}
+		finally
+		{
+			prefetcher.dispose();
+		}
+	}
+	
+	private JRField[] createFields()
+	{
+		JRDesignField idField = new JRDesignField();
+		idField.setName("id");
+		idField.setValueClass(Integer.class);
+		
+		JRDesignField nameField = new JRDesignField();
+		nameField.setName("name");
+		nameField.setValueClass(String.class);
+		
+		return new JRField[]{idField, nameField};
+	}
+	
+	private List<String> readRecords(JRDataSource dataSource, JRField[] fields) throws JRException
+	{
+		List<String> records = new ArrayList<String>();
+		while (dataSource.next())
+		{
+			records.add(dataSource.getFieldValue(fields[0]) + ":" + dataSource.getFieldValue(fields[1]));
+		}
+		return records;
+	}
+	
+	private static class RecordsDataSource implements JRRewindableDataSource
+	{
+		private final int count;
+		private final int errorIndex;
+		private int index = -1;
+		
+		public RecordsDataSource(int count, int errorIndex)
+		{
+			this.count = count;
+			this.errorIndex = errorIndex;
+		}
+
+		@Override
+		public boolean next() throws JRException
+		{
+			++index;
+			if (index == errorIndex)
+			{
+				throw new JRException("record " + index);
+			}
+			return index < count;
+		}
+
+		@Override
+		public Object getFieldValue(JRField jrField) throws JRException
+		{
+			return jrField.getName().equals("id") ? (Object) index : "record" + (index % 17);
+		}
+
+		@Override
+		public void moveFirst() throws JRException
+		{
+			index = -1;
+		}
+	}
+}
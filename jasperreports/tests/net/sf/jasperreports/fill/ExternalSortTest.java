@@ -0,0 +1,222 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.fill;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Locale;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.design.JRDesignField;
+import net.sf.jasperreports.engine.design.JRDesignSortField;
+import net.sf.jasperreports.engine.fill.DatasetSortInfo;
+import net.sf.jasperreports.engine.fill.ExternalSortedDataSource;
+import net.sf.jasperreports.engine.fill.SortedDataSource.SortRecord;
+import net.sf.jasperreports.engine.type.SortFieldTypeEnum;
+import net.sf.jasperreports.engine.type.SortOrderEnum;
+
+public class ExternalSortTest
+{
+	private static final int RUN_SIZE = 1000;
+	private static final int RECORD_COUNT = 4500;
+	
+	@Test
+	public void mergeRuns() throws JRException
+	{
+		ExternalSortedDataSource dataSource = createDataSource(false);
+		try
+		{
+			assert dataSource.getRunCount() == 5;
+			assert dataSource.getRecordCount() == RECORD_COUNT;
+			
+			for (int pass = 0; pass < 2; pass++)
+			{
+				verifySorted(dataSource);
+				dataSource.moveFirst();
+			}
+		}
+		finally
+		{
+			dataSource.dispose();
+		}
+	}
+	
+	@Test
+	public void originalRecords() throws JRException
+	{
+		ExternalSortedDataSource dataSource = createDataSource(true);
+		try
+		{
+			// marking every third record as filtered
+			int filteredCount = 0;
+			while (dataSource.next())
+			{
+				if (dataSource.getRecordIndex() % 3 == 0)
+				{
+					dataSource.setRecordFilteredIndex(filteredCount);
+					assert dataSource.getRecordIndex() == filteredCount;
+					++filteredCount;
+				}
+			}
+			
+			int index = 0;
+			int filteredIndex = 0;
+			for (SortRecord record : dataSource.getRecords())
+			{
+				assert record.isFiltered() == (index % 3 == 0);
+				if (record.isFiltered())
+				{
+					++filteredIndex;
+				}
+				else
+				{
+					assert record.getRecordIndex() == index;
+				}
+				assert record.getValues()[2].equals("record " + index);
+				++index;
+			}
+			assert index == RECORD_COUNT;
+			assert filteredIndex == filteredCount;
+		}
+		finally
+		{
+			dataSource.dispose();
+		}
+	}
+	
+	@Test
+	public void originalRecordsIndexedAccess() throws JRException
+	{
+		ExternalSortedDataSource dataSource = createDataSource(true);
+		try
+		{
+			while (dataSource.next())
+			{
+				// iterating the sorted records
+			}
+			
+			List<SortRecord> records = dataSource.getRecords();
+			assert records.size() == RECORD_COUNT;
+			
+			// forward, repeated, backward and cross segment accesses
+			int[] indexes = new int[]{0, 1, 1, 999, 1000, 3, 2500, 4499, 1500, 0};
+			for (int index : indexes)
+			{
+				assert records.get(index).getValues()[2].equals("record " + index);
+			}
+			
+			List<SortRecord> subList = records.subList(998, 1003);
+			assert subList.size() == 5;
+			for (int i = 0; i < subList.size(); i++)
+			{
+				assert subList.get(i).getValues()[2].equals("record " + (998 + i));
+			}
+			
+			ListIterator<SortRecord> iterator = records.listIterator(1005);
+			int index = 1005;
+			while (index > 995)
+			{
+				--index;
+				assert iterator.previous().getValues()[2].equals("record " + index);
+			}
+			assert iterator.previousIndex() == 994;
+		}
+		finally
+		{
+			dataSource.dispose();
+		}
+	}
+	
+	protected ExternalSortedDataSource createDataSource(boolean keepOriginalOrder) throws JRException
+	{
+		DatasetSortInfo sortInfo = new DatasetSortInfo();
+		sortInfo.addRecordField("key");
+		sortInfo.addRecordField("value");
+		sortInfo.addRecordField("name");
+		sortInfo.addSortField(new JRDesignSortField("key", SortFieldTypeEnum.FIELD, SortOrderEnum.ASCENDING), 0, true);
+		sortInfo.addSortField(new JRDesignSortField("value", SortFieldTypeEnum.FIELD, SortOrderEnum.DESCENDING), 1, false);
+		
+		ExternalSortedDataSource dataSource = new ExternalSortedDataSource(sortInfo, Locale.US, null, keepOriginalOrder);
+		Random random = new Random(1);
+		List<SortRecord> records = new ArrayList<SortRecord>();
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			String key = random.nextInt(10) == 0 ? null : ("k" + random.nextInt(20));
+			Object[] values = new Object[]{key, random.nextInt(5), "record " + i};
+			records.add(new SortRecord(values, i));
+			
+			if (records.size() == RUN_SIZE)
+			{
+				dataSource.writeRun(records);
+				records = new ArrayList<SortRecord>();
+			}
+		}
+		dataSource.writeRun(records);
+		dataSource.endRuns();
+		return dataSource;
+	}
+	
+	protected void verifySorted(ExternalSortedDataSource dataSource) throws JRException
+	{
+		JRDesignField keyField = new JRDesignField();
+		keyField.setName("key");
+		JRDesignField valueField = new JRDesignField();
+		valueField.setName("value");
+		
+		int count = 0;
+		String prevKey = null;
+		Integer prevValue = null;
+		int prevIndex = -1;
+		while (dataSource.next())
+		{
+			String key = (String) dataSource.getFieldValue(keyField);
+			Integer value = (Integer) dataSource.getFieldValue(valueField);
+			int index = dataSource.getRecordIndex();
+			if (count > 0)
+			{
+				int keyOrder = prevKey == null ? (key == null ? 0 : -1) : (key == null ? 1 : prevKey.compareTo(key));
+				assert keyOrder <= 0;
+				if (keyOrder == 0)
+				{
+					assert prevValue >= value;
+					if (prevValue.equals(value))
+					{
+						// the sort is stable
+						assert prevIndex < index;
+					}
+				}
+			}
+			
+			prevKey = key;
+			prevValue = value;
+			prevIndex = index;
+			++count;
+		}
+		assert count == RECORD_COUNT;
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.fill;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.design.JRDesignSortField;
+import net.sf.jasperreports.engine.fill.DatasetSortInfo;
+import net.sf.jasperreports.engine.fill.ParallelRecordSorter;
+import net.sf.jasperreports.engine.fill.SortedDataSource.SortRecord;
+import net.sf.jasperreports.engine.type.SortFieldTypeEnum;
+import net.sf.jasperreports.engine.type.SortOrderEnum;
+
+public class ParallelSortTest
+{
+	private static final int RECORD_COUNT = 50000;
+	
+	@Test
+	public void sortRecords()
+	{
+		DatasetSortInfo sortInfo = new DatasetSortInfo();
+		sortInfo.addRecordField("name");
+		sortInfo.addRecordField("value");
+		sortInfo.addRecordField("amount");
+		sortInfo.addSortField(new JRDesignSortField("name", SortFieldTypeEnum.FIELD, SortOrderEnum.ASCENDING), 0, true);
+		sortInfo.addSortField(new JRDesignSortField("value", SortFieldTypeEnum.FIELD, SortOrderEnum.DESCENDING), 1, false);
+		sortInfo.addSortField(new JRDesignSortField("amount", SortFieldTypeEnum.FIELD, SortOrderEnum.ASCENDING), 2, false);
+		
+		String[] names = {"apple", "Apple", "\u00e9clair", "eclair", "zebra", "Z\u00fcrich", "banana"};
+		Random random = new Random(1);
+		List<SortRecord> records = new ArrayList<SortRecord>(RECORD_COUNT);
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			String name = random.nextInt(20) == 0 ? null : names[random.nextInt(names.length)];
+			Object value = random.nextInt(20) == 0 ? null : (Object) (long) random.nextInt(10);
+			Double amount = (double) random.nextInt(3);
+			records.add(new SortRecord(new Object[]{name, value, amount}, i));
+		}
+		
+		Integer[] indexes = new ParallelRecordSorter(sortInfo, Locale.FRENCH).sort(records);
+		assert indexes.length == RECORD_COUNT;
+		
+		Collator collator = Collator.getInstance(Locale.FRENCH);
+		boolean[] seen = new boolean[RECORD_COUNT];
+		for (int i = 0; i < RECORD_COUNT; i++)
+		{
+			assert !seen[indexes[i]];
+			seen[indexes[i]] = true;
+			
+			if (i > 0)
+			{
+				Object[] prev = records.get(indexes[i - 1]).getValues();
+				Object[] current = records.get(indexes[i]).getValues();
+				
+				int ret = compare(collator, (String) prev[0], (String) current[0]);
+				if (ret == 0)
+				{
+					ret = -compare((Long) prev[1], (Long) current[1]);
+				}
+				if (ret == 0)
+				{
+					ret = compare((Double) prev[2], (Double) current[2]);
+				}
+				if (ret == 0)
+				{
+					// the sort is stable
+					ret = indexes[i - 1].compareTo(indexes[i]);
+				}
+				assert ret < 0;
+			}
+		}
+	}
+	
+	protected static int compare(Collator collator, String value1, String value2)
+	{
+		if (value1 == null || value2 == null)
+		{
+			return value1 == null ? (value2 == null ? 0 : -1) : 1;
+		}
+		return collator.compare(value1, value2);
+	}
+	
+	protected static <T extends Comparable<T>> int compare(T value1, T value2)
+	{
+		if (value1 == null || value2 == null)
+		{
+			return value1 == null ? (value2 == null ? 0 : -1) : 1;
+		}
+		return value1.compareTo(value2);
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.fill;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.fill.JRSubreportRunnerFactory;
+import net.sf.jasperreports.engine.fill.ThreadPoolSubreportRunnerFactory;
+import net.sf.jasperreports.engine.fill.VirtualThreadSubreportRunnerFactory;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+/**
+ * Compares the subreport runner factories for concurrent fills of a report with nested subreports.
+ * 
+ * <p>
+ * The benchmark is not part of the regular test run, it can be executed with
+ * <code>mvn test -Dtest=SubreportRunnerBenchmark</code>.
+ * The peak thread count, the peak used heap and the fill throughput are logged for each factory.
+ * </p>
+ */
+public class SubreportRunnerBenchmark
+{
+	private static final Log log = LogFactory.getLog(SubreportRunnerBenchmark.class);
+	
+	private static final int CONCURRENT_FILLS = 500;
+	private static final int MASTER_RECORDS = 5;
+	private static final int SUBREPORT_DEPTH = 4;
+	private static final long HEAP_SAMPLE_MILLIS = 10;
+	
+	private JasperReport masterReport;
+	private JasperReport levelReport;
+	
+	@BeforeClass
+	public void compileReports() throws JRException, IOException
+	{
+		masterReport = compileReport("net/sf/jasperreports/fill/repo/NestedSubreports.jrxml");
+		levelReport = compileReport("net/sf/jasperreports/fill/repo/NestedSubreportsLevel.jrxml");
+	}
+	
+	protected JasperReport compileReport(String jrxml) throws JRException, IOException
+	{
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(jrxml);
+		try
+		{
+			return JasperCompileManager.compileReport(jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+	}
+	
+	@Test
+	public void threadPool() throws Exception
+	{
+		run(ThreadPoolSubreportRunnerFactory.class.getName());
+	}
+	
+	@Test
+	public void virtualThreads() throws Exception
+	{
+		if (!VirtualThreadSubreportRunnerFactory.isVirtualThreadsSupported())
+		{
+			log.info("virtual threads not supported by the runtime, the factory uses platform threads");
+		}
+		
+		run(VirtualThreadSubreportRunnerFactory.class.getName());
+	}
+	
+	protected void run(String runnerFactory) throws Exception
+	{
+		final SimpleJasperReportsContext jasperReportsContext = new SimpleJasperReportsContext();
+		jasperReportsContext.setProperty(JRSubreportRunnerFactory.SUBREPORT_RUNNER_FACTORY, runnerFactory);
+		
+		// warming up
+		int expectedPages = fill(jasperReportsContext).getPages().size();
+		
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+		System.gc();
+		long startHeap = memoryBean.getHeapMemoryUsage().getUsed();
+		threadBean.resetPeakThreadCount();
+		int startThreads = threadBean.getThreadCount();
+		
+		final AtomicLong peakHeap = new AtomicLong(startHeap);
+		ScheduledExecutorService heapSampler = Executors.newSingleThreadScheduledExecutor();
+		heapSampler.scheduleAtFixedRate(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				long used = memoryBean.getHeapMemoryUsage().getUsed();
+				long peak;
+				while (used > (peak = peakHeap.get()) && !peakHeap.compareAndSet(peak, used))
+				{
+					//NOP
+				}
+			}
+		}, 0, HEAP_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+		
+		ExecutorService fillExecutor = Executors.newFixedThreadPool(CONCURRENT_FILLS);
+		try
+		{
+			final CountDownLatch startLatch = new CountDownLatch(1);
+			List<Future<Integer>> fills = new ArrayList<Future<Integer>>(CONCURRENT_FILLS);
+			for (int i = 0; i < CONCURRENT_FILLS; i++)
+			{
+				fills.add(fillExecutor.submit(new Callable<Integer>()
+				{
+					@Override
+					public Integer call() throws Exception
+					{
+						startLatch.await();
+						return fill(jasperReportsContext).getPages().size();
+					}
+				}));
+			}
+			
+			long start = System.nanoTime();
+			startLatch.countDown();
+			for (Future<Integer> fill : fills)
+			{
+				assert fill.get() == expectedPages;
+			}
+			long duration = System.nanoTime() - start;
+			
+			log.info(String.format("%s: %d concurrent fills in %d ms, %.1f fills/s, "
+					+ "peak threads %d (%d before), peak heap %d MB (%d MB before)", 
+					runnerFactory, CONCURRENT_FILLS, 
+					TimeUnit.NANOSECONDS.toMillis(duration), CONCURRENT_FILLS * 1e9d / duration, 
+					threadBean.getPeakThreadCount(), startThreads, 
+					peakHeap.get() >> 20, startHeap >> 20));
+		}
+		finally
+		{
+			fillExecutor.shutdownNow();
+			heapSampler.shutdownNow();
+		}
+	}
+	
+	protected JasperPrint fill(SimpleJasperReportsContext jasperReportsContext) throws JRException
+	{
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("LevelReport", levelReport);
+		parameters.put("Depth", SUBREPORT_DEPTH);
+		return JasperFillManager.getInstance(jasperReportsContext).fill(masterReport, parameters, 
+				new JREmptyDataSource(MASTER_RECORDS));
+	}
+}
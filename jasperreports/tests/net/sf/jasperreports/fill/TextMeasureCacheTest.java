@@ -0,0 +1,182 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.fill;
+
+import java.awt.font.TextAttribute;
+import java.text.AttributedCharacterIterator.Attribute;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.design.JRDesignStaticText;
+import net.sf.jasperreports.engine.fill.JRMeasuredText;
+import net.sf.jasperreports.engine.fill.TextMeasureCache;
+import net.sf.jasperreports.engine.fill.TextMeasurer;
+import net.sf.jasperreports.engine.fonts.FontUtil;
+import net.sf.jasperreports.engine.util.JRStyledText;
+
+public class TextMeasureCacheTest
+{
+	
+	private static final String TEXT = "The quick brown fox jumps over the lazy dog. The quick brown fox jumps over the lazy dog.";
+	
+	@Test
+	public void cachedMeasurements()
+	{
+		SimpleJasperReportsContext context = new SimpleJasperReportsContext(DefaultJasperReportsContext.getInstance());
+		context.setProperty(TextMeasureCache.PROPERTY_CACHE_SIZE, "100");
+		TextMeasureCache cache = TextMeasureCache.getInstance(context);
+		assert cache != null;
+		cache.clear();
+		
+		JRDesignStaticText element = new JRDesignStaticText();
+		element.setWidth(100);
+		element.setHeight(20);
+		element.setFontSize(10f);
+		
+		SimpleJasperReportsContext uncachedContext = new SimpleJasperReportsContext(DefaultJasperReportsContext.getInstance());
+		uncachedContext.setProperty(TextMeasureCache.PROPERTY_CACHE_SIZE, "0");
+		JRMeasuredText expected = measure(uncachedContext, element, TEXT, 1000);
+		
+		long hits = cache.getHitCount();
+		JRMeasuredText first = measure(context, element, TEXT, 1000);
+		assertEquals(first, expected);
+		
+		JRMeasuredText second = measure(context, element, TEXT, 1000);
+		assertEquals(second, expected);
+		assert second != first;
+		assert cache.getHitCount() == hits + 1;
+		
+		// less available height, but still enough for the text
+		int textHeight = (int) Math.ceil(expected.getTextHeight());
+		JRMeasuredText third = measure(context, element, TEXT, textHeight);
+		assertEquals(third, expected);
+		assert cache.getHitCount() == hits + 2;
+		
+		// the text does not fit
+		JRMeasuredText truncated = measure(context, element, TEXT, textHeight / 2);
+		assert truncated.getTextOffset() < TEXT.length();
+		assert cache.getHitCount() == hits + 2;
+		
+		// different width
+		element.setWidth(200);
+		JRMeasuredText wider = measure(context, element, TEXT, 1000);
+		assert wider.getTextHeight() < expected.getTextHeight();
+		assert cache.getHitCount() == hits + 2;
+	}
+	
+	@Test
+	public void contextCaches()
+	{
+		SimpleJasperReportsContext context = new SimpleJasperReportsContext(DefaultJasperReportsContext.getInstance());
+		context.setProperty(TextMeasureCache.PROPERTY_CACHE_SIZE, "100");
+		TextMeasureCache cache = TextMeasureCache.getInstance(context);
+		assert cache.getMaxSize() == 100;
+		assert TextMeasureCache.getInstance(context) == cache;
+		
+		// a child context does not use the cache of its parent
+		SimpleJasperReportsContext childContext = new SimpleJasperReportsContext(context);
+		TextMeasureCache childCache = TextMeasureCache.getInstance(childContext);
+		assert childCache != null && childCache != cache;
+		assert TextMeasureCache.getInstance(context) == cache;
+		
+		SimpleJasperReportsContext otherContext = new SimpleJasperReportsContext(DefaultJasperReportsContext.getInstance());
+		otherContext.setProperty(TextMeasureCache.PROPERTY_CACHE_SIZE, "50");
+		TextMeasureCache otherCache = TextMeasureCache.getInstance(otherContext);
+		assert otherCache != cache;
+		assert otherCache.getMaxSize() == 50;
+		
+		// the cache is recreated with the new size
+		context.setProperty(TextMeasureCache.PROPERTY_CACHE_SIZE, "200");
+		TextMeasureCache resizedCache = TextMeasureCache.getInstance(context);
+		assert resizedCache != cache;
+		assert resizedCache.getMaxSize() == 200;
+		
+		context.setProperty(TextMeasureCache.PROPERTY_CACHE_SIZE, "0");
+		assert TextMeasureCache.getInstance(context) == null;
+	}
+	
+	@Test
+	public void keyEquality()
+	{
+		Map<Attribute, Object> attributes = new HashMap<Attribute, Object>();
+		attributes.put(TextAttribute.SIZE, 10f);
+		
+		TextMeasureCache.Key key1 = new TextMeasureCache.Key(
+				new JRStyledText(Locale.US, "text", attributes), new Object[]{100, "none"});
+		TextMeasureCache.Key key2 = new TextMeasureCache.Key(
+				new JRStyledText(Locale.US, "text", new HashMap<Attribute, Object>(attributes)), new Object[]{100, "none"});
+		assert key1.equals(key2);
+		assert key1.detach().equals(key2);
+		assert key1.hashCode() == key2.detach().hashCode();
+		
+		TextMeasureCache.Key key3 = new TextMeasureCache.Key(
+				new JRStyledText(Locale.US, "text", attributes), new Object[]{101, "none"});
+		assert !key1.equals(key3);
+		
+		attributes.put(TextAttribute.SIZE, 12f);
+		TextMeasureCache.Key key4 = new TextMeasureCache.Key(
+				new JRStyledText(Locale.US, "text", attributes), new Object[]{100, "none"});
+		assert !key2.equals(key4);
+	}
+	
+	@Test
+	public void eviction()
+	{
+		TextMeasureCache cache = new TextMeasureCache(16);
+		for (int i = 0; i < 1000; i++)
+		{
+			TextMeasureCache.Key key = new TextMeasureCache.Key(
+					new JRStyledText(Locale.US, "text" + i, new HashMap<Attribute, Object>()), new Object[]{i});
+			cache.put(key, null);
+		}
+		assert cache.size() <= 16;
+		assert cache.getPutCount() == 1000;
+	}
+	
+	private JRMeasuredText measure(SimpleJasperReportsContext context, JRDesignStaticText element, String text, int maxHeight)
+	{
+		Map<Attribute, Object> attributes = FontUtil.getInstance(context).getAttributesWithoutAwtFont(
+				new HashMap<Attribute, Object>(), element);
+		JRStyledText styledText = new JRStyledText(Locale.US, text, attributes);
+		TextMeasurer measurer = new TextMeasurer(context, element);
+		return measurer.measure(styledText, 0, maxHeight - element.getHeight(), false);
+	}
+	
+	private void assertEquals(JRMeasuredText measured, JRMeasuredText expected)
+	{
+		assert measured.getTextOffset() == expected.getTextOffset();
+		assert measured.getTextHeight() == expected.getTextHeight();
+		assert measured.getTextWidth() == expected.getTextWidth();
+		assert measured.getLineSpacingFactor() == expected.getLineSpacingFactor();
+		assert measured.getLeadingOffset() == expected.getLeadingOffset();
+		assert Arrays.equals(measured.getLineBreakOffsets(), expected.getLineBreakOffsets());
+	}
+	
+}
@@ -0,0 +1,167 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.fill;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.JREmptyDataSource;
+import net.sf.jasperreports.engine.JRException;
+import net.sf.jasperreports.engine.JRPrintElement;
+import net.sf.jasperreports.engine.JRPrintFrame;
+import net.sf.jasperreports.engine.JRPrintPage;
+import net.sf.jasperreports.engine.JRPrintText;
+import net.sf.jasperreports.engine.JasperCompileManager;
+import net.sf.jasperreports.engine.JasperFillManager;
+import net.sf.jasperreports.engine.JasperPrint;
+import net.sf.jasperreports.engine.JasperReport;
+import net.sf.jasperreports.engine.SimpleJasperReportsContext;
+import net.sf.jasperreports.engine.fill.JRSubreportRunnerFactory;
+import net.sf.jasperreports.engine.fill.ThreadPoolSubreportRunnerFactory;
+import net.sf.jasperreports.engine.fill.VirtualThreadSubreportRunnerFactory;
+import net.sf.jasperreports.engine.util.JRLoader;
+
+public class VirtualThreadSubreportRunnerFactoryTest
+{
+	private JasperReport masterReport;
+	private JasperReport levelReport;
+	
+	@BeforeClass
+	public void compileReports() throws JRException, IOException
+	{
+		masterReport = compileReport("net/sf/jasperreports/fill/repo/NestedSubreports.jrxml");
+		levelReport = compileReport("net/sf/jasperreports/fill/repo/NestedSubreportsLevel.jrxml");
+	}
+	
+	protected JasperReport compileReport(String jrxml) throws JRException, IOException
+	{
+		InputStream jrxmlInput = JRLoader.getResourceInputStream(jrxml);
+		try
+		{
+			return JasperCompileManager.compileReport(jrxmlInput);
+		}
+		finally
+		{
+			jrxmlInput.close();
+		}
+	}
+	
+	@Test
+	public void runtimeSupport()
+	{
+		String specVersion = System.getProperty("java.specification.version");
+		boolean virtualThreadsRuntime = !specVersion.startsWith("1.") && Integer.parseInt(specVersion) >= 21;
+		assert VirtualThreadSubreportRunnerFactory.isVirtualThreadsSupported() == virtualThreadsRuntime;
+	}
+	
+	@Test
+	public void virtualThreads() throws Exception
+	{
+		ExecutorService executor = VirtualThreadSubreportRunnerFactory.createVirtualThreadExecutor("test subreports #");
+		if (!VirtualThreadSubreportRunnerFactory.isVirtualThreadsSupported())
+		{
+			assert executor == null;
+			return;
+		}
+		
+		try
+		{
+			Thread thread = executor.submit(new Callable<Thread>()
+			{
+				@Override
+				public Thread call()
+				{
+					return Thread.currentThread();
+				}
+			}).get();
+			
+			Method isVirtual = Thread.class.getMethod("isVirtual");
+			assert (Boolean) isVirtual.invoke(thread);
+			assert thread.getName().startsWith("test subreports #");
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void nestedSubreports() throws JRException
+	{
+		JasperPrint threadPoolPrint = fill(ThreadPoolSubreportRunnerFactory.class.getName());
+		JasperPrint virtualThreadPrint = fill(VirtualThreadSubreportRunnerFactory.class.getName());
+		
+		// the nested subreports continue on several pages
+		assert threadPoolPrint.getPages().size() > 2;
+		assert pageTexts(virtualThreadPrint).equals(pageTexts(threadPoolPrint));
+	}
+	
+	protected JasperPrint fill(String runnerFactory) throws JRException
+	{
+		SimpleJasperReportsContext jasperReportsContext = new SimpleJasperReportsContext();
+		jasperReportsContext.setProperty(JRSubreportRunnerFactory.SUBREPORT_RUNNER_FACTORY, runnerFactory);
+		
+		Map<String, Object> parameters = new HashMap<String, Object>();
+		parameters.put("LevelReport", levelReport);
+		parameters.put("Depth", 4);
+		return JasperFillManager.getInstance(jasperReportsContext).fill(masterReport, parameters, 
+				new JREmptyDataSource(5));
+	}
+	
+	protected List<String> pageTexts(JasperPrint jasperPrint)
+	{
+		List<String> texts = new ArrayList<String>();
+		for (JRPrintPage page : jasperPrint.getPages())
+		{
+			collectTexts(page.getElements(), texts);
+			texts.add("--");
+		}
+		return texts;
+	}
+	
+	protected void collectTexts(List<JRPrintElement> elements, List<String> texts)
+	{
+		for (JRPrintElement element : elements)
+		{
+			if (element instanceof JRPrintText)
+			{
+				texts.add(((JRPrintText) element).getFullText() + "@" + element.getY());
+			}
+			else if (element instanceof JRPrintFrame)
+			{
+				collectTexts(((JRPrintFrame) element).getElements(), texts);
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.util.LZ4StreamCompression;
+
+public class LZ4StreamCompressionTest
+{
+	@Test(dataProvider = "data")
+	public void roundTrip(byte[] data, int blockSize) throws IOException
+	{
+		LZ4StreamCompression compression = new LZ4StreamCompression(blockSize);
+		
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		OutputStream out = compression.compressedOutput(bout);
+		int offset = 0;
+		while (offset < data.length)
+		{
+			// writing in uneven chunks
+			int length = Math.min(data.length - offset, 1 + offset % 3001);
+			out.write(data, offset, length);
+			offset += length;
+		}
+		out.close();
+		
+		InputStream in = compression.uncompressedInput(new ByteArrayInputStream(bout.toByteArray()));
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int read;
+		while ((read = in.read(buffer)) > 0)
+		{
+			result.write(buffer, 0, read);
+		}
+		in.close();
+		
+		assert Arrays.equals(result.toByteArray(), data);
+	}
+	
+	@Test
+	public void compressesRepeatedData()
+	{
+		byte[] data = new byte[100000];
+		for (int i = 0; i < data.length; ++i)
+		{
+			data[i] = (byte) ('a' + i % 13);
+		}
+		
+		byte[] compressed = new byte[LZ4StreamCompression.maxCompressedLength(data.length)];
+		int compressedLength = LZ4StreamCompression.compressBlock(data, 0, data.length, compressed, 0);
+		assert compressedLength < data.length / 10;
+		
+		byte[] decompressed = new byte[data.length];
+		int length = LZ4StreamCompression.decompressBlock(compressed, 0, compressedLength, 
+				decompressed, 0, decompressed.length);
+		assert length == data.length;
+		assert Arrays.equals(decompressed, data);
+	}
+
+	@DataProvider
+	public Object[][] data()
+	{
+		Random random = new Random(1);
+		
+		byte[] randomData = new byte[200000];
+		random.nextBytes(randomData);
+		
+		byte[] textData = new byte[200000];
+		for (int i = 0; i < textData.length; ++i)
+		{
+			textData[i] = (byte) ('a' + random.nextInt(4));
+		}
+		
+		byte[] sparseData = new byte[200000];
+		for (int i = 0; i < sparseData.length; i += 1 + random.nextInt(50))
+		{
+			sparseData[i] = (byte) random.nextInt();
+		}
+		
+		return new Object[][] {
+			{new byte[0], LZ4StreamCompression.DEFAULT_BLOCK_SIZE},
+			{new byte[]{1, 2, 3}, LZ4StreamCompression.DEFAULT_BLOCK_SIZE},
+			{randomData, LZ4StreamCompression.DEFAULT_BLOCK_SIZE},
+			{textData, LZ4StreamCompression.DEFAULT_BLOCK_SIZE},
+			{textData, 1000},
+			{sparseData, LZ4StreamCompression.DEFAULT_BLOCK_SIZE},
+		};
+	}
+}
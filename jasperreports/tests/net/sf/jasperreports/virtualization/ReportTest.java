@@ -24,8 +24,10 @@
 package net.sf.jasperreports.virtualization;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -33,7 +35,13 @@ import org.testng.annotations.Test;
 import net.sf.jasperreports.Report;
 import net.sf.jasperreports.engine.JRException;
 import net.sf.jasperreports.engine.JRParameter;
+import net.sf.jasperreports.engine.fill.JRAbstractLRUVirtualizer;
 import net.sf.jasperreports.engine.fill.JRGzipVirtualizer;
+import net.sf.jasperreports.engine.fill.StoreFactoryVirtualizer;
+import net.sf.jasperreports.engine.fill.VirtualizerStatistics;
+import net.sf.jasperreports.engine.util.DirectMemorySwap;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+import net.sf.jasperreports.engine.util.OffHeapVirtualizerStoreFactory;
 
 /**
  * @author Lucian Chirita (lucianc@users.sourceforge.net)
@@ -66,4 +74,144 @@ public class ReportTest
 		
 		report.runReport(params);
 	}
+	
+	@Test
+	public void writeBehindVirtualizedReport() throws JRException, NoSuchAlgorithmException, IOException, InterruptedException
+	{
+		HashMap<String, Object> params = new HashMap<String, Object>();
+		JRGzipVirtualizer virtualizer = new JRGzipVirtualizer(3);
+		virtualizer.setWriteBehindQueueSize(2);
+		params.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+		
+		report.runReport(params);
+		
+		assert virtualizer.getQueuedPageOutCount() > 0;
+		assert virtualizer.getWriteBehindCount() > 0;
+		assert virtualizer.getWriteBehindCount() <= virtualizer.getQueuedPageOutCount();
+		
+		// the virtualizer is cleaned up by the report run, which stops the write-behind thread
+		long timeout = System.currentTimeMillis() + 10000;
+		while (writerThreadCount() > 0 && System.currentTimeMillis() < timeout)
+		{
+			Thread.sleep(10);
+		}
+		assert writerThreadCount() == 0;
+	}
+	
+	private int writerThreadCount()
+	{
+		int count = 0;
+		for (Thread thread : Thread.getAllStackTraces().keySet())
+		{
+			if (thread.isAlive() && thread.getName().startsWith("virtualizer writer"))
+			{
+				++count;
+			}
+		}
+		return count;
+	}
+	
+	@Test
+	public void sizeLimitedVirtualizedReport() throws JRException, NoSuchAlgorithmException, IOException
+	{
+		HashMap<String, Object> params = new HashMap<String, Object>();
+		JRGzipVirtualizer virtualizer = new JRGzipVirtualizer(Integer.MAX_VALUE);
+		virtualizer.setMaxMemorySize(10000);
+		virtualizer.setDefaultObjectSize(5000);
+		virtualizer.setEvictionPolicy(JRAbstractLRUVirtualizer.EvictionPolicy.TWO_QUEUE);
+		params.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+		
+		report.runReport(params);
+		
+		VirtualizerStatistics statistics = virtualizer.getStatistics();
+		assert statistics.getEvictionCount() > 0;
+		assert statistics.getPagedOutBytes() > 0;
+	}
+	
+	@Test
+	public void offHeapVirtualizedReport() throws JRException, NoSuchAlgorithmException, IOException
+	{
+		TestOffHeapStoreFactory storeFactory = new TestOffHeapStoreFactory(false);
+		try
+		{
+			HashMap<String, Object> params = new HashMap<String, Object>();
+			StoreFactoryVirtualizer virtualizer = new StoreFactoryVirtualizer(3, storeFactory);
+			params.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+			
+			report.runReport(params);
+			
+			assert storeFactory.createdMemory.getAllocatedSize() > 0;
+			assert storeFactory.swapFileCount.get() == 0;
+		}
+		finally
+		{
+			storeFactory.dispose();
+		}
+	}
+	
+	@Test
+	public void offHeapFallbackVirtualizedReport() throws JRException, NoSuchAlgorithmException, IOException
+	{
+		// direct memory allocation always fails, the stores have to write to swap files
+		TestOffHeapStoreFactory storeFactory = new TestOffHeapStoreFactory(true);
+		try
+		{
+			HashMap<String, Object> params = new HashMap<String, Object>();
+			StoreFactoryVirtualizer virtualizer = new StoreFactoryVirtualizer(3, storeFactory);
+			params.put(JRParameter.REPORT_VIRTUALIZER, virtualizer);
+			
+			report.runReport(params);
+			
+			assert storeFactory.createdMemory.getAllocatedSize() == 0;
+			assert storeFactory.swapFileCount.get() > 0;
+		}
+		finally
+		{
+			storeFactory.dispose();
+		}
+	}
+	
+	private static class TestOffHeapStoreFactory extends OffHeapVirtualizerStoreFactory
+	{
+		private final boolean failAllocation;
+		private final AtomicInteger swapFileCount = new AtomicInteger();
+		private DirectMemorySwap createdMemory;
+		
+		public TestOffHeapStoreFactory(boolean failAllocation)
+		{
+			this.failAllocation = failAllocation;
+			
+			setBlockSize(1024);
+			setSlabBlockCount(64);
+			setMaxMemorySize(16 * 1024 * 1024);
+		}
+		
+		@Override
+		protected DirectMemorySwap createMemory()
+		{
+			if (failAllocation)
+			{
+				createdMemory = new DirectMemorySwap(getBlockSize(), getSlabBlockCount(), getMaxMemorySize())
+				{
+					@Override
+					protected ByteBuffer allocateSlab(int size)
+					{
+						throw new OutOfMemoryError("Direct buffer memory");
+					}
+				};
+			}
+			else
+			{
+				createdMemory = super.createMemory();
+			}
+			return createdMemory;
+		}
+
+		@Override
+		public JRSwapFile createSwapFile()
+		{
+			swapFileCount.incrementAndGet();
+			return super.createSwapFile();
+		}
+	}
 }
@@ -0,0 +1,178 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.virtualization;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.jasperreports.engine.util.DirectMemorySwap;
+import net.sf.jasperreports.engine.util.JRConcurrentSwapFile;
+import net.sf.jasperreports.engine.util.JRMappedSwapFile;
+import net.sf.jasperreports.engine.util.JRSwapFile;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class SwapFileTest
+{
+	private static final String TMP_DIR = System.getProperty("java.io.tmpdir");
+	
+	@DataProvider
+	public Object[][] swapFiles()
+	{
+		return new Object[][] {
+			{new JRSwapFile(TMP_DIR, 512, 10)},
+			{new JRConcurrentSwapFile(TMP_DIR, 512, 10)},
+			{new JRMappedSwapFile(TMP_DIR, 512, 16, 4)},
+		};
+	}
+	
+	@Test(dataProvider = "swapFiles")
+	public void readWrite(JRSwapFile swapFile) throws IOException
+	{
+		try
+		{
+			Random random = new Random(1);
+			List<byte[]> data = new ArrayList<byte[]>();
+			List<JRSwapFile.SwapHandle> handles = new ArrayList<JRSwapFile.SwapHandle>();
+			for (int i = 0; i < 100; ++i)
+			{
+				byte[] bytes = randomData(random);
+				data.add(bytes);
+				handles.add(swapFile.write(bytes));
+			}
+			
+			for (int i = 0; i < data.size(); ++i)
+			{
+				byte[] read = swapFile.read(handles.get(i), i % 2 == 0);
+				assert Arrays.equals(read, data.get(i));
+			}
+			
+			for (int i = 0; i < data.size(); i += 2)
+			{
+				byte[] bytes = randomData(random);
+				data.set(i, bytes);
+				handles.set(i, swapFile.write(bytes));
+			}
+			
+			for (int i = 0; i < data.size(); ++i)
+			{
+				byte[] read = swapFile.read(handles.get(i), true);
+				assert Arrays.equals(read, data.get(i));
+			}
+		}
+		finally
+		{
+			swapFile.dispose();
+		}
+	}
+	
+	@Test(dataProvider = "swapFiles")
+	public void concurrentReadWrite(final JRSwapFile swapFile) throws Exception
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try
+		{
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; ++t)
+			{
+				final int seed = t;
+				results.add(executor.submit(new Callable<Boolean>()
+				{
+					@Override
+					public Boolean call() throws Exception
+					{
+						Random random = new Random(seed);
+						for (int i = 0; i < 200; ++i)
+						{
+							byte[] bytes = randomData(random);
+							JRSwapFile.SwapHandle handle = swapFile.write(bytes);
+							byte[] read = swapFile.read(handle, true);
+							if (!Arrays.equals(read, bytes))
+							{
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			
+			for (Future<Boolean> result : results)
+			{
+				assert result.get();
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+			swapFile.dispose();
+		}
+	}
+	
+	@Test
+	public void directMemory()
+	{
+		// 4 slabs of 8 x 512 bytes blocks
+		DirectMemorySwap memory = new DirectMemorySwap(512, 8, 4 * 8 * 512);
+		try
+		{
+			Random random = new Random(1);
+			byte[] data1 = new byte[10000];
+			random.nextBytes(data1);
+			JRSwapFile.SwapHandle handle1 = memory.write(data1);
+			assert handle1 != null;
+			
+			// not enough memory left
+			byte[] data2 = new byte[10000];
+			random.nextBytes(data2);
+			assert memory.write(data2) == null;
+			
+			assert Arrays.equals(memory.read(handle1, true), data1);
+			
+			JRSwapFile.SwapHandle handle2 = memory.write(data2);
+			assert handle2 != null;
+			assert Arrays.equals(memory.read(handle2, false), data2);
+			assert memory.getAllocatedSize() == 4 * 8 * 512;
+		}
+		finally
+		{
+			memory.dispose();
+		}
+	}
+	
+	protected static byte[] randomData(Random random)
+	{
+		byte[] bytes = new byte[1 + random.nextInt(3000)];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+}
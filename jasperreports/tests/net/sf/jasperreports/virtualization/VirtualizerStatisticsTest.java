@@ -0,0 +1,103 @@
+/*
+ * JasperReports - Free Java Reporting Library.
+ * Copyright (C) 2001 - 2018 TIBCO Software Inc. All rights reserved.
+ * http://www.jaspersoft.com
+ *
+ * Unless you have purchased a commercial license agreement from Jaspersoft,
+ * the following license terms apply:
+ *
+ * This program is part of JasperReports.
+ *
+ * JasperReports is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * JasperReports is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with JasperReports. If not, see <http://www.gnu.org/licenses/>.
+ */
+package net.sf.jasperreports.virtualization;
+
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import net.sf.jasperreports.engine.DefaultJasperReportsContext;
+import net.sf.jasperreports.engine.base.JRVirtualPrintPage;
+import net.sf.jasperreports.engine.fill.DefaultPrintElementOriginator;
+import net.sf.jasperreports.engine.fill.JRGzipVirtualizer;
+import net.sf.jasperreports.engine.fill.JRTemplatePrintText;
+import net.sf.jasperreports.engine.fill.JRTemplateText;
+import net.sf.jasperreports.engine.fill.JRVirtualizationContext;
+import net.sf.jasperreports.engine.fill.VirtualizerStatistics;
+
+public class VirtualizerStatisticsTest
+{
+
+	@Test
+	public void hitsAndMisses()
+	{
+		JRGzipVirtualizer virtualizer = new JRGzipVirtualizer(2);
+		try
+		{
+			JRVirtualizationContext context = new JRVirtualizationContext(DefaultJasperReportsContext.getInstance());
+			context.setVirtualizer(virtualizer);
+			
+			JRVirtualPrintPage page1 = page(context, "1");
+			JRVirtualPrintPage page2 = page(context, "2");
+			// registering the third page pages out the first one
+			JRVirtualPrintPage page3 = page(context, "3");
+			
+			VirtualizerStatistics statistics = virtualizer.getStatistics();
+			assert statistics.getHitCount() == 0;
+			assert statistics.getMissCount() == 0;
+			
+			// paged in, pages out the second page
+			page1.getElements().get(0);
+			assert statistics.getHitCount() == 0;
+			assert statistics.getMissCount() == 1;
+			
+			// repeated accesses to the page that was just loaded are not counted
+			page1.getElements().get(0);
+			page1.getElements().get(0);
+			assert statistics.getHitCount() == 0;
+			assert statistics.getMissCount() == 1;
+			
+			// resident page
+			page3.getElements().get(0);
+			assert statistics.getHitCount() == 1;
+			assert statistics.getMissCount() == 1;
+			
+			page2.getElements().get(0);
+			assert statistics.getHitCount() == 1;
+			assert statistics.getMissCount() == 2;
+			
+			context.dispose();
+		}
+		finally
+		{
+			virtualizer.cleanup();
+		}
+	}
+	
+	protected JRVirtualPrintPage page(JRVirtualizationContext context, String text)
+	{
+		JRTemplatePrintText element = new JRTemplatePrintText(new JRTemplateText(null, null), 
+				new DefaultPrintElementOriginator(10));
+		element.setUUID(UUID.randomUUID());
+		element.setWidth(50);
+		element.setHeight(30);
+		element.setText(text);
+		context.cacheTemplate(element);
+		
+		JRVirtualPrintPage page = new JRVirtualPrintPage(context);
+		page.addElement(element);
+		return page;
+	}
+
+}